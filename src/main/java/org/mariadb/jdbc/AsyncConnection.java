@@ -0,0 +1,35 @@
+package org.mariadb.jdbc;
+
+import java.sql.ResultSet;
+import java.util.concurrent.Future;
+
+/**
+ * Non-JDBC extension for submitting queries without blocking the calling thread.
+ * Obtained with <code>connection.unwrap(AsyncConnection.class)</code>.
+ *
+ * Commands are queued on the connection and executed in submission order; each future completes once the
+ * server response for its command has been read. Failures are reported as an ExecutionException whose cause
+ * is the SQLException the synchronous call would have thrown.
+ */
+public interface AsyncConnection {
+    /**
+     * Queue a query.
+     * @param sql the query
+     * @return future for the (fully read) result set
+     */
+    Future<ResultSet> executeQueryAsync(String sql);
+
+    /**
+     * Queue an update.
+     * @param sql the update query
+     * @return future for the update count
+     */
+    Future<Integer> executeUpdateAsync(String sql);
+
+    /**
+     * Queue a statement.
+     * @param sql the query
+     * @return future for true if the first result is a result set, as Statement.execute() would return
+     */
+    Future<Boolean> executeAsync(String sql);
+}
@@ -0,0 +1,18 @@
+package org.mariadb.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Non-JDBC extension for loading rows with LOAD DATA LOCAL INFILE, without writing them to a file first.
+ * Obtained with <code>connection.unwrap(BulkLoadConnection.class)</code>.
+ */
+public interface BulkLoadConnection {
+    /**
+     * Create a loader for a table.
+     * @param table table name
+     * @param columns columns that loaded values go to, in order
+     * @return the loader
+     * @throws SQLException if the connection is closed
+     */
+    BulkLoader createBulkLoader(String table, String... columns) throws SQLException;
+}
@@ -0,0 +1,30 @@
+package org.mariadb.jdbc;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+
+/**
+ * Loads rows into a table with LOAD DATA LOCAL INFILE. Rows are encoded to the LOAD DATA format while they are
+ * sent, so memory use does not depend on the number of rows.
+ *
+ * Supported values are null, String, byte[], Number, Boolean, java.sql.Date, java.sql.Time, java.sql.Timestamp
+ * and java.util.Date; other objects are loaded as their toString() value.
+ */
+public interface BulkLoader {
+    /**
+     * Load rows.
+     * @param rows rows, each with one value per column of the loader
+     * @return number of rows inserted
+     * @throws SQLException if the load fails
+     */
+    long load(Iterator<Object[]> rows) throws SQLException;
+
+    /**
+     * Load rows given column by column.
+     * @param columns one array per column of the loader, all of the same length: int[], long[], short[], byte[],
+     *                double[], float[], boolean[], or an Object[] of supported values
+     * @return number of rows inserted
+     * @throws SQLException if the load fails
+     */
+    long loadColumns(Object... columns) throws SQLException;
+}
@@ -0,0 +1,360 @@
+package org.mariadb.jdbc;
+
+import org.mariadb.jdbc.internal.common.DateTimeCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.Iterator;
+
+/**
+ * BulkLoader sending rows as tab separated lines, escaped with backslashes:
+ * NULL is \N, and backslash, tab, newline, carriage return and 0 bytes are escaped.
+ */
+public class MySQLBulkLoader implements BulkLoader {
+    private final MySQLConnection connection;
+    private final String sql;
+    private final int columnCount;
+
+    MySQLBulkLoader(MySQLConnection connection, String table, String[] columns) {
+        this.connection = connection;
+        this.columnCount = columns.length;
+        String charset = connection.getProtocol().versionGreaterOrEqual(5, 5, 3) ? "utf8mb4" : "utf8";
+        StringBuilder sb = new StringBuilder("LOAD DATA LOCAL INFILE 'bulkload' INTO TABLE ");
+        sb.append(quoteTableName(table));
+        sb.append(" CHARACTER SET ").append(charset);
+        /* hexadecimal literals read the same with or without NO_BACKSLASH_ESCAPES : tab, backslash, newline */
+        sb.append(" FIELDS TERMINATED BY X'09' ENCLOSED BY '' ESCAPED BY X'5C' LINES TERMINATED BY X'0A' (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(quoteIdentifier(columns[i]));
+        }
+        sb.append(')');
+        sql = sb.toString();
+    }
+
+    private static String quoteIdentifier(String name) {
+        return "`" + name.replace("`", "``") + "`";
+    }
+
+    /* table or database.table */
+    private static String quoteTableName(String name) {
+        int dot = name.indexOf('.');
+        if (dot < 0) {
+            return quoteIdentifier(name);
+        }
+        return quoteIdentifier(name.substring(0, dot)) + "." + quoteIdentifier(name.substring(dot + 1));
+    }
+
+    public long load(final Iterator<Object[]> rows) throws SQLException {
+        return load(new RowEncoder() {
+            boolean encodeRow() throws IOException {
+                if (!rows.hasNext()) {
+                    return false;
+                }
+                Object[] row = rows.next();
+                if (row.length != columnCount) {
+                    throw new IOException("row has " + row.length + " values, expected " + columnCount);
+                }
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        put((byte) '\t');
+                    }
+                    putValue(row[i]);
+                }
+                put((byte) '\n');
+                return true;
+            }
+        });
+    }
+
+    public long loadColumns(final Object... columns) throws SQLException {
+        if (columns.length != columnCount) {
+            throw new SQLException(columns.length + " columns given, expected " + columnCount);
+        }
+        final int rows = columns.length == 0 ? 0 : java.lang.reflect.Array.getLength(columns[0]);
+        for (Object column : columns) {
+            if (column == null || !column.getClass().isArray() || java.lang.reflect.Array.getLength(column) != rows) {
+                throw new SQLException("columns must be arrays of the same length");
+            }
+            /* checked before sending anything, not to load part of the rows */
+            if (column instanceof double[]) {
+                for (double value : (double[]) column) {
+                    checkFinite(value);
+                }
+            } else if (column instanceof float[]) {
+                for (float value : (float[]) column) {
+                    checkFinite(value);
+                }
+            }
+        }
+        return load(new RowEncoder() {
+            int row;
+
+            boolean encodeRow() throws IOException {
+                if (row == rows) {
+                    return false;
+                }
+                for (int i = 0; i < columns.length; i++) {
+                    if (i > 0) {
+                        put((byte) '\t');
+                    }
+                    Object column = columns[i];
+                    if (column instanceof int[]) {
+                        putLong(((int[]) column)[row]);
+                    } else if (column instanceof long[]) {
+                        putLong(((long[]) column)[row]);
+                    } else if (column instanceof short[]) {
+                        putLong(((short[]) column)[row]);
+                    } else if (column instanceof byte[]) {
+                        putLong(((byte[]) column)[row]);
+                    } else if (column instanceof double[]) {
+                        putDouble(((double[]) column)[row]);
+                    } else if (column instanceof float[]) {
+                        putFloat(((float[]) column)[row]);
+                    } else if (column instanceof boolean[]) {
+                        put(((boolean[]) column)[row] ? (byte) '1' : (byte) '0');
+                    } else if (column instanceof Object[]) {
+                        putValue(((Object[]) column)[row]);
+                    } else {
+                        throw new IOException("unsupported column type " + column.getClass().getName());
+                    }
+                }
+                put((byte) '\n');
+                row++;
+                return true;
+            }
+        });
+    }
+
+    private static void checkFinite(double value) throws SQLException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new SQLException(value + " cannot be loaded, only finite numbers can");
+        }
+    }
+
+    private long load(RowEncoder encoder) throws SQLException {
+        MySQLStatement statement = (MySQLStatement) connection.createStatement();
+        try {
+            statement.setLocalInfileInputStream(encoder);
+            return statement.executeUpdate(sql);
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * InputStream encoding rows as they are read, one row at a time.
+     */
+    abstract static class RowEncoder extends InputStream {
+        byte[] buffer = new byte[8192];
+        int count;
+        int pos;
+        boolean finished;
+        SimpleDateFormat dateFormat;
+        SimpleDateFormat timeFormat;
+        SimpleDateFormat timestampFormat;
+
+        /**
+         * Append the next row to the buffer.
+         * @return false if there are no more rows
+         */
+        abstract boolean encodeRow() throws IOException;
+
+        private boolean fill() throws IOException {
+            pos = 0;
+            count = 0;
+            try {
+                while (!finished && count < 4096) {
+                    finished = !encodeRow();
+                }
+            } catch (RuntimeException e) {
+                /* thrown by the row iterator : end the data like for an IOException */
+                throw new IOException(e.getMessage(), e);
+            }
+            return count > 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == count && !fill()) {
+                return -1;
+            }
+            return buffer[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int read = 0;
+            while (read < len) {
+                if (pos == count && !fill()) {
+                    break;
+                }
+                int n = Math.min(len - read, count - pos);
+                System.arraycopy(buffer, pos, bytes, off + read, n);
+                pos += n;
+                read += n;
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        void put(byte b) {
+            if (count == buffer.length) {
+                byte[] tmp = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, tmp, 0, count);
+                buffer = tmp;
+            }
+            buffer[count++] = b;
+        }
+
+        void put(byte[] bytes) {
+            for (byte b : bytes) {
+                put(b);
+            }
+        }
+
+        void putAscii(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                put((byte) s.charAt(i));
+            }
+        }
+
+        void putLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                putAscii(String.valueOf(value));
+                return;
+            }
+            if (value < 0) {
+                put((byte) '-');
+                value = -value;
+            }
+            int start = count;
+            do {
+                put((byte) ('0' + (int) (value % 10)));
+                value /= 10;
+            } while (value != 0);
+            for (int i = start, j = count - 1; i < j; i++, j--) {
+                byte tmp = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = tmp;
+            }
+        }
+
+        void putDouble(double value) throws IOException {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new IOException(value + " cannot be loaded, only finite numbers can");
+            }
+            putAscii(String.valueOf(value));
+        }
+
+        void putFloat(float value) throws IOException {
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                throw new IOException(value + " cannot be loaded, only finite numbers can");
+            }
+            putAscii(String.valueOf(value));
+        }
+
+        void putEscaped(byte[] bytes) {
+            for (byte b : bytes) {
+                switch (b) {
+                    case '\\':
+                        put((byte) '\\');
+                        put((byte) '\\');
+                        break;
+                    case '\t':
+                        put((byte) '\\');
+                        put((byte) 't');
+                        break;
+                    case '\n':
+                        put((byte) '\\');
+                        put((byte) 'n');
+                        break;
+                    case '\r':
+                        put((byte) '\\');
+                        put((byte) 'r');
+                        break;
+                    case 0:
+                        put((byte) '\\');
+                        put((byte) '0');
+                        break;
+                    default:
+                        put(b);
+                }
+            }
+        }
+
+        void putTimestamp(java.util.Date date) throws IOException {
+            byte[] bytes = DateTimeCodec.formatTimestamp(date.getTime(), null);
+            if (bytes == null) {
+                if (timestampFormat == null) {
+                    timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+                }
+                bytes = timestampFormat.format(date).getBytes("US-ASCII");
+            }
+            put(bytes);
+        }
+
+        void putValue(Object value) throws IOException {
+            if (value == null) {
+                put((byte) '\\');
+                put((byte) 'N');
+            } else if (value instanceof String) {
+                putEscaped(((String) value).getBytes("UTF-8"));
+            } else if (value instanceof byte[]) {
+                putEscaped((byte[]) value);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte) {
+                putLong(((Number) value).longValue());
+            } else if (value instanceof BigDecimal) {
+                putAscii(((BigDecimal) value).toPlainString());
+            } else if (value instanceof Double) {
+                putDouble((Double) value);
+            } else if (value instanceof Float) {
+                putFloat((Float) value);
+            } else if (value instanceof Number) {
+                putAscii(value.toString());
+            } else if (value instanceof Boolean) {
+                put(((Boolean) value) ? (byte) '1' : (byte) '0');
+            } else if (value instanceof Timestamp) {
+                Timestamp ts = (Timestamp) value;
+                putTimestamp(ts);
+                if (ts.getNanos() != 0) {
+                    String micros = String.valueOf(1000000 + ts.getNanos() / 1000);
+                    put((byte) '.');
+                    putAscii(micros.substring(1));
+                }
+            } else if (value instanceof Time) {
+                byte[] bytes = DateTimeCodec.formatTime(((Time) value).getTime(), null);
+                if (bytes == null) {
+                    if (timeFormat == null) {
+                        timeFormat = new SimpleDateFormat("HH:mm:ss");
+                    }
+                    bytes = timeFormat.format((Time) value).getBytes("US-ASCII");
+                }
+                put(bytes);
+            } else if (value instanceof java.sql.Date) {
+                byte[] bytes = DateTimeCodec.formatDate(((java.util.Date) value).getTime(), null);
+                if (bytes == null) {
+                    if (dateFormat == null) {
+                        dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+                    }
+                    bytes = dateFormat.format((java.util.Date) value).getBytes("US-ASCII");
+                }
+                put(bytes);
+            } else if (value instanceof java.util.Date) {
+                putTimestamp((java.util.Date) value);
+            } else {
+                putEscaped(value.toString().getBytes("UTF-8"));
+            }
+        }
+    }
+}
@@ -1239,7 +1239,8 @@ public class MySQLCallableStatement implements CallableStatement
     }
 
     public boolean execute() throws SQLException {
-    	synchronized (con.getProtocol()) {
+    	con.getProtocol().getLock().lock();
+    	try {
 	        if (rsOutputParameters != null) {
 	            rsOutputParameters.close();
 	            rsOutputParameters = null;
@@ -1255,6 +1256,8 @@ public class MySQLCallableStatement implements CallableStatement
 	        	readOutputParameters();
 	        }
 	        return ret;
+    	} finally {
+    		con.getProtocol().getLock().unlock();
     	}
     }
 
@@ -52,15 +52,23 @@ package org.mariadb.jdbc;
 import org.mariadb.jdbc.internal.SQLExceptionMapper;
 import org.mariadb.jdbc.internal.common.QueryException;
 import org.mariadb.jdbc.internal.common.Utils;
+import org.mariadb.jdbc.internal.common.packet.CompressionStats;
 import org.mariadb.jdbc.internal.mysql.MySQLProtocol;
 
 import java.net.SocketException;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
-public final class MySQLConnection implements Connection {
+public final class MySQLConnection implements Connection, AsyncConnection, BulkLoadConnection {
     /**
      * the protocol to communicate with.
      */
@@ -82,6 +90,17 @@ public final class MySQLConnection implements Connection {
     boolean nullCatalogMeansCurrent = true;
     int autoIncrementIncrement;
     Calendar cal;
+    boolean useServerPrepStmts;
+    /* errors of COM_STMT_PREPARE for the statements that cannot be prepared, and when the server has too many */
+    private static final int ER_UNSUPPORTED_PS = 1295;
+    private static final int ER_MAX_PREPARED_STMT_COUNT_REACHED = 1461;
+
+    /**
+     * single thread executing the commands queued with the AsyncConnection methods, created on first use.
+     */
+    private ThreadPoolExecutor asyncExecutor;
+    /* set when the connection starts closing, no more asynchronous command is accepted */
+    private boolean asyncClosed;
 
     /**
      * Creates a new connection with a given protocol and query factory.
@@ -119,6 +138,7 @@ public final class MySQLConnection implements Connection {
             connection.cal = Calendar.getInstance(tz);
         }
         connection.noBackslashEscapes = protocol.noBackslashEscapes();
+        connection.useServerPrepStmts = "true".equalsIgnoreCase(info.getProperty("useServerPrepStmts"));
         String nullCatalogMeansCurrentString = info.getProperty("nullCatalogMeansCurrent");
         if (nullCatalogMeansCurrentString != null && nullCatalogMeansCurrentString.equals("false")) {
             connection.nullCatalogMeansCurrent = false;
@@ -153,13 +173,24 @@ public final class MySQLConnection implements Connection {
     }
 
     /**
-     * creates a new prepared statement. Only client side prepared statement emulation right now.
+     * creates a new prepared statement. With the useServerPrepStmts option, the statement is prepared on the server
+     * and executed with the binary protocol, otherwise prepared statements are emulated on the client.
      *
      * @param sql the query.
      * @return a prepared statement.
      * @throws SQLException if there is a problem preparing the statement.
      */
     public PreparedStatement prepareStatement(final String sql) throws SQLException {
+        if (useServerPrepStmts) {
+            try {
+                return new MySQLServerSidePreparedStatement(this, sql);
+            } catch (SQLException e) {
+                /* statements the server cannot prepare, or cannot prepare anymore, are emulated on the client */
+                if (e.getErrorCode() != ER_UNSUPPORTED_PS && e.getErrorCode() != ER_MAX_PREPARED_STMT_COUNT_REACHED) {
+                    throw e;
+                }
+            }
+        }
         return new MySQLPreparedStatement(this, sql);
     }
 
@@ -243,9 +274,106 @@ public final class MySQLConnection implements Connection {
             pooledConnection.fireConnectionClosed();
             return;
         }
+        ThreadPoolExecutor executor;
+        synchronized (this) {
+            /* before closing the protocol, so that no queued command runs on a closed connection */
+            asyncClosed = true;
+            executor = asyncExecutor;
+            if (executor != null) {
+                executor.shutdown();
+                /* the commands not started are cancelled, so that their futures do not wait forever */
+                List<Runnable> queued = new ArrayList<Runnable>();
+                executor.getQueue().drainTo(queued);
+                for (Runnable command : queued) {
+                    ((Future<?>) command).cancel(false);
+                }
+            }
+        }
+        if (executor != null) {
+            /* the running command owns the protocol until it completes, it is not interrupted */
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    /* wait for it */
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         protocol.close();
     }
 
+    private synchronized <T> Future<T> submitAsync(Callable<T> command) {
+        if (asyncClosed) {
+            FutureTask<T> rejected = new FutureTask<T>(new Callable<T>() {
+                public T call() throws SQLException {
+                    throw new SQLException("Cannot execute an asynchronous command: closed connection");
+                }
+            });
+            rejected.run();
+            return rejected;
+        }
+        if (asyncExecutor == null) {
+            asyncExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "MariaDB-JDBC-Async");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return asyncExecutor.submit(command);
+    }
+
+    public BulkLoader createBulkLoader(String table, String... columns) throws SQLException {
+        if (protocol.isClosed()) {
+            throw new SQLException("Cannot create a bulk loader: closed connection");
+        }
+        return new MySQLBulkLoader(this, table, columns);
+    }
+
+    public Future<ResultSet> executeQueryAsync(final String sql) {
+        return submitAsync(new Callable<ResultSet>() {
+            public ResultSet call() throws SQLException {
+                /* the statement is closed with the result set */
+                MySQLStatement statement = (MySQLStatement) createStatement();
+                try {
+                    statement.closeOnCompletion();
+                    return statement.executeQuery(sql);
+                } catch (SQLException e) {
+                    statement.close();
+                    throw e;
+                }
+            }
+        });
+    }
+
+    public Future<Integer> executeUpdateAsync(final String sql) {
+        return submitAsync(new Callable<Integer>() {
+            public Integer call() throws SQLException {
+                Statement statement = createStatement();
+                try {
+                    return statement.executeUpdate(sql);
+                } finally {
+                    statement.close();
+                }
+            }
+        });
+    }
+
+    public Future<Boolean> executeAsync(final String sql) {
+        return submitAsync(new Callable<Boolean>() {
+            public Boolean call() throws SQLException {
+                Statement statement = createStatement();
+                try {
+                    return statement.execute(sql);
+                } finally {
+                    statement.close();
+                }
+            }
+        });
+    }
+
     /**
      * checks if the connection is closed.
      *
@@ -1243,6 +1371,15 @@ public final class MySQLConnection implements Connection {
         return protocol.getPassword();
     }
 
+    /**
+     * returns the compressed protocol counters of the connection (useCompression=true).
+     *
+     * @return the counters, or null if the connection does not use compression.
+     */
+    public CompressionStats getCompressionStats() {
+        return protocol.getCompressionStats();
+    }
+
     /**
      * returns the hostname for the connection.
      *
@@ -59,14 +59,21 @@ import java.sql.SQLException;
  * Very basic info about the parameterized query, only reliable method is getParameterCount();
  */
 public class MySQLParameterMetaData implements ParameterMetaData {
-    private final ParameterizedQuery query;
+    private final int parameterCount;
 
     public MySQLParameterMetaData(ParameterizedQuery dQuery) {
-        this.query = dQuery;
+        this(dQuery.getParamCount());
+    }
+
+    /**
+     * @param parameterCount number of parameters of the statement, for server prepared statements
+     */
+    public MySQLParameterMetaData(int parameterCount) {
+        this.parameterCount = parameterCount;
     }
 
     public int getParameterCount() throws SQLException {
-        return query.getParamCount();
+        return parameterCount;
     }
 
     public int isNullable(int i) throws SQLException {
@@ -49,7 +49,6 @@ OF SUCH DAMAGE.
 package org.mariadb.jdbc;
 
 import org.mariadb.jdbc.internal.SQLExceptionMapper;
-import org.mariadb.jdbc.internal.common.Utils;
 import org.mariadb.jdbc.internal.common.query.*;
 import org.mariadb.jdbc.internal.common.query.parameters.*;
 
@@ -85,8 +84,7 @@ public class MySQLPreparedStatement extends MySQLStatement implements PreparedSt
         if(log.isLoggable(Level.FINEST)) {
             log.finest("Creating prepared statement for " + sql);
         }
-        dQuery = new MySQLParameterizedQuery(Utils.nativeSQL(sql, connection.noBackslashEscapes),
-                connection.noBackslashEscapes);
+        dQuery = new MySQLParameterizedQuery(QueryTemplate.get(sql, connection.noBackslashEscapes));
         parametersCleared = true;
     }
 
@@ -104,6 +102,16 @@ public class MySQLPreparedStatement extends MySQLStatement implements PreparedSt
         return executeQuery(dQuery);
     }
 
+    /**
+     * With the useCursorFetch option, SELECT queries are executed through a server cursor when the fetch size is
+     * positive, so that at most fetch size rows are held in memory, and the connection stays usable while the
+     * result set is read.
+     */
+    protected boolean isCursorFetch(Query query) throws SQLException {
+        return getProtocol().isCursorFetchEnabled() && getFetchSize() > 0
+                && query.getQueryType() == QueryType.SELECT;
+    }
+
     /**
      * Executes the SQL statement in this <code>PreparedStatement</code> object,
      * which may be any kind of SQL statement.
@@ -85,11 +85,19 @@ public class MySQLResultSet implements ResultSet {
     protected MySQLResultSet() {
     }
     public MySQLResultSet(QueryResult dqr, Statement statement, MySQLProtocol protocol, Calendar cal) {
+        this(dqr, statement, protocol, cal, new ColumnNameMap(dqr.getColumnInformation()));
+    }
+
+    /**
+     * @param columnNameMap index of the columns of the result, which can be shared by the results with the same columns
+     */
+    public MySQLResultSet(QueryResult dqr, Statement statement, MySQLProtocol protocol, Calendar cal,
+                          ColumnNameMap columnNameMap) {
         this.queryResult = dqr;
         this.statement = statement;
         this.protocol = protocol;
         this.cal = cal;
-        this.columnNameMap = new ColumnNameMap(dqr.getColumnInformation());
+        this.columnNameMap = columnNameMap;
     }
 
     private static MySQLResultSet createEmptyResultSet() {
@@ -113,6 +121,11 @@ public class MySQLResultSet implements ResultSet {
     public void close() throws SQLException {
         if (this.queryResult != null) {
             this.queryResult.close();
+            if (statement instanceof MySQLStatement) {
+                ((MySQLStatement) statement).resultSetClosed(queryResult);
+            } else if (statement instanceof MySQLServerSidePreparedStatement) {
+                ((MySQLServerSidePreparedStatement) statement).resultSetClosed(queryResult);
+            }
         }
     }
 
@@ -945,7 +958,8 @@ public class MySQLResultSet implements ResultSet {
      * @since 1.2
      */
     public int getType() throws SQLException {
-        return (queryResult instanceof StreamingSelectResult)? ResultSet.TYPE_FORWARD_ONLY : ResultSet.TYPE_SCROLL_INSENSITIVE;
+        return (queryResult instanceof StreamingSelectResult || queryResult instanceof CursorSelectResult)
+                ? ResultSet.TYPE_FORWARD_ONLY : ResultSet.TYPE_SCROLL_INSENSITIVE;
     }
 
     /**
@@ -1958,7 +1972,8 @@ public class MySQLResultSet implements ResultSet {
         byte[] bytes = getValueObject(columnIndex).getBytes();
         if (bytes == null)
             return null;
-        return new MySQLBlob(bytes);
+        /* the value is kept for the row, the blob must not write to it */
+        return new MySQLBlob(bytes.clone());
     }
 
     /**
@@ -1977,7 +1992,8 @@ public class MySQLResultSet implements ResultSet {
         byte[] bytes = getValueObject(columnIndex).getBytes();
         if (bytes == null)
             return null;
-        return new MySQLClob(bytes);
+        /* the value is kept for the row, the blob must not write to it */
+        return new MySQLClob(bytes.clone());
     }
 
     /**
@@ -2,17 +2,42 @@ package org.mariadb.jdbc;
 
 import org.mariadb.jdbc.internal.SQLExceptionMapper;
 import org.mariadb.jdbc.internal.common.QueryException;
+import org.mariadb.jdbc.internal.common.query.MySQLQuery;
+import org.mariadb.jdbc.internal.common.query.Query;
+import org.mariadb.jdbc.internal.common.query.QueryTemplate;
+import org.mariadb.jdbc.internal.common.queryresults.ColumnNameMap;
+import org.mariadb.jdbc.internal.common.queryresults.ModifyQueryResult;
+import org.mariadb.jdbc.internal.common.queryresults.QueryResult;
+import org.mariadb.jdbc.internal.common.queryresults.ResultSetType;
+import org.mariadb.jdbc.internal.mysql.MySQLBinaryParameter;
 import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
 import org.mariadb.jdbc.internal.mysql.MySQLProtocol;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectOutputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.net.URL;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
+import java.util.TimerTask;
 
 /**
+ * A statement prepared on the server with COM_STMT_PREPARE, and executed with COM_STMT_EXECUTE : parameters are
+ * sent in binary form, and result rows are received in binary form.
+ *
+ * The parameter types are only sent again when they differ from the previous execution. Streams are sent with
+ * COM_STMT_SEND_LONG_DATA. With useCursorFetch=true and a positive fetch size, the rows of a SELECT are fetched
+ * through a read-only cursor, fetch size rows at a time.
+ *
+ * SQL given to execute(String) and the other Statement methods is executed as a text query, like
+ * MySQLPreparedStatement does.
  *
  * @author vvaintroub
  */
@@ -21,32 +46,64 @@ public class MySQLServerSidePreparedStatement implements PreparedStatement {
 	String sql;
 	MySQLConnection connection;
 	int statementId;
+	/* the prepared SQL and the server statement, given back to the connection on close */
+	String preparedSql;
+	MySQLProtocol.PrepareResult prepareResult;
 	MySQLResultSetMetaData metadata;
 	MySQLColumnInformation parameterInfo[];
 	boolean returnTableAlias = false;
+	boolean useFractionalSeconds;
+	MySQLBinaryParameter[] parameters;
+	/* parameter types of the last execution, which the server keeps, or null to send them */
+	int[] sentTypes;
+	/* the parameters of addBatch(), or the queries of addBatch(String) */
+	List<Object> batch;
+	QueryResult queryResult;
+	/* false if the result is the result of a text query, whose rows are not binary */
+	boolean binaryResult = true;
+	ColumnNameMap columnNameMap;
+	ResultSet batchResultSet;
+	int fetchSize;
+	int maxRows;
+	boolean warningsCleared;
+	boolean closed;
+	boolean closeOnCompletion;
+	int queryTimeout;
+	boolean escapeProcessing = true;
+	boolean poolable = true;
+	TimerTask timerTask;
+	volatile boolean timedOut;
+	volatile boolean executing;
 
 	private void prepare(String sql) throws SQLException {
 		try {
 			MySQLProtocol protocol = connection.getProtocol();
 			MySQLProtocol.PrepareResult result;
-			synchronized (protocol) {
+			protocol.getLock().lock();
+			try {
 				if (protocol.hasUnreadData()) {
 					throw new SQLException(
 							"There is an open result set on the current connection, "
 									+ "which must be closed prior to executing a query");
 				}
 				result = protocol.prepare(sql);
+			} finally {
+				protocol.getLock().unlock();
 			}
 
 			if (protocol.getInfo().getProperty("useOldAliasMetadataBehavior") != null
 					&& "true".equalsIgnoreCase(protocol.getInfo().getProperty(
 							"useOldAliasMetadataBehavior")))
 				returnTableAlias = true;
+			useFractionalSeconds = protocol.getInfo().getProperty("useFractionalSeconds") != null;
 
 			metadata = new MySQLResultSetMetaData(result.columns,
 					protocol.datatypeMappingFlags, returnTableAlias);
 			parameterInfo = result.parameters;
+			parameters = new MySQLBinaryParameter[parameterInfo.length];
 			statementId = result.statementId;
+			preparedSql = sql;
+			prepareResult = result;
 		} catch (QueryException e) {
 			SQLExceptionMapper.throwException(e, connection, this);
 		}
@@ -56,160 +113,374 @@ public class MySQLServerSidePreparedStatement implements PreparedStatement {
 			String sql) throws SQLException {
 		this.connection = connection;
 		this.sql = sql;
-		prepare(sql);
+		prepare(QueryTemplate.nativeSQL(sql, connection.noBackslashEscapes));
+	}
+
+	private void checkClosed() throws SQLException {
+		if (closed) {
+			throw new SQLException("execute() is called on closed statement");
+		}
+	}
+
+	private void setParameter(int parameterIndex, MySQLBinaryParameter parameter) throws SQLException {
+		if (parameterIndex < 1 || parameterIndex > parameters.length) {
+			throw SQLExceptionMapper.getSQLException("Could not set parameter at position " + parameterIndex
+					+ ", the statement has " + parameters.length + " parameters");
+		}
+		parameters[parameterIndex - 1] = parameter;
+	}
+
+	/**
+	 * Execute the statement with parameters : the long data is sent, then COM_STMT_EXECUTE with the types
+	 * if they changed since the last execution.
+	 *
+	 * @param values the parameters
+	 * @return true if the result is a result set
+	 * @throws SQLException if a parameter is not set or the execution fails
+	 */
+	private boolean execute(MySQLBinaryParameter[] values) throws SQLException {
+		for (MySQLBinaryParameter value : values) {
+			if (value == null) {
+				throw SQLExceptionMapper.getSQLException("You need to set exactly " + values.length
+						+ " parameters on the prepared statement");
+			}
+		}
+		return execute(values, null);
+	}
+
+	/**
+	 * Execute the statement with parameters, or the SQL text given to a Statement method.
+	 *
+	 * @param values the parameters, if query is null
+	 * @param query the SQL text query, or null
+	 * @return true if the result is a result set
+	 * @throws SQLException if the execution fails or times out
+	 */
+	private boolean execute(MySQLBinaryParameter[] values, Query query) throws SQLException {
+		checkClosed();
+		MySQLProtocol protocol = connection.getProtocol();
+		protocol.getLock().lock();
+		try {
+			if (queryResult != null) {
+				queryResult.close();
+				queryResult = null;
+			}
+			if (protocol.activeResult != null) {
+				protocol.activeResult.close();
+			}
+			batchResultSet = null;
+			connection.reenableWarnings();
+			warningsCleared = false;
+			QueryException exception = null;
+			executing = true;
+			startTimer();
+			try {
+				while (protocol.hasMoreResults()) {
+					QueryResult result = protocol.getMoreResults(false, binaryResult);
+					if (result != null) {
+						result.close();
+					}
+				}
+				protocol.setMaxRows(maxRows);
+				boolean streaming = fetchSize == Integer.MIN_VALUE;
+				if (query != null) {
+					binaryResult = false;
+					queryResult = protocol.executeQuery(query, streaming);
+				} else {
+					binaryResult = true;
+					queryResult = executeParameters(protocol, values, streaming);
+				}
+				return queryResult.getResultSetType() == ResultSetType.SELECT;
+			} catch (QueryException e) {
+				exception = e;
+				return false;
+			} finally {
+				executing = false;
+				exception = stopTimer(exception);
+				if (exception != null) {
+					SQLExceptionMapper.throwException(exception, connection, this);
+				}
+			}
+		} finally {
+			protocol.getLock().unlock();
+		}
+	}
+
+	private QueryResult executeParameters(MySQLProtocol protocol, MySQLBinaryParameter[] values, boolean streaming)
+			throws QueryException {
+		int[] types = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			types[i] = values[i].getType();
+		}
+		boolean sendTypes = !Arrays.equals(types, sentTypes);
+		/* after a failure, the types the server kept are not known */
+		sentTypes = null;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i].isLongData()) {
+				protocol.sendLongData(statementId, i, values[i]);
+			}
+		}
+		int cursorFetchSize = protocol.isCursorFetchEnabled() && fetchSize > 0 ? fetchSize : 0;
+		QueryResult result = protocol.executePreparedStatement(prepareResult, values, sendTypes, streaming,
+				cursorFetchSize);
+		sentTypes = types;
+		return result;
+	}
+
+	/* schedule the cancellation of the query when the query timeout expires */
+	private void startTimer() {
+		if (queryTimeout == 0) {
+			return;
+		}
+		final MySQLProtocol protocol = connection.getProtocol();
+		timerTask = new TimerTask() {
+			@Override
+			public void run() {
+				try {
+					timedOut = true;
+					protocol.cancelCurrentQuery();
+				} catch (Throwable e) {
+					/* the query is not cancelled, it fails or completes */
+				}
+			}
+		};
+		MySQLStatement.getTimer().schedule(timerTask, queryTimeout * 1000L);
+	}
+
+	/* cancel the timer of startTimer(), and return the exception to throw, if any */
+	private QueryException stopTimer(QueryException exception) {
+		if (timerTask != null) {
+			timerTask.cancel();
+			timerTask = null;
+		}
+		if (timedOut) {
+			timedOut = false;
+			return new QueryException("Query timed out", 1317, "JZ0002", exception);
+		}
+		return exception;
+	}
+
+	private Query textQuery(String sql) throws SQLException {
+		if (escapeProcessing) {
+			sql = QueryTemplate.nativeSQL(sql, connection.noBackslashEscapes);
+		}
+		return new MySQLQuery(sql);
 	}
 
 	@Override
 	public ResultSet executeQuery() throws SQLException {
-
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (execute()) {
+			return getResultSet();
+		}
+		return MySQLResultSet.EMPTY;
 	}
 
 	@Override
 	public int executeUpdate() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (execute()) {
+			return 0;
+		}
+		return getUpdateCount();
 	}
 
 	@Override
 	public void setNull(int parameterIndex, int sqlType) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.NULL);
 	}
 
 	@Override
 	public void setBoolean(int parameterIndex, boolean x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.valueOf(x));
 	}
 
 	@Override
 	public void setByte(int parameterIndex, byte x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.valueOf(x));
 	}
 
 	@Override
 	public void setShort(int parameterIndex, short x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.valueOf(x));
 	}
 
 	@Override
 	public void setInt(int parameterIndex, int x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.valueOf(x));
 	}
 
 	@Override
 	public void setLong(int parameterIndex, long x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.valueOf(x));
 	}
 
 	@Override
 	public void setFloat(int parameterIndex, float x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.valueOf(x));
 	}
 
 	@Override
 	public void setDouble(int parameterIndex, double x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.valueOf(x));
 	}
 
 	@Override
 	public void setBigDecimal(int parameterIndex, BigDecimal x)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.decimalOf(x == null ? null : x.toPlainString()));
 	}
 
 	@Override
 	public void setString(int parameterIndex, String x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.valueOf(x));
 	}
 
 	@Override
 	public void setBytes(int parameterIndex, byte[] x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.valueOf(x));
 	}
 
 	@Override
 	public void setDate(int parameterIndex, Date x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setDate(parameterIndex, x, connection.cal);
 	}
 
 	@Override
 	public void setTime(int parameterIndex, Time x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setTime(parameterIndex, x, connection.cal);
 	}
 
 	@Override
 	public void setTimestamp(int parameterIndex, Timestamp x)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setTimestamp(parameterIndex, x, connection.cal);
 	}
 
 	@Override
 	public void setAsciiStream(int parameterIndex, InputStream x, int length)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.streamOf(x, length, true));
 	}
 
 	@Override
 	public void setUnicodeStream(int parameterIndex, InputStream x, int length)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.streamOf(x, length, false));
 	}
 
 	@Override
 	public void setBinaryStream(int parameterIndex, InputStream x, int length)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.streamOf(x, length, false));
 	}
 
 	@Override
 	public void clearParameters() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		Arrays.fill(parameters, null);
 	}
 
 	@Override
 	public void setObject(int parameterIndex, Object x, int targetSqlType)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (x == null) {
+			setNull(parameterIndex, targetSqlType);
+		} else {
+			setObject(parameterIndex, x);
+		}
 	}
 
 	@Override
 	public void setObject(int parameterIndex, Object x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (x == null) {
+			setNull(parameterIndex, Types.INTEGER);
+		} else if (x instanceof String) {
+			setString(parameterIndex, (String) x);
+		} else if (x instanceof Integer) {
+			setInt(parameterIndex, (Integer) x);
+		} else if (x instanceof Long) {
+			setLong(parameterIndex, (Long) x);
+		} else if (x instanceof Short) {
+			setShort(parameterIndex, (Short) x);
+		} else if (x instanceof Double) {
+			setDouble(parameterIndex, (Double) x);
+		} else if (x instanceof Float) {
+			setFloat(parameterIndex, (Float) x);
+		} else if (x instanceof Byte) {
+			setByte(parameterIndex, (Byte) x);
+		} else if (x instanceof byte[]) {
+			setBytes(parameterIndex, (byte[]) x);
+		} else if (x instanceof Date) {
+			setDate(parameterIndex, (Date) x);
+		} else if (x instanceof Time) {
+			setTime(parameterIndex, (Time) x);
+		} else if (x instanceof Timestamp) {
+			setTimestamp(parameterIndex, (Timestamp) x);
+		} else if (x instanceof java.util.Date) {
+			setTimestamp(parameterIndex, new Timestamp(((java.util.Date) x).getTime()));
+		} else if (x instanceof Boolean) {
+			setBoolean(parameterIndex, (Boolean) x);
+		} else if (x instanceof Blob) {
+			setBlob(parameterIndex, (Blob) x);
+		} else if (x instanceof InputStream) {
+			setBinaryStream(parameterIndex, (InputStream) x);
+		} else if (x instanceof Reader) {
+			setCharacterStream(parameterIndex, (Reader) x);
+		} else if (x instanceof BigDecimal) {
+			setBigDecimal(parameterIndex, (BigDecimal) x);
+		} else if (x instanceof BigInteger) {
+			setParameter(parameterIndex, MySQLBinaryParameter.decimalOf(x.toString()));
+		} else if (x instanceof Clob) {
+			setClob(parameterIndex, (Clob) x);
+		} else {
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				ObjectOutputStream oos = new ObjectOutputStream(bytes);
+				oos.writeObject(x);
+				oos.close();
+				setBytes(parameterIndex, bytes.toByteArray());
+			} catch (IOException e) {
+				throw SQLExceptionMapper.getSQLException("Could not set serializable parameter in setObject: "
+						+ e.getMessage(), e);
+			}
+		}
 	}
 
 	@Override
 	public boolean execute() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return execute(parameters);
 	}
 
 	@Override
 	public void addBatch() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (batch == null) {
+			batch = new ArrayList<Object>();
+		}
+		batch.add(parameters.clone());
 	}
 
 	@Override
 	public void setCharacterStream(int parameterIndex, Reader reader, int length)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.readerOf(reader, length));
 	}
 
 	@Override
 	public void setRef(int parameterIndex, Ref x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		throw SQLExceptionMapper.getFeatureNotSupportedException("REF not supported");
 	}
 
 	@Override
 	public void setBlob(int parameterIndex, Blob x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setBinaryStream(parameterIndex, x == null ? null : x.getBinaryStream());
 	}
 
 	@Override
 	public void setClob(int parameterIndex, Clob x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setCharacterStream(parameterIndex, x == null ? null : x.getCharacterStream());
 	}
 
 	@Override
 	public void setArray(int parameterIndex, Array x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		throw SQLExceptionMapper.getFeatureNotSupportedException("Arrays not supported");
 	}
 
 	@Override
@@ -220,373 +491,497 @@ public class MySQLServerSidePreparedStatement implements PreparedStatement {
 	@Override
 	public void setDate(int parameterIndex, Date x, Calendar cal)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.dateOf(x, cal));
 	}
 
 	@Override
 	public void setTime(int parameterIndex, Time x, Calendar cal)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.timeOf(x, cal, useFractionalSeconds));
 	}
 
 	@Override
 	public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.timestampOf(x, x == null ? 0 : x.getNanos(), cal,
+				useFractionalSeconds));
 	}
 
 	@Override
 	public void setNull(int parameterIndex, int sqlType, String typeName)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setNull(parameterIndex, sqlType);
 	}
 
 	@Override
 	public void setURL(int parameterIndex, URL x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setString(parameterIndex, x == null ? null : x.toString());
 	}
 
 	@Override
 	public ParameterMetaData getParameterMetaData() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return new MySQLParameterMetaData(parameters.length);
 	}
 
 	@Override
 	public void setRowId(int parameterIndex, RowId x) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		throw SQLExceptionMapper.getFeatureNotSupportedException("RowIDs not supported");
 	}
 
 	@Override
 	public void setNString(int parameterIndex, String value)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setString(parameterIndex, value);
 	}
 
 	@Override
 	public void setNCharacterStream(int parameterIndex, Reader value,
 			long length) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setCharacterStream(parameterIndex, value, length);
 	}
 
 	@Override
 	public void setNClob(int parameterIndex, NClob value) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setClob(parameterIndex, value);
 	}
 
 	@Override
 	public void setClob(int parameterIndex, Reader reader, long length)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setCharacterStream(parameterIndex, reader, length);
 	}
 
 	@Override
 	public void setBlob(int parameterIndex, InputStream inputStream, long length)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setBinaryStream(parameterIndex, inputStream, length);
 	}
 
 	@Override
 	public void setNClob(int parameterIndex, Reader reader, long length)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setCharacterStream(parameterIndex, reader, length);
 	}
 
 	@Override
 	public void setSQLXML(int parameterIndex, SQLXML xmlObject)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		throw SQLExceptionMapper.getFeatureNotSupportedException("SQlXML not supported");
 	}
 
 	@Override
 	public void setObject(int parameterIndex, Object x, int targetSqlType,
 			int scaleOrLength) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setObject(parameterIndex, x, targetSqlType);
 	}
 
 	@Override
 	public void setAsciiStream(int parameterIndex, InputStream x, long length)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.streamOf(x, length, true));
 	}
 
 	@Override
 	public void setBinaryStream(int parameterIndex, InputStream x, long length)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.streamOf(x, length, false));
 	}
 
 	@Override
 	public void setCharacterStream(int parameterIndex, Reader reader,
 			long length) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setParameter(parameterIndex, MySQLBinaryParameter.readerOf(reader, length));
 	}
 
 	@Override
 	public void setAsciiStream(int parameterIndex, InputStream x)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setAsciiStream(parameterIndex, x, -1L);
 	}
 
 	@Override
 	public void setBinaryStream(int parameterIndex, InputStream x)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setBinaryStream(parameterIndex, x, -1L);
 	}
 
 	@Override
 	public void setCharacterStream(int parameterIndex, Reader reader)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setCharacterStream(parameterIndex, reader, -1L);
 	}
 
 	@Override
 	public void setNCharacterStream(int parameterIndex, Reader value)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setCharacterStream(parameterIndex, value, -1L);
 	}
 
 	@Override
 	public void setClob(int parameterIndex, Reader reader) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setCharacterStream(parameterIndex, reader, -1L);
 	}
 
 	@Override
 	public void setBlob(int parameterIndex, InputStream inputStream)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setBinaryStream(parameterIndex, inputStream, -1L);
 	}
 
 	@Override
 	public void setNClob(int parameterIndex, Reader reader) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		setCharacterStream(parameterIndex, reader, -1L);
 	}
 
 	@Override
 	public ResultSet executeQuery(String sql) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (execute(sql)) {
+			return getResultSet();
+		}
+		return MySQLResultSet.EMPTY;
 	}
 
 	@Override
 	public int executeUpdate(String sql) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (execute(sql)) {
+			return 0;
+		}
+		return getUpdateCount();
 	}
 
 	@Override
 	public void close() throws SQLException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		MySQLProtocol protocol = connection.getProtocol();
+		protocol.getLock().lock();
 		try {
-			connection.getProtocol().closePreparedStatement(statementId);
+			if (queryResult != null) {
+				queryResult.close();
+				queryResult = null;
+			}
+			protocol.releasePreparedStatement(preparedSql, prepareResult);
 		} catch (QueryException e) {
 			SQLExceptionMapper.throwException(e, connection, this);
+		} finally {
+			protocol.getLock().unlock();
 		}
 	}
 
 	@Override
 	public int getMaxFieldSize() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return 0;
 	}
 
 	@Override
 	public void setMaxFieldSize(int max) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		//we dont support max field sizes
 	}
 
 	@Override
 	public int getMaxRows() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return maxRows;
 	}
 
 	@Override
 	public void setMaxRows(int max) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (max < 0) {
+			throw new SQLException("max rows is negative");
+		}
+		maxRows = max;
 	}
 
 	@Override
 	public void setEscapeProcessing(boolean enable) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		/* only applies to the SQL given to execute(String), the statement is already prepared */
+		escapeProcessing = enable;
 	}
 
 	@Override
 	public int getQueryTimeout() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return queryTimeout;
 	}
 
 	@Override
 	public void setQueryTimeout(int seconds) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (seconds < 0) {
+			throw new SQLException("query timeout is negative");
+		}
+		queryTimeout = seconds;
 	}
 
 	@Override
 	public void cancel() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		try {
+			if (!executing) {
+				return;
+			}
+			connection.getProtocol().cancelCurrentQuery();
+		} catch (QueryException e) {
+			SQLExceptionMapper.throwException(e, connection, this);
+		} catch (IOException e) {
+			// connection gone, query is definitely canceled
+		}
 	}
 
 	@Override
 	public SQLWarning getWarnings() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (!warningsCleared) {
+			return connection.getWarnings();
+		}
+		return null;
 	}
 
 	@Override
 	public void clearWarnings() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		warningsCleared = true;
 	}
 
 	@Override
 	public void setCursorName(String name) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		throw SQLExceptionMapper.getFeatureNotSupportedException("Cursors are not supported");
 	}
 
 	@Override
 	public boolean execute(String sql) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return execute(null, textQuery(sql));
 	}
 
 	@Override
 	public ResultSet getResultSet() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (queryResult == null || queryResult.getResultSetType() != ResultSetType.SELECT) {
+			return null;
+		}
+		MySQLColumnInformation[] columns = queryResult.getColumnInformation();
+		/* the statement usually returns the same columns at each execution */
+		if (columnNameMap == null || !columnNameMap.matches(columns)) {
+			columnNameMap = new ColumnNameMap(columns);
+		}
+		return new MySQLResultSet(queryResult, this, connection.getProtocol(), connection.cal, columnNameMap);
 	}
 
 	@Override
 	public int getUpdateCount() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (queryResult == null || queryResult.getResultSetType() == ResultSetType.SELECT) {
+			return -1;
+		}
+		return (int) ((ModifyQueryResult) queryResult).getUpdateCount();
 	}
 
 	@Override
 	public boolean getMoreResults() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		MySQLProtocol protocol = connection.getProtocol();
+		protocol.getLock().lock();
+		try {
+			if (queryResult != null) {
+				queryResult.close();
+			}
+			queryResult = protocol.getMoreResults(fetchSize == Integer.MIN_VALUE, binaryResult);
+			return queryResult != null && queryResult.getResultSetType() == ResultSetType.SELECT;
+		} catch (QueryException e) {
+			SQLExceptionMapper.throwException(e, connection, this);
+			return false;
+		} finally {
+			protocol.getLock().unlock();
+		}
 	}
 
 	@Override
 	public void setFetchDirection(int direction) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+
 	}
 
 	@Override
 	public int getFetchDirection() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return ResultSet.FETCH_FORWARD;
 	}
 
+	/**
+	 * Integer.MIN_VALUE streams the rows of the results. With useCursorFetch=true, a positive value fetches the rows
+	 * of a SELECT through a cursor, this number at a time. Other values are ignored.
+	 */
 	@Override
 	public void setFetchSize(int rows) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (rows < 0 && rows != Integer.MIN_VALUE) {
+			throw new SQLException("invalid fetch size");
+		}
+		fetchSize = rows;
 	}
 
 	@Override
 	public int getFetchSize() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return fetchSize;
 	}
 
 	@Override
 	public int getResultSetConcurrency() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return ResultSet.CONCUR_READ_ONLY;
 	}
 
 	@Override
 	public int getResultSetType() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		/* streamed rows, or rows read from a cursor, are not kept : see MySQLResultSet.getType() */
+		boolean forwardOnly = fetchSize == Integer.MIN_VALUE
+				|| (fetchSize > 0 && connection.getProtocol().isCursorFetchEnabled());
+		return forwardOnly ? ResultSet.TYPE_FORWARD_ONLY : ResultSet.TYPE_SCROLL_INSENSITIVE;
 	}
 
 	@Override
 	public void addBatch(String sql) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (batch == null) {
+			batch = new ArrayList<Object>();
+		}
+		batch.add(new MySQLQuery(sql));
 	}
 
 	@Override
 	public void clearBatch() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		batch = null;
 	}
 
 	@Override
 	public int[] executeBatch() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (batch == null || batch.isEmpty()) {
+			return new int[0];
+		}
+		int[] ret = new int[batch.size()];
+		int i = 0;
+		MySQLResultSet rs = null;
+		try {
+			for (; i < ret.length; i++) {
+				Object command = batch.get(i);
+				if (command instanceof Query) {
+					execute(null, (Query) command);
+				} else {
+					execute((MySQLBinaryParameter[]) command);
+				}
+				int updateCount = getUpdateCount();
+				ret[i] = updateCount == -1 ? SUCCESS_NO_INFO : updateCount;
+				if (i == 0) {
+					rs = (MySQLResultSet) getGeneratedKeys();
+				} else {
+					rs = rs.joinResultSets((MySQLResultSet) getGeneratedKeys());
+				}
+			}
+		} catch (SQLException sqle) {
+			throw new BatchUpdateException(sqle.getMessage(), sqle.getSQLState(), sqle.getErrorCode(),
+					Arrays.copyOf(ret, i), sqle);
+		} finally {
+			clearBatch();
+		}
+		batchResultSet = rs;
+		return ret;
 	}
 
 	@Override
 	public Connection getConnection() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return connection;
 	}
 
 	@Override
 	public boolean getMoreResults(int current) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return getMoreResults();
 	}
 
 	@Override
 	public ResultSet getGeneratedKeys() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (batchResultSet != null) {
+			return batchResultSet;
+		}
+		if (queryResult != null && queryResult.getResultSetType() == ResultSetType.MODIFY) {
+			long insertId = ((ModifyQueryResult) queryResult).getInsertId();
+			if (insertId == 0) {
+				return MySQLResultSet.createEmptyGeneratedKeysResultSet(connection);
+			}
+			return MySQLResultSet.createGeneratedKeysResultSet(insertId, getUpdateCount(), connection);
+		}
+		return MySQLResultSet.EMPTY;
 	}
 
 	@Override
 	public int executeUpdate(String sql, int autoGeneratedKeys)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return executeUpdate(sql); // auto generated keys are always available
 	}
 
 	@Override
 	public int executeUpdate(String sql, int[] columnIndexes)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return executeUpdate(sql); // auto generated keys are always available
 	}
 
 	@Override
 	public int executeUpdate(String sql, String[] columnNames)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return executeUpdate(sql); // auto generated keys are always available
 	}
 
 	@Override
 	public boolean execute(String sql, int autoGeneratedKeys)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return execute(sql); // auto generated keys are always available
 	}
 
 	@Override
 	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return execute(sql); // auto generated keys are always available
 	}
 
 	@Override
 	public boolean execute(String sql, String[] columnNames)
 			throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return execute(sql); // auto generated keys are always available
 	}
 
 	@Override
 	public int getResultSetHoldability() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return ResultSet.HOLD_CURSORS_OVER_COMMIT;
 	}
 
 	@Override
 	public boolean isClosed() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return closed;
 	}
 
 	@Override
 	public void setPoolable(boolean poolable) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		this.poolable = poolable;
 	}
 
 	@Override
 	public boolean isPoolable() throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return poolable;
 	}
 
 	@Override
 	public <T> T unwrap(Class<T> iface) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("The statement is not a wrapper for " + iface.getName());
 	}
 
 	@Override
 	public boolean isWrapperFor(Class<?> iface) throws SQLException {
-		throw new UnsupportedOperationException("Not supported yet.");
+		return iface.isInstance(this);
 	}
 
 	/* new JDK 7 methods */
-	public void closeOnCompletion() {
-		throw new UnsupportedOperationException("Not supported yet.");
+	public void closeOnCompletion() throws SQLException {
+		closeOnCompletion = true;
+	}
+
+	public boolean isCloseOnCompletion() throws SQLException {
+		return closeOnCompletion;
 	}
 
-	public boolean isCloseOnCompletion() {
-		throw new UnsupportedOperationException("Not supported yet.");
+	/* with closeOnCompletion, the statement is closed with its current result set, see MySQLStatement */
+	void resultSetClosed(QueryResult result) throws SQLException {
+		if (closeOnCompletion && !closed && (queryResult == null || queryResult == result)) {
+			close();
+		}
 	}
 
 }
@@ -54,13 +54,18 @@ import org.mariadb.jdbc.internal.common.QueryException;
 import org.mariadb.jdbc.internal.common.Utils;
 import org.mariadb.jdbc.internal.common.query.MySQLQuery;
 import org.mariadb.jdbc.internal.common.query.Query;
+import org.mariadb.jdbc.internal.common.query.QueryTemplate;
+import org.mariadb.jdbc.internal.common.queryresults.ColumnNameMap;
 import org.mariadb.jdbc.internal.common.queryresults.ModifyQueryResult;
 import org.mariadb.jdbc.internal.common.queryresults.QueryResult;
 import org.mariadb.jdbc.internal.common.queryresults.ResultSetType;
+import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
 import org.mariadb.jdbc.internal.mysql.MySQLProtocol;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
 import java.sql.*;
 import java.util.*;
 
@@ -80,10 +85,13 @@ public class MySQLStatement implements Statement {
      * The actual query result.
      */
     private QueryResult queryResult;
+    private boolean closeOnCompletion;
     /**
      * are warnings cleared?
      */
     private boolean warningsCleared;
+    /* index of the columns of the last result set, see getColumnNameMap() */
+    private ColumnNameMap columnNameMap;
 
 
     private int queryTimeout;
@@ -129,7 +137,7 @@ public class MySQLStatement implements Statement {
         return protocol;
     }
 
-    private static Timer getTimer() {
+    static Timer getTimer() {
         Timer result = timer;
         if (result == null) {
             synchronized(MySQLStatement.class) {
@@ -194,7 +202,8 @@ public class MySQLStatement implements Statement {
             }
         }
 
-        cachedResultSets.clear();
+        // The results of the previous execution are closed, which deletes their temporary files
+        closeResults();
         MySQLConnection conn = (MySQLConnection)getConnection();
         conn.reenableWarnings();
         
@@ -209,6 +218,20 @@ public class MySQLStatement implements Statement {
         }
     }
 
+    /* close the current result and the cached next results */
+    private void closeResults() {
+        if (queryResult != null) {
+            queryResult.close();
+            queryResult = null;
+        }
+        for (Object o : cachedResultSets) {
+            if (o instanceof QueryResult) {
+                ((QueryResult) o).close();
+            }
+        }
+        cachedResultSets.clear();
+    }
+
     private void cacheMoreResults() {
 
         if (isStreaming())
@@ -217,6 +240,8 @@ public class MySQLStatement implements Statement {
         for(;;) {
             try {
             	if (protocol.hasMoreResults()) {
+                    // the previous results are cached, getMoreResults() must not close them
+                    queryResult = null;
             		getMoreResults(false);
                    cachedResultSets.add(queryResult);
                 } else {
@@ -277,7 +302,8 @@ public class MySQLStatement implements Statement {
      */
      protected boolean execute(Query query) throws SQLException {
     	//System.out.println(query);
-        synchronized (protocol) {
+        protocol.getLock().lock();
+        try {
         	if (protocol.activeResult != null) {
                 protocol.activeResult.close();
             }
@@ -286,7 +312,11 @@ public class MySQLStatement implements Statement {
             executeQueryProlog();
             try {
             	batchResultSet = null;
-                queryResult = protocol.executeQuery(query, isStreaming());
+                if (isCursorFetch(query)) {
+                    queryResult = protocol.executeCursorQuery(query, fetchSize);
+                } else {
+                    queryResult = protocol.executeQuery(query, isStreaming());
+                }
                 cacheMoreResults();
                 return (queryResult.getResultSetType() == ResultSetType.SELECT);
             } catch (QueryException e) {
@@ -296,9 +326,21 @@ public class MySQLStatement implements Statement {
                 executeQueryEpilog(exception, query);
                 executing = false;
             }
+        } finally {
+            protocol.getLock().unlock();
         }
     }
 
+    /**
+     * Should the rows of the query be fetched through a server cursor, fetch size rows at a time.
+     *
+     * @param query the query
+     * @return true to use MySQLProtocol.executeCursorQuery()
+     */
+    protected boolean isCursorFetch(Query query) throws SQLException {
+        return false;
+    }
+
     /**
      * Execute statements. if many queries, those queries will be rewritten
      * if isRewritable = false, the query will be agreggated :
@@ -316,7 +358,8 @@ public class MySQLStatement implements Statement {
      */
     protected boolean execute(List<Query> queries, boolean isRewritable, int rewriteOffset) throws SQLException {
         //System.out.println(query);
-        synchronized (protocol) {
+        protocol.getLock().lock();
+        try {
             if (protocol.activeResult != null) {
                 protocol.activeResult.close();
             }
@@ -335,6 +378,8 @@ public class MySQLStatement implements Statement {
                 executeQueryEpilog(exception, queries.get(0));
                 executing = false;
             }
+        } finally {
+            protocol.getLock().unlock();
         }
     }
 
@@ -368,7 +413,7 @@ public class MySQLStatement implements Statement {
 
     private Query stringToQuery(String queryString) throws SQLException {
         if (escapeProcessing) {
-            queryString = Utils.nativeSQL(queryString,connection.noBackslashEscapes);
+            queryString = QueryTemplate.nativeSQL(queryString, connection.noBackslashEscapes);
         }
         return new MySQLQuery(queryString);
     }
@@ -423,19 +468,18 @@ public class MySQLStatement implements Statement {
      */
     public void close() throws SQLException {
 
-        if (queryResult != null) {
-            queryResult.close();
-            queryResult = null;
-        }
-        // No possible future use for the cached results, so these can be cleared
+        // No possible future use for the cached results, so these can be closed
         // This makes the cache eligible for garbage collection earlier if the statement is not
         // immediately garbage collected
-        cachedResultSets.clear();
+        closeResults();
         if (isStreaming()) {
-            synchronized (protocol) {
+            protocol.getLock().lock();
+            try {
                     // Skip all outstanding result sets
                     while(getMoreResults(true)) {
                 }
+            } finally {
+                protocol.getLock().unlock();
             }
         }
         isClosed = true;
@@ -561,6 +605,29 @@ public class MySQLStatement implements Statement {
     public void setLocalInfileInputStream(InputStream inputStream) {
     	protocol.setLocalInfileInputStream(inputStream);
     }
+
+    /**
+     * Sets the channel that will be used for the next execute that uses
+     * "LOAD DATA LOCAL INFILE". The name specified as local file/URL will be
+     * ignored. Data is sent without copying it through the packet buffer.
+     * The channel is closed once sent.
+     *
+     * @param channel channel, that will be used to send data to server
+     */
+    public void setLocalInfileChannel(ReadableByteChannel channel) {
+        protocol.setLocalInfileChannel(channel);
+    }
+
+    /**
+     * Sets the file that will be used for the next execute that uses
+     * "LOAD DATA LOCAL INFILE". The name specified as local file/URL will be
+     * ignored. With transport=nio, the file is sent with FileChannel.transferTo.
+     *
+     * @param file file, that will be used to send data to server
+     */
+    public void setLocalInfileFile(File file) {
+        protocol.setLocalInfileFile(file);
+    }
     
     /**
      * Cancels this <code>Statement</code> object if both the DBMS and driver support aborting an SQL statement. This
@@ -964,7 +1031,16 @@ public class MySQLStatement implements Statement {
         if (queryResult == null || queryResult.getResultSetType() != ResultSetType.SELECT) {
             return null; /* Result is an update count, or there are no more results */
         }
-        return new MySQLResultSet(queryResult,this,protocol, connection.cal);
+        return new MySQLResultSet(queryResult,this,protocol, connection.cal, getColumnNameMap());
+    }
+
+    /* the index of the columns of the previous result, when the current result has the same columns */
+    private ColumnNameMap getColumnNameMap() {
+        MySQLColumnInformation[] columns = queryResult.getColumnInformation();
+        if (columnNameMap == null || !columnNameMap.matches(columns)) {
+            columnNameMap = new ColumnNameMap(columns);
+        }
+        return columnNameMap;
     }
 
     public int getUpdateCount() throws SQLException {
@@ -977,7 +1053,8 @@ public class MySQLStatement implements Statement {
 
     private boolean getMoreResults(boolean streaming) throws SQLException {
         try {
-            synchronized(protocol) {
+            protocol.getLock().lock();
+            try {
                 if (queryResult != null) {
                     queryResult.close();
                 }
@@ -987,6 +1064,8 @@ public class MySQLStatement implements Statement {
                 warningsCleared = false;
                 connection.reenableWarnings();
                 return true;
+            } finally {
+                protocol.getLock().unlock();
             }
         } catch (QueryException e) {
             SQLExceptionMapper.throwException(e, connection, this);
@@ -1010,9 +1089,13 @@ public class MySQLStatement implements Statement {
      */
     public boolean getMoreResults() throws SQLException {
          if (!isStreaming()) {
+            /* the current result set is closed */
+            if (queryResult != null) {
+                queryResult.close();
+                queryResult = null;
+            }
             /* return pre-cached result set, if available */
             if(cachedResultSets.isEmpty()) {
-                queryResult = null;
                 return false;
             }
             
@@ -1261,10 +1344,15 @@ public class MySQLStatement implements Statement {
 
         boolean allowMultiQueries = "true".equals(getProtocol().getInfo().getProperty("allowMultiQueries"));
         boolean rewriteBatchedStatements = "true".equals(getProtocol().getInfo().getProperty("rewriteBatchedStatements"));
+        boolean useBatchPipelining = "true".equals(getProtocol().getInfo().getProperty("useBatchPipelining"));
         if (rewriteBatchedStatements) allowMultiQueries=true;
         try {
-            synchronized (this.protocol) {
-                if (allowMultiQueries) {
+            this.protocol.getLock().lock();
+            try {
+                if (useBatchPipelining && !allowMultiQueries && isPipelinable(batchQueries)) {
+                    rs = executePipelined(ret);
+                    i = ret.length;
+                } else if (allowMultiQueries) {
                     int size = batchQueries.size();
                     boolean rewrittenBatch = isRewriteable && rewriteBatchedStatements;
                     MySQLStatement ps = (MySQLStatement) connection.createStatement();
@@ -1286,7 +1374,11 @@ public class MySQLStatement implements Statement {
         				}
         			}
         		}
+        	} finally {
+        		this.protocol.getLock().unlock();
         	}
+        } catch (BatchUpdateException bue) {
+            throw bue;
         } catch (SQLException sqle) {
         	throw new BatchUpdateException(sqle.getMessage(), sqle.getSQLState(), sqle.getErrorCode(), Arrays.copyOf(ret, i), sqle);
         } finally {
@@ -1296,6 +1388,107 @@ public class MySQLStatement implements Statement {
         return ret;
     }
 
+    /**
+     * Submits the current batch like executeBatch(), but sends all commands before reading any response, so
+     * that the batch costs one network round trip instead of one per command. This is what executeBatch() does
+     * when the useBatchPipelining connection property is true.
+     *
+     * Update counts and generated keys are the same as with executeBatch(). Since all commands have reached the
+     * server when the first response is read, a failing command does not stop the following ones:
+     * the <code>BatchUpdateException</code> has an update count for every command, with
+     * <code>EXECUTE_FAILED</code> for the failed ones.
+     *
+     * @return an array of update counts containing one element for each command in the batch.
+     * @throws SQLException if a database access error occurs, or a command fails (BatchUpdateException)
+     */
+    public int[] executePipeline() throws SQLException {
+        if (batchQueries == null || batchQueries.size() == 0) return new int[0];
+        if (!isPipelinable(batchQueries)) {
+            throw new SQLException("LOAD DATA statements cannot be pipelined");
+        }
+        int[] ret = new int[batchQueries.size()];
+        try {
+            batchResultSet = executePipelined(ret);
+        } catch (BatchUpdateException bue) {
+            throw bue;
+        } catch (SQLException sqle) {
+            throw new BatchUpdateException(sqle.getMessage(), sqle.getSQLState(), sqle.getErrorCode(), new int[0], sqle);
+        } finally {
+            clearBatch();
+        }
+        return ret;
+    }
+
+    /* LOAD DATA LOCAL INFILE sends the file after the server response, which does not work with pipelining */
+    private boolean isPipelinable(List<Query> queries) {
+        for (Query query : queries) {
+            if (Utils.hasStatementStartingWith(query.getQuery(), "LOAD", connection.noBackslashEscapes)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Execute batchQueries pipelined, fill update counts and return the generated keys.
+     */
+    private MySQLResultSet executePipelined(int[] ret) throws SQLException {
+        Object[] results;
+        protocol.getLock().lock();
+        try {
+            if (protocol.activeResult != null) {
+                protocol.activeResult.close();
+            }
+            executing = true;
+            QueryException exception = null;
+            executeQueryProlog();
+            try {
+                batchResultSet = null;
+                results = protocol.executePipelined(batchQueries);
+            } catch (QueryException e) {
+                exception = e;
+                results = null;
+            } finally {
+                executeQueryEpilog(exception, batchQueries.get(0));
+                executing = false;
+            }
+        } finally {
+            protocol.getLock().unlock();
+        }
+
+        MySQLResultSet rs = null;
+        SQLException firstError = null;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] instanceof QueryException) {
+                ret[i] = EXECUTE_FAILED;
+                if (firstError == null) {
+                    try {
+                        SQLExceptionMapper.throwException((QueryException) results[i], connection, this);
+                    } catch (SQLException sqle) {
+                        firstError = sqle;
+                    }
+                }
+                continue;
+            }
+            queryResult = (QueryResult) results[i];
+            int updateCount = getUpdateCount();
+            if (updateCount == -1) {
+                ret[i] = SUCCESS_NO_INFO;
+            } else {
+                ret[i] = updateCount;
+            }
+            if (rs == null) {
+                rs = (MySQLResultSet)getGeneratedKeys();
+            } else {
+                rs = rs.joinResultSets((MySQLResultSet)getGeneratedKeys());
+            }
+        }
+        if (firstError != null) {
+            throw new BatchUpdateException(firstError.getMessage(), firstError.getSQLState(), firstError.getErrorCode(), ret, firstError);
+        }
+        return rs;
+    }
+
     /**
 	 * Retrieves the update counts for the batched statements rewritten as
 	 * a multi query. The rewritten statement must have been executed already.
@@ -1395,15 +1588,26 @@ public class MySQLStatement implements Statement {
         this.queryResult = result;
     }
 
-	public void closeOnCompletion() throws SQLException {
-		// TODO Auto-generated method stub
-		
-	}
+    public void closeOnCompletion() throws SQLException {
+        closeOnCompletion = true;
+    }
 
-	public boolean isCloseOnCompletion() throws SQLException {
-		// TODO Auto-generated method stub
-		return false;
-	}
+    public boolean isCloseOnCompletion() throws SQLException {
+        return closeOnCompletion;
+    }
+
+    /**
+     * Called when a result set of this statement is closed. With closeOnCompletion, the statement is closed when
+     * its current result set is closed.
+     *
+     * @param result the result of the result set closed
+     * @throws SQLException if the statement cannot be closed
+     */
+    void resultSetClosed(QueryResult result) throws SQLException {
+        if (closeOnCompletion && !isClosed && (queryResult == null || queryResult == result)) {
+            close();
+        }
+    }
 
     public static void unloadDriver() {
         if (timer != null)
@@ -55,7 +55,6 @@ import org.mariadb.jdbc.internal.mysql.MySQLType;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.*;
@@ -68,69 +67,47 @@ import java.util.TimeZone;
 public abstract class AbstractValueObject implements ValueObject {
     private final byte[] rawBytes;
     protected final MySQLType dataType;
+    private final StringDecoder stringDecoder;
 
     protected AbstractValueObject(final byte[] rawBytes, final MySQLType dataType) {
+        this(rawBytes, dataType, StringDecoder.UTF8);
+    }
+
+    /**
+     * @param stringDecoder decoder of the character set of the value
+     */
+    protected AbstractValueObject(final byte[] rawBytes, final MySQLType dataType, StringDecoder stringDecoder) {
         this.dataType = dataType;
         this.rawBytes = rawBytes;
+        this.stringDecoder = stringDecoder;
     }
 
     public String getString() {
         if (rawBytes == null) {
             return null;
         }
-        try {
-           return new String(rawBytes, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-           throw new RuntimeException("Unsupported encoding: " + e.getMessage(), e);
-       }
+        return stringDecoder.decode(rawBytes);
     }
 
     public long getLong() {
         if (rawBytes == null) {
             return 0;
         }
-        try {
-            return Long.valueOf(getString());
-        } catch(NumberFormatException nfe) {
-            BigDecimal d = new BigDecimal(getString());
-            if (d.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) < 0) 
-                return Long.MIN_VALUE;
-            if (d.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0)
-                return Long.MAX_VALUE;
-            return d.longValue();
-        }
+        return parseLong(Long.MIN_VALUE, Long.MAX_VALUE, true);
     }
 
     public int getInt() {
         if (rawBytes == null) {
             return 0;
         }
-        try {
-            return Integer.valueOf(getString());
-        } catch(NumberFormatException nfe) {
-            BigDecimal d = new BigDecimal(getString());
-            if (d.compareTo(BigDecimal.valueOf(Integer.MIN_VALUE)) < 0) 
-                return Integer.MIN_VALUE;
-            if (d.compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) > 0)
-                return Integer.MAX_VALUE;
-            return d.intValue();
-        }
+        return (int) parseLong(Integer.MIN_VALUE, Integer.MAX_VALUE, true);
     }
 
     public short getShort() {
         if (rawBytes == null) {
             return 0;
         }
-        try {
-            return Short.valueOf(getString());
-        } catch(NumberFormatException nfe) {
-            BigDecimal d = new BigDecimal(getString());
-            if (d.compareTo(BigDecimal.valueOf(Short.MIN_VALUE)) < 0) 
-                return Short.MIN_VALUE;
-            if (d.compareTo(BigDecimal.valueOf(Short.MAX_VALUE)) > 0)
-                return Short.MAX_VALUE;
-            return d.shortValue();
-        }
+        return (short) parseLong(Short.MIN_VALUE, Short.MAX_VALUE, true);
     }
 
     public byte getByte() {
@@ -140,7 +117,89 @@ public abstract class AbstractValueObject implements ValueObject {
         if(dataType == MySQLType.BIT) {
                 return rawBytes[0];
         }
-        return Byte.valueOf(getString());
+        /* decimals and out of range values are rejected, not truncated or clamped */
+        long value = parseLong(Long.MIN_VALUE, Long.MAX_VALUE, false);
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            return Byte.valueOf(getString());
+        }
+        return (byte) value;
+    }
+
+    /**
+     * Parse an integer value from its ASCII digits, without creating a String.
+     * Values out of [min, max] are clamped. Values that are not plain integers (decimals, exponents) go
+     * through BigDecimal, and are truncated, or are rejected if truncate is false.
+     * BIT values are sent as big endian binary, and are read as such.
+     *
+     * @param min smallest value returned
+     * @param max largest value returned
+     * @param truncate if decimals are truncated
+     * @return the value
+     * @throws NumberFormatException if the value is not a number, or not an integer and truncate is false
+     */
+    private long parseLong(long min, long max, boolean truncate) {
+        int length = rawBytes.length;
+        if (dataType == MySQLType.BIT) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) + (rawBytes[i] & 0xff);
+            }
+            if (max == Long.MAX_VALUE) {
+                return value;
+            }
+            return (value < 0 || value > max) ? max : value;
+        }
+
+        int i = 0;
+        boolean negative = false;
+        if (length > 1 && (rawBytes[0] == '-' || rawBytes[0] == '+')) {
+            negative = rawBytes[0] == '-';
+            i = 1;
+        }
+        if (i == length) {
+            return parseDecimal(min, max, truncate);
+        }
+        /* accumulated as a negative number, whose range holds Long.MIN_VALUE */
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        boolean overflow = false;
+        for (; i < length; i++) {
+            int digit = rawBytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return parseDecimal(min, max, truncate);
+            }
+            if (overflow || result < multiplyLimit) {
+                overflow = true;
+                continue;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                overflow = true;
+                continue;
+            }
+            result -= digit;
+        }
+        if (overflow) {
+            return negative ? min : max;
+        }
+        long value = negative ? result : -result;
+        if (value < min) {
+            return min;
+        }
+        return value > max ? max : value;
+    }
+
+    private long parseDecimal(long min, long max, boolean truncate) {
+        if (!truncate) {
+            throw new NumberFormatException("For input string: \"" + getString() + "\"");
+        }
+        BigDecimal d = new BigDecimal(getString());
+        if (d.compareTo(BigDecimal.valueOf(min)) < 0)
+            return min;
+        if (d.compareTo(BigDecimal.valueOf(max)) > 0)
+            return max;
+        return d.longValue();
     }
 
     public byte[] getBytes() {
@@ -151,21 +210,33 @@ public abstract class AbstractValueObject implements ValueObject {
         if (rawBytes == null) {
             return 0;
         }
-        return Float.valueOf(getString());
+        float value = NumberParser.parseFloat(rawBytes);
+        if (Float.isNaN(value)) {
+            return Float.valueOf(getString());
+        }
+        return value;
     }
 
     public double getDouble() {
         if (rawBytes == null) {
             return 0;
         }
-        return Double.valueOf(getString());
+        double value = NumberParser.parseDouble(rawBytes);
+        if (Double.isNaN(value)) {
+            return Double.valueOf(getString());
+        }
+        return value;
     }
 
     public BigDecimal getBigDecimal() {
         if (rawBytes == null) {
             return null;
         }
-        return new BigDecimal(getString());
+        BigDecimal value = NumberParser.parseBigDecimal(rawBytes);
+        if (value == null) {
+            return new BigDecimal(getString());
+        }
+        return value;
     }
     public BigInteger getBigInteger() {
         if (rawBytes == null) {
@@ -178,6 +249,12 @@ public abstract class AbstractValueObject implements ValueObject {
             return null;
         }
 
+        if (dataType != MySQLType.YEAR) {
+            Date date = DateTimeCodec.parseDate(rawBytes, cal);
+            if (date != null) {
+                return date;
+            }
+        }
         String rawValue = getString();
         String zeroDate = "0000-00-00";
         if (rawValue.equals(zeroDate)) {
@@ -205,6 +282,10 @@ public abstract class AbstractValueObject implements ValueObject {
         if (rawBytes == null) {
             return null;
         }
+        Time time = DateTimeCodec.parseTime(rawBytes, cal);
+        if (time != null) {
+            return time;
+        }
         String rawValue = getString();
         String zeroDate = "0000-00-00";
         if (rawValue.equals(zeroDate)) {
@@ -247,6 +328,10 @@ public abstract class AbstractValueObject implements ValueObject {
         if (rawBytes == null) {
             return null;
         }
+        Timestamp timestamp = DateTimeCodec.parseTimestamp(rawBytes, cal);
+        if (timestamp != null) {
+            return timestamp;
+        }
         String rawValue = getString();
         String zeroTimestamp = "0000-00-00 00:00:00";
         if (rawValue.equals(zeroTimestamp)) {
@@ -0,0 +1,351 @@
+package org.mariadb.jdbc.internal.common;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Decoding and encoding of the fixed layout text values YYYY-MM-DD, HH:MM:SS[.ffffff] and
+ * YYYY-MM-DD HH:MM:SS[.ffffff], working directly on bytes.
+ *
+ * These are fast paths only, returning null for values they do not handle, which the callers then process with
+ * SimpleDateFormat as before : invalid or zero dates, years before 1583 (where Calendar switches to the Julian
+ * calendar) or after 9999, TIME values outside 00:00:00-23:59:59, calendars other than GregorianCalendar, and
+ * local times within a day of a time zone offset change, which Calendar resolves with its own rules.
+ *
+ * Offsets are looked up once and kept for the two days around the last converted value, so that values
+ * close in time are converted without querying the time zone again.
+ */
+public final class DateTimeCodec {
+    private static final long MILLIS_PER_DAY = 24 * 3600 * 1000L;
+    private static final long DEFAULT_GREGORIAN_CHANGE = -12219292800000L;
+    private static final int MIN_YEAR = 1583;
+    private static final int MAX_YEAR = 9999;
+    private static final long NOT_HANDLED = Long.MIN_VALUE;
+    private static final int[] DAYS_IN_MONTH = {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+    private static final long MIN_DAY = epochDay(MIN_YEAR, 1, 1);
+    private static final long MAX_DAY = epochDay(MAX_YEAR, 12, 31);
+
+    /* instants over which a zone was checked to have a constant offset */
+    private static final class OffsetWindow {
+        final TimeZone zone;
+        final long start;
+        final long end;
+        final int offset;
+
+        OffsetWindow(TimeZone zone, long start, long end, int offset) {
+            this.zone = zone;
+            this.start = start;
+            this.end = end;
+            this.offset = offset;
+        }
+
+        boolean isFor(TimeZone zone) {
+            return this.zone == zone || this.zone.equals(zone);
+        }
+    }
+
+    private static volatile OffsetWindow offsetWindow;
+
+    private DateTimeCodec() {
+    }
+
+    /**
+     * Parse a YYYY-MM-DD value, or the date part of a YYYY-MM-DD HH:MM:SS value.
+     *
+     * @param bytes ASCII value
+     * @param cal calendar giving the time zone, or null for the default time zone
+     * @return the date at midnight, or null if the value is not handled
+     */
+    static Date parseDate(byte[] bytes, Calendar cal) {
+        if (bytes.length != 10 && (bytes.length < 10 || bytes[10] != ' ')) {
+            return null;
+        }
+        long days = parseDays(bytes);
+        if (days == NOT_HANDLED) {
+            return null;
+        }
+        long utc = toUtc(days * MILLIS_PER_DAY, cal);
+        return utc == NOT_HANDLED ? null : new Date(utc);
+    }
+
+    /**
+     * Parse a HH:MM:SS[.fraction] value.
+     *
+     * @param bytes ASCII value
+     * @param cal calendar giving the time zone, or null for the default time zone
+     * @return the time on 1970-01-01, with milliseconds, or null if the value is not handled
+     */
+    static Time parseTime(byte[] bytes, Calendar cal) {
+        if (bytes.length < 8 || bytes.length > 8 && bytes[8] != '.') {
+            return null;
+        }
+        long millis = parseTimeOfDay(bytes, 0);
+        int nanos = parseNanos(bytes, 8);
+        if (millis == NOT_HANDLED || nanos < 0) {
+            return null;
+        }
+        long utc = toUtc(millis, cal);
+        return utc == NOT_HANDLED ? null : new Time(utc + nanos / 1000000);
+    }
+
+    /**
+     * Parse a YYYY-MM-DD HH:MM:SS[.fraction] or YYYY-MM-DD value.
+     *
+     * @param bytes ASCII value
+     * @param cal calendar giving the time zone, or null for the default time zone
+     * @return the timestamp, or null if the value is not handled
+     */
+    static Timestamp parseTimestamp(byte[] bytes, Calendar cal) {
+        int length = bytes.length;
+        long days = parseDays(bytes);
+        if (days == NOT_HANDLED) {
+            return null;
+        }
+        long millis = days * MILLIS_PER_DAY;
+        int nanos = 0;
+        if (length != 10) {
+            if (length < 19 || bytes[10] != ' ' || length > 19 && bytes[19] != '.') {
+                return null;
+            }
+            long timeOfDay = parseTimeOfDay(bytes, 11);
+            nanos = parseNanos(bytes, 19);
+            if (timeOfDay == NOT_HANDLED || nanos < 0) {
+                return null;
+            }
+            millis += timeOfDay;
+        }
+        long utc = toUtc(millis, cal);
+        if (utc == NOT_HANDLED) {
+            return null;
+        }
+        Timestamp ts = new Timestamp(utc);
+        if (nanos != 0) {
+            ts.setNanos(nanos);
+        }
+        return ts;
+    }
+
+    /**
+     * Format a date as YYYY-MM-DD.
+     *
+     * @param millis the date
+     * @param cal calendar giving the time zone, or null for the default time zone
+     * @return ASCII value, or null if the date is not handled
+     */
+    public static byte[] formatDate(long millis, Calendar cal) {
+        long local = toLocal(millis, cal);
+        if (local == NOT_HANDLED) {
+            return null;
+        }
+        byte[] bytes = new byte[10];
+        writeDate(bytes, floorDays(local));
+        return bytes;
+    }
+
+    /**
+     * Format a time as HH:MM:SS.
+     *
+     * @param millis the time
+     * @param cal calendar giving the time zone, or null for the default time zone
+     * @return ASCII value, or null if the time is not handled
+     */
+    public static byte[] formatTime(long millis, Calendar cal) {
+        long local = toLocal(millis, cal);
+        if (local == NOT_HANDLED) {
+            return null;
+        }
+        byte[] bytes = new byte[8];
+        writeTimeOfDay(bytes, 0, local - floorDays(local) * MILLIS_PER_DAY);
+        return bytes;
+    }
+
+    /**
+     * Format a date and time as YYYY-MM-DD HH:MM:SS, without fractional seconds.
+     *
+     * @param millis the date and time
+     * @param cal calendar giving the time zone, or null for the default time zone
+     * @return ASCII value, or null if the date is not handled
+     */
+    public static byte[] formatTimestamp(long millis, Calendar cal) {
+        long local = toLocal(millis, cal);
+        if (local == NOT_HANDLED) {
+            return null;
+        }
+        byte[] bytes = new byte[19];
+        long days = floorDays(local);
+        writeDate(bytes, days);
+        bytes[10] = ' ';
+        writeTimeOfDay(bytes, 11, local - days * MILLIS_PER_DAY);
+        return bytes;
+    }
+
+    private static int parseDigits(byte[] bytes, int pos, int count) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /* days since 1970-01-01 of a valid YYYY-MM-DD prefix */
+    private static long parseDays(byte[] bytes) {
+        if (bytes.length < 10 || bytes[4] != '-' || bytes[7] != '-') {
+            return NOT_HANDLED;
+        }
+        int year = parseDigits(bytes, 0, 4);
+        int month = parseDigits(bytes, 5, 2);
+        int day = parseDigits(bytes, 8, 2);
+        if (year < MIN_YEAR || month < 1 || month > 12 || day < 1 || day > DAYS_IN_MONTH[month - 1]
+                || month == 2 && day == 29 && !isLeapYear(year)) {
+            return NOT_HANDLED;
+        }
+        return epochDay(year, month, day);
+    }
+
+    /* milliseconds since midnight of a valid HH:MM:SS value at pos */
+    private static long parseTimeOfDay(byte[] bytes, int pos) {
+        if (bytes[pos + 2] != ':' || bytes[pos + 5] != ':') {
+            return NOT_HANDLED;
+        }
+        int hour = parseDigits(bytes, pos, 2);
+        int minute = parseDigits(bytes, pos + 3, 2);
+        int second = parseDigits(bytes, pos + 6, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return NOT_HANDLED;
+        }
+        return (hour * 3600 + minute * 60 + second) * 1000L;
+    }
+
+    /* nanoseconds of the fraction after the '.' at pos, 0 if there is no fraction, -1 if not handled */
+    private static int parseNanos(byte[] bytes, int pos) {
+        int digits = bytes.length - pos - 1;
+        if (digits <= 0) {
+            return digits == 0 ? -1 : 0;
+        }
+        if (digits > 9) {
+            return -1;
+        }
+        int nanos = parseDigits(bytes, pos + 1, digits);
+        for (int i = digits; i < 9 && nanos >= 0; i++) {
+            nanos *= 10;
+        }
+        return nanos;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /* days since 1970-01-01, for years from MIN_YEAR */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static long floorDays(long millis) {
+        long days = millis / MILLIS_PER_DAY;
+        return millis % MILLIS_PER_DAY < 0 ? days - 1 : days;
+    }
+
+    private static void writeDigits(byte[] bytes, int pos, int value, int count) {
+        for (int i = pos + count - 1; i >= pos; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static void writeDate(byte[] bytes, long epochDay) {
+        long z = epochDay + 719468;
+        long era = z / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        writeDigits(bytes, 0, year, 4);
+        bytes[4] = '-';
+        writeDigits(bytes, 5, month, 2);
+        bytes[7] = '-';
+        writeDigits(bytes, 8, day, 2);
+    }
+
+    private static void writeTimeOfDay(byte[] bytes, int pos, long millis) {
+        int seconds = (int) (millis / 1000);
+        writeDigits(bytes, pos, seconds / 3600, 2);
+        bytes[pos + 2] = ':';
+        writeDigits(bytes, pos + 3, seconds / 60 % 60, 2);
+        bytes[pos + 5] = ':';
+        writeDigits(bytes, pos + 6, seconds % 60, 2);
+    }
+
+    /* time zone of a calendar that computes fields like the proleptic Gregorian calendar from MIN_YEAR */
+    private static TimeZone getTimeZone(Calendar cal) {
+        if (cal == null) {
+            return TimeZone.getDefault();
+        }
+        if (cal instanceof GregorianCalendar
+                && ((GregorianCalendar) cal).getGregorianChange().getTime() <= DEFAULT_GREGORIAN_CHANGE) {
+            return cal.getTimeZone();
+        }
+        return null;
+    }
+
+    private static long toLocal(long utc, Calendar cal) {
+        TimeZone zone = getTimeZone(cal);
+        if (zone == null) {
+            return NOT_HANDLED;
+        }
+        OffsetWindow window = offsetWindow;
+        long local;
+        if (window != null && utc >= window.start && utc < window.end && window.isFor(zone)) {
+            local = utc + window.offset;
+        } else {
+            local = utc + zone.getOffset(utc);
+        }
+        long days = floorDays(local);
+        if (days < MIN_DAY || days > MAX_DAY) {
+            return NOT_HANDLED;
+        }
+        return local;
+    }
+
+    /**
+     * Convert a local time to UTC. The offset is only used when it is the same in the two days before and after,
+     * so that the local time cannot be skipped or repeated by an offset change.
+     */
+    private static long toUtc(long local, Calendar cal) {
+        TimeZone zone = getTimeZone(cal);
+        if (zone == null) {
+            return NOT_HANDLED;
+        }
+        OffsetWindow window = offsetWindow;
+        if (window != null && window.isFor(zone)) {
+            long utc = local - window.offset;
+            if (utc >= window.start && utc < window.end) {
+                return utc;
+            }
+        }
+        int offset = zone.getOffset(local - zone.getRawOffset());
+        long utc = local - offset;
+        if (zone.getOffset(utc) != offset || zone.getOffset(utc - 2 * MILLIS_PER_DAY) != offset
+                || zone.getOffset(utc + 2 * MILLIS_PER_DAY) != offset) {
+            return NOT_HANDLED;
+        }
+        offsetWindow = new OffsetWindow(zone, utc - MILLIS_PER_DAY, utc + MILLIS_PER_DAY, offset);
+        return utc;
+    }
+}
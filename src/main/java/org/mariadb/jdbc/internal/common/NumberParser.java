@@ -0,0 +1,248 @@
+package org.mariadb.jdbc.internal.common;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Parsing of DECIMAL, DOUBLE and FLOAT values straight from the ASCII bytes of text protocol rows.
+ *
+ * These are fast paths only : when a value is not handled, null or NaN is returned and the caller parses the value
+ * as a String, which also reports malformed values. DECIMAL values are handled when their digits fit in a long.
+ * Doubles use Clinger's fast path when the significand and the power of ten are both exact doubles, else the
+ * Eisel-Lemire algorithm, which gives up on the few values too close to the middle of two doubles.
+ */
+final class NumberParser {
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int MAX_SIGNIFICAND_DIGITS = 19;
+    private static final int SMALLEST_POWER = -342;
+    private static final int LARGEST_POWER = 308;
+
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    private NumberParser() {
+    }
+
+    /**
+     * Parse a decimal value with at most 18 digits, and no exponent.
+     *
+     * @param bytes ASCII value
+     * @return the value, or null if the value is not handled
+     */
+    static BigDecimal parseBigDecimal(byte[] bytes) {
+        int length = bytes.length;
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (bytes[0] == '-' || bytes[0] == '+')) {
+            negative = bytes[0] == '-';
+            i = 1;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; i < length; i++) {
+            byte b = bytes[i];
+            if (b == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || ++digits > MAX_LONG_DIGITS) {
+                return null;
+            }
+            unscaled = unscaled * 10 + digit;
+            if (fraction) {
+                scale++;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    /**
+     * Parse a double value, in the format written by the server.
+     *
+     * @param bytes ASCII value
+     * @return the correctly rounded value, or NaN if the value is not handled
+     */
+    static double parseDouble(byte[] bytes) {
+        return parse(bytes, false);
+    }
+
+    /**
+     * Parse a float value, in the format written by the server.
+     *
+     * @param bytes ASCII value
+     * @return the correctly rounded value, or NaN if the value is not handled
+     */
+    static float parseFloat(byte[] bytes) {
+        return (float) parse(bytes, true);
+    }
+
+    private static double parse(byte[] bytes, boolean isFloat) {
+        int length = bytes.length;
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (bytes[0] == '-' || bytes[0] == '+')) {
+            negative = bytes[0] == '-';
+            i = 1;
+        }
+
+        /* significand without leading zeros, unsigned with 19 digits, and its decimal exponent */
+        long significand = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean fraction = false;
+        for (; i < length; i++) {
+            byte b = bytes[i];
+            if (b == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            anyDigit = true;
+            if (significand == 0 && digit == 0) {
+                if (fraction) {
+                    exponent--;
+                }
+                continue;
+            }
+            if (++significantDigits > MAX_SIGNIFICAND_DIGITS) {
+                return Double.NaN;
+            }
+            significand = significand * 10 + digit;
+            if (fraction) {
+                exponent--;
+            }
+        }
+        if (!anyDigit) {
+            return Double.NaN;
+        }
+        if (i < length) {
+            if (bytes[i] != 'e' && bytes[i] != 'E' || ++i == length) {
+                return Double.NaN;
+            }
+            boolean negativeExponent = false;
+            if (bytes[i] == '-' || bytes[i] == '+') {
+                negativeExponent = bytes[i] == '-';
+                if (++i == length) {
+                    return Double.NaN;
+                }
+            }
+            int explicitExponent = 0;
+            for (; i < length; i++) {
+                int digit = bytes[i] - '0';
+                if (digit < 0 || digit > 9 || explicitExponent > 10000) {
+                    return Double.NaN;
+                }
+                explicitExponent = explicitExponent * 10 + digit;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (significand == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        double value;
+        if (isFloat) {
+            if (significand < 0 || significand > 1L << 24 || exponent < -10 || exponent > 10) {
+                return Double.NaN;
+            }
+            float f = (float) significand;
+            value = exponent < 0 ? f / FLOAT_POWERS_OF_TEN[-exponent] : f * FLOAT_POWERS_OF_TEN[exponent];
+        } else if (significand > 0 && significand <= 1L << 53 && exponent >= -22 && exponent <= 22) {
+            double d = (double) significand;
+            value = exponent < 0 ? d / DOUBLE_POWERS_OF_TEN[-exponent] : d * DOUBLE_POWERS_OF_TEN[exponent];
+        } else {
+            value = eiselLemire(significand, exponent);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Compute significand * 10^exponent with the Eisel-Lemire algorithm, using only the high 64 bits of the
+     * powers of five : values for which these are not precise enough are given up.
+     *
+     * @param significand a non zero significand
+     * @param exponent decimal exponent
+     * @return the correctly rounded value, or NaN if it cannot be decided
+     */
+    private static double eiselLemire(long significand, int exponent) {
+        if (exponent < SMALLEST_POWER || exponent > LARGEST_POWER) {
+            return Double.NaN;
+        }
+        long factor = PowersOfFive.HIGH[exponent - SMALLEST_POWER];
+        int leadingZeros = Long.numberOfLeadingZeros(significand);
+        long shifted = significand << leadingZeros;
+        /* the truncated low bits of the power of five could only carry into low bits all set, given up below */
+        long upper = unsignedMultiplyHigh(shifted, factor);
+        long upperBit = upper >>> 63;
+        long mantissa = upper >>> (upperBit + 9);
+        leadingZeros += (int) (1 ^ upperBit);
+        if ((upper & 0x1ff) == 0x1ff || (upper & 0x1ff) == 0 && (mantissa & 3) == 1) {
+            /* too close to the middle of two doubles */
+            return Double.NaN;
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= 1L << 53) {
+            mantissa = 1L << 52;
+            leadingZeros--;
+        }
+        mantissa &= ~(1L << 52);
+        long binaryExponent = (((152170L + 65536L) * exponent) >> 16) + 1024 + 63 - leadingZeros;
+        if (binaryExponent < 1 || binaryExponent > 2046) {
+            /* subnormal or infinite */
+            return Double.NaN;
+        }
+        return Double.longBitsToDouble(mantissa | binaryExponent << 52);
+    }
+
+    /* high 64 bits of the unsigned 128 bits product */
+    private static long unsignedMultiplyHigh(long x, long y) {
+        long x0 = x & 0xffffffffL;
+        long x1 = x >>> 32;
+        long y0 = y & 0xffffffffL;
+        long y1 = y >>> 32;
+        long p01 = x0 * y1;
+        long middle = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & 0xffffffffL);
+        return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+    }
+
+    /**
+     * High 64 bits of the 128 bits approximations of 5^q, for q from SMALLEST_POWER to LARGEST_POWER,
+     * normalized so that their highest bit is set. Computed when a double first needs them.
+     */
+    private static final class PowersOfFive {
+        static final long[] HIGH = new long[LARGEST_POWER - SMALLEST_POWER + 1];
+
+        static {
+            BigInteger five = BigInteger.valueOf(5);
+            for (int q = SMALLEST_POWER; q <= LARGEST_POWER; q++) {
+                BigInteger power;
+                if (q < 0) {
+                    /* 2^b / 5^-q rounded up, with enough bits to keep 128 of them */
+                    BigInteger powerOfFive = five.pow(-q);
+                    int bits = powerOfFive.bitLength();
+                    int b = q >= -27 ? bits + 127 : 2 * bits + 128;
+                    power = BigInteger.ONE.shiftLeft(b).divide(powerOfFive).add(BigInteger.ONE);
+                } else {
+                    power = five.pow(q);
+                }
+                int shift = power.bitLength() - 128;
+                power = shift > 0 ? power.shiftRight(shift) : power.shiftLeft(-shift);
+                HIGH[q - SMALLEST_POWER] = power.shiftRight(64).longValue();
+            }
+        }
+    }
+}
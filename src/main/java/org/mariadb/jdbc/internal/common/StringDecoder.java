@@ -0,0 +1,172 @@
+package org.mariadb.jdbc.internal.common;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes the text of the values of a column, in the character set of the column.
+ *
+ * The decoder of a column is chosen once, from the collation number of its definition. Values that are only ASCII,
+ * which most values are, are copied without a charset decoder. MySQL and MariaDB latin1 is windows-1252, decoded
+ * with a table. Other character sets use a Charset instance, resolved once.
+ */
+public abstract class StringDecoder {
+    public static final StringDecoder UTF8 = new CharsetStringDecoder(Charset.forName("UTF-8"));
+    public static final StringDecoder LATIN1 = new Latin1StringDecoder();
+
+    /* decoders by collation number, null for the collations decoded in UTF-8 */
+    private static final StringDecoder[] COLLATIONS = new StringDecoder[256];
+
+    static {
+        Map<String, StringDecoder> decoders = new HashMap<String, StringDecoder>();
+        register(decoders, "latin1", 5, 8, 15, 31, 47, 48, 49, 94);
+        register(decoders, "US-ASCII", 11, 65);
+        register(decoders, "ISO-8859-2", 2, 9, 21, 27, 77);
+        register(decoders, "windows-1250", 26, 34, 44, 66, 99);
+        register(decoders, "windows-1251", 14, 23, 50, 51, 52);
+        register(decoders, "windows-1256", 57, 67);
+        register(decoders, "windows-1257", 29, 58, 59);
+        register(decoders, "ISO-8859-7", 25, 70);
+        register(decoders, "ISO-8859-8", 16, 71);
+        register(decoders, "ISO-8859-9", 30, 78);
+        register(decoders, "ISO-8859-13", 20, 41, 42, 79);
+        register(decoders, "KOI8-R", 7, 74);
+        register(decoders, "KOI8-U", 22, 75);
+        register(decoders, "IBM850", 4, 80);
+        register(decoders, "IBM852", 40, 81);
+        register(decoders, "IBM866", 36, 68);
+        register(decoders, "TIS-620", 18, 89);
+        register(decoders, "Big5", 1, 84);
+        register(decoders, "EUC-JP", 12, 91, 97, 98);
+        register(decoders, "Shift_JIS", 13, 88);
+        register(decoders, "windows-31j", 95, 96);
+        register(decoders, "EUC-KR", 19, 85);
+        register(decoders, "GB2312", 24, 86);
+        register(decoders, "GBK", 28, 87);
+        register(decoders, "GB18030", 248, 249, 250);
+        register(decoders, "UTF-16BE", 35, 90, 159);
+        register(decoders, "UTF-16", 54, 55, 101);
+        register(decoders, "UTF-16LE", 56, 62);
+        register(decoders, "UTF-32", 60, 61, 160);
+        for (int i = 102; i <= 124; i++) {
+            register(decoders, "UTF-16", i);
+        }
+        for (int i = 128; i <= 151; i++) {
+            register(decoders, "UTF-16BE", i);
+        }
+        for (int i = 161; i <= 183; i++) {
+            register(decoders, "UTF-32", i);
+        }
+    }
+
+    private static void register(Map<String, StringDecoder> decoders, String name, int... collations) {
+        StringDecoder decoder = decoders.get(name);
+        if (decoder == null) {
+            if (name.equals("latin1")) {
+                decoder = LATIN1;
+            } else if (Charset.isSupported(name)) {
+                decoder = new CharsetStringDecoder(Charset.forName(name));
+            } else {
+                /* not all JVMs have the Asian character sets, UTF-8 remains better than failing */
+                decoder = UTF8;
+            }
+            decoders.put(name, decoder);
+        }
+        for (int collation : collations) {
+            COLLATIONS[collation] = decoder;
+        }
+    }
+
+    /**
+     * Get the decoder of a character set.
+     *
+     * @param collation the collation number of a column definition
+     * @return the decoder, UTF-8 for the utf8 and utf8mb4 collations, binary, and unknown collations
+     */
+    public static StringDecoder forCollation(int collation) {
+        if (collation < 0 || collation >= COLLATIONS.length || COLLATIONS[collation] == null) {
+            return UTF8;
+        }
+        return COLLATIONS[collation];
+    }
+
+    /**
+     * Decode text.
+     *
+     * @param bytes the encoded text
+     * @param offset offset of the text in bytes
+     * @param length length of the text
+     * @return the text
+     */
+    public abstract String decode(byte[] bytes, int offset, int length);
+
+    public String decode(byte[] bytes) {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    private static boolean isAscii(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* every byte is the character of the same code, the string is a copy of the bytes with compact strings */
+    @SuppressWarnings("deprecation")
+    private static String latin1String(byte[] bytes, int offset, int length) {
+        return new String(bytes, 0, offset, length);
+    }
+
+    private static final class CharsetStringDecoder extends StringDecoder {
+        private final Charset charset;
+        /* false for the character sets that do not encode ASCII characters as single bytes, like UTF-16 */
+        private final boolean asciiCompatible;
+
+        CharsetStringDecoder(Charset charset) {
+            this.charset = charset;
+            byte[] ascii = new byte[128];
+            for (int i = 0; i < ascii.length; i++) {
+                ascii[i] = (byte) i;
+            }
+            asciiCompatible = new String(ascii, charset).equals(latin1String(ascii, 0, ascii.length));
+        }
+
+        public String decode(byte[] bytes, int offset, int length) {
+            if (asciiCompatible && isAscii(bytes, offset, length)) {
+                return latin1String(bytes, offset, length);
+            }
+            return new String(bytes, offset, length, charset);
+        }
+    }
+
+    private static final class Latin1StringDecoder extends StringDecoder {
+        /* windows-1252 characters of the bytes 0x80 to 0x9f, the undefined ones map to the same code like MySQL */
+        private static final char[] CP1252 = {
+            '\u20ac', '\u0081', '\u201a', '\u0192', '\u201e', '\u2026', '\u2020', '\u2021',
+            '\u02c6', '\u2030', '\u0160', '\u2039', '\u0152', '\u008d', '\u017d', '\u008f',
+            '\u0090', '\u2018', '\u2019', '\u201c', '\u201d', '\u2022', '\u2013', '\u2014',
+            '\u02dc', '\u2122', '\u0161', '\u203a', '\u0153', '\u009d', '\u017e', '\u0178'
+        };
+
+        public String decode(byte[] bytes, int offset, int length) {
+            int i = offset;
+            int end = offset + length;
+            while (i < end && (bytes[i] & 0xe0) != 0x80) {
+                i++;
+            }
+            if (i == end) {
+                /* no byte from 0x80 to 0x9f, the code of each character is its byte */
+                return latin1String(bytes, offset, length);
+            }
+            char[] chars = new char[length];
+            for (i = 0; i < length; i++) {
+                int b = bytes[offset + i] & 0xff;
+                chars[i] = (b & 0xe0) == 0x80 ? CP1252[b - 0x80] : (char) b;
+            }
+            return new String(chars);
+        }
+    }
+}
@@ -174,6 +174,61 @@ public class Utils {
      }
 
 
+    /**
+     * Check if one of the statements of a query starts with a keyword. Whitespace and comments before the keyword
+     * are skipped. Statements are separated by semicolons outside of string literals, quoted identifiers and comments.
+     *
+     * @param sql the query
+     * @param keyword the keyword, for example "USE"
+     * @param noBackslashEscapes true if backslashes do not escape characters in string literals
+     * @return true if a statement starts with the keyword, followed by a character that is not part of an identifier
+     */
+    public static boolean hasStatementStartingWith(String sql, String keyword, boolean noBackslashEscapes) {
+        int len = sql.length();
+        boolean statementStart = true;
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            char next = i + 1 < len ? sql.charAt(i + 1) : '\0';
+            if (c == '/' && next == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? len : end + 2;
+                continue;
+            }
+            if (c == '#' || (c == '-' && next == '-' && (i + 2 == len || Character.isWhitespace(sql.charAt(i + 2))))) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? len : end + 1;
+                continue;
+            }
+            if (statementStart) {
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                statementStart = false;
+                int end = i + keyword.length();
+                if (sql.regionMatches(true, i, keyword, 0, keyword.length())
+                        && (end == len || !Character.isJavaIdentifierPart(sql.charAt(end)))) {
+                    return true;
+                }
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                /* skip the literal or quoted identifier, a doubled quote does not end it */
+                i++;
+                while (i < len && sql.charAt(i) != c) {
+                    if (sql.charAt(i) == '\\' && c != '`' && !noBackslashEscapes) {
+                        i++;
+                    }
+                    i++;
+                }
+            } else if (c == ';') {
+                statementStart = true;
+            }
+            i++;
+        }
+        return false;
+    }
+
     public static String escapeString(String s, boolean noBackslashEscapes) {
     	if (s.indexOf("'") == -1) {
     		if (noBackslashEscapes)
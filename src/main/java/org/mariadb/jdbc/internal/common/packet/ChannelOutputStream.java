@@ -0,0 +1,57 @@
+package org.mariadb.jdbc.internal.common.packet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Output stream writing to a channel through a direct send buffer.
+ */
+public class ChannelOutputStream extends OutputStream {
+    private final WritableByteChannel channel;
+    private final ByteBuffer sendBuffer;
+
+    public ChannelOutputStream(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        sendBuffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) throws IOException {
+        while (len > 0) {
+            int chunk = Math.min(len, sendBuffer.capacity());
+            sendBuffer.clear();
+            sendBuffer.put(bytes, off, chunk);
+            sendBuffer.flip();
+            while (sendBuffer.hasRemaining()) {
+                channel.write(sendBuffer);
+            }
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        sendBuffer.clear();
+        sendBuffer.put((byte) b);
+        sendBuffer.flip();
+        while (sendBuffer.hasRemaining()) {
+            channel.write(sendBuffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * The stream does not buffer, data can be written to the channel directly.
+     * @return the channel written to
+     */
+    public WritableByteChannel getChannel() {
+        return channel;
+    }
+}
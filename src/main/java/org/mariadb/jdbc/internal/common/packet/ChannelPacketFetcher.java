@@ -0,0 +1,95 @@
+package org.mariadb.jdbc.internal.common.packet;
+
+import org.mariadb.jdbc.internal.common.PacketFetcher;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Packet fetcher reading from a channel into a direct receive buffer.
+ *
+ * Packets that fit into the receive buffer are returned as views of it, which are only valid until the next
+ * call to getRawPacket() (use RawPacket.detach() to keep one). Larger packets are read into their own buffer.
+ */
+public class ChannelPacketFetcher implements PacketFetcher {
+    private static final int HEADER_LENGTH = 4;
+
+    private final ReadableByteChannel channel;
+    /* unread data is kept in [0, position), the current packet always starts at offset 0 */
+    private final ByteBuffer receiveBuffer;
+    private final RawPacket sharedPacket;
+    private int consumed;
+
+    public ChannelPacketFetcher(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        receiveBuffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        receiveBuffer.position(HEADER_LENGTH);
+        sharedPacket = new RawPacket(receiveBuffer.slice().order(ByteOrder.LITTLE_ENDIAN), 0);
+        receiveBuffer.clear();
+    }
+
+    public RawPacket getRawPacket() throws IOException {
+        if (consumed > 0) {
+            /* drop the previous packet, move what was read ahead to the start of the buffer */
+            receiveBuffer.flip();
+            receiveBuffer.position(consumed);
+            receiveBuffer.compact();
+            consumed = 0;
+        }
+        fill(HEADER_LENGTH);
+        int length = (receiveBuffer.get(0) & 0xff) + ((receiveBuffer.get(1) & 0xff) << 8)
+                + ((receiveBuffer.get(2) & 0xff) << 16);
+        int packetSeq = receiveBuffer.get(3);
+
+        if (length > receiveBuffer.capacity() - HEADER_LENGTH) {
+            return readLargePacket(length, packetSeq);
+        }
+        fill(HEADER_LENGTH + length);
+        consumed = HEADER_LENGTH + length;
+        sharedPacket.reuse(length, packetSeq);
+        return sharedPacket;
+    }
+
+    private void fill(int minimum) throws IOException {
+        while (receiveBuffer.position() < minimum) {
+            if (channel.read(receiveBuffer) < 0) {
+                throw new EOFException("unexpected end of stream, read " + receiveBuffer.position()
+                        + " bytes from " + minimum);
+            }
+        }
+    }
+
+    /* Packet does not fit into the receive buffer, everything buffered so far belongs to it */
+    private RawPacket readLargePacket(int length, int packetSeq) throws IOException {
+        ByteBuffer packet = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        receiveBuffer.flip();
+        receiveBuffer.position(HEADER_LENGTH);
+        packet.put(receiveBuffer);
+        while (packet.hasRemaining()) {
+            /* never read past the end of this packet */
+            receiveBuffer.clear();
+            receiveBuffer.limit(Math.min(receiveBuffer.capacity(), packet.remaining()));
+            if (channel.read(receiveBuffer) < 0) {
+                throw new EOFException("unexpected end of stream, read " + packet.position()
+                        + " bytes from " + length);
+            }
+            receiveBuffer.flip();
+            packet.put(receiveBuffer);
+        }
+        receiveBuffer.clear();
+        packet.flip();
+        return new RawPacket(packet, packetSeq);
+    }
+
+    public void clearInputStream() throws IOException {
+        receiveBuffer.clear();
+        consumed = 0;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
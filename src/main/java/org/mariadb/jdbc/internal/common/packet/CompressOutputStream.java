@@ -1,21 +1,68 @@
 package org.mariadb.jdbc.internal.common.packet;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Deflater;
 
 public class CompressOutputStream extends OutputStream {
 
-    private static final int MIN_COMPRESSION_SIZE = 16*1024;
+    public static final int DEFAULT_MIN_COMPRESSION_SIZE = 16*1024;
     private static final int MAX_PACKET_LENGTH = 16*1024*1024-1;
     private static final float MIN_COMPRESSION_RATIO =0.9f;
+    private static final int HEADER_LENGTH = 7;
+    /* larger buffers are not kept after use, so that one big packet does not hold memory for the connection life */
+    static final int MAX_KEPT_BUFFER_SIZE = 1024*1024;
+    /* size of the data sample deflated first, in adaptive mode */
+    private static final int SAMPLE_SIZE = 4096;
+    /* adaptive mode : number of packets deflated (or sampled) between two decisions to suspend or resume compression */
+    private static final int WINDOW_PACKETS = 8;
+    /* adaptive mode : while compression is suspended, one packet in PROBE_INTERVAL is still deflated */
+    private static final int PROBE_INTERVAL = 8;
+    /* adaptive mode : compression must save at least one byte per 100ns of deflate time, 10MB per CPU second */
+    private static final long MAX_NANOS_PER_SAVED_BYTE = 100;
 
     OutputStream baseStream;
-    byte header[] = new byte[7];
+    byte header[] = new byte[HEADER_LENGTH];
     int seqNo = 0;
+    /* reused for every packet of the connection */
+    Deflater deflater;
+    /* compressed packet, header included, reused for packets of the connection */
+    byte[] compressBuffer = new byte[0];
+    int minCompressionSize;
+    boolean adaptive;
+    CompressionStats stats;
+    /* adaptive mode : false while compression is suspended */
+    boolean compressing = true;
+    int packetsSinceProbe;
+    /* adaptive mode : packets measured in the current window, and the counters at its start */
+    int windowPackets;
+    long windowBytesCompressed;
+    long windowBytesAfterCompression;
+    long windowBytesNotCompressed;
+    long windowNanos;
 
     public CompressOutputStream (OutputStream baseStream) {
+        this(baseStream, Deflater.DEFAULT_COMPRESSION, DEFAULT_MIN_COMPRESSION_SIZE, false, new CompressionStats());
+    }
+
+    /**
+     * @param baseStream stream to write compressed protocol packets to
+     * @param level deflate compression level, 0-9, or Deflater.DEFAULT_COMPRESSION
+     * @param minCompressionSize packets of this size or smaller are sent uncompressed
+     * @param adaptive if true, a sample of each packet is deflated first, and packets whose sample does not shrink
+     *                 (already compressed data, like images) are sent uncompressed without deflating them.
+     *                 Every WINDOW_PACKETS packets, compression is suspended or resumed depending on the ratio and
+     *                 the deflate time of these packets, read from the stats : while suspended, packets are sent
+     *                 uncompressed, and only one packet in PROBE_INTERVAL is deflated to notice when data shrinks again
+     * @param stats counters to update
+     */
+    public CompressOutputStream (OutputStream baseStream, int level, int minCompressionSize, boolean adaptive,
+                                 CompressionStats stats) {
         this.baseStream = baseStream;
+        this.deflater = new Deflater(level);
+        this.minCompressionSize = minCompressionSize;
+        this.adaptive = adaptive;
+        this.stats = stats;
+        startWindow();
     }
 
     @Override
@@ -31,37 +78,135 @@ public class CompressOutputStream extends OutputStream {
             }
         }
 
-        int compressedLength = len;
-        int uncompressedLength = 0;
-
-        if (bytes.length > MIN_COMPRESSION_SIZE) {
-              ByteArrayOutputStream baos = new ByteArrayOutputStream();
-              DeflaterOutputStream deflater = new DeflaterOutputStream(baos);
-              deflater.write(bytes, off, len);
-              deflater.finish();
-              deflater.close();
-              byte[] compressedBytes = baos.toByteArray();
-              baos.close();
-              if (compressedBytes.length < (int)(MIN_COMPRESSION_RATIO *len)) {
-                 compressedLength = compressedBytes.length;
-                 uncompressedLength = len;
-                 bytes = compressedBytes;
-                 off = 0;
-              }
+        if (len > minCompressionSize) {
+            if (adaptive && !compressing && ++packetsSinceProbe < PROBE_INTERVAL) {
+                stats.packetsNotTried.incrementAndGet();
+            } else {
+                packetsSinceProbe = 0;
+                boolean written = writeCompressed(bytes, off, len);
+                if (adaptive) {
+                    endPacket();
+                }
+                if (written) {
+                    return;
+                }
+            }
         }
 
-        header[0] = (byte)(compressedLength & 0xff);
-        header[1] = (byte)((compressedLength >> 8) & 0xff);
-        header[2] = (byte)((compressedLength >> 16) & 0xff);
-        header[3] = (byte) seqNo++;
-        header[4] = (byte)(uncompressedLength & 0xff);
-        header[5] = (byte)((uncompressedLength >> 8) & 0xff);
-        header[6] = (byte)((uncompressedLength >> 16) & 0xff);
-
+        writeHeader(header, len, 0);
         baseStream.write(header);
-        baseStream.write(bytes, off, compressedLength);
+        baseStream.write(bytes, off, len);
+    }
+
+    /**
+     * Deflate a packet, and write it if it shrinks enough.
+     * @return true if the packet was written
+     */
+    private boolean writeCompressed(byte[] bytes, int off, int len) throws IOException {
+        if (adaptive && !sampleShrinks(bytes, off, len)) {
+            stats.packetsSkipped.incrementAndGet();
+            stats.bytesSkipped.addAndGet(len);
+            return false;
+        }
+        int maxLength = (int)(MIN_COMPRESSION_RATIO * len);
+        byte[] buffer = compressBuffer;
+        if (buffer.length < HEADER_LENGTH + maxLength) {
+            buffer = new byte[HEADER_LENGTH + maxLength];
+            if (buffer.length <= MAX_KEPT_BUFFER_SIZE) {
+                compressBuffer = buffer;
+            }
+        }
+        long start = System.nanoTime();
+        int compressedLength = deflate(bytes, off, len, buffer, maxLength);
+        stats.compressNanos.addAndGet(System.nanoTime() - start);
+        if (compressedLength == 0) {
+            stats.packetsNotShrunk.incrementAndGet();
+            stats.bytesNotShrunk.addAndGet(len);
+            return false;
+        }
+        stats.packetsCompressed.incrementAndGet();
+        stats.bytesBeforeCompression.addAndGet(len);
+        stats.bytesAfterCompression.addAndGet(compressedLength);
+        writeHeader(buffer, compressedLength, len);
+        baseStream.write(buffer, 0, HEADER_LENGTH + compressedLength);
+        return true;
+    }
+
+    /**
+     * Count a packet deflated or sampled in adaptive mode. At the end of a window, compression goes on while the
+     * packets of the window shrank by MIN_COMPRESSION_RATIO overall, saving at least a byte per
+     * MAX_NANOS_PER_SAVED_BYTE of deflate time.
+     */
+    private void endPacket() {
+        if (++windowPackets < WINDOW_PACKETS) {
+            return;
+        }
+        long compressed = stats.bytesBeforeCompression.get() - windowBytesCompressed;
+        long afterCompression = stats.bytesAfterCompression.get() - windowBytesAfterCompression;
+        long notCompressed = stats.bytesNotShrunk.get() + stats.bytesSkipped.get() - windowBytesNotCompressed;
+        long nanos = stats.compressNanos.get() - windowNanos;
+        long saved = compressed - afterCompression;
+        boolean worthIt = saved >= (1 - MIN_COMPRESSION_RATIO) * (compressed + notCompressed)
+                && nanos <= MAX_NANOS_PER_SAVED_BYTE * saved;
+        if (worthIt != compressing) {
+            compressing = worthIt;
+            (worthIt ? stats.compressionResumptions : stats.compressionSuspensions).incrementAndGet();
+        }
+        startWindow();
+    }
+
+    private void startWindow() {
+        windowPackets = 0;
+        windowBytesCompressed = stats.bytesBeforeCompression.get();
+        windowBytesAfterCompression = stats.bytesAfterCompression.get();
+        windowBytesNotCompressed = stats.bytesNotShrunk.get() + stats.bytesSkipped.get();
+        windowNanos = stats.compressNanos.get();
+    }
+
+    /**
+     * Deflate a sample from the middle of the packet, where the data is (the start is the command and SQL text).
+     * @return true if the sample shrinks enough to be worth deflating the whole packet
+     */
+    private boolean sampleShrinks(byte[] bytes, int off, int len) {
+        if (len < 4 * SAMPLE_SIZE) {
+            return true;
+        }
+        int maxLength = (int)(MIN_COMPRESSION_RATIO * SAMPLE_SIZE);
+        if (compressBuffer.length < HEADER_LENGTH + maxLength) {
+            compressBuffer = new byte[HEADER_LENGTH + maxLength];
+        }
+        long start = System.nanoTime();
+        boolean shrinks = deflate(bytes, off + len / 2, SAMPLE_SIZE, compressBuffer, maxLength) > 0;
+        stats.compressNanos.addAndGet(System.nanoTime() - start);
+        return shrinks;
+    }
 
+    /**
+     * Deflate into buffer, after the header.
+     * @return compressed length, or 0 if it would not be smaller than maxLength
+     */
+    private int deflate(byte[] bytes, int off, int len, byte[] buffer, int maxLength) {
+        deflater.reset();
+        deflater.setInput(bytes, off, len);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished() && compressedLength < maxLength) {
+            compressedLength += deflater.deflate(buffer, HEADER_LENGTH + compressedLength,
+                    maxLength - compressedLength);
+        }
+        return deflater.finished() ? compressedLength : 0;
+    }
+
+    private void writeHeader(byte[] buffer, int compressedLength, int uncompressedLength) {
+        buffer[0] = (byte)(compressedLength & 0xff);
+        buffer[1] = (byte)((compressedLength >> 8) & 0xff);
+        buffer[2] = (byte)((compressedLength >> 16) & 0xff);
+        buffer[3] = (byte) seqNo++;
+        buffer[4] = (byte)(uncompressedLength & 0xff);
+        buffer[5] = (byte)((uncompressedLength >> 8) & 0xff);
+        buffer[6] = (byte)((uncompressedLength >> 16) & 0xff);
     }
+
     @Override
     public void write(byte[] bytes) throws IOException{
         if (bytes.length < 3)
@@ -79,4 +224,10 @@ public class CompressOutputStream extends OutputStream {
         baseStream.flush();
         seqNo = 0;
     }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        baseStream.close();
+    }
 }
@@ -0,0 +1,159 @@
+package org.mariadb.jdbc.internal.common.packet;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the compressed protocol for one connection, updated by CompressOutputStream and
+ * DecompressInputStream. Written by the thread using the connection, readable from any thread.
+ */
+public class CompressionStats {
+    final AtomicLong packetsCompressed = new AtomicLong();
+    final AtomicLong packetsNotShrunk = new AtomicLong();
+    final AtomicLong bytesNotShrunk = new AtomicLong();
+    final AtomicLong packetsSkipped = new AtomicLong();
+    final AtomicLong bytesSkipped = new AtomicLong();
+    final AtomicLong packetsNotTried = new AtomicLong();
+    final AtomicLong compressionSuspensions = new AtomicLong();
+    final AtomicLong compressionResumptions = new AtomicLong();
+    final AtomicLong bytesBeforeCompression = new AtomicLong();
+    final AtomicLong bytesAfterCompression = new AtomicLong();
+    final AtomicLong compressNanos = new AtomicLong();
+    final AtomicLong packetsDecompressed = new AtomicLong();
+    final AtomicLong bytesBeforeDecompression = new AtomicLong();
+    final AtomicLong bytesAfterDecompression = new AtomicLong();
+    final AtomicLong decompressNanos = new AtomicLong();
+
+    /**
+     * @return number of packets sent compressed
+     */
+    public long getPacketsCompressed() {
+        return packetsCompressed.get();
+    }
+
+    /**
+     * @return number of packets deflated, but sent uncompressed because they did not shrink enough
+     */
+    public long getPacketsNotShrunk() {
+        return packetsNotShrunk.get();
+    }
+
+    /**
+     * @return size of the packets deflated, but sent uncompressed because they did not shrink enough
+     */
+    public long getBytesNotShrunk() {
+        return bytesNotShrunk.get();
+    }
+
+    /**
+     * @return number of packets sent uncompressed without deflating them, because a sample of their
+     * data did not shrink (adaptive compression only)
+     */
+    public long getPacketsSkipped() {
+        return packetsSkipped.get();
+    }
+
+    /**
+     * @return size of the packets sent uncompressed because a sample of their data did not shrink
+     */
+    public long getBytesSkipped() {
+        return bytesSkipped.get();
+    }
+
+    /**
+     * @return number of packets sent uncompressed without deflating anything, because adaptive compression was
+     * suspended
+     */
+    public long getPacketsNotTried() {
+        return packetsNotTried.get();
+    }
+
+    /**
+     * @return number of times adaptive compression was suspended, because the recent packets did not shrink enough
+     * for the time spent deflating them
+     */
+    public long getCompressionSuspensions() {
+        return compressionSuspensions.get();
+    }
+
+    /**
+     * @return number of times adaptive compression was resumed, after packets deflated while suspended shrank
+     */
+    public long getCompressionResumptions() {
+        return compressionResumptions.get();
+    }
+
+    /**
+     * @return size of the packets sent compressed, before compression
+     */
+    public long getBytesBeforeCompression() {
+        return bytesBeforeCompression.get();
+    }
+
+    /**
+     * @return size of the packets sent compressed, after compression
+     */
+    public long getBytesAfterCompression() {
+        return bytesAfterCompression.get();
+    }
+
+    /**
+     * @return time spent deflating, including deflated samples and packets that did not shrink
+     */
+    public long getCompressNanos() {
+        return compressNanos.get();
+    }
+
+    /**
+     * @return number of compressed packets received
+     */
+    public long getPacketsDecompressed() {
+        return packetsDecompressed.get();
+    }
+
+    /**
+     * @return size of the compressed packets received
+     */
+    public long getBytesBeforeDecompression() {
+        return bytesBeforeDecompression.get();
+    }
+
+    /**
+     * @return size of the compressed packets received, after decompression
+     */
+    public long getBytesAfterDecompression() {
+        return bytesAfterDecompression.get();
+    }
+
+    /**
+     * @return time spent inflating
+     */
+    public long getDecompressNanos() {
+        return decompressNanos.get();
+    }
+
+    /**
+     * @return compressed size / uncompressed size of the packets sent compressed, 1 if none
+     */
+    public double getCompressionRatio() {
+        long before = bytesBeforeCompression.get();
+        return before == 0 ? 1 : (double) bytesAfterCompression.get() / before;
+    }
+
+    /**
+     * @return compressed size / uncompressed size of the compressed packets received, 1 if none
+     */
+    public double getDecompressionRatio() {
+        long after = bytesAfterDecompression.get();
+        return after == 0 ? 1 : (double) bytesBeforeDecompression.get() / after;
+    }
+
+    @Override
+    public String toString() {
+        return "compressed=" + packetsCompressed + ", notShrunk=" + packetsNotShrunk + ", skipped=" + packetsSkipped
+                + ", notTried=" + packetsNotTried + ", suspensions=" + compressionSuspensions
+                + ", resumptions=" + compressionResumptions
+                + ", compressionRatio=" + getCompressionRatio() + ", compressMs=" + compressNanos.get() / 1000000
+                + ", decompressed=" + packetsDecompressed + ", decompressionRatio=" + getDecompressionRatio()
+                + ", decompressMs=" + decompressNanos.get() / 1000000;
+    }
+}
@@ -2,7 +2,6 @@ package org.mariadb.jdbc.internal.common.packet;
 
 import org.mariadb.jdbc.internal.common.packet.buffer.ReadUtil;
 
-import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -15,10 +14,24 @@ public class DecompressInputStream extends InputStream{
     int remainingBytes;
     byte header[];
     boolean doDecompress;
-    ByteArrayInputStream decompressedByteStream;
+    /* reused for every packet of the connection */
+    Inflater inflater = new Inflater();
+    /* buffers reused for packets of the connection */
+    byte[] compressedBuffer = new byte[0];
+    byte[] decompressedBuffer = new byte[0];
+    /* current decompressed packet, in decompressedBuffer or a bigger one-time buffer */
+    byte[] decompressed;
+    int decompressedPosition;
+
+    CompressionStats stats;
 
     public DecompressInputStream(InputStream baseStream) {
+        this(baseStream, new CompressionStats());
+    }
+
+    public DecompressInputStream(InputStream baseStream, CompressionStats stats) {
         this.baseStream = baseStream;
+        this.stats = stats;
         header = new byte[7];
     }
 
@@ -34,7 +47,9 @@ public class DecompressInputStream extends InputStream{
         int ret;
         int bytesToRead = Math.min(remainingBytes, len);
         if (doDecompress) {
-            ret = decompressedByteStream.read(bytes, off, bytesToRead);
+            System.arraycopy(decompressed, decompressedPosition, bytes, off, bytesToRead);
+            decompressedPosition += bytesToRead;
+            ret = bytesToRead;
         }  else {
             ret = baseStream.read(bytes, off, bytesToRead);
         }
@@ -53,12 +68,34 @@ public class DecompressInputStream extends InputStream{
 
     @Override
     public int read() throws IOException {
-        byte[] b = new byte[1];
-        if (read(b) == 0)
-            return -1;
-        return (b[0] & 0xff);
+        if (remainingBytes == 0) {
+            nextPacket();
+        }
+        int b;
+        if (doDecompress) {
+            b = decompressed[decompressedPosition++] & 0xff;
+        } else {
+            b = baseStream.read();
+            if (b < 0) {
+                throw new EOFException("unexpected end of stream");
+            }
+        }
+        remainingBytes--;
+        return b;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        baseStream.close();
     }
 
+    private static byte[] reuse(byte[] buffer, int length) {
+        if (buffer.length >= length) {
+            return buffer;
+        }
+        return new byte[length];
+    }
 
     /**
      * Read packet header. If required, decompress compressed packet.
@@ -71,13 +108,28 @@ public class DecompressInputStream extends InputStream{
             if (decompressedLength != 0) {
                 doDecompress = true;
                 remainingBytes += decompressedLength;
-                byte[] compressedBuffer = new byte[compressedLength];
-                byte[] decompressedBuffer = new byte[decompressedLength];
-                ReadUtil.readFully(baseStream, compressedBuffer);
-                Inflater inflater = new Inflater();
-                inflater.setInput(compressedBuffer);
+                byte[] compressed = reuse(compressedBuffer, compressedLength);
+                decompressed = reuse(decompressedBuffer, decompressedLength);
+                if (compressed.length <= CompressOutputStream.MAX_KEPT_BUFFER_SIZE) {
+                    compressedBuffer = compressed;
+                }
+                if (decompressed.length <= CompressOutputStream.MAX_KEPT_BUFFER_SIZE) {
+                    decompressedBuffer = decompressed;
+                }
+                decompressedPosition = 0;
+                ReadUtil.readFully(baseStream, compressed, 0, compressedLength);
+                long start = System.nanoTime();
+                inflater.reset();
+                inflater.setInput(compressed, 0, compressedLength);
                 try {
-                   int n = inflater.inflate(decompressedBuffer);
+                   int n = 0;
+                   while (n < decompressedLength && !inflater.finished()) {
+                       int inflated = inflater.inflate(decompressed, n, decompressedLength - n);
+                       if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                           break;
+                       }
+                       n += inflated;
+                   }
                    if (n != decompressedLength)
                        throw new IOException("Invalid packet length after decompression "+n + ",expected "
                                + decompressedLength);
@@ -85,13 +137,15 @@ public class DecompressInputStream extends InputStream{
                 catch(DataFormatException dfe) {
                     throw new IOException(dfe);
                 }
-                inflater.end();
-                decompressedByteStream = new ByteArrayInputStream(decompressedBuffer);
+                stats.decompressNanos.addAndGet(System.nanoTime() - start);
+                stats.packetsDecompressed.incrementAndGet();
+                stats.bytesBeforeDecompression.addAndGet(compressedLength);
+                stats.bytesAfterDecompression.addAndGet(decompressedLength);
 
             }  else {
                 doDecompress = false;
                 remainingBytes += compressedLength;
-                decompressedByteStream = null;
+                decompressed = null;
             }
     }
 
@@ -51,10 +51,11 @@ package org.mariadb.jdbc.internal.common.packet;
 
 import org.mariadb.jdbc.internal.common.packet.buffer.Reader;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 
 
 public class ErrorPacket extends ResultPacket {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
     private final short errorNumber;
     private final byte sqlStateMarker;
     private final byte[] sqlState;
@@ -68,7 +69,7 @@ public class ErrorPacket extends ResultPacket {
         this.sqlStateMarker = reader.readByte();
         if (sqlStateMarker == '#') {
             this.sqlState = reader.readRawBytes(5);
-            this.message = reader.readString("UTF-8");
+            this.message = reader.readString(UTF8);
         }
         else {
             // Pre-4.1 message, still can be output in newer versions (e.g with 'Too many connections')
@@ -81,11 +82,7 @@ public class ErrorPacket extends ResultPacket {
                     break;
                 msgBuf[cnt++] = b;
             }
-            try {
-                this.message = new String(msgBuf, "UTF-8");
-            } catch (UnsupportedEncodingException uee) {
-                throw new AssertionError("UTF8 not supported");
-            }
+            this.message = new String(msgBuf, 0, cnt, UTF8);
             this.sqlState = "HY000".getBytes();
         }
     }
@@ -4,8 +4,10 @@ package org.mariadb.jdbc.internal.common.packet;
 import org.mariadb.jdbc.internal.common.packet.buffer.Reader;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 public class LocalInfilePacket extends ResultPacket{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
     private long fieldCount;
     private String fileName;
 
@@ -14,7 +16,7 @@ public class LocalInfilePacket extends ResultPacket{
         fieldCount = reader.getLengthEncodedBinary();
         if (fieldCount != -1)
             throw  new AssertionError("field count must be -1");
-        fileName = reader.readString("UTF-8");
+        fileName = reader.readString(UTF8);
     }
 
     public String getFileName() {
@@ -0,0 +1,13 @@
+package org.mariadb.jdbc.internal.common.packet;
+
+import java.io.IOException;
+
+/**
+ * The data of a LOAD DATA LOCAL INFILE could not be read. The data read so far has been sent, followed by the
+ * empty packet ending it : the server response still has to be read, and the connection can be used afterwards.
+ */
+public class LocalInfileReadException extends IOException {
+    public LocalInfileReadException(IOException cause) {
+        super(cause.getMessage(), cause);
+    }
+}
@@ -1,10 +1,17 @@
 package org.mariadb.jdbc.internal.common.packet;
 import org.mariadb.jdbc.internal.common.packet.commands.StreamedQueryPacket;
 import org.mariadb.jdbc.internal.common.query.MySQLQuery;
+import org.mariadb.jdbc.internal.mysql.TimeoutSocketChannel;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -15,6 +22,8 @@ public class PacketOutputStream extends OutputStream {
     private static final int MAX_PACKET_LENGTH = 0x00ffffff;
     private static final int SEQNO_OFFSET = 3;
     private static final int HEADER_LENGTH = 4;
+    /* max size of the direct buffer used to send files and channels */
+    private static final int MAX_FILE_BUFFER_SIZE = 1024 * 1024;
 
 
     OutputStream baseStream;
@@ -64,20 +73,112 @@ public class PacketOutputStream extends OutputStream {
         position = HEADER_LENGTH;
     }
 
-    /* Used by LOAD DATA INFILE. End of data is indicated by packet of length 0. */
+    /*
+     * Used by LOAD DATA INFILE. End of data is indicated by packet of length 0.
+     * If the stream cannot be read, the data is ended there and a LocalInfileReadException is thrown.
+     */
     public void sendFile(InputStream is, int seq) throws IOException{
     	int bufferSize = this.maxAllowedPacket > 0 ? Math.min(this.maxAllowedPacket, MAX_PACKET_LENGTH) : 1024;
     	bufferSize -= HEADER_LENGTH;
         byte[] buffer = new byte[bufferSize];
         int len;
-        while((len = is.read(buffer)) > 0) {
-          startPacket(seq++, false);
-          write(buffer, 0, len);
-          finishPacket();
+        for (;;) {
+            try {
+                len = is.read(buffer);
+            } catch (IOException e) {
+                writeEmptyPacket(seq);
+                throw new LocalInfileReadException(e);
+            }
+            if (len <= 0) {
+                break;
+            }
+            startPacket(seq++, false);
+            write(buffer, 0, len);
+            finishPacket();
         }
         writeEmptyPacket(seq);
     }
 
+    /**
+     * Used by LOAD DATA INFILE for files and channels. Packets are written straight to the connection, without going
+     * through the packet buffer. File contents are sent with FileChannel.transferTo when the connection is a plain
+     * socket channel (transport=nio). Otherwise they are read behind the packet header into a direct buffer written
+     * to the socket channel, or into a heap buffer whose array is written to the socket stream : a direct buffer would
+     * be copied back to the heap by the stream.
+     * @param src file contents
+     * @param seq sequence number of the first packet
+     * @throws LocalInfileReadException if src cannot be read, after ending the data sent so far
+     * @throws IOException if an I/O error occurs
+     */
+    public void sendFile(ReadableByteChannel src, int seq) throws IOException {
+        if (baseStream instanceof CompressOutputStream) {
+            sendFile(Channels.newInputStream(src), seq);
+            return;
+        }
+        int packetSize = this.maxAllowedPacket > 0 ? Math.min(this.maxAllowedPacket, MAX_PACKET_LENGTH) : 1024;
+        packetSize -= HEADER_LENGTH;
+        int bufferSize = HEADER_LENGTH + Math.min(packetSize, MAX_FILE_BUFFER_SIZE);
+        if (!(baseStream instanceof ChannelOutputStream)) {
+            ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+            int len;
+            while ((len = readPacket(src, buffer, seq)) > 0) {
+                baseStream.write(buffer.array(), 0, HEADER_LENGTH + len);
+                seq++;
+            }
+        } else {
+            WritableByteChannel target = ((ChannelOutputStream) baseStream).getChannel();
+            if (src instanceof FileChannel && target instanceof TimeoutSocketChannel) {
+                FileChannel file = (FileChannel) src;
+                TimeoutSocketChannel socketChannel = (TimeoutSocketChannel) target;
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                long position = file.position();
+                long remaining = file.size() - position;
+                while (remaining > 0) {
+                    int len = (int) Math.min(remaining, packetSize);
+                    header.clear();
+                    header.put((byte) len).put((byte) (len >> 8)).put((byte) (len >> 16)).put((byte) seq++);
+                    header.flip();
+                    writeFully(target, header);
+                    if (socketChannel.transferFrom(file, position, len) != len) {
+                        throw new EOFException("file truncated while being sent");
+                    }
+                    position += len;
+                    remaining -= len;
+                }
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+                while (readPacket(src, buffer, seq) > 0) {
+                    buffer.flip();
+                    writeFully(target, buffer);
+                    seq++;
+                }
+            }
+        }
+        writeEmptyPacket(seq);
+    }
+
+    /* fill the buffer with a packet of data read from src, and return the data length, 0 at the end of src */
+    private int readPacket(ReadableByteChannel src, ByteBuffer buffer, int seq) throws IOException {
+        buffer.clear();
+        buffer.position(HEADER_LENGTH);
+        try {
+            while (buffer.hasRemaining() && src.read(buffer) >= 0) {
+            }
+        } catch (IOException e) {
+            writeEmptyPacket(seq);
+            throw new LocalInfileReadException(e);
+        }
+        int len = buffer.position() - HEADER_LENGTH;
+        buffer.put(0, (byte) len).put(1, (byte) (len >> 8)).put(2, (byte) (len >> 16)).put(3, (byte) seq);
+        return len;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
     public void finishPacket() throws IOException{
         if (this.seqNo == -1) {
             throw new AssertionError("Packet not started");
@@ -99,12 +200,7 @@ public class PacketOutputStream extends OutputStream {
 
         int bytesToWrite= Math.min(len, MAX_PACKET_LENGTH + HEADER_LENGTH - position);
 
-        // Grow buffer if required
-        if (byteBuffer.length - position < bytesToWrite) {
-            byte[] tmp = new byte[Math.min(MAX_PACKET_LENGTH + HEADER_LENGTH, 2*(byteBuffer.length + bytesToWrite))];
-            System.arraycopy(byteBuffer, 0, tmp, 0, position);
-            byteBuffer = tmp;
-        }
+        ensureCapacity(bytesToWrite);
         System.arraycopy(bytes, off, byteBuffer, position,  bytesToWrite);
         position += bytesToWrite;
         off += bytesToWrite;
@@ -116,6 +212,103 @@ public class PacketOutputStream extends OutputStream {
     }
 
 
+    /* Grow buffer if required */
+    private void ensureCapacity(int bytesToWrite) {
+        if (byteBuffer.length - position < bytesToWrite) {
+            byte[] tmp = new byte[Math.min(MAX_PACKET_LENGTH + HEADER_LENGTH, 2*(byteBuffer.length + bytesToWrite))];
+            System.arraycopy(byteBuffer, 0, tmp, 0, position);
+            byteBuffer = tmp;
+        }
+    }
+
+    /**
+     * Write characters as UTF-8 escaped for a quoted SQL string literal, encoding directly into the packet buffer.
+     * Unpaired surrogates are written as '?', like String.getBytes() does.
+     * @param chars characters to write
+     * @param noBackslashEscapes if true, only single quotes are escaped (by doubling them)
+     * @throws IOException if an error occurs while writing
+     */
+    public void writeEscaped(CharSequence chars, boolean noBackslashEscapes) throws IOException {
+        if (this.seqNo == -1) {
+            throw new AssertionError("Use PacketOutputStream.startPacket() before write()");
+        }
+        int len = chars.length();
+        int i = 0;
+        while (i < len) {
+            /* every char takes at most 3 bytes (escaped ASCII 2 bytes, surrogate pair 4 bytes for 2 chars) */
+            int room = MAX_PACKET_LENGTH + HEADER_LENGTH - position;
+            int charsToWrite = Math.min(len - i, Math.min(8192, room / 3 - 1));
+            if (charsToWrite <= 0) {
+                /* near the end of the packet : go through write(), which splits packets */
+                i = writeEscapedChar(chars, i, len, noBackslashEscapes);
+                continue;
+            }
+            ensureCapacity(3 * charsToWrite + 3);
+            byte[] buf = byteBuffer;
+            int pos = position;
+            int end = i + charsToWrite;
+            while (i < end) {
+                char c = chars.charAt(i++);
+                if (c < 0x80) {
+                    if (noBackslashEscapes) {
+                        if (c == '\'') {
+                            buf[pos++] = '\'';
+                        }
+                    } else if (c == '\\' || c == '\'' || c == '"' || c == 0) {
+                        buf[pos++] = '\\';
+                    }
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xc0 | (c >> 6));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3f));
+                } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                    if (Character.isHighSurrogate(c) && i < len && Character.isLowSurrogate(chars.charAt(i))) {
+                        int codePoint = Character.toCodePoint(c, chars.charAt(i++));
+                        buf[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                        buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                        buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                        buf[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+                    } else {
+                        buf[pos++] = '?';
+                    }
+                } else {
+                    buf[pos++] = (byte) (0xe0 | (c >> 12));
+                    buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            position = pos;
+            if (position == MAX_PACKET_LENGTH + HEADER_LENGTH) {
+                internalFlush();
+            }
+        }
+    }
+
+    /* Slow path of writeEscaped(CharSequence) for a single character, returns the index of the next char */
+    private int writeEscapedChar(CharSequence chars, int i, int len, boolean noBackslashEscapes) throws IOException {
+        char c = chars.charAt(i++);
+        if (c < 0x80) {
+            if (noBackslashEscapes) {
+                if (c == '\'') {
+                    write('\'');
+                }
+            } else if (c == '\\' || c == '\'' || c == '"' || c == 0) {
+                write('\\');
+            }
+            write(c);
+            return i;
+        }
+        String str;
+        if (Character.isHighSurrogate(c) && i < len && Character.isLowSurrogate(chars.charAt(i))) {
+            str = new String(new char[] {c, chars.charAt(i++)});
+        } else {
+            str = String.valueOf(c);
+        }
+        byte[] bytes = str.getBytes("UTF-8");
+        write(bytes, 0, bytes.length);
+        return i;
+    }
+
     @Override
     public  void flush() throws IOException {
         throw new AssertionError("Do not call flush() on PacketOutputStream. use finishPacket() instead.");
@@ -150,8 +343,14 @@ public class PacketOutputStream extends OutputStream {
 
     @Override
     public void write(int b) throws IOException {
-        byte[] a={(byte)b};
-        write(a);
+        if (this.seqNo == -1) {
+            throw new AssertionError("Use PacketOutputStream.startPacket() before write()");
+        }
+        ensureCapacity(1);
+        byteBuffer[position++] = (byte) b;
+        if (position == MAX_PACKET_LENGTH + HEADER_LENGTH) {
+            internalFlush();
+        }
     }
 
     @Override
@@ -63,7 +63,8 @@ import java.nio.ByteOrder;
  */
 public final class RawPacket {
     private final ByteBuffer byteBuffer;
-    private final int packetSeq;
+    private int packetSeq;
+    private boolean shared;
 
     /**
      * Get the next packet from the stream
@@ -94,6 +95,41 @@ public final class RawPacket {
         this.packetSeq = packetSeq;
     }
 
+    /**
+     * Reuse this packet for the next packet read into the backing array of its byte buffer.
+     * The buffer is rewound and limited to the new packet length.
+     *
+     * @param length the length of the packet read into the backing array
+     * @param packetSeq the packet sequence
+     */
+    void reuse(final int length, final int packetSeq) {
+        byteBuffer.clear();
+        byteBuffer.limit(length);
+        this.packetSeq = packetSeq;
+        this.shared = true;
+    }
+
+    /**
+     * Get a packet that stays valid after the next packet is fetched.
+     * Packets handed out from a reusable receive buffer are copied (keeping the current position),
+     * other packets are returned as is.
+     *
+     * @return a packet that is not backed by the receive buffer
+     */
+    public RawPacket detach() {
+        if (!shared) {
+            return this;
+        }
+        byte[] rawBytes = new byte[byteBuffer.limit()];
+        int pos = byteBuffer.position();
+        byteBuffer.rewind();
+        byteBuffer.get(rawBytes);
+        byteBuffer.position(pos);
+        ByteBuffer copy = ByteBuffer.wrap(rawBytes).order(ByteOrder.LITTLE_ENDIAN);
+        copy.position(pos);
+        return new RawPacket(copy, packetSeq);
+    }
+
     /**
      * Get the byte buffer backing this packet
      *
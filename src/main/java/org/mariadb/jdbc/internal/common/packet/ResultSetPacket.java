@@ -59,6 +59,7 @@ import java.io.IOException;
  */
 public class ResultSetPacket extends ResultPacket {
     private final long fieldCount;
+    private final boolean metadataFollows;
 
     public ResultSetPacket(final RawPacket rawPacket) throws IOException {
         final Reader reader = new Reader(rawPacket);
@@ -68,6 +69,12 @@ public class ResultSetPacket extends ResultPacket {
             // Should never get there, it is LocalInfilePacket, not ResultSetPacket
             throw new AssertionError("field count is -1 in ResultSetPacket.");
         }
+        /* with the MariaDB metadata cache capability, a byte tells whether the column definitions follow */
+        if (reader.getRemainingSize() == 1) {
+            metadataFollows = reader.readByte() != 0;
+        } else {
+            metadataFollows = true;
+        }
         if (reader.getRemainingSize() != 0) {
               throw new IOException("invalid packet contents ,expected result set packet, actual packet hexdump = " +
                     MySQLProtocol.hexdump(rawPacket.getByteBuffer(),0));
@@ -85,4 +92,12 @@ public class ResultSetPacket extends ResultPacket {
     public long getFieldCount() {
         return fieldCount;
     }
+
+    /**
+     * @return false if the server did not send the column definitions, which are the ones of the previous result
+     * of the prepared statement
+     */
+    public boolean isMetadataFollows() {
+        return metadataFollows;
+    }
 }
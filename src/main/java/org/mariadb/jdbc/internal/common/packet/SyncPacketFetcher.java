@@ -51,20 +51,69 @@ OF SUCH DAMAGE.
 package org.mariadb.jdbc.internal.common.packet;
 
 import org.mariadb.jdbc.internal.common.PacketFetcher;
+import org.mariadb.jdbc.internal.common.packet.buffer.ReadUtil;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 public class SyncPacketFetcher implements PacketFetcher {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    /* do not keep a buffer grown by a huge packet once small packets come again */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
 
     private final InputStream inputStream;
+    private final boolean reuseBuffer;
+    private final byte[] header;
+    private RawPacket sharedPacket;
 
     public SyncPacketFetcher(final InputStream is) {
+        this(is, false);
+    }
+
+    /**
+     * Create a packet fetcher.
+     *
+     * If reuseBuffer is true, all packets are read into one receive buffer owned by the fetcher, and the
+     * returned packets are views of that buffer which are only valid until the next call to getRawPacket().
+     * Callers that need to keep a packet must use RawPacket.detach().
+     *
+     * @param is the input stream to read packets from
+     * @param reuseBuffer read packets into a reusable receive buffer instead of allocating one per packet
+     */
+    public SyncPacketFetcher(final InputStream is, boolean reuseBuffer) {
         this.inputStream=is;
+        this.reuseBuffer = reuseBuffer;
+        if (reuseBuffer) {
+            header = new byte[4];
+            sharedPacket = createSharedPacket(INITIAL_BUFFER_SIZE);
+        } else {
+            header = null;
+        }
+    }
+
+    private static RawPacket createSharedPacket(int size) {
+        return new RawPacket(ByteBuffer.wrap(new byte[size]).order(ByteOrder.LITTLE_ENDIAN), 0);
     }
 
     public RawPacket getRawPacket() throws IOException {
-        return RawPacket.nextPacket(inputStream);
+        if (!reuseBuffer) {
+            return RawPacket.nextPacket(inputStream);
+        }
+        ReadUtil.readFully(inputStream, header);
+        int length = (header[0] & 0xff) + ((header[1] & 0xff) << 8) + ((header[2] & 0xff) << 16);
+        int packetSeq = header[3];
+
+        int capacity = sharedPacket.getByteBuffer().capacity();
+        if (length > capacity) {
+            sharedPacket = createSharedPacket(Math.max(length, Math.min(capacity * 2, 0xffffff)));
+        } else if (capacity > MAX_RETAINED_BUFFER_SIZE && length <= INITIAL_BUFFER_SIZE) {
+            sharedPacket = createSharedPacket(INITIAL_BUFFER_SIZE);
+        }
+        ReadUtil.readFully(inputStream, sharedPacket.getByteBuffer().array(), 0, length);
+        sharedPacket.reuse(length, packetSeq);
+        return sharedPacket;
     }
 
     public void clearInputStream() throws IOException {
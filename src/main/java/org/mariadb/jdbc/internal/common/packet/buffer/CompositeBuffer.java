@@ -0,0 +1,94 @@
+package org.mariadb.jdbc.internal.common.packet.buffer;
+
+import org.mariadb.jdbc.internal.common.PacketFetcher;
+import org.mariadb.jdbc.internal.common.packet.RawPacket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A payload split over several packets. Payloads of 16MB - 1 bytes and more are sent as a chain of
+ * max-length packets, terminated by a shorter (possibly empty) packet.
+ *
+ * The chain is walked lazily : the next packet is fetched only when the current one has been read completely,
+ * so packets are never copied into a larger buffer and can be views of the fetcher's receive buffer.
+ */
+public class CompositeBuffer {
+    public static final int MAX_PACKET_LENGTH = 0xffffff;
+
+    private final PacketFetcher packetFetcher;
+    private ByteBuffer current;
+
+    public CompositeBuffer(RawPacket rawPacket, PacketFetcher packetFetcher) {
+        this.current = rawPacket.getByteBuffer();
+        this.packetFetcher = packetFetcher;
+    }
+
+    /**
+     * Get the packet currently read.
+     * @return byte buffer of the current packet, positioned at the next byte to read
+     */
+    public ByteBuffer current() {
+        return current;
+    }
+
+    /**
+     * Make sure the current packet has data left, moving to the following packet of the chain if needed.
+     * @return false if the end of the payload is reached
+     * @throws IOException if the next packet cannot be read
+     */
+    public boolean ensureRemaining() throws IOException {
+        while (!current.hasRemaining()) {
+            if (current.limit() != MAX_PACKET_LENGTH) {
+                return false;
+            }
+            current = packetFetcher.getRawPacket().getByteBuffer();
+        }
+        return true;
+    }
+
+    /**
+     * Skip the rest of the payload, up to the packet ending the chain : a payload of a multiple of 16MB - 1 bytes
+     * is followed by an empty packet, which is read too.
+     * @throws IOException if the next packet cannot be read
+     */
+    public void skipToEnd() throws IOException {
+        while (ensureRemaining()) {
+            current.position(current.limit());
+        }
+    }
+
+    public byte get() throws IOException {
+        if (!ensureRemaining()) {
+            throw new EOFException("unexpected end of packet");
+        }
+        return current.get();
+    }
+
+    /**
+     * Read bytes that may span several packets.
+     */
+    public void get(byte[] dst, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!ensureRemaining()) {
+                throw new EOFException("unexpected end of packet, " + len + " bytes missing");
+            }
+            int chunk = Math.min(len, current.remaining());
+            current.get(dst, off, chunk);
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    public void skip(long bytesToSkip) throws IOException {
+        while (bytesToSkip > 0) {
+            if (!ensureRemaining()) {
+                throw new EOFException("unexpected end of packet, " + bytesToSkip + " bytes missing");
+            }
+            int chunk = (int) Math.min(bytesToSkip, current.remaining());
+            current.position(current.position() + chunk);
+            bytesToSkip -= chunk;
+        }
+    }
+}
@@ -49,39 +49,54 @@ OF SUCH DAMAGE.
 
 package org.mariadb.jdbc.internal.common.packet.buffer;
 
+import org.mariadb.jdbc.internal.common.PacketFetcher;
+import org.mariadb.jdbc.internal.common.StringDecoder;
 import org.mariadb.jdbc.internal.common.packet.RawPacket;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 
 
 public class Reader {
     private final byte packetSeq;
     private ByteBuffer byteBuffer;
+    private final CompositeBuffer compositeBuffer;
 
 
     public Reader(final RawPacket rawPacket) {
         this.packetSeq = 0;
         byteBuffer = rawPacket.getByteBuffer();
+        compositeBuffer = null;
+    }
+
+    /**
+     * Create a reader for a payload that may continue in the following packets.
+     * Length encoded values are then read across packet boundaries, fetching the next packets as needed.
+     *
+     * @param rawPacket first packet of the payload
+     * @param packetFetcher fetcher to read the following packets from
+     */
+    public Reader(final RawPacket rawPacket, final PacketFetcher packetFetcher) {
+        this.packetSeq = 0;
+        compositeBuffer = new CompositeBuffer(rawPacket, packetFetcher);
+        byteBuffer = compositeBuffer.current();
     }
 
     /**
      * Reads a string from the buffer, looks for a 0 to end the string
      *
-     * @param charset the charset to use, for example ASCII
+     * @param charset the charset to use
      * @return the read string
      */
-    public String readString(final String charset) {
+    public String readString(final Charset charset) {
         byte ch;
         int cnt = 0;
         final byte [] byteArrBuff = new byte[byteBuffer.remaining()];
         while (byteBuffer.remaining() > 0 && ((ch = byteBuffer.get()) != 0)) {
             byteArrBuff[cnt++] = ch;
         }
-        return new String(byteArrBuff,0,cnt,Charset.forName(charset));
+        return new String(byteArrBuff,0,cnt,charset);
     }
 
     /**
@@ -136,15 +151,35 @@ public class Reader {
         return bytesToSkip;
     }
 
-    public Reader skipLengthEncodedBytes() {
+    public Reader skipLengthEncodedBytes() throws IOException {
         long encLength = getLengthEncodedBinary();
         if (encLength == -1) {
                return null;
         }
+        if (compositeBuffer != null) {
+            compositeBuffer.skip(encLength);
+            byteBuffer = compositeBuffer.current();
+            return this;
+        }
         skipBytes((int)encLength);
         return this;
     }
     
+    /**
+     * Skip the rest of the payload. For a payload continued in the following packets, the packets up to the one
+     * ending it are read, so that the next packet fetched is the one following the payload.
+     *
+     * @throws IOException if the next packet cannot be read
+     */
+    public void skipToEnd() throws IOException {
+        if (compositeBuffer != null) {
+            compositeBuffer.skipToEnd();
+            byteBuffer = compositeBuffer.current();
+            return;
+        }
+        byteBuffer.position(byteBuffer.limit());
+    }
+
     public int read24bitword(){
         final byte[] tmpArr = new byte[3];
         for (int i = 0; i < 3; i++) {
@@ -154,7 +189,10 @@ public class Reader {
         return (tmpArr[0] & 0xff) + ((tmpArr[1] & 0xff) << 8) + ((tmpArr[2] & 0xff) << 16);
     }
 
-    public long getLengthEncodedBinary() {
+    public long getLengthEncodedBinary() throws IOException {
+        if (compositeBuffer != null && byteBuffer.remaining() < 9) {
+            return getSplitLengthEncodedBinary();
+        }
         if(byteBuffer.remaining() == 0) {
             return 0;
         }
@@ -179,18 +217,42 @@ public class Reader {
         return 0;
     }
 
-    public String getLengthEncodedString() {
+    /* length encoded integer that may straddle a packet boundary */
+    private long getSplitLengthEncodedBinary() throws IOException {
+        if (!compositeBuffer.ensureRemaining()) {
+            return 0;
+        }
+        final int type = compositeBuffer.get() & 0xff;
+        int bytes;
+        if (type == 251) {
+            byteBuffer = compositeBuffer.current();
+            return -1;
+        } else if (type == 252) {
+            bytes = 2;
+        } else if (type == 253) {
+            bytes = 3;
+        } else if (type == 254) {
+            bytes = 8;
+        } else {
+            byteBuffer = compositeBuffer.current();
+            return (type <= 250) ? type : 0;
+        }
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value |= ((long) (compositeBuffer.get() & 0xff)) << (8 * i);
+        }
+        byteBuffer = compositeBuffer.current();
+        return value;
+    }
+
+    public String getLengthEncodedString() throws IOException {
         final long encLength = getLengthEncodedBinary();
         if (encLength == -1) {
             return null;
         }
         final byte[] tmpBuf = new byte[(int) encLength];
         byteBuffer.get(tmpBuf); 
-        try {
-            return new String(tmpBuf, "UTF-8");
-        } catch (UnsupportedEncodingException uee) {
-            throw new AssertionError("UTF-8 not supported");
-        }
+        return StringDecoder.UTF8.decode(tmpBuf);
     }
 
     public byte[] getLengthEncodedBytes() throws IOException {
@@ -199,6 +261,12 @@ public class Reader {
             return null;
         }
         final byte[] tmpBuf = new byte[(int) encLength];
+        if (compositeBuffer != null) {
+            /* the value is assembled exactly once, even if it spans several packets */
+            compositeBuffer.get(tmpBuf, 0, tmpBuf.length);
+            byteBuffer = compositeBuffer.current();
+            return tmpBuf;
+        }
         byteBuffer.get(tmpBuf);
         return tmpBuf;
     }
@@ -220,25 +288,4 @@ public class Reader {
     public int getRemainingSize() {
         return byteBuffer.remaining();
     }
-
-    public void appendPacket(RawPacket rawPacket) {
-        ByteBuffer newBuffer = ByteBuffer.allocate(byteBuffer.capacity() + rawPacket.getByteBuffer().capacity()).order(ByteOrder.LITTLE_ENDIAN);
-        int pos = byteBuffer.position();
-        byteBuffer.rewind();
-        newBuffer.put(byteBuffer);
-        newBuffer.put(rawPacket.getByteBuffer());
-        newBuffer.position(pos);
-        byteBuffer = newBuffer;
-    }
-
-    public long getSilentLengthEncodedBinary(){
-        if (byteBuffer.remaining() == 0)
-            return 0;
-        int pos1 = byteBuffer.position();
-        byteBuffer.mark();
-        long valueLen = getLengthEncodedBinary();
-        int pos2 = byteBuffer.position();
-        byteBuffer.reset();
-        return valueLen + (pos2 - pos1);
-    }
 }
\ No newline at end of file
@@ -54,11 +54,7 @@ import org.mariadb.jdbc.internal.common.query.parameters.ParameterHolder;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
-import java.util.List;
-
-import static org.mariadb.jdbc.internal.common.Utils.createQueryParts;
 
 
 public class MySQLParameterizedQuery implements ParameterizedQuery {
@@ -67,19 +63,22 @@ public class MySQLParameterizedQuery implements ParameterizedQuery {
     private int paramCount;
     private String query;
     private byte[][] queryPartsArray;
+    private QueryType queryType;
 
     public MySQLParameterizedQuery(String query, boolean noBackslashEscapes) {
-        this.query = query;
-        List<String> queryParts = createQueryParts(query, noBackslashEscapes);
-        queryPartsArray = new byte[queryParts.size()][];
-        for(int i=0;i < queryParts.size(); i++) {
-            try {
-                queryPartsArray[i] = queryParts.get(i).getBytes("UTF-8");
-            } catch (UnsupportedEncodingException e) {
-                throw new RuntimeException("UTF-8 not supported", e);
-            }
-        }
-        paramCount = queryParts.size() - 1;
+        this(new QueryTemplate(query, noBackslashEscapes));
+    }
+
+    /**
+     * A query with the parsed SQL of a template, usually shared with other queries through QueryTemplate.get().
+     *
+     * @param template the parsed SQL
+     */
+    public MySQLParameterizedQuery(QueryTemplate template) {
+        query = template.getQuery();
+        queryPartsArray = template.getQueryPartsArray();
+        queryType = template.getQueryType();
+        paramCount = template.getParamCount();
         parameters = new ParameterHolder[paramCount];
     }
 
@@ -95,6 +94,7 @@ public class MySQLParameterizedQuery implements ParameterizedQuery {
         q.paramCount = paramCount;
         q.query = query;
         q.queryPartsArray = queryPartsArray;
+        q.queryType = queryType;
         return q;
     }
 
@@ -164,7 +164,7 @@ public class MySQLParameterizedQuery implements ParameterizedQuery {
     }
 
     public QueryType getQueryType() {
-        return QueryType.classifyQuery(query);
+        return queryType;
     }
 
     public int getParamCount() {
@@ -0,0 +1,130 @@
+package org.mariadb.jdbc.internal.common.query;
+
+import org.mariadb.jdbc.internal.common.Utils;
+
+import java.io.UnsupportedEncodingException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The parsed SQL of a client prepared statement : the escape processed SQL, split around its parameter markers,
+ * with the parts encoded in UTF-8.
+ *
+ * Templates are immutable. They are cached by SQL text, and shared by all the connections with the same
+ * NO_BACKSLASH_ESCAPES mode, so that preparing the same SQL again does not parse it again.
+ */
+public final class QueryTemplate {
+    /* SQL longer than this is parsed each time, rather than filling the caches with a few large entries */
+    private static final int MAX_CACHED_SQL_LENGTH = 16384;
+    private static final int MAX_CACHED_ENTRIES = 1024;
+
+    /* one cache per noBackslashEscapes setting */
+    private static final BoundedCache<QueryTemplate> TEMPLATES = new BoundedCache<QueryTemplate>();
+    private static final BoundedCache<QueryTemplate> TEMPLATES_NO_BACKSLASH_ESCAPES = new BoundedCache<QueryTemplate>();
+    private static final BoundedCache<String> NATIVE_SQL = new BoundedCache<String>();
+    private static final BoundedCache<String> NATIVE_SQL_NO_BACKSLASH_ESCAPES = new BoundedCache<String>();
+
+    private final String query;
+    private final byte[][] queryPartsArray;
+    private final QueryType queryType;
+
+    /**
+     * Parse SQL that is already escape processed.
+     *
+     * @param query the SQL
+     * @param noBackslashEscapes true if backslashes do not escape characters in strings
+     */
+    public QueryTemplate(String query, boolean noBackslashEscapes) {
+        this.query = query;
+        List<String> queryParts = Utils.createQueryParts(query, noBackslashEscapes);
+        queryPartsArray = new byte[queryParts.size()][];
+        for (int i = 0; i < queryParts.size(); i++) {
+            try {
+                queryPartsArray[i] = queryParts.get(i).getBytes("UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException("UTF-8 not supported", e);
+            }
+        }
+        queryType = QueryType.classifyQuery(query);
+    }
+
+    /**
+     * Get the template of SQL, escape processed with Utils.nativeSQL().
+     *
+     * @param sql the SQL, with JDBC escapes
+     * @param noBackslashEscapes true if backslashes do not escape characters in strings
+     * @return the template
+     * @throws SQLException if an escape sequence is invalid
+     */
+    public static QueryTemplate get(String sql, boolean noBackslashEscapes) throws SQLException {
+        if (sql.length() > MAX_CACHED_SQL_LENGTH) {
+            return new QueryTemplate(Utils.nativeSQL(sql, noBackslashEscapes), noBackslashEscapes);
+        }
+        BoundedCache<QueryTemplate> cache = noBackslashEscapes ? TEMPLATES_NO_BACKSLASH_ESCAPES : TEMPLATES;
+        QueryTemplate template = cache.get(sql);
+        if (template == null) {
+            template = new QueryTemplate(nativeSQL(sql, noBackslashEscapes), noBackslashEscapes);
+            cache.put(sql, template);
+        }
+        return template;
+    }
+
+    /**
+     * Utils.nativeSQL(), with the result cached for SQL containing escape sequences.
+     *
+     * @param sql the SQL, with JDBC escapes
+     * @param noBackslashEscapes true if backslashes do not escape characters in strings
+     * @return the escape processed SQL
+     * @throws SQLException if an escape sequence is invalid
+     */
+    public static String nativeSQL(String sql, boolean noBackslashEscapes) throws SQLException {
+        if (sql.indexOf('{') == -1 || sql.length() > MAX_CACHED_SQL_LENGTH) {
+            return Utils.nativeSQL(sql, noBackslashEscapes);
+        }
+        BoundedCache<String> cache = noBackslashEscapes ? NATIVE_SQL_NO_BACKSLASH_ESCAPES : NATIVE_SQL;
+        String nativeSql = cache.get(sql);
+        if (nativeSql == null) {
+            nativeSql = Utils.nativeSQL(sql, noBackslashEscapes);
+            cache.put(sql, nativeSql);
+        }
+        return nativeSql;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public byte[][] getQueryPartsArray() {
+        return queryPartsArray;
+    }
+
+    public int getParamCount() {
+        return queryPartsArray.length - 1;
+    }
+
+    public QueryType getQueryType() {
+        return queryType;
+    }
+
+    /**
+     * A concurrent map that is emptied when it holds MAX_CACHED_ENTRIES entries, which is cheaper than tracking
+     * the least recently used entries on every lookup : the SQL still in use is cached again after it is emptied.
+     */
+    private static final class BoundedCache<V> {
+        private final ConcurrentHashMap<String, V> map = new ConcurrentHashMap<String, V>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        V get(String sql) {
+            return map.get(sql);
+        }
+
+        void put(String sql, V value) {
+            if (map.putIfAbsent(sql, value) == null && size.incrementAndGet() > MAX_CACHED_ENTRIES) {
+                map.clear();
+                size.set(0);
+            }
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package org.mariadb.jdbc.internal.common.query.parameters;
 
+import org.mariadb.jdbc.internal.common.DateTimeCodec;
+import org.mariadb.jdbc.internal.common.packet.PacketOutputStream;
+
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.sql.Time;
 import java.sql.Timestamp;
@@ -16,20 +20,21 @@ public class ParameterWriter {
     static final Charset UTF8 = Charset.forName("UTF-8");
     static final byte[] QUOTE = {'\''};
 
+    /*
+     * Runs of bytes that need no escaping are written with a single write() call,
+     * instead of one call per byte.
+     */
     private static void writeBytesEscaped(OutputStream out, byte[] bytes, int count, boolean noBackslashEscapes)
             throws IOException{
+        int runStart = 0;
         if (noBackslashEscapes) {
-           for (int i = 0; i < count; i++) {
-                byte b = bytes[i];
-                switch(b) {
-                    case '\'':
-                        out.write('\'');
-                        out.write(b);
-                        break;
-                    default:
-                        out.write(b);
+            for (int i = 0; i < count; i++) {
+                if (bytes[i] == '\'') {
+                    out.write(bytes, runStart, i + 1 - runStart);
+                    out.write('\'');
+                    runStart = i + 1;
                 }
-           }
+            }
         } else {
             for (int i = 0; i < count; i++) {
                 byte b = bytes[i];
@@ -38,14 +43,30 @@ public class ParameterWriter {
                     case '\'':
                     case '"':
                     case 0:
+                        out.write(bytes, runStart, i - runStart);
                         out.write('\\');
                         out.write(b);
+                        runStart = i + 1;
                         break;
                     default:
-                        out.write(b);
+                        break;
                 }
             }
         }
+        out.write(bytes, runStart, count - runStart);
+    }
+
+    /*
+     * Strings are encoded directly into the packet buffer when possible.
+     */
+    private static void writeCharsEscaped(OutputStream out, CharSequence chars, boolean noBackslashEscapes)
+            throws IOException {
+        if (out instanceof PacketOutputStream) {
+            ((PacketOutputStream) out).writeEscaped(chars, noBackslashEscapes);
+        } else {
+            byte[] bytes = chars.toString().getBytes(UTF8);
+            writeBytesEscaped(out, bytes, bytes.length, noBackslashEscapes);
+        }
     }
 
     private static void writeBytesEscaped(OutputStream out, byte[] bytes, boolean noBackslashEscapes) throws IOException{
@@ -59,9 +80,8 @@ public class ParameterWriter {
     }
 
     public static void write(OutputStream out, String s, boolean noBackslashEscapes) throws IOException {
-        byte[] bytes = s.getBytes(UTF8);
         out.write(QUOTE);
-        writeBytesEscaped(out,bytes, noBackslashEscapes);
+        writeCharsEscaped(out, s, noBackslashEscapes);
         out.write(QUOTE);
     }
 
@@ -104,33 +124,44 @@ public class ParameterWriter {
 
     public static void write(OutputStream out, java.io.Reader reader, boolean noBackslashEscapes) throws IOException {
         out.write(QUOTE);
-        char[] buffer = new char[1024];
-        int len;
-        while ((len = reader.read(buffer)) >= 0) {
-             writeBytesEscaped(out, new String(buffer,0, len).getBytes(UTF8), noBackslashEscapes);
-        }
+        writeCharsEscaped(out, reader, Long.MAX_VALUE, noBackslashEscapes);
         out.write(QUOTE);
     }
 
      public static void write(OutputStream out, java.io.Reader reader, long length, boolean noBackslashEscapes)
              throws IOException{
         out.write(QUOTE);
+        writeCharsEscaped(out, reader, length, noBackslashEscapes);
+        out.write(QUOTE);
+    }
+
+    /*
+     * Characters are read by chunks : a high surrogate ending a chunk is kept for the next one, so that a
+     * surrogate pair split between two reads is still encoded as one character.
+     */
+    private static void writeCharsEscaped(OutputStream out, java.io.Reader reader, long length,
+                                          boolean noBackslashEscapes) throws IOException {
         char[] buffer = new char[1024];
         long charsLeft = length;
-        int len;
-
+        int kept = 0;
         for (;;) {
-            int charsToRead = (int)Math.min(charsLeft, buffer.length);
+            int charsToRead = (int)Math.min(charsLeft, buffer.length - kept);
             if(charsToRead == 0)
                 break;
-            len = reader.read(buffer,0, charsToRead);
+            int len = reader.read(buffer, kept, charsToRead);
             if (len <= 0)
                 break;
-            byte[] bytes = new String(buffer, 0, len).getBytes(UTF8);
-            writeBytesEscaped(out, bytes, bytes.length, noBackslashEscapes);
             charsLeft -= len;
+            int end = kept + len;
+            kept = Character.isHighSurrogate(buffer[end - 1]) && charsLeft > 0 ? 1 : 0;
+            writeCharsEscaped(out, CharBuffer.wrap(buffer, 0, end - kept), noBackslashEscapes);
+            if (kept == 1) {
+                buffer[0] = buffer[end - 1];
+            }
+        }
+        if (kept == 1) {
+            writeCharsEscaped(out, CharBuffer.wrap(buffer, 0, 1), noBackslashEscapes);
         }
-        out.write(QUOTE);
     }
 
     public static void write(OutputStream out, int i) throws IOException{
@@ -151,13 +182,15 @@ public class ParameterWriter {
 
     public static void writeDate(OutputStream out, java.util.Date date, Calendar calendar) throws IOException {
        out.write(QUOTE);
-       String dateString;
-       SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-       if (calendar != null) {
-           sdf.setCalendar(calendar);
+       byte[] bytes = DateTimeCodec.formatDate(date.getTime(), calendar);
+       if (bytes == null) {
+           SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+           if (calendar != null) {
+               sdf.setCalendar(calendar);
+           }
+           bytes = sdf.format(date).getBytes();
        }
-       dateString = sdf.format(date);
-       out.write(dateString.getBytes());
+       out.write(bytes);
        out.write(QUOTE);
     }
 
@@ -178,12 +211,15 @@ public class ParameterWriter {
     public static void writeTimestamp(OutputStream out, Timestamp ts, Calendar calendar, boolean writeFractionalSeconds)
             throws IOException {
        out.write(QUOTE);
-       SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-       if (calendar != null) {
-           sdf.setCalendar(calendar);
+       byte[] bytes = DateTimeCodec.formatTimestamp(ts.getTime(), calendar);
+       if (bytes == null) {
+           SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+           if (calendar != null) {
+               sdf.setCalendar(calendar);
+           }
+           bytes = sdf.format(ts).getBytes();
        }
-       String dateString = sdf.format(ts);
-       out.write(dateString.getBytes());
+       out.write(bytes);
        formatMicroseconds(out, ts.getNanos() / 1000, writeFractionalSeconds);
        out.write(QUOTE);
     }
@@ -192,12 +228,15 @@ public class ParameterWriter {
     public static void writeTime(OutputStream out, Time time, Calendar calendar, boolean writeFractionalSeconds)
             throws IOException{
        out.write(QUOTE);
-       SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss");
-       if (calendar != null) {
-           sdf.setCalendar(calendar);
+       byte[] bytes = DateTimeCodec.formatTime(time.getTime(), calendar);
+       if (bytes == null) {
+           SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss");
+           if (calendar != null) {
+               sdf.setCalendar(calendar);
+           }
+           bytes = sdf.format(time).getBytes();
        }
-       String dateString = sdf.format(time);
-       out.write(dateString.getBytes());
+       out.write(bytes);
        int microseconds =  (int)(time.getTime()%1000) * 1000;
        formatMicroseconds(out, microseconds, writeFractionalSeconds);
        out.write(QUOTE);
@@ -0,0 +1,67 @@
+package org.mariadb.jdbc.internal.common.queryresults;
+
+import org.mariadb.jdbc.internal.common.ValueObject;
+import org.mariadb.jdbc.internal.mysql.packet.MySQLRowPacket;
+
+import java.util.List;
+
+/**
+ * Storage of the rows of a CachedSelectResult.
+ */
+abstract class CachedRows {
+
+    abstract int size();
+
+    /**
+     * Get a value.
+     *
+     * @param row row index, starts at 0
+     * @param column column index, starts at 0
+     * @return the value
+     */
+    abstract ValueObject getValueObject(int row, int column);
+
+    /**
+     * Release the resources held outside of the heap.
+     */
+    void close() {
+    }
+
+    /**
+     * Rows built by the driver, for example for metadata result sets.
+     */
+    static final class ValueObjectRows extends CachedRows {
+        private final List<ValueObject[]> rows;
+
+        ValueObjectRows(List<ValueObject[]> rows) {
+            this.rows = rows;
+        }
+
+        int size() {
+            return rows.size();
+        }
+
+        ValueObject getValueObject(int row, int column) {
+            return rows.get(row)[column];
+        }
+    }
+
+    /**
+     * Row packets read from the server, decoded when accessed.
+     */
+    static final class PacketRows extends CachedRows {
+        private final List<MySQLRowPacket> rows;
+
+        PacketRows(List<MySQLRowPacket> rows) {
+            this.rows = rows;
+        }
+
+        int size() {
+            return rows.size();
+        }
+
+        ValueObject getValueObject(int row, int column) {
+            return rows.get(row).decodeValueObject(column);
+        }
+    }
+}
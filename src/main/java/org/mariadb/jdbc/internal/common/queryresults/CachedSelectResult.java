@@ -51,40 +51,141 @@ package org.mariadb.jdbc.internal.common.queryresults;
 import org.mariadb.jdbc.internal.common.QueryException;
 import org.mariadb.jdbc.internal.common.ValueObject;
 import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
+import org.mariadb.jdbc.internal.mysql.packet.MySQLRowPacket;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
 public  class CachedSelectResult extends SelectQueryResult {
+    /* estimated memory used by a row besides its bytes */
+    private static final int ROW_OVERHEAD = 64;
+    private static final int VALUE_OVERHEAD = 8;
 
-    private  List<ValueObject[]> resultSet;
+    private final CachedRows rows;
     protected short warningCount;
     private int rowPointer;
+    /* values of the row decodedRow already returned by getValueObject() */
+    private ValueObject[] decodedValues;
+    private int decodedRow = -1;
+    private MemoryBudget memoryBudget;
+    private long reservedMemory;
 
     public CachedSelectResult(MySQLColumnInformation[] ci, List<ValueObject[]> result, short warningCount) {
+        this(ci, new CachedRows.ValueObjectRows(result), warningCount);
+    }
+
+    private CachedSelectResult(MySQLColumnInformation[] ci, CachedRows rows, short warningCount) {
         this.columnInformation = ci;
-        this.resultSet = result;
+        this.rows = rows;
         this.warningCount = warningCount;
         rowPointer = -1;
     }
 
 
-    public static CachedSelectResult createCachedSelectResult(StreamingSelectResult streamingResult) throws IOException, QueryException {
-         final List<ValueObject[]> valueObjects = new ArrayList<ValueObject[]>();
-
-        while(streamingResult.next()){
-           valueObjects.add(streamingResult.values);
+    /**
+     * Read all rows of a result.
+     * Rows over the memory limits are written to a temporary file, which is deleted when the result is closed.
+     *
+     * @param streamingResult the result to read
+     * @param columnar if true, store the rows column by column, else keep the row packets
+     * @param maxMemory number of bytes of rows this result can keep in memory, 0 for no limit
+     * @param connectionMemory memory shared by the results of the connection, which closes the result with the
+     *                         connection, or null for no limit
+     * @return a CachedSelectResult
+     */
+    public static CachedSelectResult createCachedSelectResult(StreamingSelectResult streamingResult, boolean columnar,
+                                                              long maxMemory, MemoryBudget connectionMemory)
+            throws IOException, QueryException {
+        MySQLColumnInformation[] ci = streamingResult.columnInformation;
+        ColumnarRows columnarRows = null;
+        List<MySQLRowPacket> rowPackets = null;
+        CachedRows memoryRows;
+        if (columnar) {
+            columnarRows = new ColumnarRows(ci);
+            memoryRows = columnarRows;
+        } else {
+            rowPackets = new ArrayList<MySQLRowPacket>();
+            memoryRows = new CachedRows.PacketRows(rowPackets);
+        }
+        SpilledRows spilledRows = null;
+        long memory = 0;
+        boolean complete = false;
+        try {
+            while (streamingResult.next()) {
+                MySQLRowPacket row = streamingResult.row;
+                if (spilledRows == null) {
+                    long rowMemory = ROW_OVERHEAD + VALUE_OVERHEAD * ci.length + row.getEncodedLength();
+                    if ((maxMemory <= 0 || memory + rowMemory <= maxMemory)
+                            && (connectionMemory == null || connectionMemory.reserve(rowMemory))) {
+                        memory += rowMemory;
+                        if (columnar) {
+                            columnarRows.add(row);
+                        } else {
+                            rowPackets.add(row.detach());
+                        }
+                        continue;
+                    }
+                    spilledRows = new SpilledRows(memoryRows, ci);
+                }
+                spilledRows.add(row);
+            }
+            if (spilledRows != null) {
+                spilledRows.finish();
+            }
+            complete = true;
+        } finally {
+            streamingResult.close();
+            if (!complete) {
+                if (spilledRows != null) {
+                    spilledRows.close();
+                }
+                if (connectionMemory != null) {
+                    connectionMemory.release(memory);
+                }
+            }
+        }
+        CachedSelectResult qr = new CachedSelectResult(ci, spilledRows != null ? spilledRows : memoryRows,
+                streamingResult.warningCount);
+        if (connectionMemory != null) {
+            qr.memoryBudget = connectionMemory;
+            qr.reservedMemory = memory;
+            connectionMemory.register(qr);
         }
-        CachedSelectResult qr = new CachedSelectResult(streamingResult.columnInformation, valueObjects, streamingResult.warningCount);
-        streamingResult.close();
         return qr;
     }
 
+    /**
+     * Create a result from rows already read.
+     *
+     * @param ci columns of the rows
+     * @param rows the rows, which must stay valid after the next packets are read
+     * @return a CachedSelectResult
+     */
+    public static CachedSelectResult createCachedSelectResult(MySQLColumnInformation[] ci, List<MySQLRowPacket> rows) {
+        return new CachedSelectResult(ci, new CachedRows.PacketRows(rows), (short) 0);
+    }
+
+    /**
+     * Close the result, deleting its temporary file if any, and giving back its memory to the connection.
+     */
+    public void close() {
+        if (isClosed()) {
+            return;
+        }
+        super.close();
+        rows.close();
+        if (memoryBudget != null) {
+            memoryBudget.release(reservedMemory);
+            memoryBudget.unregister(this);
+        }
+    }
+
     public boolean next() throws IOException, QueryException{
         rowPointer++;
-        return rowPointer < resultSet.size();
+        return rowPointer < getRows();
     }
 
 
@@ -110,18 +211,29 @@ public  class CachedSelectResult extends SelectQueryResult {
         if (rowPointer < 0) {
             throw new NoSuchColumnException("Current position is before the first row");
         }
-        if (rowPointer >= resultSet.size()) {
+        if (rowPointer >= getRows()) {
             throw new NoSuchColumnException("Current position is after the last row");
         }
-        ValueObject[] row = resultSet.get(rowPointer);
-        if (i < 0 || i >= row.length) {
+        if (i < 0 || i >= columnInformation.length) {
             throw new NoSuchColumnException("No such column: " + i);
         }
-        return row[i];
+        if (decodedRow != rowPointer) {
+            if (decodedValues == null) {
+                decodedValues = new ValueObject[columnInformation.length];
+            } else {
+                Arrays.fill(decodedValues, null);
+            }
+            decodedRow = rowPointer;
+        } else if (decodedValues[i] != null) {
+            return decodedValues[i];
+        }
+        ValueObject valueObject = rows.getValueObject(rowPointer, i);
+        decodedValues[i] = valueObject;
+        return valueObject;
     }
 
     public int getRows() {
-        return resultSet.size();
+        return rows.size();
     }
 
     public void moveRowPointerTo(final int i) {
@@ -137,14 +249,14 @@ public  class CachedSelectResult extends SelectQueryResult {
         return ResultSetType.SELECT;
     }
     public boolean isBeforeFirst() {
-       if (resultSet.size() == 0)
+       if (getRows() == 0)
            return false;
        return getRowPointer() == -1 ;
     }
     public boolean isAfterLast() {
-    	if (resultSet.size() == 0) {
+    	if (getRows() == 0) {
     		return false;
     	}
-       return rowPointer >= resultSet.size();
+       return rowPointer >= getRows();
     }
 }
@@ -63,6 +63,7 @@ public class ColumnFlags {
             ENUM         =256,
             AUTO_INCREMENT =  512,
             TIMESTAMP = 1024,
-            SET = 2048;
+            SET = 2048,
+            ZEROFILL = 64;
 }
 
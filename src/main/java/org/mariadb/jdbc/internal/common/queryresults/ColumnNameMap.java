@@ -3,80 +3,183 @@ package org.mariadb.jdbc.internal.common.queryresults;
 import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
 
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
 
 
+/**
+ * Index of the columns of a result by name, for ResultSet.findColumn() and the getters by column label.
+ *
+ * Names are compared ignoring case, without converting the looked up name : a lookup allocates nothing. The index
+ * is immutable once built, so that a statement can share it between the results with the same columns, see
+ * matches(). The last name found in each slot of a small table is remembered, so that the same label String,
+ * usually a literal, is found again with an identity comparison.
+ */
 public class ColumnNameMap {
-    Map<String, Integer> map;
-    Map<String, Integer> labelMap;
     MySQLColumnInformation[] columnInfo;
+    /* built on the first lookup */
+    private volatile Index labels;
+    private volatile Index names;
+    private final Memo[] memo;
+
+    private static final class Memo {
+        final String name;
+        final int index;
+
+        Memo(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+    }
 
     public ColumnNameMap(MySQLColumnInformation[] columnInformations) {
        this.columnInfo = columnInformations;
+       memo = new Memo[tableSize(columnInformations == null ? 0 : columnInformations.length)];
+    }
+
+    /**
+     * Can the map be used for a result with these columns.
+     *
+     * @param columns the columns of the result
+     * @return true if the columns have the same names and tables
+     */
+    public boolean matches(MySQLColumnInformation[] columns) {
+        if (columns == columnInfo) {
+            return true;
+        }
+        if (columns == null || columnInfo == null || columns.length != columnInfo.length) {
+            return false;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (!columns[i].hasSameNames(columnInfo[i])) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public int getIndex(String name) throws SQLException {
         if (columnInfo == null) {
            throw new SQLException("No such column :" + name);
         }
+        int slot = name.hashCode() & (memo.length - 1);
+        Memo m = memo[slot];
+        if (m != null && m.name == name) {
+            return m.index;
+        }
         // The specs in JDBC 4.0 specify that ResultSet.findColumn and
-        // ResultSet.getXXX(String name) should use column alias (AS in the query). If label is not found, we use 
+        // ResultSet.getXXX(String name) should use column alias (AS in the query). If label is not found, we use
         // original table name.
-    	Integer res = getLabelIndex(name);
-
-    	
-    	if (res != null) {
-    		return res;
-    	}
-        if (map == null) {
-            map = new HashMap<String, Integer>();
-            int i=0;
-            for(MySQLColumnInformation ci : columnInfo) {
-                String columnName = ci.getOriginalName().toLowerCase();
+        int hash = hash(name);
+        int res = labels().get(name, hash);
+        if (res < 0) {
+            res = names().get(name, hash);
+        }
+        if (res < 0) {
+            throw new SQLException("No such column :" + name);
+        }
+        memo[slot] = new Memo(name, res);
+        return res;
+    }
+
+    private Index labels() {
+        Index index = labels;
+        if (index == null) {
+            index = new Index(columnInfo.length * 2);
+            int i = 0;
+            for (MySQLColumnInformation ci : columnInfo) {
+                String columnAlias = ci.getName();
+                index.add(columnAlias, i, false);
+                String tableName = ci.getTable();
+                if (tableName != null && !tableName.equals("")) {
+                    index.add(tableName + "." + columnAlias, i, false);
+                }
+                i++;
+            }
+            labels = index;
+        }
+        return index;
+    }
+
+    private Index names() {
+        Index index = names;
+        if (index == null) {
+            index = new Index(columnInfo.length * 2);
+            int i = 0;
+            for (MySQLColumnInformation ci : columnInfo) {
+                String columnName = ci.getOriginalName();
                 if (columnName.equals("")) {
                     // for name-less columns (there CAN be some), use their alias
-                    columnName = ci.getName().toLowerCase();
+                    columnName = ci.getName();
                 }
-                map.put(columnName, i);
-                String tableName = ci.getTable().toLowerCase();
-                if (!tableName.equals("")) {
-                    map.put(tableName + "." + columnName, i);
+                index.add(columnName, i, true);
+                String tableName = ci.getTable();
+                if (tableName != null && !tableName.equals("")) {
+                    index.add(tableName + "." + columnName, i, true);
                 }
                 i++;
             }
+            names = index;
         }
-        res = map.get(name.toLowerCase());
-       
-        if (res == null) {
-            throw new SQLException("No such column :" + name);
+        return index;
+    }
+
+    /* a power of two, at least twice the number of entries */
+    private static int tableSize(int entries) {
+        int size = 2;
+        while (size < entries * 2) {
+            size <<= 1;
         }
-        return res;
+        return size;
     }
 
-    private int getLabelIndex(String name) throws SQLException {
-        if (labelMap == null) {
-            labelMap = new HashMap<String, Integer>();
-            int i=0;
-            for(MySQLColumnInformation ci : columnInfo) {
-                String columnAlias = ci.getName().toLowerCase();
-                if (!labelMap.containsKey(columnAlias))
-                    labelMap.put(columnAlias, i);
-
-                if (ci.getTable() != null) {
-                    String tableName = ci.getTable().toLowerCase();
-                    if (!tableName.equals("")) {
-                        if(!labelMap.containsKey(tableName + "." + columnAlias))
-                            labelMap.put(tableName + "." + columnAlias, i);
+    /* hash of a name, that is the same for names equal ignoring case */
+    private static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /* open addressing table of names, compared with equalsIgnoreCase() */
+    private static final class Index {
+        private final String[] keys;
+        private final int[] values;
+
+        Index(int entries) {
+            int size = tableSize(entries);
+            keys = new String[size];
+            values = new int[size];
+        }
+
+        void add(String name, int index, boolean replace) {
+            int mask = keys.length - 1;
+            for (int slot = hash(name) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == null) {
+                    keys[slot] = name;
+                    values[slot] = index;
+                    return;
+                }
+                if (keys[slot].equalsIgnoreCase(name)) {
+                    if (replace) {
+                        values[slot] = index;
                     }
+                    return;
                 }
-                i++;
             }
         }
-        Integer res = labelMap.get(name.toLowerCase());
-        if (res == null) {
-            throw new SQLException("No such column :" + name);
+
+        /* the index of the name, or -1 */
+        int get(String name, int hash) {
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                String key = keys[slot];
+                if (key == null) {
+                    return -1;
+                }
+                if (key.equalsIgnoreCase(name)) {
+                    return values[slot];
+                }
+            }
         }
-        return res;
     }
 }
@@ -0,0 +1,333 @@
+package org.mariadb.jdbc.internal.common.queryresults;
+
+import org.mariadb.jdbc.internal.common.ValueObject;
+import org.mariadb.jdbc.internal.mysql.MySQLBinaryValueObject;
+import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
+import org.mariadb.jdbc.internal.mysql.MySQLValueObject;
+import org.mariadb.jdbc.internal.mysql.packet.MySQLRowPacket;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rows stored column by column, in a few arrays per column instead of objects per value.
+ *
+ * Integer columns are kept in a long[], DOUBLE and FLOAT columns in a double[], other columns in a byte arena
+ * with the position and length of each value. NULL values are marked in a bitmap.
+ * A numeric column is only kept as numbers while the text sent by the server can be rebuilt exactly from them
+ * (no zerofill, no exponent, no values out of range) : on the first value that cannot, the column is converted
+ * to the byte arena.
+ * Values of numeric columns are read from the numbers, FLOAT values excepted : they are read from their text, so
+ * that reading them as double gives the decimal value the server sent.
+ */
+final class ColumnarRows extends CachedRows {
+    private static final int INITIAL_CAPACITY = 16;
+    /* longest canonical long, -9223372036854775808 */
+    private static final int MAX_LONG_LENGTH = 20;
+    /* longer double values always use an exponent, or more digits than needed */
+    private static final int MAX_DOUBLE_LENGTH = 32;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private final MySQLColumnInformation[] columnInformation;
+    private final Column[] columns;
+    private final byte[] scratch = new byte[MAX_DOUBLE_LENGTH];
+    private int size;
+
+    ColumnarRows(MySQLColumnInformation[] columnInformation) {
+        this.columnInformation = columnInformation;
+        columns = new Column[columnInformation.length];
+        for (int i = 0; i < columns.length; i++) {
+            switch (columnInformation[i].getType()) {
+                case TINYINT:
+                case SMALLINT:
+                case MEDIUMINT:
+                case INTEGER:
+                case BIGINT:
+                case YEAR:
+                    columns[i] = new LongColumn();
+                    break;
+                case DOUBLE:
+                    columns[i] = new DoubleColumn(false);
+                    break;
+                case FLOAT:
+                    columns[i] = new DoubleColumn(true);
+                    break;
+                default:
+                    columns[i] = new BytesColumn();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Append a row.
+     *
+     * @param row the row, which can be reused once added
+     */
+    void add(MySQLRowPacket row) {
+        for (int i = 0; i < columns.length; i++) {
+            int length = row.getLength(i);
+            if (length < 0) {
+                columns[i].addNull(size);
+            } else if (!columns[i].add(size, row, i, length)) {
+                columns[i] = new BytesColumn(columns[i], size);
+                columns[i].add(size, row, i, length);
+            }
+        }
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    ValueObject getValueObject(int row, int column) {
+        return columns[column].getValueObject(row, columnInformation[column]);
+    }
+
+    static int grow(int capacity, int needed) {
+        return Math.max(needed, capacity < INITIAL_CAPACITY ? INITIAL_CAPACITY : capacity + (capacity >> 1));
+    }
+
+    abstract static class Column {
+        /* bit set for NULL values */
+        private long[] nulls = new long[1];
+
+        void addNull(int row) {
+            if (row >> 6 >= nulls.length) {
+                nulls = Arrays.copyOf(nulls, grow(nulls.length, (row >> 6) + 1));
+            }
+            nulls[row >> 6] |= 1L << row;
+            setNull(row);
+        }
+
+        boolean isNull(int row) {
+            return row >> 6 < nulls.length && (nulls[row >> 6] & (1L << row)) != 0;
+        }
+
+        /* reserve the place of a NULL value */
+        abstract void setNull(int row);
+
+        /**
+         * Append a non NULL value.
+         * @return false if the value cannot be stored in this column
+         */
+        abstract boolean add(int row, MySQLRowPacket packet, int column, int length);
+
+        /* bytes of a value, as sent by the server */
+        byte[] getBytes(int row) {
+            return isNull(row) ? null : getValueBytes(row);
+        }
+
+        abstract byte[] getValueBytes(int row);
+
+        ValueObject getValueObject(int row, MySQLColumnInformation columnInfo) {
+            return new MySQLValueObject(getBytes(row), columnInfo);
+        }
+    }
+
+    final class LongColumn extends Column {
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        void setNull(int row) {
+            ensureCapacity(row);
+        }
+
+        private void ensureCapacity(int row) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row + 1));
+            }
+        }
+
+        boolean add(int row, MySQLRowPacket packet, int column, int length) {
+            if (length == 0 || length > MAX_LONG_LENGTH) {
+                return false;
+            }
+            packet.copyBytes(column, scratch, 0);
+            int i = 0;
+            boolean negative = scratch[0] == '-';
+            if (negative) {
+                i = 1;
+            }
+            /* canonical form only : no sign without digits, no leading zero, no negative zero */
+            if (i == length || scratch[i] == '0' && (length > 1)) {
+                return false;
+            }
+            long value = 0;
+            for (; i < length; i++) {
+                int digit = scratch[i] - '0';
+                if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+                    return false;
+                }
+                value = value * 10 - digit;
+            }
+            if (!negative) {
+                if (value == Long.MIN_VALUE) {
+                    return false;
+                }
+                value = -value;
+            }
+            ensureCapacity(row);
+            values[row] = value;
+            return true;
+        }
+
+        byte[] getValueBytes(int row) {
+            return String.valueOf(values[row]).getBytes(ASCII);
+        }
+
+        ValueObject getValueObject(int row, MySQLColumnInformation columnInfo) {
+            if (isNull(row)) {
+                return super.getValueObject(row, columnInfo);
+            }
+            return new MySQLBinaryValueObject(values[row], columnInfo);
+        }
+    }
+
+    final class DoubleColumn extends Column {
+        private final boolean isFloat;
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        DoubleColumn(boolean isFloat) {
+            this.isFloat = isFloat;
+        }
+
+        void setNull(int row) {
+            ensureCapacity(row);
+        }
+
+        private void ensureCapacity(int row) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row + 1));
+            }
+        }
+
+        boolean add(int row, MySQLRowPacket packet, int column, int length) {
+            if (length == 0 || length > MAX_DOUBLE_LENGTH) {
+                return false;
+            }
+            packet.copyBytes(column, scratch, 0);
+            double value;
+            try {
+                String text = new String(scratch, 0, length, ASCII);
+                value = isFloat ? Float.parseFloat(text) : Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            byte[] canonical = toText(value);
+            if (canonical.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (canonical[i] != scratch[i]) {
+                    return false;
+                }
+            }
+            ensureCapacity(row);
+            values[row] = value;
+            return true;
+        }
+
+        /* Java representation, without the exponents and trailing ".0" the server never writes */
+        private byte[] toText(double value) {
+            String s = isFloat ? Float.toString((float) value) : Double.toString(value);
+            if (s.endsWith(".0")) {
+                s = s.substring(0, s.length() - 2);
+            }
+            return s.getBytes(ASCII);
+        }
+
+        byte[] getValueBytes(int row) {
+            return toText(values[row]);
+        }
+
+        ValueObject getValueObject(int row, MySQLColumnInformation columnInfo) {
+            if (isFloat || isNull(row)) {
+                return super.getValueObject(row, columnInfo);
+            }
+            return new MySQLBinaryValueObject(Double.doubleToRawLongBits(values[row]), columnInfo);
+        }
+    }
+
+    /**
+     * Values appended to chunks of bytes. The first chunk is sized from the first value, each next chunk doubles
+     * up to 64KB, so that columns of small results stay small. Values larger than a chunk get a chunk of their own.
+     */
+    static final class BytesColumn extends Column {
+        private static final int MIN_CHUNK_SIZE = 256;
+        private static final int CHUNK_SIZE = 64 * 1024;
+
+        private final List<byte[]> chunks = new ArrayList<byte[]>();
+        private byte[] chunk;
+        private int chunkUsed;
+        private int nextChunkSize;
+        /* chunk index in the high 32 bits, position in the chunk in the low 32 bits */
+        private long[] positions = new long[INITIAL_CAPACITY];
+        private int[] lengths = new int[INITIAL_CAPACITY];
+
+        BytesColumn() {
+        }
+
+        /**
+         * Convert the first rows of another column.
+         * @param column the column to convert
+         * @param rows number of rows to convert
+         */
+        BytesColumn(Column column, int rows) {
+            for (int row = 0; row < rows; row++) {
+                if (column.isNull(row)) {
+                    addNull(row);
+                } else {
+                    byte[] bytes = column.getValueBytes(row);
+                    reserve(row, bytes.length);
+                    System.arraycopy(bytes, 0, chunk, chunkUsed, bytes.length);
+                    chunkUsed += bytes.length;
+                }
+            }
+        }
+
+        void setNull(int row) {
+            ensureCapacity(row);
+        }
+
+        private void ensureCapacity(int row) {
+            if (row >= positions.length) {
+                int capacity = grow(positions.length, row + 1);
+                positions = Arrays.copyOf(positions, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+        }
+
+        /* make room for a value in the current chunk, and record its position */
+        private void reserve(int row, int length) {
+            ensureCapacity(row);
+            if (chunk == null || chunk.length - chunkUsed < length) {
+                if (chunk == null) {
+                    nextChunkSize = Math.min(CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, length * INITIAL_CAPACITY));
+                }
+                chunk = new byte[Math.max(nextChunkSize, length)];
+                nextChunkSize = Math.min(CHUNK_SIZE, nextChunkSize * 2);
+                chunkUsed = 0;
+                chunks.add(chunk);
+            }
+            positions[row] = ((long) (chunks.size() - 1) << 32) | chunkUsed;
+            lengths[row] = length;
+        }
+
+        boolean add(int row, MySQLRowPacket packet, int column, int length) {
+            reserve(row, length);
+            packet.copyBytes(column, chunk, chunkUsed);
+            chunkUsed += length;
+            return true;
+        }
+
+        byte[] getValueBytes(int row) {
+            long position = positions[row];
+            byte[] bytes = new byte[lengths[row]];
+            System.arraycopy(chunks.get((int) (position >>> 32)), (int) position, bytes, 0, bytes.length);
+            return bytes;
+        }
+    }
+}
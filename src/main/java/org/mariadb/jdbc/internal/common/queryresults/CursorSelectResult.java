@@ -0,0 +1,117 @@
+package org.mariadb.jdbc.internal.common.queryresults;
+
+import org.mariadb.jdbc.internal.common.QueryException;
+import org.mariadb.jdbc.internal.common.ValueObject;
+import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
+import org.mariadb.jdbc.internal.mysql.MySQLProtocol;
+import org.mariadb.jdbc.internal.mysql.packet.MySQLRowPacket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward only result of a server cursor, see MySQLProtocol.executeCursorQuery().
+ *
+ * Rows are fetched fetchSize at a time when the previous ones are read. Unlike a StreamingSelectResult, the
+ * connection can execute other queries while the result is open. Closing the result closes the cursor and its
+ * prepared statement, or only the cursor when the statement belongs to a MySQLServerSidePreparedStatement.
+ */
+public class CursorSelectResult extends SelectQueryResult {
+    private MySQLProtocol protocol;
+    private final int statementId;
+    private final int fetchSize;
+    /* false if the statement is used again after the result, then only the cursor is closed */
+    private final boolean ownsStatement;
+    /* rows of the last fetch */
+    private final List<MySQLRowPacket> rows = new ArrayList<MySQLRowPacket>();
+    private int rowPointer;
+    private MySQLRowPacket row;
+    private boolean lastRowSent;
+    private boolean beforeFirst = true;
+    private boolean isEOF;
+
+    public CursorSelectResult(MySQLColumnInformation[] ci, MySQLProtocol protocol, int statementId, int fetchSize,
+                              boolean ownsStatement) {
+        this.columnInformation = ci;
+        this.protocol = protocol;
+        this.statementId = statementId;
+        this.fetchSize = fetchSize;
+        this.ownsStatement = ownsStatement;
+    }
+
+    public boolean next() throws IOException, QueryException {
+        if (isEOF) {
+            return false;
+        }
+        beforeFirst = false;
+        rowPointer++;
+        if (rowPointer >= rows.size()) {
+            rows.clear();
+            rowPointer = 0;
+            if (!lastRowSent) {
+                lastRowSent = protocol.fetchCursorRows(statementId, columnInformation, fetchSize, rows);
+            }
+            if (rows.isEmpty()) {
+                isEOF = true;
+                row = null;
+                closeStatement();
+                return false;
+            }
+        }
+        row = rows.get(rowPointer);
+        return true;
+    }
+
+    public ValueObject getValueObject(int i) throws NoSuchColumnException {
+        if (row == null) {
+            throw new NoSuchColumnException(isEOF ? "Current position is after the last row"
+                    : "Current position is before the first row");
+        }
+        if (i < 0 || i >= columnInformation.length) {
+            throw new NoSuchColumnException("No such column: " + i);
+        }
+        return row.getValueObject(i);
+    }
+
+    public int getRows() {
+        return -1;
+    }
+
+    public boolean isBeforeFirst() {
+        return beforeFirst;
+    }
+
+    public boolean isAfterLast() {
+        return isEOF;
+    }
+
+    public void close() {
+        super.close();
+        rows.clear();
+        row = null;
+        closeStatement();
+    }
+
+    private void closeStatement() {
+        if (protocol == null) {
+            return;
+        }
+        try {
+            if (ownsStatement) {
+                protocol.closePreparedStatement(statementId);
+            } else if (!lastRowSent && !protocol.hasUnreadData()) {
+                /*
+                 * COM_STMT_RESET closes the cursor, the server closed it already after the last row.
+                 * While a streaming result is open, the response would be read among its rows : the cursor is
+                 * then left to the next execution of the statement or its COM_STMT_CLOSE, which both close it.
+                 */
+                protocol.resetPreparedStatement(statementId);
+            }
+        } catch (QueryException e) {
+            /* the connection is broken, the server closes the statement with it */
+        } finally {
+            protocol = null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.mariadb.jdbc.internal.common.queryresults;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory shared by the cached results of a connection. Rows that do not fit are written to a temporary file.
+ *
+ * The budget also knows the results that hold memory or a temporary file, so that they are closed with the
+ * connection even if the application does not close them.
+ */
+public final class MemoryBudget {
+    private final long limit;
+    private final AtomicLong used = new AtomicLong();
+    /* guarded by this */
+    private final Set<CachedSelectResult> openResults = new HashSet<CachedSelectResult>();
+
+    /**
+     * @param limit number of bytes the results can keep in memory
+     */
+    public MemoryBudget(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Reserve memory for a row.
+     *
+     * @param size estimated row size
+     * @return false if the budget is exhausted
+     */
+    boolean reserve(long size) {
+        for (;;) {
+            long current = used.get();
+            if (current + size > limit) {
+                return false;
+            }
+            if (used.compareAndSet(current, current + size)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back memory reserved by a result, once it is closed.
+     *
+     * @param size the reserved size
+     */
+    void release(long size) {
+        used.addAndGet(-size);
+    }
+
+    public long getUsed() {
+        return used.get();
+    }
+
+    synchronized void register(CachedSelectResult result) {
+        openResults.add(result);
+    }
+
+    synchronized void unregister(CachedSelectResult result) {
+        openResults.remove(result);
+    }
+
+    /**
+     * Close the results that are still open, deleting their temporary files, when the connection is closed.
+     */
+    public void closeResults() {
+        CachedSelectResult[] results;
+        synchronized (this) {
+            results = openResults.toArray(new CachedSelectResult[openResults.size()]);
+        }
+        for (CachedSelectResult result : results) {
+            result.close();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.mariadb.jdbc.internal.common.queryresults;
+
+import org.mariadb.jdbc.internal.common.PacketFetcher;
+import org.mariadb.jdbc.internal.common.packet.RawPacket;
+import org.mariadb.jdbc.internal.common.packet.buffer.ReadUtil;
+import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
+import org.mariadb.jdbc.internal.mysql.packet.MySQLRowPacket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the rows of a streaming result on a helper thread, at most a given number of rows ahead of the
+ * application, so that reading from the network overlaps with the processing of the previous rows.
+ *
+ * The helper only reads packets : the EOF or error packet ending the rows is handed over as is, and handled by
+ * StreamingSelectResult on the application thread, like without read-ahead. Exceptions and errors thrown while
+ * reading are handed over too, and thrown by take().
+ *
+ * The helper stops when close() is called, or when the result is garbage collected without being closed : it then
+ * drops the rows read ahead instead of waiting forever for room in the queue.
+ */
+final class RowPrefetcher implements Runnable {
+    /* how long the helper waits for room in the queue before checking that the result is still used */
+    private static final long OFFER_TIMEOUT_MILLIS = 500;
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "MariaDB row prefetch");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final PacketFetcher packetFetcher;
+    private final MySQLRowPacket rowPacket;
+    private final boolean binary;
+    /* detached rows, then the last packet or the exception that stopped the reads */
+    private final BlockingQueue<Object> queue;
+    /* the result reading the rows, not kept reachable by the helper */
+    private final WeakReference<StreamingSelectResult> owner;
+    private volatile boolean closed;
+
+    RowPrefetcher(StreamingSelectResult owner, PacketFetcher packetFetcher, MySQLColumnInformation[] columnInformation,
+                  int rows, boolean binary) {
+        this.owner = new WeakReference<StreamingSelectResult>(owner);
+        this.packetFetcher = packetFetcher;
+        this.binary = binary;
+        this.rowPacket = new MySQLRowPacket(columnInformation);
+        this.queue = new ArrayBlockingQueue<Object>(rows);
+    }
+
+    void start() {
+        EXECUTOR.execute(this);
+    }
+
+    public void run() {
+        try {
+            try {
+                while (!closed) {
+                    RawPacket rawPacket = packetFetcher.getRawPacket();
+                    if (ReadUtil.isErrorPacket(rawPacket) || ReadUtil.eofIsNext(rawPacket)) {
+                        hand(rawPacket.detach());
+                        return;
+                    }
+                    if (binary) {
+                        rowPacket.readBinary(rawPacket, packetFetcher);
+                    } else {
+                        rowPacket.read(rawPacket, packetFetcher);
+                    }
+                    if (!hand(rowPacket.detach())) {
+                        return;
+                    }
+                }
+            } catch (Throwable e) {
+                /* anything, errors included : the application thread waits for an item until the rows end */
+                hand(e);
+            }
+        } catch (InterruptedException e) {
+            /* the pool is shut down with the JVM */
+        } finally {
+            if (closed) {
+                queue.clear();
+            }
+        }
+    }
+
+    /* queue an item, false if the result was closed or collected meanwhile */
+    private boolean hand(Object item) throws InterruptedException {
+        while (!queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (owner.get() == null) {
+                closed = true;
+            }
+            if (closed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop reading ahead and drop the rows not taken yet. The rows not read are left on the connection.
+     */
+    void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    /**
+     * Get the next row, waiting for it to be read.
+     *
+     * @return a MySQLRowPacket, or the RawPacket of the EOF or error packet ending the rows
+     * @throws IOException if the rows could not be read
+     */
+    Object take() throws IOException {
+        Object item;
+        try {
+            item = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the next row");
+        }
+        if (item instanceof IOException) {
+            throw (IOException) item;
+        }
+        if (item instanceof RuntimeException) {
+            throw (RuntimeException) item;
+        }
+        if (item instanceof Error) {
+            throw (Error) item;
+        }
+        if (item instanceof Throwable) {
+            throw new IOException("Could not read the next row", (Throwable) item);
+        }
+        return item;
+    }
+}
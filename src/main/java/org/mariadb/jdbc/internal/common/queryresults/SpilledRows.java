@@ -0,0 +1,173 @@
+package org.mariadb.jdbc.internal.common.queryresults;
+
+import org.mariadb.jdbc.internal.common.QueryException;
+import org.mariadb.jdbc.internal.common.ValueObject;
+import org.mariadb.jdbc.internal.common.packet.RawPacket;
+import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
+import org.mariadb.jdbc.internal.mysql.packet.MySQLRowPacket;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Rows over the memory budget of a result, appended to a temporary file as sent by the server.
+ *
+ * The first rows stay in memory. Once all rows are written, the file is mapped in regions : each region also maps
+ * the length of the longest row past its end, so that every row starting in a region can be read from it.
+ * The file is deleted when the rows are closed, or when the JVM exits if they are never closed.
+ */
+final class SpilledRows extends CachedRows {
+    private static final long REGION_SIZE = 128L * 1024 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final CachedRows memoryRows;
+    private final int memoryRowCount;
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    /* position of each row in the file, followed by the file length */
+    private long[] positions = new long[16];
+    private int size;
+    private long fileLength;
+    private int maxRowLength;
+    private MappedByteBuffer[] regions;
+
+    private final MySQLRowPacket row;
+    private int decodedRow = -1;
+
+    /**
+     * Create the temporary file.
+     *
+     * @param memoryRows rows kept in memory, which come before the rows of the file
+     * @param columnInformation columns of the result
+     * @throws QueryException if the file cannot be created
+     */
+    SpilledRows(CachedRows memoryRows, MySQLColumnInformation[] columnInformation) throws QueryException {
+        this.memoryRows = memoryRows;
+        this.memoryRowCount = memoryRows.size();
+        this.row = new MySQLRowPacket(columnInformation);
+        try {
+            file = File.createTempFile("mariadb-rows", ".tmp");
+        } catch (IOException e) {
+            throw new QueryException("Could not create temporary file for result set: " + e.getMessage(), 0, "HY000", e);
+        }
+        file.deleteOnExit();
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+        } catch (IOException e) {
+            delete();
+            throw new QueryException("Could not open temporary file for result set: " + e.getMessage(), 0, "HY000", e);
+        }
+        channel = randomAccessFile.getChannel();
+    }
+
+    /**
+     * Append a row to the file.
+     *
+     * @param rowPacket the row, which can be reused once added
+     * @throws QueryException if the row cannot be written
+     */
+    void add(MySQLRowPacket rowPacket) throws QueryException {
+        ByteBuffer encoded = rowPacket.getEncodedRow();
+        int length = encoded.remaining();
+        if (size + 1 >= positions.length) {
+            positions = Arrays.copyOf(positions, ColumnarRows.grow(positions.length, size + 2));
+        }
+        positions[size++] = fileLength;
+        fileLength += length;
+        maxRowLength = Math.max(maxRowLength, length);
+        try {
+            if (length > writeBuffer.remaining()) {
+                flush();
+            }
+            if (length > writeBuffer.capacity()) {
+                write(encoded);
+            } else {
+                writeBuffer.put(encoded);
+            }
+        } catch (IOException e) {
+            throw new QueryException("Could not write result set to temporary file: " + e.getMessage(), 0, "HY000", e);
+        }
+    }
+
+    /**
+     * Map the file, once all rows are added.
+     *
+     * @throws QueryException if the file cannot be mapped
+     */
+    void finish() throws QueryException {
+        positions[size] = fileLength;
+        try {
+            flush();
+            writeBuffer = null;
+            regions = new MappedByteBuffer[(int) ((fileLength + REGION_SIZE - 1) / REGION_SIZE)];
+            for (int i = 0; i < regions.length; i++) {
+                long start = i * REGION_SIZE;
+                long length = Math.min(fileLength - start, REGION_SIZE + maxRowLength);
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+        } catch (IOException e) {
+            throw new QueryException("Could not map temporary file of result set: " + e.getMessage(), 0, "HY000", e);
+        }
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        write(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    int size() {
+        return memoryRowCount + size;
+    }
+
+    ValueObject getValueObject(int rowIndex, int column) {
+        if (rowIndex < memoryRowCount) {
+            return memoryRows.getValueObject(rowIndex, column);
+        }
+        int index = rowIndex - memoryRowCount;
+        if (index != decodedRow) {
+            long position = positions[index];
+            int region = (int) (position / REGION_SIZE);
+            ByteBuffer buffer = regions[region].duplicate();
+            int start = (int) (position - region * REGION_SIZE);
+            buffer.limit(start + (int) (positions[index + 1] - position));
+            buffer.position(start);
+            row.read(new RawPacket(buffer, 0));
+            decodedRow = index;
+        }
+        return row.getValueObject(column);
+    }
+
+    /**
+     * Close and delete the file. The mappings are released when they are garbage collected.
+     */
+    void close() {
+        memoryRows.close();
+        regions = null;
+        decodedRow = -1;
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) {
+            /* the file is deleted anyway */
+        }
+        delete();
+    }
+
+    private void delete() {
+        /* some systems do not delete mapped files, they are deleted on exit */
+        file.delete();
+    }
+}
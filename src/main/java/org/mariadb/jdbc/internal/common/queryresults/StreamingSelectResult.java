@@ -11,14 +11,23 @@ import java.io.IOException;
 
 public class StreamingSelectResult extends SelectQueryResult {
     PacketFetcher packetFetcher;
-    public ValueObject[] values;
+    /* current row, null before the first and after the last row */
+    MySQLRowPacket row;
+    /* rows are all read into this instance */
+    private MySQLRowPacket rowPacket;
+    /* reads the rows ahead on another thread, if not null */
+    private RowPrefetcher prefetcher;
+    /* binary protocol rows, sent by COM_STMT_EXECUTE */
+    private final boolean binary;
     MySQLProtocol protocol;
     boolean isEOF;
     boolean beforeFirst;
 
 
-    private StreamingSelectResult(MySQLColumnInformation[] info, MySQLProtocol protocol, PacketFetcher fetcher) throws QueryException {
+    private StreamingSelectResult(MySQLColumnInformation[] info, MySQLProtocol protocol, PacketFetcher fetcher,
+                                  boolean binary) throws QueryException {
         this.columnInformation = info;
+        this.binary = binary;
         this.protocol = protocol;
         this.packetFetcher = fetcher;
         this.beforeFirst = true;
@@ -30,21 +39,33 @@ public class StreamingSelectResult extends SelectQueryResult {
      * create StreamingResultSet - precondition is that a result set packet has been read
      *
      * @param packet the result set packet from the server
+     * @param binary true for the binary protocol rows of a COM_STMT_EXECUTE result
+     * @param cachedColumns the columns of the previous result of the prepared statement, used when the server does
+     *                      not send them again, or null
      * @return a StreamingQueryResult
      * @throws java.io.IOException when something goes wrong while reading/writing from the server
      */
     public static StreamingSelectResult createStreamingSelectResult(
-            ResultSetPacket packet, PacketFetcher packetFetcher, MySQLProtocol protocol)
-            throws IOException, QueryException {
+            ResultSetPacket packet, PacketFetcher packetFetcher, MySQLProtocol protocol, boolean binary,
+            MySQLColumnInformation[] cachedColumns) throws IOException, QueryException {
 
         if (protocol.activeResult != null) {
             throw new  QueryException("There is an active result set on the current connection, "+
                     "which must be closed prior to opening a new one");
         }
         long fieldCount = packet.getFieldCount();
-        MySQLColumnInformation[] ci = new MySQLColumnInformation[(int)fieldCount];
-        
-        for (int i = 0; i < fieldCount; i++) {
+        MySQLColumnInformation[] ci;
+        if (!packet.isMetadataFollows()) {
+            if (cachedColumns == null || cachedColumns.length != fieldCount) {
+                throw new QueryException("Column definitions of the result were not sent, and are not known", 0,
+                        "HY000");
+            }
+            ci = cachedColumns;
+        } else {
+            ci = new MySQLColumnInformation[(int) fieldCount];
+        }
+
+        for (int i = 0; packet.isMetadataFollows() && i < fieldCount; i++) {
             final RawPacket rawPacket = packetFetcher.getRawPacket();
 
             // We do not expect an error packet, but check it just for safety
@@ -73,43 +94,74 @@ public class StreamingSelectResult extends SelectQueryResult {
             throw new QueryException("Packets out of order when reading field packets, expected was EOF packet. " +
                     "Packet contents (hex) = " + MySQLProtocol.hexdump(fieldEOF.getByteBuffer(),0));
         }
-        return new StreamingSelectResult(ci, protocol, packetFetcher);
+        return new StreamingSelectResult(ci, protocol, packetFetcher, binary);
 
     }
 
+    /**
+     * Read the rows on a helper thread, ahead of the calls to next().
+     *
+     * @param rows maximum number of rows read ahead
+     */
+    public void startPrefetch(int rows) {
+        prefetcher = new RowPrefetcher(this, packetFetcher, columnInformation, rows, binary);
+        prefetcher.start();
+    }
+
     @Override
     public boolean next() throws IOException,QueryException{
        if (isEOF)
             return false;
 
-            RawPacket rawPacket = packetFetcher.getRawPacket();
-
-            if (ReadUtil.isErrorPacket(rawPacket)) {
-                protocol.activeResult = null;
-                protocol.moreResults = false;
-                ErrorPacket errorPacket = (ErrorPacket) ResultPacketFactory.createResultPacket(rawPacket);
-                throw new QueryException(errorPacket.getMessage(), errorPacket.getErrorNumber(), errorPacket.getSqlState());
+            if (prefetcher != null) {
+                Object item = prefetcher.take();
+                if (item instanceof MySQLRowPacket) {
+                    row = (MySQLRowPacket) item;
+                    return true;
+                }
+                return readEnd((RawPacket) item);
             }
 
-            if (ReadUtil.eofIsNext(rawPacket)) {
-                final EOFPacket eofPacket = (EOFPacket) ResultPacketFactory.createResultPacket(rawPacket);
-                protocol.activeResult = null;
-                protocol.moreResults = ((eofPacket.getStatusFlags() & ServerStatus.MORE_RESULTS_EXISTS) != 0);
-                warningCount = eofPacket.getWarningCount();
-                protocol.hasWarnings = (warningCount > 0);
-                isEOF = true;
-                values = null;
-                return false;
+            RawPacket rawPacket = packetFetcher.getRawPacket();
+
+            if (ReadUtil.isErrorPacket(rawPacket) || ReadUtil.eofIsNext(rawPacket)) {
+                return readEnd(rawPacket);
             }
 
 
-           MySQLRowPacket rowPacket = new MySQLRowPacket(rawPacket, columnInformation);
-           values = rowPacket.getRow(packetFetcher);
+           if (rowPacket == null) {
+               rowPacket = new MySQLRowPacket(columnInformation);
+           }
+           if (binary) {
+               rowPacket.readBinary(rawPacket, packetFetcher);
+           } else {
+               rowPacket.read(rawPacket, packetFetcher);
+           }
+           row = rowPacket;
 
            return true;
 
     }
 
+    /* handle the EOF or error packet that ends the rows */
+    private boolean readEnd(RawPacket rawPacket) throws IOException, QueryException {
+        if (ReadUtil.isErrorPacket(rawPacket)) {
+            protocol.activeResult = null;
+            protocol.moreResults = false;
+            ErrorPacket errorPacket = (ErrorPacket) ResultPacketFactory.createResultPacket(rawPacket);
+            throw new QueryException(errorPacket.getMessage(), errorPacket.getErrorNumber(), errorPacket.getSqlState());
+        }
+
+        final EOFPacket eofPacket = (EOFPacket) ResultPacketFactory.createResultPacket(rawPacket);
+        protocol.activeResult = null;
+        protocol.moreResults = ((eofPacket.getStatusFlags() & ServerStatus.MORE_RESULTS_EXISTS) != 0);
+        warningCount = eofPacket.getWarningCount();
+        protocol.hasWarnings = (warningCount > 0);
+        isEOF = true;
+        row = null;
+        return false;
+    }
+
     public void close() {
         super.close();
         if (protocol != null && protocol.activeResult == this)
@@ -131,6 +183,7 @@ public class StreamingSelectResult extends SelectQueryResult {
                     }
                 }
             }   finally   {
+                   stopPrefetch();
                    protocol.activeResult = null;
                    protocol = null;
                    packetFetcher = null;
@@ -138,6 +191,16 @@ public class StreamingSelectResult extends SelectQueryResult {
         }
     }
 
+    /**
+     * Stop the thread reading the rows ahead, if any, when the rows will not be read : the connection is closing,
+     * or reading them failed.
+     */
+    public void stopPrefetch() {
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
+    }
+
     /**
      * gets the value at position i in the result set. i starts at zero!
      *
@@ -146,7 +209,7 @@ public class StreamingSelectResult extends SelectQueryResult {
      */
     @Override
     public ValueObject getValueObject(int i) throws NoSuchColumnException {
-        return values[i];
+        return row.getValueObject(i);
     }
 
     public int getRows() {
@@ -0,0 +1,324 @@
+package org.mariadb.jdbc.internal.mysql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.Calendar;
+
+/**
+ * A parameter of a server prepared statement, in the binary encoding of COM_STMT_EXECUTE.
+ *
+ * Values are encoded when the parameter is set, so that executing the statement only copies bytes.
+ * Streams are not encoded : their data is read and sent with COM_STMT_SEND_LONG_DATA before the execution.
+ */
+public final class MySQLBinaryParameter {
+    public static final MySQLBinaryParameter NULL = new MySQLBinaryParameter(MySQLType.NULL, null);
+
+    private final int type;
+    /* the encoded value, null for NULL and streams */
+    private final byte[] bytes;
+    private InputStream stream;
+    private Reader reader;
+    /* maximum number of bytes or characters of the stream, -1 to read it up to its end */
+    private long length;
+
+    private MySQLBinaryParameter(MySQLType type, byte[] bytes) {
+        this.type = type.getType();
+        this.bytes = bytes;
+    }
+
+    public static MySQLBinaryParameter valueOf(boolean value) {
+        return new MySQLBinaryParameter(MySQLType.TINYINT, new byte[] {(byte) (value ? 1 : 0)});
+    }
+
+    public static MySQLBinaryParameter valueOf(byte value) {
+        return new MySQLBinaryParameter(MySQLType.TINYINT, new byte[] {value});
+    }
+
+    public static MySQLBinaryParameter valueOf(short value) {
+        return new MySQLBinaryParameter(MySQLType.SMALLINT, littleEndian(value, 2));
+    }
+
+    public static MySQLBinaryParameter valueOf(int value) {
+        return new MySQLBinaryParameter(MySQLType.INTEGER, littleEndian(value, 4));
+    }
+
+    public static MySQLBinaryParameter valueOf(long value) {
+        return new MySQLBinaryParameter(MySQLType.BIGINT, littleEndian(value, 8));
+    }
+
+    public static MySQLBinaryParameter valueOf(float value) {
+        return new MySQLBinaryParameter(MySQLType.FLOAT, littleEndian(Float.floatToIntBits(value), 4));
+    }
+
+    public static MySQLBinaryParameter valueOf(double value) {
+        return new MySQLBinaryParameter(MySQLType.DOUBLE, littleEndian(Double.doubleToLongBits(value), 8));
+    }
+
+    /**
+     * A string, sent in UTF-8.
+     *
+     * @param value the string, or null
+     * @return the parameter
+     */
+    public static MySQLBinaryParameter valueOf(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        try {
+            return new MySQLBinaryParameter(MySQLType.VARSTRING, lengthEncoded(value.getBytes("UTF-8")));
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError("UTF-8 not supported");
+        }
+    }
+
+    /**
+     * A decimal number, in its plain text form.
+     *
+     * @param value the number, for example BigDecimal.toPlainString(), or null
+     * @return the parameter
+     */
+    public static MySQLBinaryParameter decimalOf(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        try {
+            return new MySQLBinaryParameter(MySQLType.DECIMAL, lengthEncoded(value.getBytes("US-ASCII")));
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError("US-ASCII not supported");
+        }
+    }
+
+    public static MySQLBinaryParameter valueOf(byte[] value) {
+        if (value == null) {
+            return NULL;
+        }
+        return new MySQLBinaryParameter(MySQLType.BLOB, lengthEncoded(value));
+    }
+
+    /**
+     * A date, sent as the year, month and day of the date in the calendar.
+     *
+     * @param date the date, or null
+     * @param cal calendar of the date, null for the default time zone
+     * @return the parameter
+     */
+    public static MySQLBinaryParameter dateOf(java.util.Date date, Calendar cal) {
+        if (date == null) {
+            return NULL;
+        }
+        Calendar c = calendar(date, cal);
+        byte[] bytes = new byte[5];
+        bytes[0] = 4;
+        writeDate(bytes, c);
+        return new MySQLBinaryParameter(MySQLType.DATE, bytes);
+    }
+
+    /**
+     * A time of day.
+     *
+     * @param time the time, or null
+     * @param cal calendar of the time, null for the default time zone
+     * @param fractionalSeconds true to send the milliseconds
+     * @return the parameter
+     */
+    public static MySQLBinaryParameter timeOf(java.util.Date time, Calendar cal, boolean fractionalSeconds) {
+        if (time == null) {
+            return NULL;
+        }
+        Calendar c = calendar(time, cal);
+        int micros = fractionalSeconds ? c.get(Calendar.MILLISECOND) * 1000 : 0;
+        /* sign and days, which stay 0, then hours, minutes, seconds and microseconds */
+        byte[] bytes = new byte[micros == 0 ? 9 : 13];
+        bytes[0] = (byte) (bytes.length - 1);
+        bytes[6] = (byte) c.get(Calendar.HOUR_OF_DAY);
+        bytes[7] = (byte) c.get(Calendar.MINUTE);
+        bytes[8] = (byte) c.get(Calendar.SECOND);
+        if (micros != 0) {
+            System.arraycopy(littleEndian(micros, 4), 0, bytes, 9, 4);
+        }
+        return new MySQLBinaryParameter(MySQLType.TIME, bytes);
+    }
+
+    /**
+     * A date and time.
+     *
+     * @param timestamp the timestamp, or null
+     * @param nanos nanoseconds of the timestamp, Timestamp.getNanos()
+     * @param cal calendar of the timestamp, null for the default time zone
+     * @param fractionalSeconds true to send the microseconds
+     * @return the parameter
+     */
+    public static MySQLBinaryParameter timestampOf(java.util.Date timestamp, int nanos, Calendar cal,
+                                                   boolean fractionalSeconds) {
+        if (timestamp == null) {
+            return NULL;
+        }
+        Calendar c = calendar(timestamp, cal);
+        int micros = fractionalSeconds ? nanos / 1000 : 0;
+        byte[] bytes = new byte[micros == 0 ? 8 : 12];
+        bytes[0] = (byte) (bytes.length - 1);
+        writeDate(bytes, c);
+        bytes[5] = (byte) c.get(Calendar.HOUR_OF_DAY);
+        bytes[6] = (byte) c.get(Calendar.MINUTE);
+        bytes[7] = (byte) c.get(Calendar.SECOND);
+        if (micros != 0) {
+            System.arraycopy(littleEndian(micros, 4), 0, bytes, 8, 4);
+        }
+        return new MySQLBinaryParameter(MySQLType.DATETIME, bytes);
+    }
+
+    /**
+     * Binary data read from a stream when the statement is executed.
+     *
+     * @param stream the stream, or null
+     * @param length maximum number of bytes read, -1 to read the stream up to its end
+     * @param isText true for ASCII text, false for binary data
+     * @return the parameter
+     */
+    public static MySQLBinaryParameter streamOf(InputStream stream, long length, boolean isText) {
+        if (stream == null) {
+            return NULL;
+        }
+        MySQLBinaryParameter parameter = new MySQLBinaryParameter(isText ? MySQLType.VARSTRING : MySQLType.BLOB, null);
+        parameter.stream = stream;
+        parameter.length = length;
+        return parameter;
+    }
+
+    /**
+     * Characters read from a reader when the statement is executed, sent in UTF-8.
+     *
+     * @param reader the reader, or null
+     * @param length maximum number of characters read, -1 to read up to the end
+     * @return the parameter
+     */
+    public static MySQLBinaryParameter readerOf(Reader reader, long length) {
+        if (reader == null) {
+            return NULL;
+        }
+        MySQLBinaryParameter parameter = new MySQLBinaryParameter(MySQLType.VARSTRING, null);
+        parameter.reader = reader;
+        parameter.length = length;
+        return parameter;
+    }
+
+    private static Calendar calendar(java.util.Date date, Calendar cal) {
+        Calendar c = cal == null ? Calendar.getInstance() : (Calendar) cal.clone();
+        c.setTime(date);
+        return c;
+    }
+
+    /* year, month and day, after the length byte */
+    private static void writeDate(byte[] bytes, Calendar c) {
+        int year = c.get(Calendar.YEAR);
+        bytes[1] = (byte) year;
+        bytes[2] = (byte) (year >>> 8);
+        bytes[3] = (byte) (c.get(Calendar.MONTH) + 1);
+        bytes[4] = (byte) c.get(Calendar.DAY_OF_MONTH);
+    }
+
+    private static byte[] littleEndian(long value, int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (value >>> (8 * i));
+        }
+        return bytes;
+    }
+
+    private static byte[] lengthEncoded(byte[] value) {
+        int length = value.length;
+        int prefix = length < 251 ? 1 : length < 65536 ? 3 : length < 16777216 ? 4 : 9;
+        byte[] bytes = new byte[prefix + length];
+        switch (prefix) {
+            case 1:
+                bytes[0] = (byte) length;
+                break;
+            case 3:
+                bytes[0] = (byte) 252;
+                break;
+            case 4:
+                bytes[0] = (byte) 253;
+                break;
+            default:
+                bytes[0] = (byte) 254;
+                break;
+        }
+        for (int i = 1; i < prefix; i++) {
+            bytes[i] = (byte) (length >>> (8 * (i - 1)));
+        }
+        System.arraycopy(value, 0, bytes, prefix, length);
+        return bytes;
+    }
+
+    /**
+     * Get the parameter type, as sent in COM_STMT_EXECUTE.
+     *
+     * @return the field type
+     */
+    public int getType() {
+        return type;
+    }
+
+    public boolean isNull() {
+        return bytes == null && !isLongData();
+    }
+
+    /**
+     * Is the value sent with COM_STMT_SEND_LONG_DATA instead of with the other values.
+     *
+     * @return true for streams
+     */
+    public boolean isLongData() {
+        return stream != null || reader != null;
+    }
+
+    /**
+     * Write the encoded value of a parameter that is neither NULL nor long data.
+     *
+     * @param os stream to write to
+     * @throws IOException if the value cannot be written
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        os.write(bytes);
+    }
+
+    /**
+     * Copy the data of a stream parameter.
+     *
+     * @param os stream to write the data to, which is flushed
+     * @throws IOException if the data cannot be read or written
+     */
+    public void writeLongData(OutputStream os) throws IOException {
+        if (stream != null) {
+            byte[] buffer = new byte[8192];
+            long remaining = length < 0 ? Long.MAX_VALUE : length;
+            while (remaining > 0) {
+                int read = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                os.write(buffer, 0, read);
+                remaining -= read;
+            }
+            os.flush();
+            return;
+        }
+        Writer writer = new OutputStreamWriter(os, "UTF-8");
+        char[] buffer = new char[8192];
+        long remaining = length < 0 ? Long.MAX_VALUE : length;
+        while (remaining > 0) {
+            int read = reader.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            writer.write(buffer, 0, read);
+            remaining -= read;
+        }
+        writer.flush();
+    }
+}
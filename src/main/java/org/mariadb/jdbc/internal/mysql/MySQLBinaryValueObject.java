@@ -0,0 +1,248 @@
+package org.mariadb.jdbc.internal.mysql;
+
+import org.mariadb.jdbc.internal.common.ValueObject;
+import org.mariadb.jdbc.internal.common.queryresults.ColumnFlags;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.util.Calendar;
+
+/**
+ * A numeric value of a binary protocol row, kept as the number the server sent.
+ *
+ * The numeric getters read the number directly, clamping out of range values like the text protocol does, instead
+ * of parsing digits. The other getters use the text the server sends for the same value in a text protocol row.
+ * FLOAT values read as another type, and DOUBLE values beyond 2^53 read as integers, are converted from the exact
+ * number the server sent, not from its shortest decimal text.
+ */
+public class MySQLBinaryValueObject implements ValueObject {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final BigInteger UNSIGNED_LONG = BigInteger.ONE.shiftLeft(64);
+
+    /* integers sign or zero extended, BIGINT UNSIGNED as its 64 bits, FLOAT and DOUBLE as their IEEE 754 bits */
+    private final long value;
+    private final MySQLColumnInformation columnInfo;
+    private final MySQLType dataType;
+    private MySQLValueObject text;
+
+    public MySQLBinaryValueObject(long value, MySQLColumnInformation columnInfo) {
+        this.value = value;
+        this.columnInfo = columnInfo;
+        this.dataType = columnInfo.getType();
+    }
+
+    private boolean isFloatingPoint() {
+        return dataType == MySQLType.FLOAT || dataType == MySQLType.DOUBLE;
+    }
+
+    /* BIGINT UNSIGNED values above Long.MAX_VALUE */
+    private boolean isLargeUnsigned() {
+        return value < 0 && dataType == MySQLType.BIGINT && !columnInfo.isSigned();
+    }
+
+    private double doubleValue() {
+        if (dataType == MySQLType.FLOAT) {
+            return Float.intBitsToFloat((int) value);
+        }
+        return Double.longBitsToDouble(value);
+    }
+
+    private long clamp(long min, long max) {
+        if (isFloatingPoint()) {
+            double d = doubleValue();
+            if (d <= min) {
+                return min;
+            }
+            return d >= max ? max : (long) d;
+        }
+        if (isLargeUnsigned() || value > max) {
+            return max;
+        }
+        return value < min ? min : value;
+    }
+
+    /* the value, as the server writes it in a text protocol row */
+    private MySQLValueObject text() {
+        if (text == null) {
+            String s;
+            if (dataType == MySQLType.FLOAT) {
+                s = withoutZeroFraction(Float.toString(Float.intBitsToFloat((int) value)));
+            } else if (dataType == MySQLType.DOUBLE) {
+                s = withoutZeroFraction(Double.toString(Double.longBitsToDouble(value)));
+            } else if (isLargeUnsigned()) {
+                s = BigInteger.valueOf(value).add(UNSIGNED_LONG).toString();
+            } else {
+                s = String.valueOf(value);
+            }
+            if ((columnInfo.getFlags() & ColumnFlags.ZEROFILL) != 0) {
+                s = zeroFill(s, (int) columnInfo.getLength());
+            }
+            text = new MySQLValueObject(s.getBytes(ASCII), columnInfo);
+        }
+        return text;
+    }
+
+    /* Java writes 1.0 where the server writes 1 */
+    private static String withoutZeroFraction(String s) {
+        return s.endsWith(".0") ? s.substring(0, s.length() - 2) : s;
+    }
+
+    private static String zeroFill(String s, int width) {
+        if (s.length() >= width) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(width);
+        for (int i = s.length(); i < width; i++) {
+            sb.append('0');
+        }
+        return sb.append(s).toString();
+    }
+
+    public String getString() {
+        return text().getString();
+    }
+
+    public long getLong() {
+        return clamp(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    public int getInt() {
+        return (int) clamp(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    public short getShort() {
+        return (short) clamp(Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    public byte getByte() {
+        if (isFloatingPoint()) {
+            /* decimals are rejected as in text rows, not truncated */
+            return text().getByte();
+        }
+        long l = getLong();
+        if (l < Byte.MIN_VALUE || l > Byte.MAX_VALUE) {
+            /* out of range values are rejected, not clamped */
+            return Byte.valueOf(getString());
+        }
+        return (byte) l;
+    }
+
+    public byte[] getBytes() {
+        return text().getBytes();
+    }
+
+    public float getFloat() {
+        if (dataType == MySQLType.FLOAT) {
+            return Float.intBitsToFloat((int) value);
+        }
+        if (dataType == MySQLType.DOUBLE) {
+            return (float) Double.longBitsToDouble(value);
+        }
+        return isLargeUnsigned() ? text().getFloat() : (float) value;
+    }
+
+    public double getDouble() {
+        if (isFloatingPoint()) {
+            return doubleValue();
+        }
+        return isLargeUnsigned() ? text().getDouble() : (double) value;
+    }
+
+    public BigDecimal getBigDecimal() {
+        if (isFloatingPoint()) {
+            return text().getBigDecimal();
+        }
+        return new BigDecimal(getBigInteger());
+    }
+
+    public BigInteger getBigInteger() {
+        if (isFloatingPoint()) {
+            return text().getBigInteger();
+        }
+        BigInteger bigInteger = BigInteger.valueOf(value);
+        return isLargeUnsigned() ? bigInteger.add(UNSIGNED_LONG) : bigInteger;
+    }
+
+    public InputStream getInputStream() {
+        return text().getInputStream();
+    }
+
+    public InputStream getBinaryInputStream() {
+        return text().getBinaryInputStream();
+    }
+
+    public Object getObject(int datatypeMappingFlags, Calendar cal) throws ParseException {
+        switch (dataType) {
+            case TINYINT:
+                if ((datatypeMappingFlags & TINYINT1_IS_BIT) != 0 && columnInfo.getLength() == 1) {
+                    return value != 0;
+                }
+                return getInt();
+            case SMALLINT:
+            case MEDIUMINT:
+                return getInt();
+            case INTEGER:
+                if (!columnInfo.isSigned()) {
+                    return getLong();
+                }
+                return getInt();
+            case BIGINT:
+                if (!columnInfo.isSigned()) {
+                    return getBigInteger();
+                }
+                return getLong();
+            case FLOAT:
+                return getFloat();
+            case DOUBLE:
+                return getDouble();
+            case YEAR:
+                if ((datatypeMappingFlags & YEAR_IS_DATE_TYPE) == 0) {
+                    return getShort();
+                }
+                break;
+            default:
+                break;
+        }
+        return text().getObject(datatypeMappingFlags, cal);
+    }
+
+    public Date getDate(Calendar cal) throws ParseException {
+        return text().getDate(cal);
+    }
+
+    public Time getTime(Calendar cal) throws ParseException {
+        return text().getTime(cal);
+    }
+
+    public Timestamp getTimestamp(Calendar cal) throws ParseException {
+        return text().getTimestamp(cal);
+    }
+
+    public boolean getBoolean() {
+        return text().getBoolean();
+    }
+
+    public boolean isNull() {
+        return false;
+    }
+
+    public int getDisplayLength() {
+        return text().getDisplayLength();
+    }
+
+    public Clob getClob() {
+        return text().getClob();
+    }
+
+    public Blob getBlob() {
+        return text().getBlob();
+    }
+}
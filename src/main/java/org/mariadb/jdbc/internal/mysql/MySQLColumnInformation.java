@@ -49,6 +49,7 @@ OF SUCH DAMAGE.
 
 package org.mariadb.jdbc.internal.mysql;
 
+import org.mariadb.jdbc.internal.common.StringDecoder;
 import org.mariadb.jdbc.internal.common.packet.RawPacket;
 import org.mariadb.jdbc.internal.common.packet.buffer.Reader;
 import org.mariadb.jdbc.internal.common.queryresults.ColumnFlags;
@@ -56,15 +57,23 @@ import org.mariadb.jdbc.internal.common.queryresults.ColumnFlags;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.Charset;
 import java.sql.Types;
 
 public class MySQLColumnInformation  {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     RawPacket buffer;
+    /* position of the catalog in the packet, the strings follow it */
+    private int start;
+    /* the strings, decoded from the packet when they are first used */
+    private String[] strings;
     private short charsetNumber;
     private long length;
     private MySQLType type;
     private byte decimals;
     private short flags;
+    private StringDecoder stringDecoder;
 
     // This array stored character length for every collation id up to collation id 256
     // It is generated from the information schema using
@@ -148,9 +157,10 @@ public class MySQLColumnInformation  {
 
 
     public MySQLColumnInformation(RawPacket buffer) throws IOException {
-        this.buffer = buffer;
-        buffer.getByteBuffer().mark();
-        Reader reader = new Reader(buffer);
+        /* column information outlives the packet fetch, do not keep a view on the receive buffer */
+        this.buffer = buffer.detach();
+        start = this.buffer.getByteBuffer().position();
+        Reader reader = new Reader(this.buffer);
 
         /*
         lenenc_str     catalog
@@ -176,6 +186,7 @@ public class MySQLColumnInformation  {
         reader.skipLengthEncodedBytes();  /* org_name */
         reader.skipBytes(1);
         charsetNumber = reader.readShort();
+        stringDecoder = StringDecoder.forCollation(charsetNumber & 0xffff);
         length = reader.readInt();
         type = MySQLType.fromServer(reader.readByte() & 0xff);
         flags = reader.readShort();
@@ -192,18 +203,96 @@ public class MySQLColumnInformation  {
     }
 
 
+    /*
+     * The string idx of the packet, 1 for the db up to 5 for the original name.
+     * The packet is read with absolute positions, so that columns shared by several results can be read concurrently.
+     */
     private String getString(int idx) {
-        try  {
-            buffer.getByteBuffer().reset();
-            buffer.getByteBuffer().mark();
-            Reader reader = new Reader(buffer);
-            for(int i = 0; i < idx ; i++) {
-               reader.skipLengthEncodedBytes();
+        String[] decoded = strings;
+        if (decoded == null) {
+            decoded = new String[6];
+            strings = decoded;
+        }
+        String s = decoded[idx];
+        if (s == null) {
+            ByteBuffer bb = buffer.getByteBuffer();
+            int pos = stringPosition(idx);
+            int length = (int) lengthAt(bb, pos);
+            pos += lengthSize(bb, pos);
+            if (bb.hasArray()) {
+                s = new String(bb.array(), bb.arrayOffset() + pos, length, UTF8);
+            } else {
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = bb.get(pos + i);
+                }
+                s = new String(bytes, UTF8);
+            }
+            decoded[idx] = s;
+        }
+        return s;
+    }
+
+    private int stringPosition(int idx) {
+        ByteBuffer bb = buffer.getByteBuffer();
+        int pos = start;
+        for (int i = 0; i < idx; i++) {
+            pos += lengthSize(bb, pos) + (int) lengthAt(bb, pos);
+        }
+        return pos;
+    }
+
+    /* size of the length encoded integer at pos */
+    private static int lengthSize(ByteBuffer bb, int pos) {
+        switch (bb.get(pos) & 0xff) {
+            case 0xfc:
+                return 3;
+            case 0xfd:
+                return 4;
+            case 0xfe:
+                return 9;
+            default:
+                return 1;
+        }
+    }
+
+    private static long lengthAt(ByteBuffer bb, int pos) {
+        int b = bb.get(pos) & 0xff;
+        switch (b) {
+            case 0xfc:
+                return (bb.get(pos + 1) & 0xff) | (bb.get(pos + 2) & 0xff) << 8;
+            case 0xfd:
+                return (bb.get(pos + 1) & 0xff) | (bb.get(pos + 2) & 0xff) << 8 | (bb.get(pos + 3) & 0xff) << 16;
+            case 0xfe:
+                /* packet buffers are little endian */
+                return bb.getLong(pos + 1);
+            default:
+                return b;
+        }
+    }
+
+    /**
+     * Do two columns have the same table, original table, name and original name.
+     * The packets are compared, without decoding the strings.
+     *
+     * @param other the other column
+     * @return true if the names are the same
+     */
+    public boolean hasSameNames(MySQLColumnInformation other) {
+        ByteBuffer a = buffer.getByteBuffer();
+        ByteBuffer b = other.buffer.getByteBuffer();
+        int posA = stringPosition(2);
+        int posB = other.stringPosition(2);
+        int length = stringPosition(6) - posA;
+        if (other.stringPosition(6) - posB != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (a.get(posA + i) != b.get(posB + i)) {
+                return false;
             }
-            return new String(reader.getLengthEncodedBytes(),"UTF-8");
-        }  catch (Exception e) {
-            throw new RuntimeException("this does not happen",e);
         }
+        return true;
     }
     public String getCatalog() {
         return null;
@@ -233,6 +322,13 @@ public class MySQLColumnInformation  {
         return charsetNumber;
     }
 
+    /**
+     * @return the decoder of the text values of the column, in the character set of the column
+     */
+    public StringDecoder getStringDecoder() {
+        return stringDecoder;
+    }
+
     public long getLength() {
         return length;
     }
@@ -65,6 +65,7 @@ import org.mariadb.jdbc.internal.common.query.MySQLQuery;
 import org.mariadb.jdbc.internal.common.query.Query;
 import org.mariadb.jdbc.internal.common.queryresults.*;
 import org.mariadb.jdbc.internal.mysql.packet.MySQLGreetingReadPacket;
+import org.mariadb.jdbc.internal.mysql.packet.MySQLRowPacket;
 import org.mariadb.jdbc.internal.mysql.packet.commands.*;
 
 import javax.net.SocketFactory;
@@ -77,6 +78,10 @@ import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.security.KeyStore;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
@@ -85,8 +90,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.Deflater;
 
 
 
@@ -154,8 +161,20 @@ class MyX509TrustManager implements X509TrustManager {
 
 public class MySQLProtocol {
     private final static Logger log = Logger.getLogger(MySQLProtocol.class.getName());
+    /* size of the direct receive and send buffers with transport=nio */
+    private static final int NIO_BUFFER_SIZE = 65536;
+    /* COM_STMT_EXECUTE flag opening a read-only cursor */
+    private static final int CURSOR_TYPE_READ_ONLY = 1;
+    /* size of the COM_STMT_SEND_LONG_DATA packets, well below the smallest max_allowed_packet */
+    private static final int LONG_DATA_CHUNK_SIZE = 256 * 1024;
+    /* maximum number of queries sent before their responses are read, by executePipelined() */
+    private static final int PIPELINE_WINDOW = 128;
+    /* error of COM_STMT_PREPARE when the server holds max_prepared_stmt_count statements */
+    private static final int ER_MAX_PREPARED_STMT_COUNT_REACHED = 1461;
     private boolean connected = false;
     private Socket socket;
+    /* set when connected with transport=nio */
+    private TimeoutSocketChannel channel;
     private PacketOutputStream writer;
     private  String version;
     private boolean readOnly = false;
@@ -163,12 +182,20 @@ public class MySQLProtocol {
     private final String username;
     private final String password;
     private int maxRows;  /* max rows returned by a statement */
-    private SyncPacketFetcher packetFetcher;
+    private PacketFetcher packetFetcher;
+    private CompressionStats compressionStats;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private int compressionThreshold = CompressOutputStream.DEFAULT_MIN_COMPRESSION_SIZE;
     private final Properties info;
     private  long serverThreadId;
     public boolean moreResults = false;
     public boolean hasWarnings = false;
     public StreamingSelectResult activeResult= null;
+    /**
+     * serializes the use of the connection by statements. An explicit lock rather than a monitor on the protocol,
+     * so that threads blocked on network I/O while holding it do not pin their carrier thread on virtual thread JVMs.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
     public int datatypeMappingFlags;
     public short serverStatus;
     JDBCUrl jdbcUrl;
@@ -183,6 +210,17 @@ public class MySQLProtocol {
     int reconnectCount;
     int queriesSinceFailover;
     private byte serverLanguage;
+    /* store cached results column by column, see CachedSelectResult */
+    private boolean columnarResults;
+    /* memory limits of cached results, rows over them are written to temporary files */
+    private long maxResultSetMemory;
+    private MemoryBudget connectionResultSetMemory;
+    /* fetch rows of prepared SELECTs through server cursors when a fetch size is set */
+    private boolean useCursorFetch;
+    /* number of rows streaming results read ahead on a helper thread, 0 to read them on demand */
+    private int prefetchRows;
+    /* server prepared statements kept open after their statement is closed, null if they are closed */
+    private PreparedStatementCache statementCache;
 
     /* =========================== HA  parameters ========================================= */
     /**
@@ -223,19 +261,20 @@ public class MySQLProtocol {
      */
     int secondsBeforeRetryMaster =  30;
 	private InputStream localInfileInputStream;
+	private ReadableByteChannel localInfileChannel;
+	private File localInfileFile;
 
-    private SSLSocketFactory getSSLSocketFactory(boolean trustServerCertificate)  throws QueryException
+    private SSLContext getSSLContext(boolean trustServerCertificate)  throws QueryException
     {
-        if (info.getProperty("trustServerCertificate") == null
-            && info.getProperty("serverSslCert") == null) {
-            return (SSLSocketFactory)SSLSocketFactory.getDefault();
-        }
-
         try {
+            if (info.getProperty("trustServerCertificate") == null
+                && info.getProperty("serverSslCert") == null) {
+                return SSLContext.getDefault();
+            }
             SSLContext sslContext = SSLContext.getInstance("TLS");
             X509TrustManager[] m = {new MyX509TrustManager(info)};
             sslContext.init(null, m ,null);
-        return sslContext.getSocketFactory();
+            return sslContext;
         } catch (Exception e) {
             throw new QueryException(e.getMessage(),0, "HY000", e);
         }
@@ -277,10 +316,57 @@ public class MySQLProtocol {
         	log.setLevel(Level.OFF);
 
         setDatatypeMappingFlags();
+        columnarResults = "true".equalsIgnoreCase(info.getProperty("columnarResults"));
+        useCursorFetch = "true".equalsIgnoreCase(info.getProperty("useCursorFetch"));
+        String s = info.getProperty("prefetchRows");
+        if (s != null)
+            prefetchRows = Integer.parseInt(s);
+        s = info.getProperty("maxResultSetMemory");
+        if (s != null)
+            maxResultSetMemory = Long.parseLong(s);
+        s = info.getProperty("maxConnectionResultSetMemory");
+        if (s != null)
+            connectionResultSetMemory = new MemoryBudget(Long.parseLong(s));
+        else if (maxResultSetMemory > 0)
+            /* no connection limit, but the results that spill to a file are closed with the connection */
+            connectionResultSetMemory = new MemoryBudget(Long.MAX_VALUE);
+        if ("true".equalsIgnoreCase(info.getProperty("useServerPrepStmts"))) {
+            int cacheSize = 25;
+            int sqlLimit = 2048;
+            s = info.getProperty("prepStmtCacheSize");
+            if (s != null)
+                cacheSize = Integer.parseInt(s);
+            s = info.getProperty("prepStmtCacheSqlLimit");
+            if (s != null)
+                sqlLimit = Integer.parseInt(s);
+            if (cacheSize > 0)
+                statementCache = new PreparedStatementCache(cacheSize, sqlLimit);
+        }
+        compressionLevel = intProperty("compressionLevel", compressionLevel, Deflater.DEFAULT_COMPRESSION,
+                Deflater.BEST_COMPRESSION);
+        compressionThreshold = intProperty("compressionThreshold", compressionThreshold, 0, Integer.MAX_VALUE);
         parseHAOptions();
         connect();
     }
 
+    /* value of an integer property, checked to be between min and max */
+    private int intProperty(String name, int defaultValue, int min, int max) throws QueryException {
+        String s = info.getProperty(name);
+        if (s == null) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(s.trim());
+            if (value >= min && value <= max) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            /* reported below */
+        }
+        throw new QueryException("Invalid value of the " + name + " property: '" + s + "', expected an integer from "
+                + min + " to " + max, 0, "HY000");
+    }
+
     private void parseHAOptions() {
         String s = info.getProperty("autoReconnect");
         if (s != null && s.equals("true"))
@@ -326,6 +412,7 @@ public class MySQLProtocol {
                connectTimeout = null;
            }
         }
+        channel = null;
         // Create socket with timeout if required
         if (info.getProperty("pipe") != null) {
             socket = new org.mariadb.jdbc.internal.mysql.NamedPipeSocket(host, info.getProperty("pipe"));
@@ -343,6 +430,8 @@ public class MySQLProtocol {
                //  could be e.g library loading error
                throw new IOException(re.getMessage(),re.getCause());
             }
+        } else if ("nio".equalsIgnoreCase(info.getProperty("transport")) && socketFactoryName == null) {
+            socket = SocketChannel.open().socket();
         } else {
             socket = socketFactory.createSocket();
         }
@@ -399,17 +488,26 @@ public class MySQLProtocol {
                socketTimeout = null;
            }
        }
+       if (socket.getChannel() != null) {
+           channel = new TimeoutSocketChannel(socket.getChannel());
+       }
        if (socketTimeout != null)
-           socket.setSoTimeout(socketTimeout);
+           setTimeout(socketTimeout);
 
        try {
-           InputStream reader;
-           reader = new BufferedInputStream(socket.getInputStream(), 32768);
-           packetFetcher = new SyncPacketFetcher(reader);
-           writer = new PacketOutputStream(socket.getOutputStream());
+           InputStream reader = null;
+           ByteChannel byteChannel = channel;
+           if (channel != null) {
+               packetFetcher = new ChannelPacketFetcher(byteChannel, NIO_BUFFER_SIZE);
+               writer = new PacketOutputStream(new ChannelOutputStream(byteChannel, NIO_BUFFER_SIZE));
+           } else {
+               reader = new BufferedInputStream(socket.getInputStream(), 32768);
+               packetFetcher = createPacketFetcher(reader);
+               writer = new PacketOutputStream(socket.getOutputStream());
+           }
            RawPacket packet =  packetFetcher.getRawPacket();
            if (ReadUtil.isErrorPacket(packet)) {
-               reader.close();
+               packetFetcher.close();
                ErrorPacket errorPacket = (ErrorPacket)ResultPacketFactory.createResultPacket(packet);
                throw new QueryException(errorPacket.getMessage());
            }
@@ -434,6 +532,15 @@ public class MySQLProtocol {
 
 
 
+           int mariaDbCapabilities = 0;
+           /* server prepared statements can skip reading the column definitions of their results */
+           if ("true".equalsIgnoreCase(info.getProperty("useServerPrepStmts"))
+                   && (greetingPacket.getMariaDbCapabilities()
+                           & MySQLServerCapabilities.MARIADB_CLIENT_CACHE_METADATA) != 0) {
+               capabilities &= ~MySQLServerCapabilities.CLIENT_MYSQL;
+               mariaDbCapabilities = MySQLServerCapabilities.MARIADB_CLIENT_CACHE_METADATA;
+           }
+
            if(info.getProperty("allowMultiQueries") != null
         		   || (info.getProperty("rewriteBatchedStatements") != null
         		   && "true".equalsIgnoreCase(info.getProperty("rewriteBatchedStatements")))) {
@@ -459,17 +566,29 @@ public class MySQLProtocol {
 
                boolean trustServerCertificate  =  info.getProperty("trustServerCertificate") != null;
 
-               SSLSocketFactory f = getSSLSocketFactory(trustServerCertificate);
-               SSLSocket sslSocket = (SSLSocket)f.createSocket(socket,
-                       socket.getInetAddress().getHostAddress(),  socket.getPort(),  false);
-
-               sslSocket.setEnabledProtocols(new String [] {"TLSv1"});
-               sslSocket.setUseClientMode(true);
-               sslSocket.startHandshake();
-               socket = sslSocket;
-               writer = new PacketOutputStream(socket.getOutputStream());
-               reader = new BufferedInputStream(socket.getInputStream(), 32768);
-               packetFetcher = new SyncPacketFetcher(reader);
+               SSLContext sslContext = getSSLContext(trustServerCertificate);
+               if (channel != null) {
+                   SSLEngine engine = sslContext.createSSLEngine(socket.getInetAddress().getHostAddress(),
+                           socket.getPort());
+                   engine.setEnabledProtocols(new String [] {"TLSv1"});
+                   engine.setUseClientMode(true);
+                   SSLSocketChannel sslChannel = new SSLSocketChannel(channel, engine);
+                   sslChannel.startHandshake();
+                   byteChannel = sslChannel;
+                   packetFetcher = new ChannelPacketFetcher(byteChannel, NIO_BUFFER_SIZE);
+                   writer = new PacketOutputStream(new ChannelOutputStream(byteChannel, NIO_BUFFER_SIZE));
+               } else {
+                   SSLSocket sslSocket = (SSLSocket)sslContext.getSocketFactory().createSocket(socket,
+                           socket.getInetAddress().getHostAddress(),  socket.getPort(),  false);
+
+                   sslSocket.setEnabledProtocols(new String [] {"TLSv1"});
+                   sslSocket.setUseClientMode(true);
+                   sslSocket.startHandshake();
+                   socket = sslSocket;
+                   writer = new PacketOutputStream(socket.getOutputStream());
+                   reader = new BufferedInputStream(socket.getInputStream(), 32768);
+                   packetFetcher = createPacketFetcher(reader);
+               }
 
                packetSeq++;
            } else if(info.getProperty("useSSL") != null){
@@ -481,6 +600,7 @@ public class MySQLProtocol {
                    this.password,
                    database,
                    capabilities,
+                   mariaDbCapabilities,
                    decideLanguage(),
                    greetingPacket.getSeed(),
                    packetSeq);
@@ -504,8 +624,16 @@ public class MySQLProtocol {
            serverStatus = ok.getServerStatus();
 
            if (useCompression) {
-               writer = new PacketOutputStream(new CompressOutputStream(socket.getOutputStream()));
-               packetFetcher = new SyncPacketFetcher(new DecompressInputStream(socket.getInputStream()));
+               compressionStats = new CompressionStats();
+               if (channel != null) {
+                   writer = new PacketOutputStream(createCompressOutputStream(
+                           new ChannelOutputStream(byteChannel, NIO_BUFFER_SIZE)));
+                   packetFetcher = createPacketFetcher(new DecompressInputStream(
+                           new BufferedInputStream(Channels.newInputStream(byteChannel), 32768), compressionStats));
+               } else {
+                   writer = new PacketOutputStream(createCompressOutputStream(socket.getOutputStream()));
+                   packetFetcher = createPacketFetcher(new DecompressInputStream(socket.getInputStream(), compressionStats));
+               }
            }
 
            // In JDBC, connection must start in autocommit mode.
@@ -550,6 +678,26 @@ public class MySQLProtocol {
 
     }
     
+    /**
+     * Create the packet fetcher for the connection. With reuseReadBuffer=true, packets are read into
+     * one receive buffer per connection instead of allocating a new buffer for every packet.
+     */
+    private SyncPacketFetcher createPacketFetcher(InputStream is) {
+        boolean reuseReadBuffer = "true".equalsIgnoreCase(info.getProperty("reuseReadBuffer"));
+        return new SyncPacketFetcher(is, reuseReadBuffer);
+    }
+
+    /**
+     * Create the compressed protocol output stream. compressionLevel (-1 for the default, 0-9) sets the deflate level,
+     * packets up to compressionThreshold bytes are sent uncompressed, and with adaptiveCompression=true
+     * packets whose data does not shrink are not deflated, and compression is suspended while the recent packets
+     * do not shrink enough for the time spent deflating them.
+     */
+    private CompressOutputStream createCompressOutputStream(OutputStream os) {
+        boolean adaptive = "true".equalsIgnoreCase(info.getProperty("adaptiveCompression"));
+        return new CompressOutputStream(os, compressionLevel, compressionThreshold, adaptive, compressionStats);
+    }
+
     private boolean isServerLanguageUTF8MB4(byte serverLanguage) {
     	Byte[] utf8mb4Languages = {
     			(byte)45,(byte)46,(byte)224,(byte)225,(byte)226,(byte)227,(byte)228,
@@ -603,6 +751,8 @@ public class MySQLProtocol {
         public int statementId;
         public MySQLColumnInformation[] columns;
         public MySQLColumnInformation[] parameters;
+        /* see PreparedStatementCache.prepared() */
+        int cacheGeneration;
         public PrepareResult(int statementId, MySQLColumnInformation[] columns,  MySQLColumnInformation parameters[]) {
             this.statementId = statementId;
             this.columns = columns;
@@ -610,15 +760,104 @@ public class MySQLProtocol {
         }
     }
 
+    /**
+     * Prepare a statement, or take it from the cache of statements closed with releasePreparedStatement().
+     *
+     * @param sql the SQL of the statement
+     * @return the prepared statement
+     * @throws QueryException if the statement cannot be prepared
+     */
     public  PrepareResult prepare(String sql) throws QueryException {
+        byte[] bytes;
+        try {
+            bytes = sql.getBytes("UTF8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError("UTF-8 not supported");
+        }
+        if (statementCache == null) {
+            return prepare(bytes);
+        }
+        PrepareResult cached = statementCache.take(sql);
+        if (cached != null) {
+            return cached;
+        }
+        if (statementCache.needsServerLimit()) {
+            try {
+                statementCache.setServerLimit(Integer.parseInt(getServerVariable("max_prepared_stmt_count")));
+            } catch (SQLException e) {
+                throw new QueryException(e.getMessage(), e.getErrorCode(), e.getSQLState(), e);
+            }
+        }
+        PrepareResult result;
+        try {
+            result = prepare(bytes);
+        } catch (QueryException e) {
+            if (e.getErrorCode() != ER_MAX_PREPARED_STMT_COUNT_REACHED || statementCache.isEmpty()) {
+                throw e;
+            }
+            /* other clients use the server statements : give back the cached ones */
+            closePreparedStatements(statementCache.clear());
+            result = prepare(bytes);
+        }
+        statementCache.prepared(result);
+        return result;
+    }
+
+    /*
+     * Empty the statement cache before queries that change the current database : the same SQL may use the tables
+     * of another database then.
+     */
+    private void checkDatabaseChange(List<Query> queries) throws QueryException {
+        if (statementCache == null) {
+            return;
+        }
+        for (Query query : queries) {
+            if (Utils.hasStatementStartingWith(query.getQuery(), "USE", noBackslashEscapes())) {
+                closePreparedStatements(statementCache.databaseChanged());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Close a statement returned by prepare(). The statement is cached, to be returned by prepare() for the same SQL,
+     * unless the connection does not cache statements.
+     *
+     * @param sql the SQL of the statement
+     * @param result the statement
+     * @throws QueryException if the statement, or a statement evicted from the cache, cannot be closed
+     */
+    public void releasePreparedStatement(String sql, PrepareResult result) throws QueryException {
+        if (statementCache == null) {
+            closePreparedStatement(result.statementId);
+            return;
+        }
+        lock.lock();
+        try {
+            closePreparedStatements(statementCache.put(sql, result));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closePreparedStatements(List<Integer> statementIds) throws QueryException {
+        for (int statementId : statementIds) {
+            closePreparedStatement(statementId);
+        }
+    }
+
+    private PrepareResult prepare(byte[] sql) throws QueryException {
         try {
             writer.startPacket(0);
             writer.write(0x16);
-            writer.write(sql.getBytes("UTF8"));
+            writer.write(sql);
             writer.finishPacket();
             
             RawPacket rp  = packetFetcher.getRawPacket();
-            checkErrorPacket(rp);
+            if (ReadUtil.isErrorPacket(rp)) {
+                ErrorPacket ep = new ErrorPacket(rp);
+                throw new QueryException(ep.getMessage(), ep.getErrorNumber(), ep.getSqlState());
+            }
             byte b = rp.getByteBuffer().get(0);
             if (b == 0) {
                 /* Prepared Statement OK */
@@ -655,18 +894,346 @@ public class MySQLProtocol {
         }
     }
     
-    public synchronized void closePreparedStatement(int statementId) throws QueryException{
+    public void closePreparedStatement(int statementId) throws QueryException{
+        lock.lock();
         try {
             writer.startPacket(0);
             writer.write(0x19); /*COM_STMT_CLOSE*/
-            writer.write(statementId); 
+            writeInt(statementId);
             writer.finishPacket();
         } catch(IOException e) {
             throw new QueryException(e.getMessage(), -1,
                     SQLExceptionMapper.SQLStates.CONNECTION_EXCEPTION.getSqlState(),
                     e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        writer.write(value);
+        writer.write(value >>> 8);
+        writer.write(value >>> 16);
+        writer.write(value >>> 24);
+    }
+
+    /**
+     * Execute a statement prepared with prepare(), with COM_STMT_EXECUTE. The data of the parameters sent as long
+     * data must have been sent with sendLongData() just before.
+     *
+     * @param statement the statement, whose columns are updated with the column definitions of the result
+     * @param parameters the parameters
+     * @param sendTypes false if the parameter types are the ones of the previous execution, which the server keeps
+     * @param streaming true to read the rows as they are used, instead of all at once
+     * @param cursorFetchSize if positive, the rows of a SELECT are fetched this number at a time through a read-only
+     *                        cursor, which is reset when the result is closed
+     * @return the query result, whose rows are binary protocol rows
+     * @throws QueryException if the statement fails
+     */
+    public QueryResult executePreparedStatement(PrepareResult statement, MySQLBinaryParameter[] parameters,
+                                                boolean sendTypes, boolean streaming, int cursorFetchSize)
+            throws QueryException {
+        this.moreResults = false;
+        boolean cursor = cursorFetchSize > 0 && statement.columns.length > 0;
+        try {
+            writer.startPacket(0);
+            writer.write(0x17); /* COM_STMT_EXECUTE */
+            writeInt(statement.statementId);
+            writer.write(cursor ? CURSOR_TYPE_READ_ONLY : 0);
+            writeInt(1); /* iteration count */
+            if (parameters.length > 0) {
+                byte[] nullBitmap = new byte[(parameters.length + 7) / 8];
+                for (int i = 0; i < parameters.length; i++) {
+                    if (parameters[i].isNull()) {
+                        nullBitmap[i / 8] |= 1 << (i % 8);
+                    }
+                }
+                writer.write(nullBitmap);
+                writer.write(sendTypes ? 1 : 0);
+                if (sendTypes) {
+                    for (MySQLBinaryParameter parameter : parameters) {
+                        writer.write(parameter.getType());
+                        writer.write(parameter.getType() >>> 8);
+                    }
+                }
+                for (MySQLBinaryParameter parameter : parameters) {
+                    if (!parameter.isNull() && !parameter.isLongData()) {
+                        parameter.writeTo(writer);
+                    }
+                }
+            }
+            writer.finishPacket();
+        } catch (IOException e) {
+            throw new QueryException("Could not send query: " + e.getMessage(), -1,
+                    SQLExceptionMapper.SQLStates.CONNECTION_EXCEPTION.getSqlState(), e);
+        }
+        if (cursor) {
+            try {
+                return readCursorResult(statement, cursorFetchSize, false);
+            } catch (IOException e) {
+                throw new QueryException("Could not read result set: " + e.getMessage(), -1,
+                        SQLExceptionMapper.SQLStates.CONNECTION_EXCEPTION.getSqlState(), e);
+            }
+        }
+        return getResult(null, streaming, true, statement);
+    }
+
+    /**
+     * Send the data of a stream parameter with COM_STMT_SEND_LONG_DATA, which has no response.
+     * If the data cannot be read, the data already sent is discarded with COM_STMT_RESET.
+     *
+     * @param statementId the statement
+     * @param parameter index of the parameter, starts at 0
+     * @param value the parameter
+     * @throws QueryException if the data cannot be sent
+     */
+    public void sendLongData(int statementId, int parameter, MySQLBinaryParameter value) throws QueryException {
+        try {
+            value.writeLongData(new LongDataOutputStream(statementId, parameter));
+        } catch (IOException e) {
+            try {
+                resetPreparedStatement(statementId);
+            } catch (QueryException reset) {
+                /* the connection is broken, the first error is reported */
+            }
+            throw new QueryException("Could not send parameter data: " + e.getMessage(), -1,
+                    SQLExceptionMapper.SQLStates.INTERRUPTED_EXCEPTION.getSqlState(), e);
         }
     }
+
+    /**
+     * Reset a prepared statement with COM_STMT_RESET : the long data sent for the next execution is discarded.
+     *
+     * @param statementId the statement
+     * @throws QueryException if the statement cannot be reset
+     */
+    public void resetPreparedStatement(int statementId) throws QueryException {
+        lock.lock();
+        try {
+            writer.startPacket(0);
+            writer.write(0x1a); /* COM_STMT_RESET */
+            writeInt(statementId);
+            writer.finishPacket();
+            ResultPacket resultPacket = ResultPacketFactory.createResultPacket(packetFetcher.getRawPacket());
+            if (resultPacket.getResultType() == ResultPacket.ResultType.ERROR) {
+                ErrorPacket ep = (ErrorPacket) resultPacket;
+                throw new QueryException(ep.getMessage(), ep.getErrorNumber(), ep.getSqlState());
+            }
+        } catch (IOException e) {
+            throw new QueryException(e.getMessage(), -1,
+                    SQLExceptionMapper.SQLStates.CONNECTION_EXCEPTION.getSqlState(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* splits the data of a parameter into COM_STMT_SEND_LONG_DATA packets */
+    private class LongDataOutputStream extends OutputStream {
+        private final int statementId;
+        private final int parameter;
+        private final byte[] buffer = new byte[LONG_DATA_CHUNK_SIZE];
+        private int count;
+        private boolean sent;
+
+        LongDataOutputStream(int statementId, int parameter) {
+            this.statementId = statementId;
+            this.parameter = parameter;
+        }
+
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                sendChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    sendChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(bytes, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /* send the buffered data, and a packet for empty data : the server only takes parameters it got data for
+           as long data */
+        public void flush() throws IOException {
+            if (count > 0 || !sent) {
+                sendChunk();
+            }
+        }
+
+        private void sendChunk() throws IOException {
+            writer.startPacket(0);
+            writer.write(0x18); /* COM_STMT_SEND_LONG_DATA */
+            writeInt(statementId);
+            writer.write(parameter);
+            writer.write(parameter >>> 8);
+            writer.write(buffer, 0, count);
+            writer.finishPacket();
+            count = 0;
+            sent = true;
+        }
+    }
+
+    /**
+     * Execute a SELECT through a read-only server cursor. The query, with its parameters, is prepared with
+     * COM_STMT_PREPARE and executed with COM_STMT_EXECUTE, then the result set fetches its rows fetchSize at a time
+     * with COM_STMT_FETCH : the connection can run other queries between two fetches.
+     * Queries the server cannot prepare, or does not open a cursor for, are executed without cursor.
+     *
+     * @param query the query
+     * @param fetchSize number of rows fetched at a time
+     * @return the query result, a CursorSelectResult if a cursor was opened
+     * @throws QueryException if the query fails
+     */
+    public QueryResult executeCursorQuery(final Query query, int fetchSize) throws QueryException, SQLException {
+        query.validate();
+        this.moreResults = false;
+        ByteArrayOutputStream sql = new ByteArrayOutputStream();
+        try {
+            query.writeTo(sql);
+        } catch (IOException e) {
+            throw new QueryException("Could not send query: " + e.getMessage(), -1,
+                    SQLExceptionMapper.SQLStates.INTERRUPTED_EXCEPTION.getSqlState(), e);
+        }
+        PrepareResult prepareResult;
+        try {
+            prepareResult = prepare(sql.toByteArray());
+        } catch (QueryException e) {
+            if (e.getCause() instanceof IOException) {
+                throw e;
+            }
+            /* for example several statements, which cannot be prepared */
+            return executeQuery(query, false);
+        }
+        int statementId = prepareResult.statementId;
+        if (prepareResult.columns.length == 0 || prepareResult.parameters.length > 0) {
+            closePreparedStatement(statementId);
+            return executeQuery(query, false);
+        }
+        boolean cursorOpened = false;
+        try {
+            writer.startPacket(0);
+            writer.write(0x17); /* COM_STMT_EXECUTE */
+            writeInt(statementId);
+            writer.write(CURSOR_TYPE_READ_ONLY);
+            writeInt(1); /* iteration count */
+            writer.finishPacket();
+            QueryResult result = readCursorResult(prepareResult, fetchSize, true);
+            cursorOpened = result instanceof CursorSelectResult;
+            return result;
+        } catch (IOException e) {
+            throw new QueryException("Could not read result set: " + e.getMessage(), -1,
+                    SQLExceptionMapper.SQLStates.CONNECTION_EXCEPTION.getSqlState(), e);
+        } finally {
+            if (!cursorOpened) {
+                closePreparedStatement(statementId);
+            }
+        }
+    }
+
+    /*
+     * Read the response to a COM_STMT_EXECUTE that asked for a read-only cursor. If the server opened the cursor,
+     * the result fetches the rows, and closes the statement when it is closed if ownsStatement is true, or resets it.
+     */
+    private QueryResult readCursorResult(PrepareResult statement, int fetchSize, boolean ownsStatement)
+            throws IOException, QueryException {
+        RawPacket rawPacket = packetFetcher.getRawPacket();
+        ResultPacket resultPacket = ResultPacketFactory.createResultPacket(rawPacket);
+        switch (resultPacket.getResultType()) {
+            case ERROR:
+                this.hasWarnings = false;
+                ErrorPacket ep = (ErrorPacket) resultPacket;
+                throw new QueryException(ep.getMessage(), ep.getErrorNumber(), ep.getSqlState());
+            case OK:
+                OKPacket okpacket = (OKPacket) resultPacket;
+                serverStatus = okpacket.getServerStatus();
+                this.hasWarnings = (okpacket.getWarnings() > 0);
+                return new UpdateResult(okpacket.getAffectedRows(), okpacket.getWarnings(), okpacket.getMessage(),
+                        okpacket.getInsertId());
+            case RESULTSET:
+                break;
+            default:
+                throw new QueryException("Could not parse result", (short) -1,
+                        SQLExceptionMapper.SQLStates.INTERRUPTED_EXCEPTION.getSqlState());
+        }
+        MySQLColumnInformation[] ci = statement.columns;
+        if (((ResultSetPacket) resultPacket).isMetadataFollows()) {
+            ci = new MySQLColumnInformation[(int) ((ResultSetPacket) resultPacket).getFieldCount()];
+            for (int i = 0; i < ci.length; i++) {
+                ci[i] = new MySQLColumnInformation(packetFetcher.getRawPacket());
+            }
+            statement.columns = ci;
+        }
+        readEOFPacket();
+        if ((serverStatus & ServerStatus.CURSOR_EXISTS) != 0) {
+            return new CursorSelectResult(ci, this, statement.statementId, fetchSize, ownsStatement);
+        }
+        /* no cursor, the rows follow */
+        List<MySQLRowPacket> rows = new ArrayList<MySQLRowPacket>();
+        readBinaryRows(ci, rows);
+        return CachedSelectResult.createCachedSelectResult(ci, rows);
+    }
+
+    /**
+     * Fetch the next rows of a cursor opened by executeCursorQuery() or executePreparedStatement().
+     *
+     * @param statementId the statement of the cursor
+     * @param ci columns of the rows
+     * @param fetchSize number of rows to fetch
+     * @param rows list the rows are added to
+     * @return true if the cursor has no more rows
+     * @throws QueryException if the rows cannot be fetched
+     */
+    public boolean fetchCursorRows(int statementId, MySQLColumnInformation[] ci, int fetchSize,
+                                   List<MySQLRowPacket> rows) throws QueryException {
+        lock.lock();
+        try {
+            if (hasUnreadData()) {
+                throw new QueryException("There is an open result set on the current connection, "
+                        + "which must be closed prior to fetching rows");
+            }
+            writer.startPacket(0);
+            writer.write(0x1c); /* COM_STMT_FETCH */
+            writeInt(statementId);
+            writeInt(fetchSize);
+            writer.finishPacket();
+            return (readBinaryRows(ci, rows) & ServerStatus.LAST_ROW_SENT) != 0;
+        } catch (IOException e) {
+            throw new QueryException("Could not fetch rows: " + e.getMessage(), -1,
+                    SQLExceptionMapper.SQLStates.CONNECTION_EXCEPTION.getSqlState(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* read binary rows up to the EOF packet, and return the server status of the EOF packet */
+    private short readBinaryRows(MySQLColumnInformation[] ci, List<MySQLRowPacket> rows)
+            throws IOException, QueryException {
+        for (;;) {
+            RawPacket rawPacket = packetFetcher.getRawPacket();
+            if (ReadUtil.isErrorPacket(rawPacket)) {
+                ErrorPacket ep = new ErrorPacket(rawPacket);
+                throw new QueryException(ep.getMessage(), ep.getErrorNumber(), ep.getSqlState());
+            }
+            if (ReadUtil.eofIsNext(rawPacket)) {
+                EOFPacket eof = new EOFPacket(rawPacket);
+                this.hasWarnings = eof.getWarningCount() > 0;
+                this.serverStatus = eof.getStatusFlags();
+                return serverStatus;
+            }
+            MySQLRowPacket row = new MySQLRowPacket(ci);
+            row.readBinary(rawPacket, packetFetcher);
+            rows.add(row);
+        }
+    }
+
     public void setHostFailed() {
         hostFailed = true;
         failTimestamp = System.currentTimeMillis();
@@ -685,17 +1252,20 @@ public class MySQLProtocol {
         return ((serverStatus & ServerStatus.NO_BACKSLASH_ESCAPES) != 0);
     }
     public void reconnectToMaster() throws IOException,QueryException, SQLException {
-        SyncPacketFetcher saveFetcher = this.packetFetcher;
+        PacketFetcher saveFetcher = this.packetFetcher;
         PacketOutputStream saveWriter = this.writer;
         Socket saveSocket = this.socket;
+        TimeoutSocketChannel saveChannel = this.channel;
         HostAddress[] addrs = jdbcUrl.getHostAddresses();
         boolean success = false;
         try {
            connect(addrs[0].host, addrs[0].port);
            try {
-            close(saveFetcher, saveWriter, saveSocket);
+            close(saveFetcher, saveWriter, saveSocket, saveChannel);
            } catch (Exception e) {
            }
+           if (statementCache != null)
+               statementCache.setServer(addrs[0].host + ":" + addrs[0].port);
            success = true;
         } finally {
             if (!success) {
@@ -704,6 +1274,7 @@ public class MySQLProtocol {
                 this.packetFetcher = saveFetcher;
                 this.writer = saveWriter;
                 this.socket = saveSocket;
+                this.channel = saveChannel;
             }
         }
     }
@@ -720,6 +1291,8 @@ public class MySQLProtocol {
             currentHost = addrs[i];
             try {
                 connect(currentHost.host, currentHost.port);
+                if (statementCache != null)
+                    statementCache.setServer(currentHost.host + ":" + currentHost.port);
                 return;
             } catch (IOException e) {
                 if (i == addrs.length - 1) {
@@ -791,7 +1364,9 @@ public class MySQLProtocol {
     }
 
 
-    private static void close(PacketFetcher fetcher, PacketOutputStream packetOutputStream, Socket socket)
+    /* channel is the socket channel of transport=nio, null otherwise */
+    private static void close(PacketFetcher fetcher, PacketOutputStream packetOutputStream, Socket socket,
+                              TimeoutSocketChannel channel)
             throws QueryException
     {
         ClosePacket closePacket = new ClosePacket();
@@ -799,9 +1374,18 @@ public class MySQLProtocol {
             try {
             	closePacket.send(packetOutputStream);
                 socket.shutdownOutput();
-                socket.setSoTimeout(3);
-                InputStream is = socket.getInputStream();
-                while(is.read() != -1) {}
+                if (channel != null) {
+                    /* the socket stream of a non-blocking channel cannot be read, drain the channel */
+                    channel.setTimeout(3);
+                    ByteBuffer buffer = ByteBuffer.allocate(1024);
+                    while (channel.read(buffer) != -1) {
+                        buffer.clear();
+                    }
+                } else {
+                    socket.setSoTimeout(3);
+                    InputStream is = socket.getInputStream();
+                    while(is.read() != -1) {}
+                }
             } catch (Throwable t) {
             }
             packetOutputStream.close();
@@ -831,7 +1415,7 @@ public class MySQLProtocol {
             /* eat exception */
         }
         try {
-           close(packetFetcher,writer, socket);
+           close(packetFetcher, writer, socket, channel);
         }
         catch (Exception e) {
             // socket is closed, so it is ok to ignore exception
@@ -839,6 +1423,16 @@ public class MySQLProtocol {
         }
         finally {
             this.connected = false;
+            if (activeResult != null) {
+                /* the rows could not be read up to the end, the read-ahead thread must not wait for them */
+                activeResult.stopPrefetch();
+                activeResult = null;
+            }
+            /* the server closes the cached statements with the connection */
+            if (statementCache != null)
+                statementCache.clear();
+            if (connectionResultSetMemory != null)
+                connectionResultSetMemory.closeResults();
         }
     }
 
@@ -849,6 +1443,29 @@ public class MySQLProtocol {
         return !this.connected;
     }
 
+    /**
+     * @return memory used by the cached results of the connection, null if their memory is not limited
+     */
+    public MemoryBudget getResultSetMemory() {
+        return connectionResultSetMemory;
+    }
+
+    /**
+     * @return compressed protocol counters, null if the connection does not use compression
+     */
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    /**
+     * Lock to hold while using the connection for a command and reading its results.
+     *
+     * @return the connection lock
+     */
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
     /**
      * create a CachedSelectResult - precondition is that a result set packet has been read
      *
@@ -856,17 +1473,29 @@ public class MySQLProtocol {
      * @return a CachedSelectResult
      * @throws java.io.IOException when something goes wrong while reading/writing from the server
      */
-    private SelectQueryResult createQueryResult(final ResultSetPacket packet, boolean streaming) throws IOException, QueryException {
-
-        StreamingSelectResult streamingResult =   StreamingSelectResult.createStreamingSelectResult(packet, packetFetcher, this);
-        if (streaming)
+    private SelectQueryResult createQueryResult(final ResultSetPacket packet, boolean streaming, boolean binary,
+                                                PrepareResult statement) throws IOException, QueryException {
+
+        StreamingSelectResult streamingResult =   StreamingSelectResult.createStreamingSelectResult(packet, packetFetcher,
+                this, binary, statement == null ? null : statement.columns);
+        if (statement != null) {
+            /* the server omits the column definitions of the next results while they do not change */
+            statement.columns = streamingResult.getColumnInformation();
+        }
+        if (streaming) {
+            if (prefetchRows > 0)
+                streamingResult.startPrefetch(prefetchRows);
             return streamingResult;
+        }
 
-        return CachedSelectResult.createCachedSelectResult(streamingResult);
+        return CachedSelectResult.createCachedSelectResult(streamingResult, columnarResults, maxResultSetMemory,
+                connectionResultSetMemory);
     }
 
     public void selectDB(final String database) throws QueryException {
         log.finest("Selecting db " + database);
+        if (statementCache != null)
+            closePreparedStatements(statementCache.databaseChanged());
         final SelectDBPacket packet = new SelectDBPacket(database);
         try {
             packet.send(writer);
@@ -935,6 +1564,12 @@ public class MySQLProtocol {
 
 
     public QueryResult getResult(List<Query> dQueries, boolean streaming) throws QueryException{
+        return getResult(dQueries, streaming, false, null);
+    }
+
+    /* statement is the prepared statement whose result is read, null for other commands */
+    private QueryResult getResult(List<Query> dQueries, boolean streaming, boolean binary, PrepareResult statement)
+            throws QueryException{
              RawPacket rawPacket;
         ResultPacket resultPacket;
         try {
@@ -946,8 +1581,20 @@ public class MySQLProtocol {
             	// We do accept general URLs, too. If the localInfileStream is
             	// set, use that.
 
-                InputStream is;
-                if (localInfileInputStream == null) {
+                // Files and channels are sent with PacketOutputStream.sendFile(ReadableByteChannel),
+                // which avoids copying the data through the packet buffer.
+                InputStream is = null;
+                ReadableByteChannel channel = null;
+                if (localInfileInputStream != null) {
+                	is = localInfileInputStream;
+                	localInfileInputStream = null;
+                } else if (localInfileChannel != null) {
+                    channel = localInfileChannel;
+                    localInfileChannel = null;
+                } else if (localInfileFile != null) {
+                    channel = new FileInputStream(localInfileFile).getChannel();
+                    localInfileFile = null;
+                } else {
                 	LocalInfilePacket localInfilePacket= (LocalInfilePacket)resultPacket;
                     log.fine("sending local file " + localInfilePacket.getFileName());
                     String localInfile = localInfilePacket.getFileName();
@@ -956,15 +1603,36 @@ public class MySQLProtocol {
                     	URL u = new URL(localInfile);
                     	is = u.openStream();
                     } catch (IOException ioe)   {
-                    	is = new FileInputStream(localInfile);
+                    	channel = new FileInputStream(localInfile).getChannel();
                     }
-                } else {
-                	is = localInfileInputStream;
-                	localInfileInputStream = null;
                 }
 
-                writer.sendFile(is, rawPacket.getPacketSeq()+1);
-                is.close();
+                try {
+                    if (channel != null) {
+                        try {
+                            writer.sendFile(channel, rawPacket.getPacketSeq()+1);
+                        } finally {
+                            channel.close();
+                        }
+                    } else {
+                        try {
+                            writer.sendFile(is, rawPacket.getPacketSeq()+1);
+                        } finally {
+                            is.close();
+                        }
+                    }
+                } catch (LocalInfileReadException e) {
+                    /* the data sent so far has been ended : read the response, the connection stays usable */
+                    resultPacket = ResultPacketFactory.createResultPacket(packetFetcher.getRawPacket());
+                    if (resultPacket.getResultType() == ResultPacket.ResultType.OK) {
+                        serverStatus = ((OKPacket) resultPacket).getServerStatus();
+                        this.moreResults = ((serverStatus & ServerStatus.MORE_RESULTS_EXISTS) != 0);
+                    } else {
+                        this.moreResults = false;
+                    }
+                    throw new QueryException("Could not read the data of LOAD DATA LOCAL INFILE: " + e.getMessage(),
+                            0, "HY000", e.getCause());
+                }
                 rawPacket = packetFetcher.getRawPacket();
                 resultPacket = ResultPacketFactory.createResultPacket(rawPacket);
             }
@@ -1010,7 +1678,7 @@ public class MySQLProtocol {
                 log.fine("SELECT executed, fetching result set");
                 ResultSetPacket resultSetPacket = (ResultSetPacket)resultPacket;
                 try {
-                    return this.createQueryResult(resultSetPacket, streaming);
+                    return this.createQueryResult(resultSetPacket, streaming, binary, statement);
                 } catch (IOException e) {
 
                     throw new QueryException("Could not read result set: " + e.getMessage(),
@@ -1032,6 +1700,7 @@ public class MySQLProtocol {
 
     public QueryResult executeQuery(final List<Query> dQueries, boolean streaming, boolean isRewritable, int rewriteOffset) throws QueryException, SQLException {
         for (Query query : dQueries) query.validate();
+        checkDatabaseChange(dQueries);
 
         this.moreResults = false;
         final StreamedQueryPacket packet = new StreamedQueryPacket(dQueries, isRewritable, rewriteOffset);
@@ -1059,6 +1728,74 @@ public class MySQLProtocol {
     }
 
 
+    /**
+     * Send the queries one COM_QUERY packet after the other, and read the responses only then, so that the whole
+     * list costs one network round trip instead of one per query. Errors returned by the server for one query do
+     * not stop the others, the server executes all of them anyway.
+     *
+     * At most PIPELINE_WINDOW queries are sent before their responses are read, so that unread responses cannot fill
+     * the socket buffers while queries are still being written.
+     *
+     * Queries must not be LOAD DATA LOCAL INFILE, the file contents would be sent after the pipelined queries.
+     *
+     * @param dQueries queries to execute
+     * @return for each query, its QueryResult, or the QueryException the server answered with
+     * @throws QueryException if the connection fails
+     */
+    public Object[] executePipelined(final List<Query> dQueries) throws QueryException, SQLException {
+        for (Query query : dQueries) query.validate();
+        checkDatabaseChange(dQueries);
+
+        this.moreResults = false;
+        int size = dQueries.size();
+        Object[] results = new Object[size];
+        int sent = 0;
+        int read = 0;
+        while (read < size) {
+            int end = Math.min(size, read + PIPELINE_WINDOW);
+            for (; sent < end; sent++) {
+                try {
+                    new StreamedQueryPacket(dQueries.subList(sent, sent + 1), false, 0).send(writer);
+                } catch (MaxAllowedPacketException e) {
+                    if (e.isMustReconnect()) {
+                        connect();
+                        throw new QueryException("Could not send query: " + e.getMessage(), -1, SQLExceptionMapper.SQLStates.INTERRUPTED_EXCEPTION.getSqlState(), e);
+                    }
+                    results[sent] = new QueryException("Could not send query: " + e.getMessage(), -1, SQLExceptionMapper.SQLStates.INTERRUPTED_EXCEPTION.getSqlState(), e);
+                    continue;
+                } catch (IOException e) {
+                    throw new QueryException("Could not send query: " + e.getMessage(), -1, SQLExceptionMapper.SQLStates.CONNECTION_EXCEPTION.getSqlState(), e);
+                }
+                if (!isMasterConnection())
+                    queriesSinceFailover++;
+            }
+            for (; read < sent; read++) {
+                if (results[read] != null) {
+                    continue;
+                }
+                try {
+                    results[read] = getResult(dQueries.subList(read, read + 1), false);
+                    /* only the first result of each query is kept, like executeBatch() does */
+                    while (moreResults) {
+                        getResult(null, false);
+                    }
+                } catch (QueryException qex) {
+                    if (qex.getCause() instanceof SocketTimeoutException) {
+                        close();
+                        throw SQLExceptionMapper.getSQLException("Connection timed out");
+                    }
+                    if (qex.getCause() instanceof IOException) {
+                        throw qex;
+                    }
+                    if (results[read] == null) {
+                        results[read] = qex;
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
     public String getServerVariable(String variable) throws QueryException, SQLException {
         CachedSelectResult qr = (CachedSelectResult) executeQuery(new MySQLQuery("select @@" + variable));
         try {
@@ -1104,9 +1841,21 @@ public class MySQLProtocol {
 
 
     public QueryResult getMoreResults(boolean streaming) throws QueryException {
+        return getMoreResults(streaming, false);
+    }
+
+    /**
+     * Read the next result of the last command.
+     *
+     * @param streaming true to read the rows as they are used
+     * @param binary true for the binary protocol rows of a COM_STMT_EXECUTE result
+     * @return the next result, or null if there is none
+     * @throws QueryException if the result cannot be read
+     */
+    public QueryResult getMoreResults(boolean streaming, boolean binary) throws QueryException {
         if(!moreResults)
             return null;
-        return getResult(null, streaming);
+        return getResult(null, streaming, binary, null);
     }
 
     public static String hexdump(byte[] buffer, int offset) {
@@ -1129,6 +1878,10 @@ public class MySQLProtocol {
     }
 
 
+    public boolean isCursorFetchEnabled() {
+        return useCursorFetch;
+    }
+
     public boolean hasUnreadData() {
         return (activeResult != null);
     }
@@ -1189,6 +1942,23 @@ public class MySQLProtocol {
 	public void setLocalInfileInputStream(InputStream inputStream) {
 		this.localInfileInputStream = inputStream;
 	}
+
+    /**
+     * Set the data sent by the next LOAD DATA LOCAL INFILE, instead of the file named in the query.
+     * The channel is closed once sent.
+     * @param channel channel to read the data from
+     */
+    public void setLocalInfileChannel(ReadableByteChannel channel) {
+        this.localInfileChannel = channel;
+    }
+
+    /**
+     * Set the file sent by the next LOAD DATA LOCAL INFILE, instead of the file named in the query.
+     * @param file the file to send
+     */
+    public void setLocalInfileFile(File file) {
+        this.localInfileFile = file;
+    }
 	
 
 	public void setMaxAllowedPacket(int maxAllowedPacket) {
@@ -1202,6 +1972,9 @@ public class MySQLProtocol {
 	 */
 	public void setTimeout(int timeout) throws SocketException {
 		this.socket.setSoTimeout(timeout);
+		if (this.channel != null) {
+			this.channel.setTimeout(timeout);
+		}
 	}
 	/**
 	 * Returns the connection timeout in milliseconds.
@@ -1209,6 +1982,9 @@ public class MySQLProtocol {
 	 * @throws SocketException
 	 */
 	public int getTimeout() throws SocketException {
+		if (this.channel != null) {
+			return this.channel.getTimeout();
+		}
 		return this.socket.getSoTimeout();
 	}
 
@@ -52,6 +52,7 @@ package org.mariadb.jdbc.internal.mysql;
 public class MySQLServerCapabilities {
     public static final int
             LONG_PASSWORD = 1,       /* new more secure passwords */
+            CLIENT_MYSQL = 1,        /* same bit, cleared by MariaDB servers and clients with MariaDB capabilities */
             FOUND_ROWS    = 2,       /* Found instead of affected rows */
             LONG_FLAG     = 4,       /* Get all column flags */
             CONNECT_WITH_DB = 8,     /* One can specify db on connect */
@@ -71,4 +72,8 @@ public class MySQLServerCapabilities {
             MULTI_RESULTS = 1 << 17,    /* Enable/disable multi-results */
             PLUGIN_AUTH = 1 << 19,      /* Client supports plugin authentication */
             PROGRESS = 1 << 29;         /* Client support progress indicator */
+
+    /* MariaDB capabilities, exchanged in reserved bytes of the handshake packets */
+    public static final int
+            MARIADB_CLIENT_CACHE_METADATA = 1 << 4; /* COM_STMT_EXECUTE results omit unchanged column definitions */
 }
\ No newline at end of file
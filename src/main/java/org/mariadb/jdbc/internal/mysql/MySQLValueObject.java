@@ -64,7 +64,7 @@ public class MySQLValueObject extends AbstractValueObject {
     MySQLColumnInformation columnInfo;
 
     public MySQLValueObject(byte[] rawBytes, MySQLColumnInformation columnInfo) {
-        super(rawBytes, columnInfo.getType());
+        super(rawBytes, columnInfo.getType(), columnInfo.getStringDecoder());
         this.columnInfo = columnInfo;
     }
 
@@ -0,0 +1,236 @@
+package org.mariadb.jdbc.internal.mysql;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server prepared statements of a connection that no statement uses anymore, kept open on the server so that
+ * preparing the same SQL again does not need a COM_STMT_PREPARE round trip.
+ *
+ * The least recently used statements are closed when the cache is full. The statements cached by all the
+ * connections to a server also share a limit, half of the server max_prepared_stmt_count, so that a pool of
+ * connections leaves room on the server for the statements in use and for other clients. Each cache counts its own
+ * statements : the share of a cache that is garbage collected without being cleared, with a connection that was not
+ * closed, is given back to the other connections.
+ *
+ * The tables of the SQL of a statement are resolved in the current database when it is prepared, so the cache is
+ * emptied when the current database changes, and the statements prepared before are not cached anymore.
+ *
+ * The cache is used under the connection lock.
+ */
+final class PreparedStatementCache {
+    /* statements cached by the connections of this JVM, by server */
+    private static final ConcurrentMap<String, ServerStatements> SERVERS =
+            new ConcurrentHashMap<String, ServerStatements>();
+
+    private static final class ServerStatements {
+        final AtomicInteger cached = new AtomicInteger();
+        /* maximum number of cached statements, -1 until it is read from the server */
+        volatile int limit = -1;
+        /* caches counted in cached, until they are garbage collected */
+        final Set<CacheReference> caches = Collections.synchronizedSet(new HashSet<CacheReference>());
+        final ReferenceQueue<PreparedStatementCache> collected = new ReferenceQueue<PreparedStatementCache>();
+
+        /* give back the statements counted for the caches collected since the last call */
+        void reclaim() {
+            Reference<? extends PreparedStatementCache> reference;
+            while ((reference = collected.poll()) != null) {
+                CacheReference cache = (CacheReference) reference;
+                caches.remove(cache);
+                cached.addAndGet(-cache.count.getAndSet(0));
+            }
+        }
+    }
+
+    /* the statements a cache counts in the total of its server, which outlives the cache */
+    private static final class CacheReference extends WeakReference<PreparedStatementCache> {
+        final AtomicInteger count = new AtomicInteger();
+
+        CacheReference(PreparedStatementCache cache, ReferenceQueue<PreparedStatementCache> queue) {
+            super(cache, queue);
+        }
+    }
+
+    /* in access order, the eldest entry is the least recently used */
+    private final LinkedHashMap<String, MySQLProtocol.PrepareResult> statements =
+            new LinkedHashMap<String, MySQLProtocol.PrepareResult>(16, 0.75f, true);
+    private final int size;
+    private final int sqlLimit;
+    private ServerStatements server;
+    private CacheReference reference;
+    /* incremented when the statements prepared before cannot be cached anymore */
+    private int generation;
+
+    /**
+     * @param size maximum number of statements cached by the connection, at least 1
+     * @param sqlLimit length of the longest SQL cached
+     */
+    PreparedStatementCache(int size, int sqlLimit) {
+        this.size = size;
+        this.sqlLimit = sqlLimit;
+    }
+
+    /**
+     * Set the server the connection is connected to. The statements of a previous connection are forgotten,
+     * the server closed them with the connection.
+     *
+     * @param hostAndPort the server
+     */
+    void setServer(String hostAndPort) {
+        clear();
+        generation++;
+        if (server != null) {
+            server.caches.remove(reference);
+            reference.clear();
+        }
+        ServerStatements statements = SERVERS.get(hostAndPort);
+        if (statements == null) {
+            ServerStatements created = new ServerStatements();
+            statements = SERVERS.putIfAbsent(hostAndPort, created);
+            if (statements == null) {
+                statements = created;
+            }
+        }
+        server = statements;
+        reference = new CacheReference(this, statements.collected);
+        statements.caches.add(reference);
+    }
+
+    /**
+     * @return true if the limit of the server is not known yet, see setServerLimit()
+     */
+    boolean needsServerLimit() {
+        return server != null && server.limit < 0;
+    }
+
+    /**
+     * @param maxPreparedStatements max_prepared_stmt_count of the server
+     */
+    void setServerLimit(int maxPreparedStatements) {
+        server.limit = maxPreparedStatements / 2;
+    }
+
+    /**
+     * Mark a statement that was just prepared, so that it can be cached when it is released.
+     *
+     * @param result the statement
+     */
+    void prepared(MySQLProtocol.PrepareResult result) {
+        result.cacheGeneration = generation;
+    }
+
+    /**
+     * Remove all the statements because the current database changed. The statements in use are closed when they
+     * are released instead of being cached.
+     *
+     * @return ids of the removed statements
+     */
+    List<Integer> databaseChanged() {
+        generation++;
+        return clear();
+    }
+
+    /**
+     * Take a cached statement, which is removed from the cache while it is used.
+     *
+     * @param sql the SQL of the statement
+     * @return the statement, or null if it is not cached
+     */
+    MySQLProtocol.PrepareResult take(String sql) {
+        MySQLProtocol.PrepareResult result = statements.remove(sql);
+        if (result != null) {
+            count(-1);
+        }
+        return result;
+    }
+
+    /**
+     * Cache a statement that is not used anymore.
+     *
+     * @param sql the SQL of the statement
+     * @param result the statement
+     * @return ids of the statements to close: the evicted ones, or the statement itself if it is not cached
+     */
+    List<Integer> put(String sql, MySQLProtocol.PrepareResult result) {
+        List<Integer> closed = new ArrayList<Integer>();
+        if (server == null || sql.length() > sqlLimit || result.cacheGeneration != generation) {
+            closed.add(result.statementId);
+            return closed;
+        }
+        /* another statement prepared the same SQL while this one was used */
+        MySQLProtocol.PrepareResult previous = take(sql);
+        if (previous != null) {
+            closed.add(previous.statementId);
+        }
+        while (statements.size() >= size) {
+            evictEldest(closed);
+        }
+        while (!reserve()) {
+            if (statements.isEmpty()) {
+                closed.add(result.statementId);
+                return closed;
+            }
+            evictEldest(closed);
+        }
+        statements.put(sql, result);
+        return closed;
+    }
+
+    private void evictEldest(List<Integer> closed) {
+        Iterator<MySQLProtocol.PrepareResult> iterator = statements.values().iterator();
+        closed.add(iterator.next().statementId);
+        iterator.remove();
+        count(-1);
+    }
+
+    private void count(int statements) {
+        reference.count.addAndGet(statements);
+        server.cached.addAndGet(statements);
+    }
+
+    /* count a statement against the limit of the server */
+    private boolean reserve() {
+        server.reclaim();
+        for (;;) {
+            int current = server.cached.get();
+            int limit = server.limit;
+            if (limit >= 0 && current >= limit) {
+                return false;
+            }
+            if (server.cached.compareAndSet(current, current + 1)) {
+                reference.count.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return statements.isEmpty();
+    }
+
+    /**
+     * Remove all the statements.
+     *
+     * @return ids of the removed statements
+     */
+    List<Integer> clear() {
+        List<Integer> closed = new ArrayList<Integer>();
+        for (MySQLProtocol.PrepareResult result : statements.values()) {
+            closed.add(result.statementId);
+            count(-1);
+        }
+        statements.clear();
+        return closed;
+    }
+}
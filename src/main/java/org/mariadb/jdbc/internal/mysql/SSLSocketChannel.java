@@ -0,0 +1,171 @@
+package org.mariadb.jdbc.internal.mysql;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+
+/**
+ * TLS on top of a byte channel, using an SSLEngine. Network and application data are kept in direct buffers.
+ */
+public class SSLSocketChannel implements ByteChannel {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final ByteChannel channel;
+    private final SSLEngine engine;
+    /* encrypted data read from the network, not yet unwrapped (write mode) */
+    private ByteBuffer netIn;
+    /* encrypted data to be sent */
+    private ByteBuffer netOut;
+    /* decrypted data not yet returned by read() (read mode) */
+    private ByteBuffer appIn;
+
+    public SSLSocketChannel(ByteChannel channel, SSLEngine engine) {
+        this.channel = channel;
+        this.engine = engine;
+        int packetBufferSize = engine.getSession().getPacketBufferSize();
+        netIn = ByteBuffer.allocateDirect(packetBufferSize);
+        netOut = ByteBuffer.allocateDirect(packetBufferSize);
+        appIn = ByteBuffer.allocateDirect(engine.getSession().getApplicationBufferSize());
+        appIn.flip();
+    }
+
+    /**
+     * Perform the initial TLS handshake.
+     * @throws IOException if the handshake fails
+     */
+    public void startHandshake() throws IOException {
+        engine.beginHandshake();
+        handshake(engine.getHandshakeStatus());
+    }
+
+    private void handshake(HandshakeStatus status) throws IOException {
+        while (status != HandshakeStatus.FINISHED && status != HandshakeStatus.NOT_HANDSHAKING) {
+            switch (status) {
+                case NEED_WRAP:
+                    status = wrap(EMPTY).getHandshakeStatus();
+                    break;
+                case NEED_TASK:
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                    status = engine.getHandshakeStatus();
+                    break;
+                default:
+                    SSLEngineResult result = unwrap();
+                    if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                        throw new SSLException("SSL connection closed during handshake");
+                    }
+                    status = result.getHandshakeStatus();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Wrap application data and send it.
+     */
+    private SSLEngineResult wrap(ByteBuffer src) throws IOException {
+        for (;;) {
+            netOut.clear();
+            SSLEngineResult result = engine.wrap(src, netOut);
+            switch (result.getStatus()) {
+                case BUFFER_OVERFLOW:
+                    netOut = ByteBuffer.allocateDirect(netOut.capacity() * 2);
+                    break;
+                case CLOSED:
+                    throw new SSLException("SSL connection closed");
+                default:
+                    netOut.flip();
+                    while (netOut.hasRemaining()) {
+                        channel.write(netOut);
+                    }
+                    return result;
+            }
+        }
+    }
+
+    /**
+     * Unwrap buffered network data into appIn, reading from the channel when more data is needed.
+     */
+    private SSLEngineResult unwrap() throws IOException {
+        appIn.compact();
+        try {
+            for (;;) {
+                netIn.flip();
+                SSLEngineResult result = engine.unwrap(netIn, appIn);
+                netIn.compact();
+                switch (result.getStatus()) {
+                    case BUFFER_UNDERFLOW:
+                        if (!netIn.hasRemaining()) {
+                            netIn.flip();
+                            netIn = ByteBuffer.allocateDirect(netIn.capacity() * 2).put(netIn);
+                        }
+                        if (channel.read(netIn) < 0) {
+                            throw new EOFException("unexpected end of stream during SSL read");
+                        }
+                        break;
+                    case BUFFER_OVERFLOW:
+                        appIn.flip();
+                        appIn = ByteBuffer.allocateDirect(appIn.capacity() * 2).put(appIn);
+                        break;
+                    default:
+                        return result;
+                }
+            }
+        } finally {
+            appIn.flip();
+        }
+    }
+
+    public int read(ByteBuffer dst) throws IOException {
+        while (!appIn.hasRemaining()) {
+            SSLEngineResult result = unwrap();
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                return -1;
+            }
+            handshake(result.getHandshakeStatus());
+        }
+        int n = Math.min(appIn.remaining(), dst.remaining());
+        ByteBuffer chunk = appIn.duplicate();
+        chunk.limit(chunk.position() + n);
+        dst.put(chunk);
+        appIn.position(appIn.position() + n);
+        return n;
+    }
+
+    public int write(ByteBuffer src) throws IOException {
+        int written = 0;
+        while (src.hasRemaining()) {
+            SSLEngineResult result = wrap(src);
+            written += result.bytesConsumed();
+            handshake(result.getHandshakeStatus());
+        }
+        return written;
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    public void close() throws IOException {
+        try {
+            engine.closeOutbound();
+            netOut.clear();
+            engine.wrap(EMPTY, netOut);
+            netOut.flip();
+            while (netOut.hasRemaining()) {
+                channel.write(netOut);
+            }
+        } catch (IOException e) {
+            /* close_notify is best effort */
+        } finally {
+            channel.close();
+        }
+    }
+}
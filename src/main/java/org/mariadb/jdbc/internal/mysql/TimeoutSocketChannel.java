@@ -0,0 +1,118 @@
+package org.mariadb.jdbc.internal.mysql;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking byte channel on top of a non-blocking SocketChannel.
+ *
+ * SO_TIMEOUT is ignored by SocketChannel reads, so the channel is put in non-blocking mode and reads wait
+ * on a selector instead, throwing SocketTimeoutException like a java.net.Socket stream would.
+ */
+public class TimeoutSocketChannel implements ByteChannel {
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final SelectionKey key;
+    private int timeout;
+
+    public TimeoutSocketChannel(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        key = channel.register(selector, 0);
+    }
+
+    public int read(ByteBuffer dst) throws IOException {
+        int n;
+        while ((n = channel.read(dst)) == 0 && dst.hasRemaining()) {
+            if (!await(SelectionKey.OP_READ, timeout)) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+        }
+        return n;
+    }
+
+    public int write(ByteBuffer src) throws IOException {
+        int written = 0;
+        while (src.hasRemaining()) {
+            int n = channel.write(src);
+            if (n == 0) {
+                await(SelectionKey.OP_WRITE, 0);
+            }
+            written += n;
+        }
+        return written;
+    }
+
+    /**
+     * Send file contents with FileChannel.transferTo, which lets the kernel copy from the file to the socket.
+     * @param src file to send
+     * @param position position of the first byte to send in the file
+     * @param count number of bytes to send
+     * @return number of bytes sent, less than count only at end of file
+     * @throws IOException if an I/O error occurs
+     */
+    public long transferFrom(FileChannel src, long position, long count) throws IOException {
+        long sent = 0;
+        while (sent < count) {
+            long n = src.transferTo(position + sent, count - sent, channel);
+            if (n == 0) {
+                if (position + sent >= src.size()) {
+                    break;
+                }
+                await(SelectionKey.OP_WRITE, 0);
+            }
+            sent += n;
+        }
+        return sent;
+    }
+
+    /**
+     * Wait until the channel is ready for the operation.
+     * @param op selection operation
+     * @param timeout timeout in milliseconds, 0 means wait forever
+     * @return false if the timeout expired
+     */
+    private boolean await(int op, int timeout) throws IOException {
+        key.interestOps(op);
+        try {
+            int ready = selector.select(timeout);
+            selector.selectedKeys().clear();
+            return ready > 0 || timeout == 0;
+        } finally {
+            key.interestOps(0);
+        }
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    public void close() throws IOException {
+        try {
+            key.cancel();
+            selector.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    public Socket socket() {
+        return channel.socket();
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,210 @@
+package org.mariadb.jdbc.internal.mysql.packet;
+
+import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
+import org.mariadb.jdbc.internal.mysql.MySQLType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Decoding of binary protocol rows, as sent by COM_STMT_EXECUTE and COM_STMT_FETCH.
+ *
+ * Integer and floating point values are kept as numbers, read by MySQLBinaryValueObject without any text parsing.
+ * Other values are converted to the text the server would send for the same value in a text protocol row, so that
+ * they are read by the same value objects : temporal values as 'YYYY-MM-DD HH:MM:SS.ffffff' with the fractional
+ * digits of the column.
+ */
+final class BinaryRowDecoder {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    /* value of the columns whose value is kept in the numbers array */
+    static final byte[] NUMBER = new byte[0];
+
+    private BinaryRowDecoder() {
+    }
+
+    /**
+     * Decode a binary row.
+     *
+     * @param buffer the whole row, from its 0x00 header
+     * @param columnInformation columns of the row
+     * @param numbers array receiving the integer and floating point values, as MySQLBinaryValueObject keeps them
+     * @return the values, null for NULL values and NUMBER for the values stored in numbers
+     */
+    static byte[][] decode(ByteBuffer buffer, MySQLColumnInformation[] columnInformation, long[] numbers) {
+        int columns = columnInformation.length;
+        byte[][] values = new byte[columns][];
+        /* header byte, then the NULL bitmap, which starts at bit 2 */
+        int nullBitmap = buffer.position() + 1;
+        int pos = nullBitmap + (columns + 9) / 8;
+        for (int i = 0; i < columns; i++) {
+            if ((buffer.get(nullBitmap + (i + 2) / 8) & (1 << ((i + 2) % 8))) != 0) {
+                continue;
+            }
+            MySQLColumnInformation column = columnInformation[i];
+            boolean unsigned = !column.isSigned();
+            String text;
+            switch (column.getType()) {
+                case TINYINT:
+                    numbers[i] = unsigned ? buffer.get(pos) & 0xff : buffer.get(pos);
+                    values[i] = NUMBER;
+                    pos += 1;
+                    continue;
+                case SMALLINT:
+                case YEAR:
+                    short s = readShort(buffer, pos);
+                    numbers[i] = unsigned ? s & 0xffff : s;
+                    values[i] = NUMBER;
+                    pos += 2;
+                    continue;
+                case MEDIUMINT:
+                case INTEGER:
+                    int n = readInt(buffer, pos);
+                    numbers[i] = unsigned ? n & 0xffffffffL : n;
+                    values[i] = NUMBER;
+                    pos += 4;
+                    continue;
+                case FLOAT:
+                    numbers[i] = readInt(buffer, pos);
+                    values[i] = NUMBER;
+                    pos += 4;
+                    continue;
+                case BIGINT:
+                case DOUBLE:
+                    numbers[i] = readLong(buffer, pos);
+                    values[i] = NUMBER;
+                    pos += 8;
+                    continue;
+                case DATE:
+                case NEWDATE:
+                case DATETIME:
+                case TIMESTAMP:
+                    int dateLength = buffer.get(pos) & 0xff;
+                    text = formatDateTime(buffer, pos + 1, dateLength, column);
+                    pos += 1 + dateLength;
+                    break;
+                case TIME:
+                    int timeLength = buffer.get(pos) & 0xff;
+                    text = formatTime(buffer, pos + 1, timeLength, column);
+                    pos += 1 + timeLength;
+                    break;
+                default:
+                    int length = buffer.get(pos++) & 0xff;
+                    if (length == 252) {
+                        length = readShort(buffer, pos) & 0xffff;
+                        pos += 2;
+                    } else if (length == 253) {
+                        length = readInt(buffer, pos) & 0xffffff;
+                        pos += 3;
+                    } else if (length == 254) {
+                        length = readInt(buffer, pos);
+                        pos += 8;
+                    }
+                    byte[] bytes = new byte[length];
+                    for (int j = 0; j < length; j++) {
+                        bytes[j] = buffer.get(pos + j);
+                    }
+                    pos += length;
+                    values[i] = bytes;
+                    continue;
+            }
+            values[i] = text.getBytes(ASCII);
+        }
+        return values;
+    }
+
+    private static short readShort(ByteBuffer buffer, int pos) {
+        return (short) ((buffer.get(pos) & 0xff) | (buffer.get(pos + 1) << 8));
+    }
+
+    private static int readInt(ByteBuffer buffer, int pos) {
+        return (buffer.get(pos) & 0xff) | ((buffer.get(pos + 1) & 0xff) << 8)
+                | ((buffer.get(pos + 2) & 0xff) << 16) | (buffer.get(pos + 3) << 24);
+    }
+
+    private static long readLong(ByteBuffer buffer, int pos) {
+        return (readInt(buffer, pos) & 0xffffffffL) | ((long) readInt(buffer, pos + 4) << 32);
+    }
+
+    /* dates are sent as 0, 4, 7 or 11 bytes : year, month, day, hour, minute, second, microseconds */
+    private static String formatDateTime(ByteBuffer buffer, int pos, int length, MySQLColumnInformation column) {
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int micros = 0;
+        if (length >= 4) {
+            year = readShort(buffer, pos) & 0xffff;
+            month = buffer.get(pos + 2);
+            day = buffer.get(pos + 3);
+        }
+        if (length >= 7) {
+            hour = buffer.get(pos + 4);
+            minute = buffer.get(pos + 5);
+            second = buffer.get(pos + 6);
+        }
+        if (length >= 11) {
+            micros = readInt(buffer, pos + 7);
+        }
+        StringBuilder sb = new StringBuilder(26);
+        append(sb, year, 4).append('-');
+        append(sb, month, 2).append('-');
+        append(sb, day, 2);
+        if (column.getType() == MySQLType.DATE || column.getType() == MySQLType.NEWDATE) {
+            return sb.toString();
+        }
+        sb.append(' ');
+        appendTime(sb, hour, minute, second, micros, column.getDecimals());
+        return sb.toString();
+    }
+
+    /* times are sent as 0, 8 or 12 bytes : sign, days, hours, minutes, seconds, microseconds */
+    private static String formatTime(ByteBuffer buffer, int pos, int length, MySQLColumnInformation column) {
+        boolean negative = false;
+        int hours = 0;
+        int minute = 0;
+        int second = 0;
+        int micros = 0;
+        if (length >= 8) {
+            negative = buffer.get(pos) != 0;
+            hours = readInt(buffer, pos + 1) * 24 + buffer.get(pos + 5);
+            minute = buffer.get(pos + 6);
+            second = buffer.get(pos + 7);
+        }
+        if (length >= 12) {
+            micros = readInt(buffer, pos + 8);
+        }
+        StringBuilder sb = new StringBuilder(18);
+        if (negative) {
+            sb.append('-');
+        }
+        appendTime(sb, hours, minute, second, micros, column.getDecimals());
+        return sb.toString();
+    }
+
+    private static void appendTime(StringBuilder sb, int hour, int minute, int second, int micros, int decimals) {
+        append(sb, hour, 2).append(':');
+        append(sb, minute, 2).append(':');
+        append(sb, second, 2);
+        if (decimals > 0 && decimals <= 6) {
+            sb.append('.');
+            StringBuilder fraction = new StringBuilder(6);
+            append(fraction, micros, 6);
+            sb.append(fraction, 0, decimals);
+        } else if (micros != 0) {
+            /* expressions report 31 decimals (not fixed) : the microseconds sent are kept */
+            sb.append('.');
+            append(sb, micros, 6);
+        }
+    }
+
+    private static StringBuilder append(StringBuilder sb, int value, int width) {
+        String s = String.valueOf(value);
+        for (int i = s.length(); i < width; i++) {
+            sb.append('0');
+        }
+        return sb.append(s);
+    }
+}
@@ -55,15 +55,19 @@ import org.mariadb.jdbc.internal.common.packet.buffer.Reader;
 import org.mariadb.jdbc.internal.mysql.MySQLServerCapabilities;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 
 public class MySQLGreetingReadPacket {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
     private String serverVersion;
     private final byte protocolVersion;
     private final long serverThreadID;
     //private final byte[] seed1;
     //private final byte[] seed2;
     private final int serverCapabilities;
+    /* MariaDB capabilities, sent by MariaDB 10.2 and later instead of the last reserved bytes */
+    private final int mariaDbCapabilities;
     private final byte serverLanguage;
     private final short serverStatus;
     private final byte[] seed;
@@ -76,14 +80,18 @@ public class MySQLGreetingReadPacket {
     public MySQLGreetingReadPacket(final RawPacket rawPacket) throws IOException {
         final Reader reader = new Reader(rawPacket);
         protocolVersion = reader.readByte();
-        serverVersion = reader.readString("ASCII");
+        serverVersion = reader.readString(ASCII);
         serverThreadID = reader.readInt();
         final byte[] seed1 = reader.readRawBytes(8);
         reader.skipByte();
-        serverCapabilities = reader.readShort();
+        int lowerCapabilities = reader.readShort() & 0xffff;
         serverLanguage = reader.readByte();
         serverStatus = reader.readShort();
-        reader.skipBytes(13);
+        serverCapabilities = lowerCapabilities | ((reader.readShort() & 0xffff) << 16);
+        reader.skipBytes(7); /* length of the seed, and reserved bytes */
+        int extendedCapabilities = reader.readInt();
+        mariaDbCapabilities = (serverCapabilities & MySQLServerCapabilities.CLIENT_MYSQL) == 0
+                ? extendedCapabilities : 0;
         final byte[] seed2 = reader.readRawBytes(12);
         seed = Utils.copyWithLength(seed1, seed1.length + seed2.length);
         System.arraycopy(seed2, 0, seed, seed1.length, seed2.length);
@@ -134,6 +142,13 @@ public class MySQLGreetingReadPacket {
         return serverCapabilities;
     }
 
+    /**
+     * @return the MariaDB capabilities of the server, see MySQLServerCapabilities.MARIADB_CLIENT_CACHE_METADATA
+     */
+    public int getMariaDbCapabilities() {
+        return mariaDbCapabilities;
+    }
+
     public byte getServerLanguage() {
         return serverLanguage;
     }
@@ -52,42 +52,332 @@ package org.mariadb.jdbc.internal.mysql.packet;
 import org.mariadb.jdbc.internal.common.PacketFetcher;
 import org.mariadb.jdbc.internal.common.ValueObject;
 import org.mariadb.jdbc.internal.common.packet.RawPacket;
+import org.mariadb.jdbc.internal.common.packet.buffer.CompositeBuffer;
 import org.mariadb.jdbc.internal.common.packet.buffer.Reader;
+import org.mariadb.jdbc.internal.mysql.MySQLBinaryValueObject;
 import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
 import org.mariadb.jdbc.internal.mysql.MySQLValueObject;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
-
+/**
+ * A text protocol row. The row packet is kept as is, together with the position and length of each value in it :
+ * a value is only copied out of the packet when it is read, so unread columns cost nothing.
+ * Binary protocol rows are decoded when read, see readBinary().
+ *
+ * A streaming result reads all its rows into the same instance. Rows that must outlive the next packet read
+ * are copied with detach().
+ */
 public class MySQLRowPacket {
-    private final ValueObject[] columns;
-    private final Reader reader;
+    private static final int NULL_LENGTH = -1;
+
     private final MySQLColumnInformation[] columnInformation;
+    /* position of each value in the packet, followed by its length (NULL_LENGTH for NULL) */
+    private final int[] offsets;
+    private RawPacket rawPacket;
+    /* values of rows continued over several packets and of binary rows, which are read when the row is read */
+    private byte[][] values;
+    /* numeric values of binary rows, for the values set to BinaryRowDecoder.NUMBER */
+    private long[] numbers;
+    /* values decoded by getValueObject(), for the current row */
+    private ValueObject[] valueObjects;
+
+    public MySQLRowPacket(MySQLColumnInformation[] columnInformation) {
+        this.columnInformation = columnInformation;
+        this.offsets = new int[columnInformation.length * 2];
+    }
 
-    public MySQLRowPacket(RawPacket rawPacket,  MySQLColumnInformation[] columnInformation2) throws IOException {
-        columns = new ValueObject[columnInformation2.length];
-        reader = new Reader(rawPacket);
-        this.columnInformation = columnInformation2;
+    private MySQLRowPacket(MySQLColumnInformation[] columnInformation, int[] offsets, RawPacket rawPacket,
+                           byte[][] values, long[] numbers) {
+        this.columnInformation = columnInformation;
+        this.offsets = offsets;
+        this.rawPacket = rawPacket;
+        this.values = values;
+        this.numbers = numbers;
     }
 
-    public boolean isPacketComplete() throws IOException {
-        long encLength = reader.getSilentLengthEncodedBinary();
-        long remaining = reader.getRemainingSize();
-        return encLength<=remaining;
+    /**
+     * Read a row, replacing the current one.
+     *
+     * @param rawPacket the row packet
+     * @param packetFetcher fetcher to read the following packets from, for rows of 16MB and more
+     * @throws IOException if the row continues in packets that cannot be read
+     */
+    public void read(RawPacket rawPacket, PacketFetcher packetFetcher) throws IOException {
+        ByteBuffer buffer = rawPacket.getByteBuffer();
+        if (buffer.limit() == CompositeBuffer.MAX_PACKET_LENGTH) {
+            /* rows of 16MB and more continue in the following packets, the reader fetches them when needed */
+            Reader reader = new Reader(rawPacket, packetFetcher);
+            byte[][] rowValues = new byte[columnInformation.length][];
+            for (int i = 0; i < rowValues.length; i++) {
+                rowValues[i] = reader.getLengthEncodedBytes();
+            }
+            /* a row of a multiple of 16MB - 1 bytes is followed by an empty packet, that belongs to the row */
+            reader.skipToEnd();
+            this.rawPacket = null;
+            this.values = rowValues;
+            clearValueObjects();
+            return;
+        }
+        read(rawPacket);
     }
 
-    public void appendPacket(RawPacket rawPacket) {
-        reader.appendPacket(rawPacket);
+    /**
+     * Read a row held in a single packet, replacing the current one.
+     *
+     * @param rawPacket the row packet, or a buffer holding a row written by getEncodedRow()
+     */
+    public void read(RawPacket rawPacket) {
+        ByteBuffer buffer = rawPacket.getByteBuffer();
+        this.rawPacket = rawPacket;
+        this.values = null;
+        clearValueObjects();
+        int pos = buffer.position();
+        for (int i = 0; i < offsets.length; i += 2) {
+            int length = buffer.get(pos++) & 0xff;
+            switch (length) {
+                case 251:
+                    offsets[i] = pos;
+                    offsets[i + 1] = NULL_LENGTH;
+                    continue;
+                case 252:
+                    length = (buffer.get(pos) & 0xff) + ((buffer.get(pos + 1) & 0xff) << 8);
+                    pos += 2;
+                    break;
+                case 253:
+                    length = (buffer.get(pos) & 0xff) + ((buffer.get(pos + 1) & 0xff) << 8)
+                            + ((buffer.get(pos + 2) & 0xff) << 16);
+                    pos += 3;
+                    break;
+                case 254:
+                    /* a value in a single packet is shorter than 16MB, only the low bytes are used */
+                    length = (buffer.get(pos) & 0xff) + ((buffer.get(pos + 1) & 0xff) << 8)
+                            + ((buffer.get(pos + 2) & 0xff) << 16) + ((buffer.get(pos + 3) & 0xff) << 24);
+                    pos += 8;
+                    break;
+                default:
+                    break;
+            }
+            offsets[i] = pos;
+            offsets[i + 1] = length;
+            pos += length;
+        }
     }
 
-    public ValueObject[] getRow(PacketFetcher packetFetcher) throws IOException {
-        for (int i = 0; i < columnInformation.length; i++) {
-            while(!isPacketComplete()) {
-                appendPacket(packetFetcher.getRawPacket());
+    /**
+     * Read a binary protocol row, replacing the current one.
+     * Numeric values are kept as numbers, other values are decoded when the row is read, to the text a text
+     * protocol row would hold.
+     *
+     * @param rawPacket the row packet
+     * @param packetFetcher fetcher to read the following packets from, for rows of 16MB and more
+     * @throws IOException if the row continues in packets that cannot be read
+     */
+    public void readBinary(RawPacket rawPacket, PacketFetcher packetFetcher) throws IOException {
+        ByteBuffer buffer = rawPacket.getByteBuffer();
+        if (buffer.limit() == CompositeBuffer.MAX_PACKET_LENGTH) {
+            /*
+             * fixed size values may straddle packets : the whole row is assembled first, once, into an array sized
+             * from the packet lengths. Packets of a reusable receive buffer are detached before the next one is read.
+             */
+            List<ByteBuffer> packets = new ArrayList<ByteBuffer>();
+            ByteBuffer packet = rawPacket.detach().getByteBuffer();
+            int length = 0;
+            for (;;) {
+                packets.add(packet);
+                length += packet.remaining();
+                /* the chain ends with a shorter packet, empty after a row of a multiple of 16MB - 1 bytes */
+                if (packet.limit() < CompositeBuffer.MAX_PACKET_LENGTH) {
+                    break;
+                }
+                packet = packetFetcher.getRawPacket().detach().getByteBuffer();
+            }
+            byte[] row = new byte[length];
+            int pos = 0;
+            for (ByteBuffer part : packets) {
+                int partLength = part.remaining();
+                part.duplicate().get(row, pos, partLength);
+                pos += partLength;
+            }
+            buffer = ByteBuffer.wrap(row).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.rawPacket = null;
+        this.numbers = new long[columnInformation.length];
+        this.values = BinaryRowDecoder.decode(buffer, columnInformation, numbers);
+        clearValueObjects();
+    }
+
+    private void clearValueObjects() {
+        if (valueObjects != null) {
+            Arrays.fill(valueObjects, null);
+        }
+    }
+
+    /**
+     * Get a copy of this row that stays valid after the next packet is read.
+     * Only packets read into a reusable receive buffer are copied.
+     *
+     * @return a row independent of the packet fetcher
+     */
+    public MySQLRowPacket detach() {
+        return new MySQLRowPacket(columnInformation, offsets.clone(),
+                rawPacket == null ? null : rawPacket.detach(), values, numbers);
+    }
+
+    /**
+     * Get the length of the row, as sent by the server.
+     *
+     * @return the number of bytes of the length encoded values
+     */
+    public int getEncodedLength() {
+        if (values == null) {
+            return rawPacket.getByteBuffer().limit() - rawPacket.getByteBuffer().position();
+        }
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            byte[] value = value(i);
+            length += value == null ? 1 : lengthEncodedSize(value.length) + value.length;
+        }
+        return length;
+    }
+
+    /**
+     * Get the row as sent by the server, which read(RawPacket) can decode again.
+     * Rows continued over several packets are encoded again as a single buffer.
+     *
+     * @return a buffer holding the length encoded values between its position and its limit
+     */
+    public ByteBuffer getEncodedRow() {
+        if (values == null) {
+            return rawPacket.getByteBuffer().slice();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(getEncodedLength());
+        for (int i = 0; i < values.length; i++) {
+            byte[] value = value(i);
+            if (value == null) {
+                buffer.put((byte) 251);
+                continue;
             }
-            columns[i] = new MySQLValueObject(reader.getLengthEncodedBytes(), columnInformation[i]);
+            int length = value.length;
+            if (length < 251) {
+                buffer.put((byte) length);
+            } else if (length < 65536) {
+                buffer.put((byte) 252).put((byte) length).put((byte) (length >>> 8));
+            } else if (length < 16777216) {
+                buffer.put((byte) 253).put((byte) length).put((byte) (length >>> 8)).put((byte) (length >>> 16));
+            } else {
+                buffer.put((byte) 254).put((byte) length).put((byte) (length >>> 8)).put((byte) (length >>> 16))
+                        .put((byte) (length >>> 24)).put(new byte[4]);
+            }
+            buffer.put(value);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /* a value of the values array, numbers formatted as text */
+    private byte[] value(int i) {
+        if (values[i] == BinaryRowDecoder.NUMBER) {
+            return new MySQLBinaryValueObject(numbers[i], columnInformation[i]).getBytes();
+        }
+        return values[i];
+    }
+
+    private static int lengthEncodedSize(int length) {
+        if (length < 251) {
+            return 1;
+        }
+        if (length < 65536) {
+            return 3;
+        }
+        return length < 16777216 ? 4 : 9;
+    }
+
+    /**
+     * Get the length of a value.
+     *
+     * @param i column index, starts at 0
+     * @return the value length, or -1 for a NULL value
+     */
+    public int getLength(int i) {
+        if (values != null) {
+            return values[i] == null ? NULL_LENGTH : value(i).length;
         }
-        return columns;
+        return offsets[2 * i + 1];
     }
 
-}
\ No newline at end of file
+    /**
+     * Copy the bytes of a non NULL value.
+     *
+     * @param i column index, starts at 0
+     * @param dst array to copy the value to, with room for getLength(i) bytes
+     * @param off position of the value in dst
+     */
+    public void copyBytes(int i, byte[] dst, int off) {
+        if (values != null) {
+            byte[] value = value(i);
+            System.arraycopy(value, 0, dst, off, value.length);
+            return;
+        }
+        ByteBuffer buffer = rawPacket.getByteBuffer();
+        int pos = buffer.position();
+        buffer.position(offsets[2 * i]);
+        buffer.get(dst, off, offsets[2 * i + 1]);
+        buffer.position(pos);
+    }
+
+    /**
+     * Get the raw bytes of a value, copied out of the packet.
+     *
+     * @param i column index, starts at 0
+     * @return the value bytes, or null for a NULL value
+     */
+    public byte[] getBytes(int i) {
+        if (values != null) {
+            return value(i);
+        }
+        int length = offsets[2 * i + 1];
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        copyBytes(i, bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Decode a value. The value is decoded once per row read : reading the same column again returns the same value.
+     *
+     * @param i column index, starts at 0
+     * @return the value
+     */
+    public ValueObject getValueObject(int i) {
+        if (valueObjects == null) {
+            valueObjects = new ValueObject[columnInformation.length];
+        } else if (valueObjects[i] != null) {
+            return valueObjects[i];
+        }
+        ValueObject valueObject = decodeValueObject(i);
+        valueObjects[i] = valueObject;
+        return valueObject;
+    }
+
+    /**
+     * Decode a value, without keeping it. Used for rows kept in a list, which would otherwise keep the decoded values
+     * of every row read.
+     *
+     * @param i column index, starts at 0
+     * @return the value
+     */
+    public ValueObject decodeValueObject(int i) {
+        if (values != null && values[i] == BinaryRowDecoder.NUMBER) {
+            return new MySQLBinaryValueObject(numbers[i], columnInformation[i]);
+        }
+        return new MySQLValueObject(getBytes(i), columnInformation[i]);
+    }
+}
@@ -90,6 +90,7 @@ public class MySQLClientAuthPacket implements CommandPacket {
                                  final String password,
                                  final String database,
                                  final int serverCapabilities,
+                                 final int mariaDbCapabilities,
                                  final byte serverLanguage,
                                  final byte[] seed, byte packetSeq) {
         this.packetSeq = packetSeq;
@@ -104,7 +105,8 @@ public class MySQLClientAuthPacket implements CommandPacket {
         writeBuffer.writeInt(serverCapabilities).
                 writeInt(1024*1024*1024).
                 writeByte(serverLanguage). //1
-                writeBytes((byte) 0, 23).    //23
+                writeBytes((byte) 0, 19).    //19
+                writeInt(mariaDbCapabilities). //4, only read by MariaDB without the CLIENT_MYSQL capability
                 writeString(username).     //strlen username
                 writeByte((byte) 0).        //1
                 writeByte((byte) scrambledPassword.length).
@@ -0,0 +1,133 @@
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public class BulkLoaderTest extends BaseTest {
+
+    @Test
+    public void loadRows() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists bulk_loader");
+        st.execute("create table bulk_loader (id int, name varchar(20), data blob, d date) character set utf8");
+        BulkLoader loader = connection.unwrap(BulkLoadConnection.class).createBulkLoader("bulk_loader", "id", "name", "data", "d");
+        Iterator<Object[]> rows = Arrays.asList(new Object[][] {
+                {1, "a\tb\nc\\d", new byte[] {0, 1, '\\', '\n', (byte) 0xff}, java.sql.Date.valueOf("2014-01-02")},
+                {2, null, null, null}}).iterator();
+        assertEquals(2, loader.load(rows));
+
+        ResultSet rs = st.executeQuery("select id, name, data, d from bulk_loader order by id");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertEquals("a\tb\nc\\d", rs.getString(2));
+        assertArrayEquals(new byte[] {0, 1, '\\', '\n', (byte) 0xff}, rs.getBytes(3));
+        assertEquals(java.sql.Date.valueOf("2014-01-02"), rs.getDate(4));
+        assertTrue(rs.next());
+        assertNull(rs.getString(2));
+        assertNull(rs.getBytes(3));
+        assertNull(rs.getDate(4));
+        assertFalse(rs.next());
+
+        st.execute("truncate table bulk_loader");
+        int[] ids = new int[10000];
+        String[] names = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+            names[i] = "name" + i;
+        }
+        loader = connection.unwrap(BulkLoadConnection.class).createBulkLoader("bulk_loader", "id", "name");
+        assertEquals(ids.length, loader.loadColumns(ids, names));
+        rs = st.executeQuery("select count(*), sum(id) from bulk_loader where name = concat('name', id)");
+        assertTrue(rs.next());
+        assertEquals(ids.length, rs.getInt(1));
+        assertEquals((long) ids.length * (ids.length - 1) / 2, rs.getLong(2));
+        st.execute("drop table bulk_loader");
+    }
+
+    @Test
+    public void loadNoBackslashEscapes() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists bulk_loader_nbe");
+        st.execute("create table bulk_loader_nbe (id int, name varchar(20)) character set utf8");
+        Connection nbeConnection = openNewConnection(connURI + "&sessionVariables=sql_mode='NO_BACKSLASH_ESCAPES'");
+        try {
+            BulkLoader loader = nbeConnection.unwrap(BulkLoadConnection.class)
+                    .createBulkLoader("bulk_loader_nbe", "id", "name");
+            Iterator<Object[]> rows = Arrays.asList(new Object[][] {
+                    {1, "a\tb\nc\\d'e"}, {2, null}}).iterator();
+            assertEquals(2, loader.load(rows));
+        } finally {
+            nbeConnection.close();
+        }
+
+        ResultSet rs = st.executeQuery("select id, name from bulk_loader_nbe order by id");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertEquals("a\tb\nc\\d'e", rs.getString(2));
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertNull(rs.getString(2));
+        assertFalse(rs.next());
+        st.execute("drop table bulk_loader_nbe");
+    }
+
+    @Test
+    public void loadErrors() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists bulk_loader_errors");
+        st.execute("create table bulk_loader_errors (id int, x double)");
+        BulkLoader loader = connection.unwrap(BulkLoadConnection.class)
+                .createBulkLoader(connection.getCatalog() + ".bulk_loader_errors", "id", "x");
+        try {
+            loader.loadColumns(new int[] {1, 2}, new double[] {1.5, Double.NaN});
+            fail("NaN must be rejected");
+        } catch (SQLException e) {
+            /* expected */
+        }
+        assertEquals(0, count(st));
+
+        /* the rows sent before the error are ended, and the connection can be used afterwards */
+        Iterator<Object[]> rows = new Iterator<Object[]>() {
+            int row;
+
+            public boolean hasNext() {
+                return true;
+            }
+
+            public Object[] next() {
+                if (row == 5000) {
+                    throw new IllegalStateException("no more rows");
+                }
+                row++;
+                return new Object[] {row, 0.5};
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        try {
+            loader.load(rows);
+            fail("the iterator error must be thrown");
+        } catch (SQLException e) {
+            /* expected */
+        }
+        assertTrue(count(st) > 0);
+        assertEquals(2, loader.loadColumns(new int[] {1, 2}, new double[] {1.5, 2.5}));
+        st.execute("drop table bulk_loader_errors");
+    }
+
+    private static int count(Statement st) throws SQLException {
+        ResultSet rs = st.executeQuery("select count(*) from bulk_loader_errors");
+        assertTrue(rs.next());
+        return rs.getInt(1);
+    }
+}
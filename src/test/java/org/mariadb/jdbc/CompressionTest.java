@@ -0,0 +1,152 @@
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+import org.mariadb.jdbc.internal.common.packet.CompressOutputStream;
+import org.mariadb.jdbc.internal.common.packet.CompressionStats;
+import org.mariadb.jdbc.internal.common.packet.DecompressInputStream;
+
+public class CompressionTest extends BaseTest {
+
+    private static byte[] randomData(int length) {
+        byte[] random = new byte[length];
+        new Random(1).nextBytes(random);
+        return random;
+    }
+
+    private static byte[] textData(int length) {
+        byte[] text = new byte[length];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (byte) ('a' + i % 20);
+        }
+        return text;
+    }
+
+    @Test
+    public void adaptiveCompression() throws SQLException {
+        setConnection("&useCompression=true&adaptiveCompression=true");
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists adaptive_compression");
+        st.execute("create table adaptive_compression (data longblob)");
+        PreparedStatement ps = connection.prepareStatement("insert into adaptive_compression values (?)");
+        ps.setBytes(1, randomData(100000));
+        ps.execute();
+        ps.setBytes(1, textData(100000));
+        ps.execute();
+
+        CompressionStats stats = connection.unwrap(MySQLConnection.class).getCompressionStats();
+        assertEquals(1, stats.getPacketsSkipped());
+        assertEquals(1, stats.getPacketsCompressed());
+        assertTrue(stats.getCompressionRatio() < 0.5);
+        st.execute("drop table adaptive_compression");
+    }
+
+    @Test
+    public void adaptiveCompressionSuspended() throws IOException {
+        CompressionStats stats = new CompressionStats();
+        CompressOutputStream out = new CompressOutputStream(new ByteArrayOutputStream(),
+                Deflater.DEFAULT_COMPRESSION, CompressOutputStream.DEFAULT_MIN_COMPRESSION_SIZE, true, stats);
+        byte[] random = randomData(20000);
+        byte[] text = textData(20000);
+
+        /* data that does not shrink suspends compression, the next packets are not deflated */
+        for (int i = 0; i < 20; i++) {
+            out.write(random, 0, random.length);
+        }
+        assertEquals(1, stats.getCompressionSuspensions());
+        assertTrue(stats.getPacketsNotTried() > 0);
+        assertEquals(0, stats.getPacketsCompressed());
+
+        /* the packets still deflated while suspended notice that data shrinks again */
+        for (int i = 0; i < 100; i++) {
+            out.write(text, 0, text.length);
+        }
+        assertEquals(1, stats.getCompressionResumptions());
+        long notTried = stats.getPacketsNotTried();
+
+        /* mixed data keeps compression on : only the packets that do not shrink are sent uncompressed */
+        for (int i = 0; i < 20; i++) {
+            out.write(text, 0, text.length);
+            out.write(random, 0, random.length);
+        }
+        assertEquals(1, stats.getCompressionSuspensions());
+        assertEquals(notTried, stats.getPacketsNotTried());
+        out.close();
+    }
+
+    @Test
+    public void deflaterReuse() throws IOException {
+        CompressionStats stats = new CompressionStats();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        CompressOutputStream out = new CompressOutputStream(compressed, Deflater.BEST_SPEED, 100, false, stats);
+        /* packets of different sizes and contents, compressed or not, through the same Deflater and Inflater */
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 50; i++) {
+            byte[] packet = i % 3 == 0 ? randomData(50 + i * 997) : textData(50 + i * 1499);
+            out.write(packet, 0, packet.length);
+            expected.write(packet, 0, packet.length);
+        }
+        assertTrue(stats.getPacketsCompressed() > 0);
+        assertTrue(stats.getPacketsNotShrunk() > 0);
+
+        DecompressInputStream in = new DecompressInputStream(new ByteArrayInputStream(compressed.toByteArray()), stats);
+        byte[] read = new byte[expected.size()];
+        int n = 0;
+        while (n < read.length) {
+            n += in.read(read, n, Math.min(read.length - n, 4096));
+        }
+        assertArrayEquals(expected.toByteArray(), read);
+        assertEquals(stats.getPacketsCompressed(), stats.getPacketsDecompressed());
+        out.close();
+    }
+
+    @Test
+    public void compressionThreshold() throws IOException {
+        CompressionStats stats = new CompressionStats();
+        CompressOutputStream out = new CompressOutputStream(new ByteArrayOutputStream(), Deflater.DEFAULT_COMPRESSION,
+                1000, false, stats);
+        byte[] text = textData(1001);
+        /* packets up to the threshold are sent uncompressed */
+        out.write(text, 0, 1000);
+        assertEquals(0, stats.getPacketsCompressed());
+        out.write(text, 0, 1001);
+        assertEquals(1, stats.getPacketsCompressed());
+        out.close();
+    }
+
+    @Test
+    public void compressionProperties() throws SQLException {
+        setConnection("&useCompression=true&compressionLevel=1&compressionThreshold=0");
+        ResultSet rs = connection.createStatement().executeQuery("select repeat('a', 10000)");
+        assertTrue(rs.next());
+        assertEquals(10000, rs.getString(1).length());
+        CompressionStats stats = connection.unwrap(MySQLConnection.class).getCompressionStats();
+        assertTrue(stats.getPacketsCompressed() > 0);
+
+        String[] invalid = {"&compressionLevel=10", "&compressionLevel=-2", "&compressionLevel=fast",
+                "&compressionThreshold=-1"};
+        for (String properties : invalid) {
+            try {
+                openNewConnection(connURI + "&useCompression=true" + properties).close();
+                fail(properties + " must be rejected");
+            } catch (SQLException e) {
+                String name = properties.substring(1, properties.indexOf('='));
+                assertTrue(e.getMessage(), e.getMessage().contains(name));
+            }
+        }
+    }
+}
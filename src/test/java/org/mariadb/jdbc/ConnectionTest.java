@@ -10,7 +10,9 @@ import java.sql.*;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import org.junit.Assume;
 import org.junit.Test;
@@ -251,6 +253,90 @@ public class ConnectionTest extends BaseTest {
 		assertFalse(isValid);
 	}
 
+	@Test
+	public void asyncQueries() throws Exception {
+		AsyncConnection async = connection.unwrap(AsyncConnection.class);
+		async.executeUpdateAsync("drop table if exists async_test");
+		async.executeUpdateAsync("create table async_test (id int)");
+		Future<Integer> insert = async.executeUpdateAsync("insert into async_test values (1),(2),(3)");
+		Future<ResultSet> select = async.executeQueryAsync("select count(*) from async_test");
+		Future<Integer> failed = async.executeUpdateAsync("insert into no_such_table values (1)");
+		assertEquals(3, insert.get().intValue());
+		ResultSet rs = select.get();
+		assertTrue(rs.next());
+		assertEquals(3, rs.getInt(1));
+		/* the statement of the query is closed with its result set */
+		Statement statement = rs.getStatement();
+		assertFalse(statement.isClosed());
+		rs.close();
+		assertTrue(statement.isClosed());
+		try {
+			failed.get();
+			fail("expected failure");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof SQLException);
+		}
+		assertFalse(async.executeAsync("drop table async_test").get());
+	}
+
+	@Test
+	public void asyncQueriesAfterClose() throws Exception {
+		Connection asyncConnection = openNewConnection(connURI);
+		AsyncConnection async = asyncConnection.unwrap(AsyncConnection.class);
+		Future<ResultSet> running = async.executeQueryAsync("select sleep(1)");
+		Future<Integer> queued = async.executeUpdateAsync("do 1");
+		Thread.sleep(200);
+		/* close waits for the running query, it is neither interrupted nor raced by the QUIT command */
+		asyncConnection.close();
+		assertTrue(running.isDone());
+		ResultSet rs = running.get();
+		assertTrue(rs.next());
+		assertEquals(0, rs.getInt(1));
+		/* the queued command is cancelled, not run on the closed connection */
+		assertTrue(queued.isCancelled());
+		assertTrue(asyncConnection.isClosed());
+		try {
+			async.executeUpdateAsync("do 1").get();
+			fail("expected failure");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof SQLException);
+		}
+	}
+
+	/**
+	 * A statement blocked on the network holds the protocol lock, not the protocol monitor
+	 * (which would pin the carrier of a virtual thread).
+	 */
+	@Test
+	public void noMonitorHeldDuringQuery() throws Exception {
+		final MySQLProtocol protocol = ((MySQLConnection) connection).getProtocol();
+		Thread query = new Thread() {
+			public void run() {
+				try {
+					connection.createStatement().executeQuery("select sleep(2)");
+				} catch (SQLException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		query.start();
+		Thread.sleep(500);
+		assertTrue(protocol.getLock().isLocked());
+		final boolean[] monitorFree = new boolean[1];
+		Thread monitor = new Thread() {
+			public void run() {
+				synchronized (protocol) {
+					monitorFree[0] = true;
+				}
+			}
+		};
+		monitor.start();
+		monitor.join(200);
+		assertTrue(monitorFree[0]);
+		query.join();
+		assertFalse(protocol.getLock().isLocked());
+	}
+
 	/**
 	 * Reflection magic to extract the connection thread id assigned by the
 	 * server
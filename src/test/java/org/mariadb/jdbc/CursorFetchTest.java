@@ -0,0 +1,95 @@
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Prepared SELECTs with a fetch size read their rows through a server cursor with useCursorFetch=true.
+ */
+public class CursorFetchTest extends BaseTest {
+
+    @Before
+    public void createTable() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists cursor_fetch");
+        st.execute("create table cursor_fetch (i int, u bigint unsigned, d double, s varchar(20), "
+                + "t datetime(3), z int(6) zerofill, n int)");
+        PreparedStatement insert = connection.prepareStatement("insert into cursor_fetch values (?, ?, ?, ?, ?, ?, null)");
+        for (int i = 0; i < 100; i++) {
+            insert.setInt(1, i);
+            insert.setString(2, "18446744073709551" + (100 + i));
+            insert.setDouble(3, i / 10.0);
+            insert.setString(4, "row " + i);
+            insert.setString(5, "2015-03-07 13:05:09." + (100 + i));
+            insert.setInt(6, i);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+    }
+
+    @Test
+    public void fetchRows() throws SQLException {
+        Connection cursorConnection = openNewConnection(connURI + "&useCursorFetch=true");
+        try {
+            String query = "select * from cursor_fetch where i >= ? order by i";
+            PreparedStatement expectedStatement = connection.prepareStatement(query);
+            expectedStatement.setInt(1, 0);
+            ResultSet expected = expectedStatement.executeQuery();
+
+            PreparedStatement ps = cursorConnection.prepareStatement(query);
+            ps.setFetchSize(7);
+            ps.setInt(1, 0);
+            ResultSet rs = ps.executeQuery();
+            assertEquals(ResultSet.TYPE_FORWARD_ONLY, rs.getType());
+            int columns = rs.getMetaData().getColumnCount();
+            int rows = 0;
+            while (rs.next()) {
+                assertTrue(expected.next());
+                for (int i = 1; i <= columns; i++) {
+                    assertEquals(expected.getString(i), rs.getString(i));
+                    assertEquals(expected.getObject(i), rs.getObject(i));
+                }
+                /* the connection is free between two fetches */
+                ResultSet other = cursorConnection.createStatement().executeQuery("select 1");
+                assertTrue(other.next());
+                rows++;
+            }
+            assertFalse(expected.next());
+            assertEquals(100, rows);
+            rs.close();
+        } finally {
+            cursorConnection.close();
+        }
+    }
+
+    @Test
+    public void closeBeforeLastRow() throws SQLException {
+        Connection cursorConnection = openNewConnection(connURI + "&useCursorFetch=true");
+        try {
+            PreparedStatement ps = cursorConnection.prepareStatement("select i from cursor_fetch order by i");
+            ps.setFetchSize(10);
+            for (int n = 0; n < 300; n++) {
+                ResultSet rs = ps.executeQuery();
+                assertTrue(rs.next());
+                assertEquals(0, rs.getInt(1));
+                rs.close();
+            }
+            PreparedStatement update = cursorConnection.prepareStatement("update cursor_fetch set n = ?");
+            update.setFetchSize(10);
+            update.setInt(1, 1);
+            assertEquals(100, update.executeUpdate());
+        } finally {
+            cursorConnection.close();
+        }
+    }
+}
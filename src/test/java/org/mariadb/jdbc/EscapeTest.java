@@ -0,0 +1,144 @@
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Parameters of client side prepared statements are escaped into the query text, with backslashes or, with
+ * sql_mode NO_BACKSLASH_ESCAPES, by doubling the single quotes. Values must come back unchanged.
+ */
+public class EscapeTest extends BaseTest {
+    private static final String[] VALUES = {
+            "'", "''", "\\", "\\'", "\\\\'", "\"", "a\0b", "\r\n", "\n\r", "\u001a", "\\\u001a",
+            "' or '1'='1", "\\' or 1=1 -- ", "'; drop table escape_test; -- ",
+            "\ud83d\ude00 \u00e9\u20ac '\ud83d\ude00'", ""};
+
+    private static byte[] utf8(String s) throws UnsupportedEncodingException {
+        return s.getBytes("UTF-8");
+    }
+
+    private static Connection noBackslashEscapesConnection() throws SQLException {
+        Connection c = DriverManager.getConnection(connURI + "&sessionVariables=sql_mode='NO_BACKSLASH_ESCAPES'");
+        assertTrue(((MySQLConnection) c).noBackslashEscapes);
+        return c;
+    }
+
+    private static void createTable(Connection c) throws SQLException {
+        Statement st = c.createStatement();
+        st.execute("set names utf8mb4");
+        st.execute("drop table if exists escape_test");
+        st.execute("create table escape_test (id int, s longtext character set utf8mb4, b longblob)");
+    }
+
+    /* insert the value as a string, character stream and bytes, then read it back and look it up */
+    private static void checkRoundTrip(Connection c, String value) throws Exception {
+        Statement st = c.createStatement();
+        st.execute("delete from escape_test");
+        PreparedStatement insert = c.prepareStatement("insert into escape_test values (?, ?, ?)");
+        insert.setInt(1, 1);
+        insert.setString(2, value);
+        insert.setBytes(3, utf8(value));
+        insert.execute();
+        insert.setInt(1, 2);
+        insert.setCharacterStream(2, new StringReader(value));
+        insert.setBinaryStream(3, new ByteArrayInputStream(utf8(value)));
+        insert.execute();
+        insert.setInt(1, 3);
+        insert.setCharacterStream(2, new StringReader(value), value.length());
+        insert.setBinaryStream(3, new ByteArrayInputStream(utf8(value)), utf8(value).length);
+        insert.execute();
+
+        ResultSet rs = st.executeQuery("select id, s, b from escape_test order by id");
+        for (int id = 1; id <= 3; id++) {
+            assertTrue(rs.next());
+            assertEquals(id, rs.getInt(1));
+            assertEquals(value, rs.getString(2));
+            assertArrayEquals(utf8(value), rs.getBytes(3));
+        }
+        PreparedStatement select = c.prepareStatement("select count(*) from escape_test where s = ? and b = ?");
+        select.setString(1, value);
+        select.setBytes(2, utf8(value));
+        rs = select.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+    }
+
+    private static void checkValues(Connection c) throws Exception {
+        createTable(c);
+        for (String value : VALUES) {
+            checkRoundTrip(c, value);
+        }
+        /* a surrogate pair split between two reads of a character stream */
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1023; i++) {
+            sb.append('x');
+        }
+        checkRoundTrip(c, sb.append("\ud83d\ude00'\\\0").toString());
+
+        byte[] allBytes = new byte[256];
+        for (int i = 0; i < allBytes.length; i++) {
+            allBytes[i] = (byte) i;
+        }
+        PreparedStatement insert = c.prepareStatement("insert into escape_test (id, b) values (4, ?)");
+        insert.setBytes(1, allBytes);
+        insert.execute();
+        ResultSet rs = c.createStatement().executeQuery("select b from escape_test where id = 4");
+        assertTrue(rs.next());
+        assertArrayEquals(allBytes, rs.getBytes(1));
+        c.createStatement().execute("drop table escape_test");
+    }
+
+    @Test
+    public void escapedValues() throws Exception {
+        checkValues(connection);
+    }
+
+    @Test
+    public void escapedValuesNoBackslashEscapes() throws Exception {
+        Connection c = noBackslashEscapesConnection();
+        try {
+            checkValues(c);
+        } finally {
+            c.close();
+        }
+    }
+
+    /* escaped values written over the end of a 16MB packet */
+    private static String bigValue() {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 10000000) {
+            sb.append("\u20ac'\\\ud83d\ude00\0\r\n\u001a\"");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void escapedValuesOverPacketBoundary() throws Exception {
+        Assume.assumeTrue(checkMaxAllowedPacketMore40m("escapedValuesOverPacketBoundary"));
+        String value = bigValue();
+        createTable(connection);
+        checkRoundTrip(connection, value);
+        Connection c = noBackslashEscapesConnection();
+        try {
+            createTable(c);
+            checkRoundTrip(c, value);
+            c.createStatement().execute("drop table escape_test");
+        } finally {
+            c.close();
+        }
+    }
+}
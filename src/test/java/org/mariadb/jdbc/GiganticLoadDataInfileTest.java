@@ -3,8 +3,13 @@ package org.mariadb.jdbc;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -60,6 +65,55 @@ public class GiganticLoadDataInfileTest extends BaseTest {
         assertEquals(in.numberOfRows, numberOfRowsInTable);
     }
     
+    /**
+     * Throughput of LOAD DATA LOCAL INFILE from an InputStream, a File, and a File with transport=nio
+     * (FileChannel.transferTo). Run manually, e.g. with -DloadDataRows=50000000 for a multi-GB file.
+     */
+    @Ignore
+    @Test
+    public void loadDataInfileThroughput() throws Exception {
+        int rows = Integer.parseInt(System.getProperty("loadDataRows", "10000000"));
+        File file = File.createTempFile("gigantic_load_data_infile", ".tsv");
+        file.deleteOnExit();
+        VeryLongAutoGeneratedInputStream in = new VeryLongAutoGeneratedInputStream(rows);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+        out.close();
+
+        int loadedRows = loadThroughput("InputStream", file, false);
+        assertEquals(loadedRows, loadThroughput("File", file, true));
+        setConnection("&transport=nio");
+        statement = connection.createStatement();
+        assertEquals(loadedRows, loadThroughput("File, transport=nio", file, true));
+    }
+
+    private int loadThroughput(String source, File file, boolean useFile) throws Exception {
+        statement.execute("truncate table gigantic_load_data_infile");
+        MySQLStatement mariaDbStatement = statement.unwrap(MySQLStatement.class);
+        InputStream is = null;
+        if (useFile) {
+            mariaDbStatement.setLocalInfileFile(file);
+        } else {
+            is = new FileInputStream(file);
+            mariaDbStatement.setLocalInfileInputStream(is);
+        }
+        long start = System.nanoTime();
+        statement.execute("LOAD DATA LOCAL INFILE 'dummyFileName' INTO TABLE gigantic_load_data_infile"
+                + " FIELDS TERMINATED BY '\\t' ENCLOSED BY '' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'");
+        long nanos = System.nanoTime() - start;
+        if (is != null) {
+            is.close();
+        }
+        log.info(source + ": " + file.length() / 1024 / 1024 + " MB in " + nanos / 1000000 + " ms, "
+                + (file.length() * 1000L / Math.max(1, nanos)) + " MB/s");
+        ResultSet resultSet = statement.executeQuery("select count(*) from gigantic_load_data_infile");
+        assertTrue(resultSet.next());
+        return resultSet.getInt(1);
+    }
+
     /**
      * Custom memory conserving generator of a LOAD DATA INFILE that generates a stream like this:
      * 
@@ -0,0 +1,179 @@
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.mariadb.jdbc.internal.common.PacketFetcher;
+import org.mariadb.jdbc.internal.common.packet.RawPacket;
+import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
+import org.mariadb.jdbc.internal.mysql.MySQLType;
+import org.mariadb.jdbc.internal.mysql.packet.MySQLRowPacket;
+
+/**
+ * Rows of 16MB and more are split over several packets. Checks that a big value is assembled once,
+ * without re-copying the packets read so far. Does not need a server.
+ */
+public class MultiPacketRowTest {
+    private static final int MAX_PACKET_LENGTH = 0xffffff;
+    private static final int BLOB_LENGTH = 256 * 1024 * 1024;
+
+    /**
+     * Serves a row made of one length encoded 256MB value, split in max length packets.
+     * All packets share the same backing array, so the fetcher itself does not allocate much.
+     */
+    static class BlobRowFetcher implements PacketFetcher {
+        final byte[] chunk = new byte[MAX_PACKET_LENGTH];
+        final long payloadLength = 9L + BLOB_LENGTH;
+        long sent;
+        int seq;
+
+        BlobRowFetcher() {
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = (byte) (i % 251);
+            }
+        }
+
+        public RawPacket getRawPacket() throws IOException {
+            int length = (int) Math.min(MAX_PACKET_LENGTH, payloadLength - sent);
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+            if (sent == 0) {
+                ByteBuffer first = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                first.put((byte) 254).putLong(BLOB_LENGTH);
+                buffer.position(9);
+                first.put(buffer);
+                first.flip();
+                buffer = first;
+            }
+            sent += length;
+            return new RawPacket(buffer, seq++);
+        }
+
+        public void clearInputStream() throws IOException {
+        }
+
+        public void close() throws IOException {
+        }
+    }
+
+    @Test
+    public void bigValueAllocatedOnce() throws IOException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        BlobRowFetcher fetcher = new BlobRowFetcher();
+        MySQLColumnInformation[] columns = {MySQLColumnInformation.create("b", MySQLType.BLOB)};
+        RawPacket first = fetcher.getRawPacket();
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        MySQLRowPacket row = new MySQLRowPacket(columns);
+        row.read(first, fetcher);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        byte[] value = row.getValueObject(0).getBytes();
+        assertEquals(BLOB_LENGTH, value.length);
+        for (int i = 0; i < value.length; i += 4093) {
+            assertEquals((byte) (((9 + i) % MAX_PACKET_LENGTH) % 251), value[i]);
+        }
+        assertTrue("allocated " + allocated + " bytes to read a " + BLOB_LENGTH + " bytes value",
+                allocated < BLOB_LENGTH + BLOB_LENGTH / 20);
+    }
+
+    /**
+     * Serves the given payload split in max length packets, followed by an EOF packet.
+     */
+    static class PayloadFetcher implements PacketFetcher {
+        final byte[] payload;
+        int sent;
+        int seq;
+        boolean payloadEnded;
+
+        PayloadFetcher(byte[] payload) {
+            this.payload = payload;
+        }
+
+        public RawPacket getRawPacket() throws IOException {
+            if (payloadEnded) {
+                byte[] eof = {(byte) 0xfe, 0, 0, 0, 0};
+                return new RawPacket(ByteBuffer.wrap(eof).order(ByteOrder.LITTLE_ENDIAN), seq++);
+            }
+            int length = Math.min(MAX_PACKET_LENGTH, payload.length - sent);
+            ByteBuffer buffer = ByteBuffer.wrap(payload, sent, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+            sent += length;
+            /* a last packet of max length is followed by an empty one */
+            payloadEnded = length < MAX_PACKET_LENGTH;
+            return new RawPacket(buffer, seq++);
+        }
+
+        public void clearInputStream() throws IOException {
+        }
+
+        public void close() throws IOException {
+        }
+    }
+
+    private static void assertEofIsNext(PacketFetcher fetcher) throws IOException {
+        ByteBuffer next = fetcher.getRawPacket().getByteBuffer();
+        assertEquals(5, next.remaining());
+        assertEquals((byte) 0xfe, next.get(next.position()));
+    }
+
+    @Test
+    public void rowOfMaxPacketLength() throws IOException {
+        /* a single value, with the 4 bytes of its length : the row fills one max length packet */
+        int valueLength = MAX_PACKET_LENGTH - 4;
+        byte[] payload = new byte[MAX_PACKET_LENGTH];
+        payload[0] = (byte) 253;
+        payload[1] = (byte) valueLength;
+        payload[2] = (byte) (valueLength >>> 8);
+        payload[3] = (byte) (valueLength >>> 16);
+        for (int i = 4; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        PayloadFetcher fetcher = new PayloadFetcher(payload);
+        MySQLRowPacket row = new MySQLRowPacket(new MySQLColumnInformation[] {
+                MySQLColumnInformation.create("b", MySQLType.BLOB)});
+        row.read(fetcher.getRawPacket(), fetcher);
+        byte[] value = row.getBytes(0);
+        assertEquals(valueLength, value.length);
+        assertEquals((byte) 4, value[0]);
+        assertEquals((byte) (payload.length - 1), value[valueLength - 1]);
+        /* the empty packet ending the row is read with it */
+        assertEofIsNext(fetcher);
+    }
+
+    @Test
+    public void binaryRowOfTwiceMaxPacketLength() throws IOException {
+        /* header, NULL bitmap, then a value with the 9 bytes of its length : the row fills two max length packets */
+        int valueLength = 2 * MAX_PACKET_LENGTH - 11;
+        byte[] payload = new byte[2 * MAX_PACKET_LENGTH];
+        payload[2] = (byte) 254;
+        payload[3] = (byte) valueLength;
+        payload[4] = (byte) (valueLength >>> 8);
+        payload[5] = (byte) (valueLength >>> 16);
+        payload[6] = (byte) (valueLength >>> 24);
+        for (int i = 11; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        PayloadFetcher fetcher = new PayloadFetcher(payload);
+        MySQLRowPacket row = new MySQLRowPacket(new MySQLColumnInformation[] {
+                MySQLColumnInformation.create("b", MySQLType.BLOB)});
+        row.readBinary(fetcher.getRawPacket(), fetcher);
+        byte[] value = row.getBytes(0);
+        assertEquals(valueLength, value.length);
+        assertEquals((byte) 11, value[0]);
+        assertEquals((byte) (MAX_PACKET_LENGTH + 3), value[MAX_PACKET_LENGTH - 8]);
+        assertEquals((byte) (payload.length - 1), value[valueLength - 1]);
+        assertEofIsNext(fetcher);
+    }
+}
@@ -0,0 +1,139 @@
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class NioTransportTest extends BaseTest {
+
+    private void checkRoundTrip() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists nio_transport");
+        st.execute("create table nio_transport (id int not null primary key, data longblob)");
+        byte[] data = new byte[200000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        PreparedStatement ps = connection.prepareStatement("insert into nio_transport values (?,?)");
+        for (int i = 0; i < 10; i++) {
+            ps.setInt(1, i);
+            ps.setBytes(2, data);
+            ps.execute();
+        }
+        ResultSet rs = st.executeQuery("select id, data from nio_transport order by id");
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertArrayEquals(data, rs.getBytes(2));
+        }
+        st.execute("drop table nio_transport");
+    }
+
+    @Test
+    public void nioTransport() throws SQLException {
+        setConnection("&transport=nio");
+        checkRoundTrip();
+    }
+
+    @Test
+    public void nioTransportSSL() throws SQLException {
+        Assume.assumeTrue(haveSSL());
+        setConnection("&transport=nio&useSSL=true&trustServerCertificate=true");
+        checkRoundTrip();
+        ResultSet rs = connection.createStatement().executeQuery("SHOW STATUS LIKE 'Ssl_cipher'");
+        assertTrue(rs.next());
+        assertTrue(rs.getString(2).length() > 0);
+    }
+
+    @Test
+    public void nioTransportClose() throws SQLException {
+        Connection nioConnection = openNewConnection(connURI + "&transport=nio");
+        ResultSet rs = nioConnection.createStatement().executeQuery("select connection_id()");
+        assertTrue(rs.next());
+        long id = rs.getLong(1);
+        nioConnection.close();
+        /* QUIT was sent and the connection drained : the server ends the session */
+        Statement st = connection.createStatement();
+        for (int i = 0; i < 100; i++) {
+            rs = st.executeQuery("select count(*) from information_schema.processlist where id = " + id);
+            assertTrue(rs.next());
+            if (rs.getInt(1) == 0) {
+                return;
+            }
+            st.execute("do sleep(0.01)");
+        }
+        fail("the session of the closed connection is still open");
+    }
+
+    @Test
+    public void nioTransportCompression() throws SQLException {
+        setConnection("&transport=nio&useCompression=true");
+        checkRoundTrip();
+    }
+
+    @Test
+    public void reuseReadBuffer() throws SQLException {
+        setConnection("&reuseReadBuffer=true");
+        checkRoundTrip();
+    }
+
+    private static byte[] rowData(int row) {
+        /* large rows grow the receive buffer, the small rows after them shrink it back */
+        byte[] data = new byte[row % 5 == 0 ? 300000 : 10 + row];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (row + i);
+        }
+        return data;
+    }
+
+    @Test
+    public void reuseReadBufferDetachedRows() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists reuse_read_buffer");
+        st.execute("create table reuse_read_buffer (id int not null primary key, data longblob)");
+        PreparedStatement ps = connection.prepareStatement("insert into reuse_read_buffer values (?,?)");
+        for (int i = 0; i < 20; i++) {
+            ps.setInt(1, i);
+            ps.setBytes(2, rowData(i));
+            ps.execute();
+        }
+        String query = "select id, data from reuse_read_buffer order by id";
+
+        /* cached rows and column definitions stay valid once the receive buffer holds the next packets */
+        Connection reuseConnection = openNewConnection(connURI + "&reuseReadBuffer=true&prefetchRows=4");
+        try {
+            ResultSet rs = reuseConnection.createStatement().executeQuery(query);
+            for (int i = 19; i >= 0; i--) {
+                assertTrue(rs.absolute(i + 1));
+                assertEquals(i, rs.getInt(1));
+                assertArrayEquals(rowData(i), rs.getBytes(2));
+            }
+            assertEquals("data", rs.getMetaData().getColumnName(2));
+
+            /* rows read ahead by the prefetch thread are detached before the next packet is read */
+            Statement streaming = reuseConnection.createStatement();
+            streaming.setFetchSize(Integer.MIN_VALUE);
+            rs = streaming.executeQuery(query);
+            for (int i = 0; i < 20; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+                assertArrayEquals(rowData(i), rs.getBytes(2));
+            }
+            assertFalse(rs.next());
+        } finally {
+            reuseConnection.close();
+        }
+        st.execute("drop table reuse_read_buffer");
+    }
+}
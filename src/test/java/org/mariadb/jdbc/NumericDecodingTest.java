@@ -0,0 +1,204 @@
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.mariadb.jdbc.internal.common.ValueObject;
+import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
+import org.mariadb.jdbc.internal.mysql.MySQLType;
+import org.mariadb.jdbc.internal.mysql.MySQLValueObject;
+
+/**
+ * Numeric getters parse the row bytes directly. Does not need a server.
+ */
+public class NumericDecodingTest {
+
+    private static ValueObject value(String s, MySQLType type) {
+        return new MySQLValueObject(s.getBytes(), MySQLColumnInformation.create("c", type));
+    }
+
+    private static ValueObject value(String s) {
+        return value(s, MySQLType.VARCHAR);
+    }
+
+    @Test
+    public void integers() {
+        assertEquals(0, value("0").getInt());
+        assertEquals(-1, value("-1").getInt());
+        assertEquals(12, value("+12").getInt());
+        assertEquals(Integer.MAX_VALUE, value("2147483647").getInt());
+        assertEquals(Integer.MIN_VALUE, value("-2147483648").getInt());
+        assertEquals(Long.MAX_VALUE, value("9223372036854775807").getLong());
+        assertEquals(Long.MIN_VALUE, value("-9223372036854775808").getLong());
+        assertEquals(-32768, value("-32768").getShort());
+        assertEquals(127, value("127").getByte());
+    }
+
+    @Test
+    public void outOfRangeClamped() {
+        assertEquals(Integer.MAX_VALUE, value("2147483648").getInt());
+        assertEquals(Integer.MIN_VALUE, value("-2147483649").getInt());
+        assertEquals(Long.MAX_VALUE, value("9223372036854775808").getLong());
+        assertEquals(Long.MIN_VALUE, value("-9223372036854775809").getLong());
+        assertEquals(Long.MAX_VALUE, value("18446744073709551615").getLong());
+        assertEquals(Short.MAX_VALUE, value("99999999999999999999999").getShort());
+        assertEquals(Short.MIN_VALUE, value("-40000").getShort());
+    }
+
+    @Test
+    public void decimalsTruncated() {
+        assertEquals(1, value("1.9", MySQLType.DECIMAL).getInt());
+        assertEquals(-1, value("-1.9", MySQLType.DECIMAL).getLong());
+        assertEquals(1000, value("1e3", MySQLType.DOUBLE).getShort());
+        assertEquals(Integer.MAX_VALUE, value("1e20", MySQLType.DOUBLE).getInt());
+    }
+
+    @Test
+    public void notNumbers() {
+        String[] invalid = {"", "-", "+", "abc", "1-"};
+        for (String s : invalid) {
+            try {
+                value(s).getInt();
+                fail("'" + s + "' parsed as an integer");
+            } catch (NumberFormatException e) {
+                /* expected */
+            }
+        }
+        try {
+            value("128").getByte();
+            fail("128 parsed as a byte");
+        } catch (NumberFormatException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void bytesNotTruncated() {
+        assertEquals(-128, value("-128").getByte());
+        assertEquals(5, value("+5").getByte());
+        String[] invalid = {"1.5", "-1.5", "1e2", "1.0", "-129", "99999999999999999999999", "abc", ""};
+        for (String s : invalid) {
+            try {
+                value(s, MySQLType.DECIMAL).getByte();
+                fail("'" + s + "' parsed as a byte");
+            } catch (NumberFormatException e) {
+                /* expected, as Byte.valueOf() */
+            }
+        }
+    }
+
+    @Test
+    public void bitValues() {
+        MySQLColumnInformation bit = MySQLColumnInformation.create("b", MySQLType.BIT);
+        ValueObject v = new MySQLValueObject(new byte[] {0x01, 0x02}, bit);
+        assertEquals(258, v.getInt());
+        assertEquals(258L, v.getLong());
+        v = new MySQLValueObject(new byte[] {(byte) 0xff, 0, 0, 0, 0, 0, 0, 1}, bit);
+        assertEquals(0xff00000000000001L, v.getLong());
+        assertEquals(Integer.MAX_VALUE, v.getInt());
+    }
+
+    private static void assertDoubleRoundTrip(String s) {
+        double expected = Double.parseDouble(s);
+        double actual = value(s, MySQLType.DOUBLE).getDouble();
+        assertEquals(s, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual));
+        float expectedFloat = Float.parseFloat(s);
+        float actualFloat = value(s, MySQLType.FLOAT).getFloat();
+        assertEquals(s, Float.floatToRawIntBits(expectedFloat), Float.floatToRawIntBits(actualFloat));
+    }
+
+    @Test
+    public void doublesRoundTrip() {
+        Random random = new Random(1);
+        for (int i = 0; i < 200000; i++) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            if (!Double.isNaN(d) && !Double.isInfinite(d)) {
+                assertDoubleRoundTrip(Double.toString(d));
+                assertDoubleRoundTrip(String.format("%.17g", d).trim());
+            }
+        }
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder sb = new StringBuilder();
+            if (random.nextBoolean()) {
+                sb.append('-');
+            }
+            int digits = 1 + random.nextInt(19);
+            for (int k = 0; k < digits; k++) {
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            int fractionDigits = random.nextInt(digits + 1);
+            if (fractionDigits > 0) {
+                sb.insert(sb.length() - fractionDigits, '.');
+            }
+            if (random.nextInt(3) == 0) {
+                sb.append('e').append(random.nextInt(700) - 350);
+            }
+            assertDoubleRoundTrip(sb.toString());
+        }
+        String[] edges = {"0", "-0", "0.0", "-0.000", "1e-400", "4.9e-324", "2.2250738585072014E-308",
+                "1.7976931348623157e308", "1e309", "9007199254740993", "18446744073709551615",
+                "123456789012345678901234567890", "0.1", "3.4028235e38", "1.4e-45", "00012.3400", "5.", ".5"};
+        for (String s : edges) {
+            assertDoubleRoundTrip(s);
+        }
+    }
+
+    @Test
+    public void allSixDigitFractions() {
+        for (int i = 0; i < 1000000; i++) {
+            String s = "12." + String.valueOf(1000000 + i).substring(1);
+            assertDoubleRoundTrip(s);
+            assertEquals(s, new BigDecimal(s), value(s, MySQLType.DECIMAL).getBigDecimal());
+        }
+    }
+
+    @Test
+    public void decimals() {
+        String[] values = {"0", "-0.00", "123456789012.345678", "-999999999999.999999", "+1.5", "5.", ".5",
+                "1234567890123456789.5", "99999999999999999999999999.99", "1e5"};
+        for (String s : values) {
+            BigDecimal actual = value(s, MySQLType.DECIMAL).getBigDecimal();
+            assertEquals(s, new BigDecimal(s), actual);
+            assertEquals(s, new BigDecimal(s).scale(), actual.scale());
+        }
+        try {
+            value("1.2.3", MySQLType.DECIMAL).getBigDecimal();
+            fail("1.2.3 parsed as a decimal");
+        } catch (NumberFormatException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void gettersDoNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        ValueObject intValue = value("-123456789", MySQLType.INTEGER);
+        ValueObject longValue = value("1234567890123456789", MySQLType.BIGINT);
+        long sum = 0;
+        /* warm up, so that the measured loop is compiled */
+        for (int i = 0; i < 100000; i++) {
+            sum += intValue.getInt() + longValue.getLong() + intValue.getShort();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100000; i++) {
+            sum += intValue.getInt() + longValue.getLong() + intValue.getShort();
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(sum != 0);
+        /* a String per call would be over 10MB */
+        assertTrue("allocated " + allocated + " bytes in 300000 getter calls", allocated < 100000);
+    }
+}
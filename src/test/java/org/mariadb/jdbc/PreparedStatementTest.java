@@ -108,4 +108,26 @@ public class PreparedStatementTest extends BaseTest {
         connection.createStatement().execute("DROP TABLE IF EXISTS backTicksPreparedStatements");
     }
 
+    @Test
+    public void sharedQueryTemplate() throws SQLException {
+        /* the parsed SQL is shared, the parameters are not */
+        String query = "SELECT ?, '?', {fn UCASE(?)}";
+        PreparedStatement first = connection.prepareStatement(query);
+        PreparedStatement second = openNewConnection(connURI).prepareStatement(query);
+        first.setInt(1, 1);
+        first.setString(2, "a");
+        second.setInt(1, 2);
+        second.setString(2, "b");
+        ResultSet rs = first.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertEquals("?", rs.getString(2));
+        assertEquals("A", rs.getString(3));
+        rs = second.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertEquals("B", rs.getString(3));
+        second.getConnection().close();
+    }
+
 }
@@ -2,6 +2,10 @@ package org.mariadb.jdbc;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -212,6 +216,195 @@ public class ResultSetTest extends BaseTest {
     	}
     }
     
+    @Test
+    public void columnarResults() throws SQLException {
+        statement.execute("drop table if exists columnar_results");
+        statement.execute("create table columnar_results (i int, z int(5) zerofill, u bigint unsigned, d double, "
+                + "f float, m decimal(18,6), s varchar(20), b blob, t datetime)");
+        statement.execute("insert into columnar_results values (1, 1, 18446744073709551615, 0.1, 1.5, 12.5, 'a', "
+                + "'xyz', '2015-01-01 10:00:00'), (null, null, null, null, null, null, null, null, null), "
+                + "(-7, 12345, 3, 1e20, -0.25, -1.000001, '', '', '2014-12-31 23:59:59')");
+
+        Connection columnarConnection = openNewConnection(connURI + "&columnarResults=true");
+        try {
+            String query = "select * from columnar_results";
+            ResultSet expected = connection.createStatement().executeQuery(query);
+            ResultSet rs = columnarConnection.createStatement().executeQuery(query);
+            int columns = rs.getMetaData().getColumnCount();
+            int[] order = {3, 1, 2, 2, 3, 1};
+            for (int row : order) {
+                assertTrue(expected.absolute(row));
+                assertTrue(rs.absolute(row));
+                for (int i = 1; i <= columns; i++) {
+                    assertEquals(expected.getString(i), rs.getString(i));
+                    assertEquals(expected.getObject(i), rs.getObject(i));
+                    assertEquals(expected.wasNull(), rs.wasNull());
+                }
+                /* numbers read from the columns, not from their text */
+                for (int i = 1; i <= 6; i++) {
+                    assertEquals(expected.getLong(i), rs.getLong(i));
+                    assertEquals(expected.getInt(i), rs.getInt(i));
+                    assertEquals(expected.getDouble(i), rs.getDouble(i), 0.0);
+                    assertEquals(expected.getFloat(i), rs.getFloat(i), 0.0f);
+                    assertEquals(expected.getBigDecimal(i), rs.getBigDecimal(i));
+                    assertEquals(expected.wasNull(), rs.wasNull());
+                }
+            }
+            assertTrue(rs.last());
+            assertTrue(rs.previous());
+            assertEquals(0.0, rs.getDouble("i"), 0.0);
+            assertTrue(rs.wasNull());
+            assertTrue(rs.previous());
+            assertEquals(1, rs.getInt("i"));
+            assertEquals("00001", rs.getString("z"));
+            assertEquals(0.1, rs.getDouble("d"), 0.0);
+            assertFalse(rs.previous());
+            assertTrue(rs.isBeforeFirst());
+        } finally {
+            columnarConnection.close();
+        }
+    }
+
+    @Test
+    public void valueReadTwice() throws SQLException {
+        ResultSet rs = statement.executeQuery("select 'abc', 42");
+        assertTrue(rs.next());
+        Blob blob = rs.getBlob(1);
+        blob.setBytes(1, new byte[] {'x'});
+        assertEquals("abc", rs.getString(1));
+        assertEquals(42, rs.getInt(2));
+        assertEquals("42", rs.getString(2));
+    }
+
+    @Test
+    public void columnarResultsChunks() throws SQLException {
+        statement.execute("drop table if exists columnar_chunks");
+        statement.execute("create table columnar_chunks (i int, s text)");
+        PreparedStatement insert = connection.prepareStatement("insert into columnar_chunks values (?, ?)");
+        for (int i = 0; i < 300; i++) {
+            insert.setInt(1, i);
+            /* small values first, then values spanning several chunks, and one larger than a chunk */
+            int length = i == 299 ? 100000 : i * i / 2;
+            insert.setString(2, new String(new char[length]).replace('\0', (char) ('a' + i % 26)));
+            insert.addBatch();
+        }
+        insert.executeBatch();
+
+        Connection columnarConnection = openNewConnection(connURI + "&columnarResults=true");
+        try {
+            String query = "select * from columnar_chunks order by i";
+            ResultSet expected = connection.createStatement().executeQuery(query);
+            ResultSet rs = columnarConnection.createStatement().executeQuery(query);
+            while (expected.next()) {
+                assertTrue(rs.next());
+                assertEquals(expected.getInt(1), rs.getInt(1));
+                assertEquals(expected.getString(2), rs.getString(2));
+            }
+            assertFalse(rs.next());
+        } finally {
+            columnarConnection.close();
+        }
+    }
+
+    @Test
+    public void spilledResults() throws SQLException {
+        statement.execute("drop table if exists spilled_results");
+        statement.execute("create table spilled_results (i int, s varchar(200))");
+        PreparedStatement insert = connection.prepareStatement("insert into spilled_results values (?, ?)");
+        for (int i = 0; i < 500; i++) {
+            insert.setInt(1, i);
+            insert.setString(2, i % 7 == 0 ? null : "value " + i + " " + new String(new char[i % 150]).replace('\0', 'x'));
+            insert.addBatch();
+        }
+        insert.executeBatch();
+
+        /* about ten rows fit in memory, the other ones are written to a temporary file */
+        Connection spilledConnection = openNewConnection(connURI + "&maxResultSetMemory=2000");
+        try {
+            String query = "select * from spilled_results order by i";
+            ResultSet expected = connection.createStatement().executeQuery(query);
+            ResultSet rs = spilledConnection.createStatement().executeQuery(query);
+            int[] order = {500, 1, 250, 11, 10, 499, 3};
+            for (int row : order) {
+                assertTrue(expected.absolute(row));
+                assertTrue(rs.absolute(row));
+                assertEquals(expected.getInt(1), rs.getInt(1));
+                assertEquals(expected.getString(2), rs.getString(2));
+            }
+            assertTrue(rs.last());
+            for (int i = 499; i >= 0; i--) {
+                assertEquals(i, rs.getInt(1));
+                assertEquals(i != 0, rs.previous());
+            }
+            rs.close();
+        } finally {
+            spilledConnection.close();
+        }
+    }
+
+    @Test
+    public void spilledResultsClosed() throws SQLException {
+        statement.execute("drop table if exists spilled_results");
+        statement.execute("create table spilled_results (i int, s varchar(200))");
+        statement.execute("insert into spilled_results values (1, repeat('x', 200)), (2, repeat('y', 200)), "
+                + "(3, repeat('z', 200))");
+        int files = spillFiles();
+        MySQLConnection spilledConnection = (MySQLConnection) openNewConnection(connURI
+                + "&maxResultSetMemory=300&maxConnectionResultSetMemory=100000");
+        try {
+            Statement st = spilledConnection.createStatement();
+            st.executeQuery("select * from spilled_results");
+            assertEquals(files + 1, spillFiles());
+            assertTrue(spilledConnection.getProtocol().getResultSetMemory().getUsed() > 0);
+            /* executing the statement again closes its result without ResultSet.close() */
+            st.executeQuery("select 1");
+            assertEquals(files, spillFiles());
+            assertEquals(0, spilledConnection.getProtocol().getResultSetMemory().getUsed());
+            /* closing the connection closes the results of its statements */
+            spilledConnection.createStatement().executeQuery("select * from spilled_results");
+            assertEquals(files + 1, spillFiles());
+        } finally {
+            spilledConnection.close();
+        }
+        assertEquals(files, spillFiles());
+    }
+
+    private static int spillFiles() {
+        File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles();
+        int count = 0;
+        for (File file : files) {
+            if (file.getName().startsWith("mariadb-rows")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void columnNames() throws SQLException {
+        insertRows(2);
+        PreparedStatement ps = connection.prepareStatement("SELECT id AS ident, name FROM result_set_test WHERE id = ?");
+        for (int i = 1; i <= 2; i++) {
+            ps.setInt(1, i);
+            ResultSet rs = ps.executeQuery();
+            assertTrue(rs.next());
+            /* labels ignoring case, then the original names */
+            assertEquals(i, rs.getInt("IDENT"));
+            assertEquals(i, rs.getInt("ident"));
+            assertEquals(i, rs.getInt("id"));
+            assertEquals("row" + i, rs.getString("Name"));
+            assertEquals(2, rs.findColumn("result_set_test.NAME"));
+            try {
+                rs.findColumn("nope");
+                fail("column does not exist");
+            } catch (SQLException e) {
+                /* expected */
+            }
+            rs.close();
+        }
+        ps.close();
+    }
+
     private void insertRows(int numberOfRowsToInsert) throws SQLException {
         for (int i = 1; i <= numberOfRowsToInsert; i++) {
             statement.executeUpdate("INSERT INTO result_set_test VALUES(" + i + ", 'row" + i + "')");    
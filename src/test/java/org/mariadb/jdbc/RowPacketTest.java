@@ -0,0 +1,130 @@
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.mariadb.jdbc.internal.common.packet.RawPacket;
+import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
+import org.mariadb.jdbc.internal.mysql.MySQLType;
+import org.mariadb.jdbc.internal.mysql.packet.MySQLRowPacket;
+
+/**
+ * Text protocol rows are decoded column by column, from the offsets read with the row. Does not need a server.
+ */
+public class RowPacketTest {
+
+    private static void writeLengthEncoded(ByteArrayOutputStream out, byte[] value) {
+        if (value == null) {
+            out.write(251);
+            return;
+        }
+        int length = value.length;
+        if (length < 251) {
+            out.write(length);
+        } else if (length < 65536) {
+            out.write(252);
+            out.write(length);
+            out.write(length >> 8);
+        } else {
+            out.write(253);
+            out.write(length);
+            out.write(length >> 8);
+            out.write(length >> 16);
+        }
+        out.write(value, 0, length);
+    }
+
+    private static byte[] filled(int length, int seed) {
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = (byte) (i * 31 + seed);
+        }
+        return value;
+    }
+
+    private static RawPacket rowPacket(byte[][] values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] value : values) {
+            writeLengthEncoded(out, value);
+        }
+        return new RawPacket(ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN), 1);
+    }
+
+    private static MySQLColumnInformation[] columns(int count) {
+        MySQLColumnInformation[] columns = new MySQLColumnInformation[count];
+        for (int i = 0; i < count; i++) {
+            columns[i] = MySQLColumnInformation.create("c" + i, MySQLType.BLOB);
+        }
+        return columns;
+    }
+
+    @Test
+    public void valuesDecodedFromOffsets() throws IOException {
+        byte[][] values = {"1".getBytes(), null, new byte[0], filled(300, 1), filled(70000, 2), "last".getBytes()};
+        MySQLRowPacket row = new MySQLRowPacket(columns(values.length));
+        row.read(rowPacket(values), null);
+        for (int i = values.length - 1; i >= 0; i--) {
+            if (values[i] == null) {
+                assertNull(row.getBytes(i));
+                assertTrue(row.getValueObject(i).isNull());
+            } else {
+                assertArrayEquals(values[i], row.getValueObject(i).getBytes());
+            }
+        }
+        assertEquals("last", row.getValueObject(5).getString());
+    }
+
+    @Test
+    public void rowReused() throws IOException {
+        MySQLRowPacket row = new MySQLRowPacket(columns(2));
+        row.read(rowPacket(new byte[][] {"a".getBytes(), null}), null);
+        MySQLRowPacket first = row.detach();
+        row.read(rowPacket(new byte[][] {null, "b".getBytes()}), null);
+        assertNull(row.getBytes(0));
+        assertEquals("b", row.getValueObject(1).getString());
+        assertEquals("a", first.getValueObject(0).getString());
+        assertNull(first.getBytes(1));
+    }
+
+    /* column definition of a DATETIME column with the given decimals */
+    private static MySQLColumnInformation datetimeColumn(int decimals) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 4; i++) {
+            out.write(new byte[] {1, 0});
+        }
+        for (int i = 0; i < 2; i++) {
+            out.write(new byte[] {1, 'd'});
+        }
+        out.write(0xc);
+        out.write(new byte[] {63, 0});
+        out.write(new byte[] {26, 0, 0, 0});
+        out.write(12); /* DATETIME */
+        out.write(new byte[] {0, 0});
+        out.write(decimals);
+        out.write(new byte[] {0, 0});
+        return new MySQLColumnInformation(new RawPacket(ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN), 0));
+    }
+
+    @Test
+    public void binaryDatetimeFraction() throws IOException {
+        /* header, NULL bitmap, then 2015-03-07 13:05:09.123456 */
+        byte[] packet = {0, 0, 11, (byte) 0xdf, 7, 3, 7, 13, 5, 9, 0x40, (byte) 0xe2, 1, 0};
+        String[] expected = {"2015-03-07 13:05:09.1", "2015-03-07 13:05:09.123", "2015-03-07 13:05:09.123456",
+                "2015-03-07 13:05:09.123456"};
+        /* fixed decimals, then the 31 decimals of expressions */
+        int[] decimals = {1, 3, 6, 31};
+        for (int i = 0; i < decimals.length; i++) {
+            MySQLRowPacket row = new MySQLRowPacket(new MySQLColumnInformation[] {datetimeColumn(decimals[i])});
+            row.readBinary(new RawPacket(ByteBuffer.wrap(packet).order(ByteOrder.LITTLE_ENDIAN), 1), null);
+            assertEquals(expected[i], row.getValueObject(0).getString());
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * With useServerPrepStmts=true, prepared statements are prepared on the server and use the binary protocol.
+ */
+public class ServerSidePreparedStatementTest extends BaseTest {
+    private Connection serverConnection;
+
+    @Before
+    public void createTable() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists server_prepared");
+        st.execute("create table server_prepared (id int not null primary key auto_increment, i int, "
+                + "u bigint unsigned, d double, f float, m decimal(18,6), s varchar(100), b blob, t datetime, "
+                + "z smallint(5) zerofill, y tinyint)");
+        st.execute("insert into server_prepared (i, u, d, f, m, s, b, t, z, y) values "
+                + "(1, 18446744073709551615, 0.1, 1.5, 12.5, 'a', 'xyz', '2015-01-01 10:00:00', 7, -3), "
+                + "(null, null, null, null, null, null, null, null, null, null), "
+                + "(-7, 3, 12345.5, -0.25, -1.000001, '\u00e9', '', '2014-12-31 23:59:59', 12345, 127)");
+        serverConnection = openNewConnection(connURI + "&useServerPrepStmts=true");
+    }
+
+    @After
+    public void closeConnection() throws SQLException {
+        serverConnection.close();
+    }
+
+    @Test
+    public void binaryRows() throws SQLException {
+        String query = "select i, u, d, f, m, s, b, t, z, y from server_prepared where id > ? order by id";
+        PreparedStatement ps = serverConnection.prepareStatement(query);
+        assertTrue(ps instanceof MySQLServerSidePreparedStatement);
+        ps.setInt(1, 0);
+        ResultSet rs = ps.executeQuery();
+        ResultSet expected = connection.createStatement().executeQuery(query.replace("?", "0"));
+        int columns = rs.getMetaData().getColumnCount();
+        while (expected.next()) {
+            assertTrue(rs.next());
+            for (int i = 1; i <= columns; i++) {
+                assertEquals(expected.getString(i), rs.getString(i));
+                assertArrayEquals(expected.getBytes(i), rs.getBytes(i));
+                if (i != 7) {
+                    assertEquals(expected.getObject(i), rs.getObject(i));
+                }
+                assertEquals(expected.wasNull(), rs.wasNull());
+            }
+            /* numeric columns */
+            for (int i : new int[] {1, 2, 3, 4, 9, 10}) {
+                assertEquals(expected.getLong(i), rs.getLong(i));
+                assertEquals(expected.getInt(i), rs.getInt(i));
+                assertEquals(expected.getBigDecimal(i), rs.getBigDecimal(i));
+            }
+        }
+        assertFalse(rs.next());
+        ps.close();
+    }
+
+    @Test
+    public void parameters() throws SQLException {
+        PreparedStatement insert = serverConnection.prepareStatement(
+                "insert into server_prepared (i, u, d, f, m, s, b, t) values (?, ?, ?, ?, ?, ?, ?, ?)");
+        Timestamp timestamp = Timestamp.valueOf("2015-03-07 13:05:09");
+        for (int i = 0; i < 3; i++) {
+            /* the types are the same for the first two executions, the third sends NULL */
+            insert.setInt(1, 100 + i);
+            insert.setLong(2, Long.MAX_VALUE);
+            insert.setDouble(3, i / 4.0);
+            insert.setFloat(4, 0.5f);
+            insert.setBigDecimal(5, new BigDecimal("3.141593"));
+            if (i < 2) {
+                insert.setString(6, "value " + i);
+            } else {
+                insert.setNull(6, Types.VARCHAR);
+            }
+            insert.setBytes(7, new byte[] {0, 1, 2});
+            insert.setTimestamp(8, timestamp);
+            assertEquals(1, insert.executeUpdate());
+        }
+        ResultSet keys = insert.getGeneratedKeys();
+        assertTrue(keys.next());
+        insert.close();
+
+        PreparedStatement select = serverConnection.prepareStatement(
+                "select i, u, d, f, m, s, b, t from server_prepared where i >= ? order by i");
+        select.setInt(1, 100);
+        ResultSet rs = select.executeQuery();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rs.next());
+            assertEquals(100 + i, rs.getInt(1));
+            assertEquals(Long.MAX_VALUE, rs.getLong(2));
+            assertEquals(i / 4.0, rs.getDouble(3), 0.0);
+            assertEquals(0.5f, rs.getFloat(4), 0.0f);
+            assertEquals(new BigDecimal("3.141593"), rs.getBigDecimal(5));
+            assertEquals(i < 2 ? "value " + i : null, rs.getString(6));
+            assertArrayEquals(new byte[] {0, 1, 2}, rs.getBytes(7));
+            assertEquals(timestamp, rs.getTimestamp(8));
+        }
+        assertFalse(rs.next());
+        select.close();
+    }
+
+    @Test
+    public void longData() throws SQLException {
+        byte[] blob = new byte[1000000];
+        for (int i = 0; i < blob.length; i++) {
+            blob[i] = (byte) i;
+        }
+        PreparedStatement insert = serverConnection.prepareStatement(
+                "insert into server_prepared (i, s, b) values (?, ?, ?)");
+        insert.setInt(1, 200);
+        insert.setCharacterStream(2, new StringReader("stream \u00e9"));
+        insert.setBinaryStream(3, new ByteArrayInputStream(blob));
+        insert.execute();
+        insert.setInt(1, 201);
+        insert.setCharacterStream(2, new StringReader(""));
+        insert.setBinaryStream(3, new ByteArrayInputStream(blob), 10);
+        insert.execute();
+        insert.close();
+
+        ResultSet rs = connection.createStatement().executeQuery(
+                "select s, b from server_prepared where i >= 200 order by i");
+        assertTrue(rs.next());
+        assertEquals("stream \u00e9", rs.getString(1));
+        assertArrayEquals(blob, rs.getBytes(2));
+        assertTrue(rs.next());
+        assertEquals("", rs.getString(1));
+        assertEquals(10, rs.getBytes(2).length);
+    }
+
+    @Test
+    public void batchAndStreaming() throws SQLException {
+        PreparedStatement insert = serverConnection.prepareStatement("insert into server_prepared (i) values (?)");
+        for (int i = 0; i < 50; i++) {
+            insert.setInt(1, 1000 + i);
+            insert.addBatch();
+        }
+        int[] counts = insert.executeBatch();
+        assertEquals(50, counts.length);
+        assertEquals(1, counts[49]);
+
+        PreparedStatement select = serverConnection.prepareStatement(
+                "select i from server_prepared where i >= ? order by i");
+        select.setFetchSize(Integer.MIN_VALUE);
+        select.setInt(1, 1000);
+        ResultSet rs = select.executeQuery();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(rs.next());
+            assertEquals(1000 + i, rs.getInt(1));
+        }
+        assertFalse(rs.next());
+        rs.close();
+        select.close();
+        assertTrue(select.isClosed());
+    }
+
+    @Test
+    public void unsetParameter() throws SQLException {
+        PreparedStatement ps = serverConnection.prepareStatement("select ? + ?");
+        ps.setInt(1, 1);
+        try {
+            ps.executeQuery();
+            throw new AssertionError("a parameter is not set");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("parameters"));
+        }
+        ps.setNull(2, Types.INTEGER);
+        ResultSet rs = ps.executeQuery();
+        assertTrue(rs.next());
+        assertNull(rs.getObject(1));
+        ps.close();
+    }
+
+    @Test
+    public void statementCache() throws SQLException {
+        String query = "select i from server_prepared where id = ?";
+        MySQLServerSidePreparedStatement ps = prepare(query);
+        int statementId = ps.statementId;
+        ps.close();
+        /* the closed statement is used again, and not while it is used by another statement */
+        MySQLServerSidePreparedStatement reused = prepare(query);
+        assertEquals(statementId, reused.statementId);
+        MySQLServerSidePreparedStatement other = prepare(query);
+        assertFalse(statementId == other.statementId);
+        reused.setInt(1, 1);
+        ResultSet rs = reused.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        reused.close();
+        other.close();
+    }
+
+    @Test
+    public void statementCacheEviction() throws SQLException {
+        Connection small = openNewConnection(connURI + "&useServerPrepStmts=true&prepStmtCacheSize=2");
+        try {
+            long closed = comStmtClose(small);
+            for (int i = 0; i < 3; i++) {
+                small.prepareStatement("select " + i + ", ?").close();
+            }
+            /* the least recently used statement is closed when the third one is cached */
+            assertEquals(closed + 1, comStmtClose(small));
+            small.prepareStatement("select 2, ?").close();
+            assertEquals(closed + 1, comStmtClose(small));
+        } finally {
+            small.close();
+        }
+    }
+
+    @Test
+    public void statementCacheDatabase() throws SQLException {
+        String database = serverConnection.getCatalog();
+        Statement st = connection.createStatement();
+        st.execute("create database if not exists server_prepared_other");
+        st.execute("create table if not exists server_prepared_other.server_prepared (i int)");
+        st.execute("delete from server_prepared_other.server_prepared");
+        st.execute("insert into server_prepared_other.server_prepared values (42)");
+        String query = "select max(i) from server_prepared where ? > 0";
+        try {
+            assertEquals(1, selectInt(query));
+            /* the same SQL, prepared again in the other database, uses the tables of that database */
+            serverConnection.setCatalog("server_prepared_other");
+            assertEquals(42, selectInt(query));
+            serverConnection.createStatement().execute("use " + database);
+            assertEquals(1, selectInt(query));
+            /* a USE statement after a comment changes the database too */
+            serverConnection.createStatement().execute("/* other */ USE server_prepared_other");
+            assertEquals(42, selectInt(query));
+            serverConnection.createStatement().execute("-- back\nuse " + database);
+            assertEquals(1, selectInt(query));
+        } finally {
+            serverConnection.setCatalog(database);
+            st.execute("drop database server_prepared_other");
+        }
+    }
+
+    private int selectInt(String query) throws SQLException {
+        PreparedStatement ps = serverConnection.prepareStatement(query);
+        ps.setInt(1, 1);
+        ResultSet rs = ps.executeQuery();
+        assertTrue(rs.next());
+        int value = rs.getInt(1);
+        ps.close();
+        return value;
+    }
+
+    @Test
+    public void resultMetadata() throws SQLException {
+        /* MariaDB servers only send the column definitions again when they change */
+        PreparedStatement ps = serverConnection.prepareStatement("select * from server_prepared where id = ?");
+        for (int i = 1; i <= 3; i++) {
+            ps.setInt(1, i);
+            ResultSet rs = ps.executeQuery();
+            assertEquals(11, rs.getMetaData().getColumnCount());
+            assertEquals("s", rs.getMetaData().getColumnName(7));
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt("id"));
+            rs.close();
+        }
+        connection.createStatement().execute("alter table server_prepared add column added int default 5");
+        ps.setInt(1, 1);
+        ResultSet rs = ps.executeQuery();
+        assertEquals(12, rs.getMetaData().getColumnCount());
+        assertTrue(rs.next());
+        assertEquals(5, rs.getInt("added"));
+        ps.close();
+    }
+
+    @Test
+    public void statementMethods() throws SQLException {
+        PreparedStatement ps = serverConnection.prepareStatement("select i from server_prepared where id = ? or ?");
+        assertEquals(2, ps.getParameterMetaData().getParameterCount());
+        assertEquals(0, ps.getMaxFieldSize());
+        ps.setMaxFieldSize(100);
+        ps.setFetchDirection(ResultSet.FETCH_FORWARD);
+        ps.setEscapeProcessing(true);
+        ps.setPoolable(false);
+        assertFalse(ps.isPoolable());
+        ps.setQueryTimeout(10);
+        assertEquals(10, ps.getQueryTimeout());
+        ps.cancel();
+
+        /* SQL text is executed as a text query, and the prepared statement still executes after it */
+        assertTrue(ps.execute("select {fn concat('a', 'b')}"));
+        ResultSet rs = ps.getResultSet();
+        assertTrue(rs.next());
+        assertEquals("ab", rs.getString(1));
+        assertEquals(1, ps.executeUpdate("update server_prepared set y = 5 where id = 1"));
+        ps.setInt(1, 1);
+        ps.setBoolean(2, false);
+        rs = ps.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+
+        PreparedStatement insert = serverConnection.prepareStatement("insert into server_prepared (i) values (?)");
+        insert.setInt(1, 300);
+        insert.addBatch();
+        insert.addBatch("insert into server_prepared (i) values (301)");
+        insert.setInt(1, 302);
+        insert.addBatch();
+        int[] counts = insert.executeBatch();
+        assertEquals(3, counts.length);
+        rs = connection.createStatement().executeQuery("select count(*) from server_prepared where i >= 300");
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+        insert.close();
+        ps.close();
+    }
+
+    @Test
+    public void closeOnCompletion() throws SQLException {
+        PreparedStatement ps = serverConnection.prepareStatement("select id from server_prepared where id = ?");
+        assertFalse(ps.isCloseOnCompletion());
+        ps.closeOnCompletion();
+        assertTrue(ps.isCloseOnCompletion());
+        ps.setInt(1, 1);
+        ResultSet rs = ps.executeQuery();
+        assertTrue(rs.next());
+        assertFalse(ps.isClosed());
+        rs.close();
+        assertTrue(ps.isClosed());
+    }
+
+    @Test
+    public void resultSetType() throws SQLException {
+        PreparedStatement ps = serverConnection.prepareStatement("select id from server_prepared where id >= ?");
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, ps.getResultSetType());
+        ps.setInt(1, 1);
+        ResultSet rs = ps.executeQuery();
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, rs.getType());
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, ps.getResultSetType());
+        rs.close();
+
+        /* streamed rows can only be read forward */
+        ps.setFetchSize(Integer.MIN_VALUE);
+        assertEquals(ResultSet.TYPE_FORWARD_ONLY, ps.getResultSetType());
+        rs = ps.executeQuery();
+        assertEquals(ResultSet.TYPE_FORWARD_ONLY, rs.getType());
+        assertEquals(ResultSet.TYPE_FORWARD_ONLY, ps.getResultSetType());
+        while (rs.next()) {
+            assertTrue(rs.getInt(1) >= 1);
+        }
+        rs.close();
+        ps.close();
+    }
+
+    @Test(expected = SQLTimeoutException.class)
+    public void queryTimeout() throws SQLException {
+        PreparedStatement ps = serverConnection.prepareStatement("select sleep(?)");
+        ps.setQueryTimeout(1);
+        ps.setInt(1, 100);
+        ps.execute();
+    }
+
+    @Test
+    public void cursorFetch() throws SQLException {
+        Connection cursorConnection = openNewConnection(connURI + "&useServerPrepStmts=true&useCursorFetch=true");
+        try {
+            PreparedStatement ps = cursorConnection.prepareStatement(
+                    "select id from server_prepared where id >= ? order by id");
+            ps.setFetchSize(1);
+            for (int execution = 0; execution < 2; execution++) {
+                ps.setInt(1, 1);
+                ResultSet rs = ps.executeQuery();
+                assertTrue(rs.next());
+                assertEquals(1, rs.getInt(1));
+                /* the rows are fetched from the cursor, the connection can execute other queries meanwhile */
+                ResultSet other = cursorConnection.createStatement().executeQuery("select 2");
+                assertTrue(other.next());
+                assertTrue(rs.next());
+                assertEquals(2, rs.getInt(1));
+                /* the second execution closes the cursor of the first one before all its rows are read */
+            }
+            ps.close();
+        } finally {
+            cursorConnection.close();
+        }
+    }
+
+    @Test
+    public void cursorCloseWhileStreaming() throws SQLException {
+        Connection cursorConnection = openNewConnection(connURI + "&useServerPrepStmts=true&useCursorFetch=true");
+        try {
+            PreparedStatement ps = cursorConnection.prepareStatement(
+                    "select id from server_prepared where id >= ? order by id");
+            ps.setFetchSize(1);
+            ps.setInt(1, 1);
+            ResultSet rs = ps.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+
+            Statement streaming = cursorConnection.createStatement();
+            streaming.setFetchSize(Integer.MIN_VALUE);
+            ResultSet streamed = streaming.executeQuery("select 1 union all select 2 union all select 3");
+            assertTrue(streamed.next());
+            /* closing the cursor does not read a response among the rows of the streaming result */
+            rs.close();
+            for (int i = 1; i <= 3; i++) {
+                if (i > 1) {
+                    assertTrue(streamed.next());
+                }
+                assertEquals(i, streamed.getInt(1));
+            }
+            assertFalse(streamed.next());
+            streamed.close();
+
+            /* the cursor left open is closed by the next execution */
+            rs = ps.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            rs.close();
+            ResultSet other = cursorConnection.createStatement().executeQuery("select 4");
+            assertTrue(other.next());
+            assertEquals(4, other.getInt(1));
+            ps.close();
+        } finally {
+            cursorConnection.close();
+        }
+    }
+
+    private MySQLServerSidePreparedStatement prepare(String query) throws SQLException {
+        return (MySQLServerSidePreparedStatement) serverConnection.prepareStatement(query);
+    }
+
+    private static long comStmtClose(Connection c) throws SQLException {
+        ResultSet rs = c.createStatement().executeQuery("show session status like 'Com_stmt_close'");
+        assertTrue(rs.next());
+        return rs.getLong(2);
+    }
+}
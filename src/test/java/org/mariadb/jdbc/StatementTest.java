@@ -53,6 +53,102 @@ public class StatementTest extends BaseTest {
 		connection.close();
 	}
 
+	@Test
+	public void prefetchRowsTest() throws SQLException {
+		Connection prefetchConnection = openNewConnection(connURI + "&prefetchRows=16&allowMultiQueries=true");
+		try {
+			Statement st = prefetchConnection.createStatement();
+			st.setFetchSize(Integer.MIN_VALUE);
+			ResultSet rs = st.executeQuery("select seq, concat('row', seq) from "
+					+ "(select a.i * 100 + b.i seq from (select 0 i union all select 1 union all select 2) a, "
+					+ "(select 0 i union all select 1 union all select 2 union all select 3) b) t order by seq");
+			int rows = 0;
+			while (rs.next()) {
+				assertEquals("row" + rs.getInt(1), rs.getString(2));
+				rows++;
+			}
+			assertEquals(12, rows);
+			rs.close();
+
+			/* closing before the last row reads the remaining rows, the next query works */
+			assertTrue(st.execute("select 1 union all select 2 union all select 3; select 4"));
+			rs = st.getResultSet();
+			assertTrue(rs.next());
+			assertEquals(1, rs.getInt(1));
+			assertTrue(st.getMoreResults());
+			rs = st.getResultSet();
+			assertTrue(rs.next());
+			assertEquals(4, rs.getInt(1));
+			assertFalse(rs.next());
+
+			/* errors while reading rows are reported by next() */
+			rs = st.executeQuery("select 1 union all select (select 1 union all select 2)");
+			try {
+				while (rs.next()) {
+				}
+				fail("subquery returning two rows should fail");
+			} catch (SQLException e) {
+				assertEquals(1242, e.getErrorCode());
+			}
+			rs = st.executeQuery("select 5");
+			assertTrue(rs.next());
+			assertEquals(5, rs.getInt(1));
+		} finally {
+			prefetchConnection.close();
+		}
+	}
+
+	/* number of threads reading rows ahead, idle pool threads excluded */
+	private static int prefetchingThreads() {
+		int count = 0;
+		for (StackTraceElement[] stack : Thread.getAllStackTraces().values()) {
+			for (StackTraceElement frame : stack) {
+				if (frame.getClassName().endsWith(".RowPrefetcher") && frame.getMethodName().equals("run")) {
+					count++;
+					break;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static boolean prefetchingThreadsExit(int expected) throws InterruptedException {
+		for (int i = 0; i < 100 && prefetchingThreads() > expected; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return prefetchingThreads() <= expected;
+	}
+
+	private static ResultSet prefetchedResult(Connection prefetchConnection) throws SQLException {
+		Statement st = prefetchConnection.createStatement();
+		st.setFetchSize(Integer.MIN_VALUE);
+		ResultSet rs = st.executeQuery("select a.i * 100 + b.i from "
+				+ "(select 0 i union all select 1 union all select 2) a, "
+				+ "(select 0 i union all select 1 union all select 2 union all select 3) b");
+		assertTrue(rs.next());
+		return rs;
+	}
+
+	@Test
+	public void prefetchAbandoned() throws Exception {
+		int before = prefetchingThreads();
+
+		/* the connection is closed while the rows are read ahead, and its connection killed */
+		Connection prefetchConnection = openNewConnection(connURI + "&prefetchRows=2");
+		ResultSet rs = prefetchConnection.createStatement().executeQuery("select connection_id()");
+		assertTrue(rs.next());
+		long connectionId = rs.getLong(1);
+		prefetchedResult(prefetchConnection);
+		connection.createStatement().execute("kill " + connectionId);
+		prefetchConnection.close();
+		assertTrue(prefetchingThreadsExit(before));
+
+		/* the result is dropped without being read or closed, with its connection */
+		prefetchedResult(openNewConnection(connURI + "&prefetchRows=2"));
+		assertTrue(prefetchingThreadsExit(before));
+	}
+
 	@Test(expected=SQLException.class)
 	public void afterConnectionClosedTest() throws SQLException {
 		Connection conn2 = DriverManager.getConnection("jdbc:mariadb://localhost:3306/test?user=root");
@@ -228,4 +324,53 @@ public class StatementTest extends BaseTest {
             assertEquals(ER_LOAD_DATA_INVALID_COLUMN_STATE, sqlException.getSQLState());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void pipelinedBatch() throws SQLException {
+        setConnection("&useBatchPipelining=true");
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists pipelined_batch");
+        st.execute("create table pipelined_batch (id int not null primary key auto_increment, v int)");
+        for (int i = 0; i < 300; i++) {
+            st.addBatch("insert into pipelined_batch (v) values (" + i + ")");
+        }
+        st.addBatch("update pipelined_batch set v = v + 1 where v < 10");
+        st.addBatch("delete from pipelined_batch where v >= 200");
+        int[] counts = st.executeBatch();
+        assertEquals(302, counts.length);
+        assertEquals(1, counts[0]);
+        assertEquals(10, counts[300]);
+        assertEquals(100, counts[301]);
+        ResultSet keys = st.getGeneratedKeys();
+        for (int i = 1; i <= 300; i++) {
+            assertTrue(keys.next());
+            assertEquals(i, keys.getInt(1));
+        }
+
+        MySQLStatement mysqlStatement = connection.createStatement().unwrap(MySQLStatement.class);
+        mysqlStatement.addBatch("update pipelined_batch set v = 0 where id = 1");
+        mysqlStatement.addBatch("insert into pipelined_batch (id, v) values (1, 0)");
+        mysqlStatement.addBatch("update pipelined_batch set v = 0 where id = 2");
+        try {
+            mysqlStatement.executePipeline();
+            fail("duplicate key should fail");
+        } catch (java.sql.BatchUpdateException e) {
+            int[] updateCounts = e.getUpdateCounts();
+            assertEquals(3, updateCounts.length);
+            assertEquals(1, updateCounts[0]);
+            assertEquals(Statement.EXECUTE_FAILED, updateCounts[1]);
+            assertEquals(1, updateCounts[2]);
+        }
+
+        /* LOAD DATA is found after a comment too */
+        mysqlStatement.addBatch("/* load */ LOAD DATA LOCAL INFILE 'dummy.tsv' INTO TABLE pipelined_batch");
+        try {
+            mysqlStatement.executePipeline();
+            fail("LOAD DATA should not be pipelined");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("LOAD DATA"));
+        }
+        mysqlStatement.clearBatch();
+        st.execute("drop table pipelined_batch");
+    }
+}
@@ -0,0 +1,125 @@
+package org.mariadb.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mariadb.jdbc.internal.common.ValueObject;
+import org.mariadb.jdbc.internal.common.query.parameters.ParameterWriter;
+import org.mariadb.jdbc.internal.mysql.MySQLColumnInformation;
+import org.mariadb.jdbc.internal.mysql.MySQLType;
+import org.mariadb.jdbc.internal.mysql.MySQLValueObject;
+
+/**
+ * Dates and times are decoded and encoded without SimpleDateFormat when possible. Checks the results are the
+ * same as with SimpleDateFormat, including around daylight saving time changes. Does not need a server.
+ */
+public class TemporalCodecTest {
+    private static final String[] ZONES = {"UTC", "Europe/Paris", "America/New_York", "Australia/Lord_Howe",
+            "Asia/Kolkata", "America/Sao_Paulo"};
+    private final TimeZone defaultZone = TimeZone.getDefault();
+
+    @After
+    public void restoreDefaultZone() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    private static ValueObject value(String s, MySQLType type) {
+        return new MySQLValueObject(s.getBytes(), MySQLColumnInformation.create("c", type));
+    }
+
+    private static SimpleDateFormat format(String pattern, Calendar cal) {
+        SimpleDateFormat sdf = new SimpleDateFormat(pattern);
+        if (cal != null) {
+            sdf.setCalendar(cal);
+        }
+        return sdf;
+    }
+
+    private static String written(Timestamp ts, Calendar cal) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParameterWriter.writeTimestamp(out, ts, cal, true);
+        return out.toString();
+    }
+
+    private static void checkDecoding(String date, String time, Calendar cal) throws ParseException {
+        String timestamp = date + " " + time;
+        assertEquals(timestamp, format("yyyy-MM-dd HH:mm:ss", cal).parse(timestamp).getTime(),
+                value(timestamp, MySQLType.DATETIME).getTimestamp(cal).getTime());
+        assertEquals(date, format("yyyy-MM-dd", cal).parse(date).getTime(),
+                value(date, MySQLType.DATE).getDate(cal).getTime());
+        assertEquals(time, format("HH:mm:ss", cal).parse(time).getTime(),
+                value(time, MySQLType.TIME).getTime(cal).getTime());
+    }
+
+    @Test
+    public void sameAsSimpleDateFormat() throws Exception {
+        Random random = new Random(3);
+        for (String zone : ZONES) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            for (int i = 0; i < 5000; i++) {
+                Calendar cal = i % 2 == 0 ? null : Calendar.getInstance(TimeZone.getTimeZone(ZONES[i % ZONES.length]));
+                String date = String.format("%04d-%02d-%02d", 1583 + random.nextInt(600), 1 + random.nextInt(12),
+                        1 + random.nextInt(28));
+                String time = String.format("%02d:%02d:%02d", random.nextInt(24), random.nextInt(60),
+                        random.nextInt(60));
+                checkDecoding(date, time, cal);
+
+                long millis = (long) (random.nextDouble() * 4000000000000L) - 1000000000000L;
+                Timestamp ts = new Timestamp(millis - millis % 1000);
+                assertEquals("'" + format("yyyy-MM-dd HH:mm:ss", cal).format(ts) + "'", written(ts, cal));
+            }
+        }
+    }
+
+    @Test
+    public void daylightSavingTimeChanges() throws Exception {
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+        String[] times = {"01:59:59", "02:00:00", "02:30:00", "03:00:00", "03:30:00"};
+        for (String time : times) {
+            if (!time.startsWith("02")) {
+                checkDecoding("2015-03-29", time, null);
+            }
+            checkDecoding("2015-10-25", time, null);
+            checkDecoding("2015-10-24", time, null);
+        }
+        /* skipped local time, parsed in UTC as before */
+        assertEquals(Timestamp.valueOf("2015-03-29 04:30:00"),
+                value("2015-03-29 02:30:00", MySQLType.TIMESTAMP).getTimestamp(null));
+    }
+
+    @Test
+    public void fractionalSeconds() throws Exception {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        Timestamp ts = value("2014-06-01 10:11:12.123456", MySQLType.DATETIME).getTimestamp(null);
+        assertEquals(Timestamp.valueOf("2014-06-01 10:11:12.123456"), ts);
+        assertEquals("'2014-06-01 10:11:12.123456'", written(ts, null));
+        Time time = value("10:11:12.5", MySQLType.TIME).getTime(null);
+        assertEquals(format("HH:mm:ss", null).parse("10:11:12").getTime() + 500, time.getTime());
+    }
+
+    @Test
+    public void valuesLeftToSimpleDateFormat() throws Exception {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        assertEquals(null, value("0000-00-00 00:00:00", MySQLType.DATETIME).getTimestamp(null));
+        assertEquals(null, value("0000-00-00", MySQLType.DATE).getDate(null));
+        /* lenient date parsing */
+        assertEquals(Timestamp.valueOf("2015-03-02 00:00:00").getTime(),
+                value("2015-02-30", MySQLType.DATE).getDate(null).getTime());
+        /* Julian calendar */
+        assertEquals(format("yyyy-MM-dd HH:mm:ss", null).parse("1000-01-01 10:00:00").getTime(),
+                value("1000-01-01 10:00:00", MySQLType.DATETIME).getTimestamp(null).getTime());
+        assertEquals(format("HH:mm:ss", null).parse("100:00:00").getTime(),
+                value("100:00:00", MySQLType.TIME).getTime(null).getTime());
+    }
+}
@@ -52,4 +52,28 @@ static { Logger.getLogger("").setLevel(Level.OFF); }
         assertEquals(true,rs.next());
         assertEquals(jaString,rs.getString(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void columnCharset() throws SQLException {
+        String text = "\u20ac \u00e9t\u00e9 \u0160";
+        Statement stmt = connection.createStatement();
+        stmt.executeUpdate("drop table if exists unicode_latin1");
+        stmt.executeUpdate("create table unicode_latin1 (l varchar(100) charset latin1, a varchar(100) charset ascii)");
+        PreparedStatement ps = connection.prepareStatement("insert into unicode_latin1 values (?, ?)");
+        ps.setString(1, text);
+        ps.setString(2, "plain");
+        ps.executeUpdate();
+        /* the server sends the values in the column character set, and the driver decodes them in that charset */
+        Connection latin1 = openNewConnection(connURI);
+        try {
+            Statement latin1Stmt = latin1.createStatement();
+            latin1Stmt.execute("set character_set_results = null");
+            ResultSet rs = latin1Stmt.executeQuery("select l, a from unicode_latin1");
+            assertEquals(true, rs.next());
+            assertEquals(text, rs.getString(1));
+            assertEquals("plain", rs.getString(2));
+        } finally {
+            latin1.close();
+        }
+    }
+}
@@ -44,4 +44,34 @@ public class UtilTest {
         for(int i = 0; i < inputs.length; i++)
             assertEquals(Utils.nativeSQL(inputs[i],false), outputs[i]);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void statementStartingWith() {
+        String[] matching = new String[] {
+                "use db",
+                "  USE `db`",
+                "/* x */ USE db",
+                "-- x\nuse db",
+                "# x\n\tuse db",
+                "select 1; /* x */ use db",
+                "select ';'; use db",
+                "select 'it\\'s;'; use db"
+        };
+        String[] other = new String[] {
+                "select 1",
+                "user_function()",
+                "select 'a; use db'",
+                "/* use db */ select 1",
+                "select 1 -- ; use db",
+                "select `;use db`",
+                "useless"
+        };
+        for (String sql : matching)
+            assertEquals(sql, true, Utils.hasStatementStartingWith(sql, "USE", false));
+        for (String sql : other)
+            assertEquals(sql, false, Utils.hasStatementStartingWith(sql, "USE", false));
+        /* without backslash escapes, the backslash does not escape the quote that ends the literal */
+        assertEquals(true, Utils.hasStatementStartingWith("select '\\'; use db", "USE", true));
+        assertEquals(false, Utils.hasStatementStartingWith("select '\\'; use db'", "USE", false));
+    }
+}